@@ -0,0 +1,93 @@
+package dev.nelmin.java.benchmarks;
+
+import dev.nelmin.java.fs.files.IMGFile;
+import dev.nelmin.java.fs.files.RPFFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Table of contents parsing and entry reads of IMG and RPF2 archives. Parsing opens and maps the archive anew
+ * every time; reads go through an archive that stays open, cycling over all entries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArchiveBenchmark {
+    private Path imgPath;
+    private Path rpfPath;
+    private IMGFile img;
+    private RPFFile rpf;
+    private int nextImg;
+    private int nextRpf;
+
+    @Setup
+    public void setup() {
+        Path fixtures = Fixtures.ensure();
+        imgPath = Fixtures.img(fixtures);
+        rpfPath = Fixtures.rpf(fixtures);
+        img = new IMGFile(imgPath);
+        rpf = new RPFFile(rpfPath);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        img.close();
+        rpf.close();
+    }
+
+    @Benchmark
+    public List<IMGFile.Entry> imgParseToc() throws IOException {
+        IMGFile archive = new IMGFile(imgPath);
+        try {
+            return archive.entries();
+        } finally {
+            archive.close();
+        }
+    }
+
+    @Benchmark
+    public void rpfParseToc(Blackhole blackhole) throws IOException {
+        RPFFile archive = new RPFFile(rpfPath);
+        try {
+            // Directories decode their children lazily, walk them all
+            for (RPFFile.Entry entry : archive.root().children()) {
+                if (entry instanceof RPFFile.Directory directory) blackhole.consume(directory.children());
+            }
+        } finally {
+            archive.close();
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer imgReadEntry() throws IOException {
+        int index = nextImg;
+        nextImg = index + 1 == Fixtures.IMG_ENTRIES ? 0 : index + 1;
+        return img.read(Fixtures.imgEntry(index));
+    }
+
+    @Benchmark
+    public ByteBuffer rpfReadEntry() throws IOException {
+        int index = nextRpf;
+        nextRpf = index + 1 == Fixtures.RPF_ENTRIES ? 0 : index + 1;
+        return rpf.read(Fixtures.rpfEntry(index));
+    }
+}
@@ -0,0 +1,115 @@
+package dev.nelmin.java.benchmarks;
+
+import dev.nelmin.java.fs.backup.BackupStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * {@link BackupStore} throughput on a {@value Fixtures#BACKUP_MIB} MiB file. Divide the size by the time per
+ * operation for MiB/s.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BackupBenchmark {
+    private static final String VERSION = "bench";
+
+    /**
+     * A store that is emptied before every operation.
+     */
+    @State(Scope.Thread)
+    public static class EmptyStore {
+        Path source;
+        Path directory;
+        BackupStore store;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            source = Fixtures.backup(Fixtures.ensure());
+            directory = Files.createTempDirectory("mtiv-backup-bench");
+        }
+
+        @Setup(Level.Invocation)
+        public void empty() throws IOException {
+            delete(directory.resolve("store"));
+            store = new BackupStore(directory.resolve("store"));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+    }
+
+    /**
+     * A store that already holds a backup of the file.
+     */
+    @State(Scope.Thread)
+    public static class FilledStore {
+        Path source;
+        Path directory;
+        Path restored;
+        BackupStore store;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            source = Fixtures.backup(Fixtures.ensure());
+            directory = Files.createTempDirectory("mtiv-backup-bench");
+            restored = directory.resolve("restored.bin");
+            store = new BackupStore(directory.resolve("store"));
+            store.backup(source, VERSION);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Every chunk is new and written to the store.
+     */
+    @Benchmark
+    public BackupStore.Manifest backup(EmptyStore state) throws IOException {
+        return state.store.backup(state.source, VERSION);
+    }
+
+    /**
+     * Every chunk is already stored, only the file is hashed and a manifest written.
+     */
+    @Benchmark
+    public BackupStore.Manifest backupUnchanged(FilledStore state) throws IOException {
+        return state.store.backup(state.source, VERSION + "-again");
+    }
+
+    @Benchmark
+    public void restore(FilledStore state) throws IOException {
+        state.store.restore(VERSION, state.restored);
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) return;
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package dev.nelmin.java.benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}, e.g. from two commits.
+ * <p>
+ * Prints every benchmark with both scores and the relative change. A change is flagged when the score
+ * intervals do not overlap, so noise within the reported error is not mistaken for a regression.
+ */
+public final class CompareResults {
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <current.json>");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(Path.of(args[0]));
+        Map<String, Score> current = read(Path.of(args[1]));
+
+        Map<String, Score> all = new TreeMap<>(baseline);
+        current.forEach(all::putIfAbsent);
+        System.out.printf("%-60s %16s %16s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (String name : all.keySet()) {
+            Score before = baseline.get(name);
+            Score after = current.get(name);
+            if (before == null || after == null) {
+                System.out.printf("%-60s %16s %16s %9s%n", name, format(before), format(after), "");
+                continue;
+            }
+            double change = (after.value - before.value) / before.value * 100;
+            boolean significant = after.value - after.error > before.value + before.error
+                    || after.value + after.error < before.value - before.error;
+            System.out.printf("%-60s %16s %16s %+8.1f%%%s%n", name, format(before), format(after), change, significant ? " *" : "");
+        }
+    }
+
+    private static Map<String, Score> read(Path path) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            JsonArray results = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement element : results) {
+                JsonObject result = element.getAsJsonObject();
+                StringBuilder name = new StringBuilder(result.get("benchmark").getAsString());
+                name.replace(0, name.lastIndexOf(".", name.lastIndexOf(".") - 1) + 1, "");
+                if (result.has("params")) {
+                    result.getAsJsonObject("params").entrySet().forEach(param ->
+                            name.append(' ').append(param.getKey()).append('=').append(param.getValue().getAsString()));
+                }
+
+                JsonObject metric = result.getAsJsonObject("primaryMetric");
+                JsonElement error = metric.get("scoreError");
+                scores.put(name.toString(), new Score(
+                        metric.get("score").getAsDouble(),
+                        error == null || !error.isJsonPrimitive() || !error.getAsJsonPrimitive().isNumber() ? 0 : error.getAsDouble(),
+                        metric.get("scoreUnit").getAsString()
+                ));
+            }
+        }
+        return scores;
+    }
+
+    private static String format(Score score) {
+        return score == null ? "-" : String.format("%.3f %s", score.value, score.unit);
+    }
+
+    private record Score(double value, double error, String unit) {
+    }
+}
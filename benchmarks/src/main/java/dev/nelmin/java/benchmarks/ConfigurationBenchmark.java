@@ -0,0 +1,92 @@
+package dev.nelmin.java.benchmarks;
+
+import dev.nelmin.java.configuration.ConfigPath;
+import dev.nelmin.java.configuration.JSONConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JSONConfiguration} lookups, updates, path parsing and saving on a configuration with
+ * {@value Fixtures#CONFIG_SECTIONS} sections of {@value Fixtures#CONFIG_KEYS} keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConfigurationBenchmark {
+    private JSONConfiguration config;
+    private String[] keys;
+    private ConfigPath[] paths;
+    private Path saveDirectory;
+    private File saveFile;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        config = JSONConfiguration.loadConfiguration(Fixtures.config(Fixtures.ensure()));
+        keys = new String[Fixtures.CONFIG_SECTIONS * Fixtures.CONFIG_KEYS];
+        paths = new ConfigPath[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = Fixtures.configKey(i / Fixtures.CONFIG_KEYS, i % Fixtures.CONFIG_KEYS);
+            paths[i] = ConfigPath.compile(keys[i]);
+        }
+        saveDirectory = Files.createTempDirectory("mtiv-config-bench");
+        saveFile = saveDirectory.resolve("config.json").toFile();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(saveFile.toPath());
+        Files.deleteIfExists(saveDirectory);
+    }
+
+    private int next() {
+        int index = next;
+        next = index + 1 == keys.length ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public String get() {
+        return config.getString(keys[next()]);
+    }
+
+    @Benchmark
+    public String getCompiled() {
+        return config.getString(paths[next()]);
+    }
+
+    @Benchmark
+    public void set() {
+        int index = next();
+        config.set(keys[index], "changed " + index);
+    }
+
+    @Benchmark
+    public ConfigPath parsePath() {
+        return ConfigPath.compile(keys[next()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void save() throws IOException {
+        config.save(saveFile);
+    }
+}
@@ -0,0 +1,272 @@
+package dev.nelmin.java.benchmarks;
+
+import dev.nelmin.java.configuration.JSONConfiguration;
+import dev.nelmin.java.fs.files.EntrySource;
+import dev.nelmin.java.fs.files.IMGFile;
+import dev.nelmin.java.fs.files.IMGWriter;
+import dev.nelmin.java.fs.files.RPFFile;
+import dev.nelmin.java.fs.files.RPFWriter;
+import dev.nelmin.java.mods.ModCatalog;
+import dev.nelmin.java.objects.IndexedMod;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the synthetic files the benchmarks work on. Everything is derived from a fixed seed, so two builds
+ * produce the same fixtures and their results can be compared.
+ * <pre>
+ * fixtures/
+ *     config.json        nested configuration with a configured game directory
+ *     game/              the configured game directory
+ *     vehicles.img       IMG archive with {@value #IMG_ENTRIES} entries
+ *     common.rpf         RPF2 archive with {@value #RPF_ENTRIES} entries in {@value #RPF_DIRECTORIES} directories
+ *     MOD_INDEX.json     mod index with {@value #MODS} mods depending on each other
+ *     backup.bin         {@value #BACKUP_MIB} MiB of random data
+ * </pre>
+ * The fixtures are written by the {@code generate-fixtures} execution of the build and regenerated on the first
+ * run if they are missing or were written by another version of this class.
+ */
+public final class Fixtures {
+    public static final int CONFIG_SECTIONS = 50;
+    public static final int CONFIG_KEYS = 20;
+    public static final int IMG_ENTRIES = 2_000;
+    public static final int RPF_ENTRIES = 2_000;
+    public static final int RPF_DIRECTORIES = 20;
+    public static final int MODS = 5_000;
+    public static final int BACKUP_MIB = 64;
+    public static final String GAME_VERSION = "1080";
+
+    /**
+     * Written last; its contents identify the generator, so changed fixtures are regenerated
+     */
+    private static final String MARKER = ".complete";
+    private static final String FORMAT = "1";
+    private static final long SEED = 0x4D544956L;
+
+    private Fixtures() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Path.of(args[0]) : directory();
+        if (!isComplete(directory)) generate(directory);
+        System.out.println("Fixtures in " + directory.toAbsolutePath());
+    }
+
+    /**
+     * @return The fixture directory, {@code -Dmtiv.fixtures} or {@code fixtures} next to the benchmark classes
+     */
+    public static Path directory() {
+        String configured = System.getProperty("mtiv.fixtures");
+        if (configured != null) return Path.of(configured).toAbsolutePath();
+        try {
+            // target/benchmarks.jar or target/classes
+            Path location = Path.of(Fixtures.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return location.getParent().resolve("fixtures");
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generates the fixtures unless they are already there.
+     *
+     * @return The fixture directory
+     */
+    public static synchronized Path ensure() {
+        Path directory = directory();
+        try {
+            if (!isComplete(directory)) generate(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to generate fixtures in " + directory, e);
+        }
+        return directory;
+    }
+
+    public static Path config(Path directory) {
+        return directory.resolve("config.json");
+    }
+
+    public static Path img(Path directory) {
+        return directory.resolve("vehicles.img");
+    }
+
+    public static Path rpf(Path directory) {
+        return directory.resolve("common.rpf");
+    }
+
+    public static Path index(Path directory) {
+        return directory.resolve("MOD_INDEX.json");
+    }
+
+    public static Path backup(Path directory) {
+        return directory.resolve("backup.bin");
+    }
+
+    public static String imgEntry(int i) {
+        return "vehicle" + i + ".wft";
+    }
+
+    public static String rpfEntry(int i) {
+        return "data" + (i % RPF_DIRECTORIES) + "/file" + i + ".dat";
+    }
+
+    public static String configKey(int section, int key) {
+        return "section" + section + ".key" + key;
+    }
+
+    public static String modId(int i) {
+        return "mod-" + i;
+    }
+
+    private static boolean isComplete(Path directory) throws IOException {
+        Path marker = directory.resolve(MARKER);
+        return Files.isRegularFile(marker) && Files.readString(marker).equals(FORMAT);
+    }
+
+    private static void generate(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(MARKER));
+        Random random = new Random(SEED);
+
+        writeConfig(directory);
+        writeImg(img(directory), random);
+        writeRpf(rpf(directory), random);
+        writeIndex(index(directory), random);
+        writeRandom(backup(directory), (long) BACKUP_MIB << 20, random);
+
+        Files.writeString(directory.resolve(MARKER), FORMAT);
+    }
+
+    private static void writeConfig(Path directory) throws IOException {
+        Path game = Files.createDirectories(directory.resolve("game"));
+
+        JSONConfiguration config = JSONConfiguration.create();
+        config.set("game.default", GAME_VERSION);
+        // Every version of the bundled defaults, so loading it through the application does not add and save any
+        for (String version : new String[]{"12059", "1080", "1070", "1040"}) {
+            config.set("game." + version + ".directory", version.equals(GAME_VERSION) ? game.toAbsolutePath().toString() : "");
+        }
+        config.set("index.url", "");
+        for (int section = 0; section < CONFIG_SECTIONS; section++) {
+            for (int key = 0; key < CONFIG_KEYS; key++) {
+                config.set(configKey(section, key), "value " + section + "/" + key);
+            }
+        }
+        config.save(config(directory).toFile());
+    }
+
+    /**
+     * Writes an empty IMG archive and fills it through {@link IMGWriter}.
+     */
+    private static void writeImg(Path path, Random random) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(IMGFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(IMGFile.MAGIC).putInt(IMGFile.VERSION).putInt(0).putInt(0)
+                .putShort((short) IMGFile.TOC_ITEM_SIZE).putShort((short) 0);
+        write(path, header.flip());
+
+        IMGFile archive = new IMGFile(path);
+        try {
+            IMGWriter writer = new IMGWriter(archive);
+            for (int i = 0; i < IMG_ENTRIES; i++) writer.put(imgEntry(i), EntrySource.of(randomBytes(random)));
+            writer.commit();
+        } finally {
+            archive.close();
+        }
+    }
+
+    /**
+     * Writes an RPF2 archive holding only its root directory and fills it through {@link RPFWriter}.
+     */
+    private static void writeRpf(Path path, Random random) throws IOException {
+        int tocSize = RPFFile.TOC_ITEM_SIZE * 2;
+        ByteBuffer file = ByteBuffer.allocate(RPFFile.TOC_OFFSET + tocSize).order(ByteOrder.LITTLE_ENDIAN);
+        file.put(new byte[]{'R', 'P', 'F', '2'}).putInt(tocSize).putInt(1).putInt(0).putInt(0);
+        // Root: name at offset 0 of the (empty) name table, no children
+        file.position(RPFFile.TOC_OFFSET);
+        file.putInt(0).putInt(0).putInt(0x80000000 | 1).putInt(0);
+        write(path, file.clear());
+
+        RPFFile archive = new RPFFile(path);
+        try {
+            RPFWriter writer = new RPFWriter(archive);
+            for (int i = 0; i < RPF_ENTRIES; i++) writer.put(rpfEntry(i), EntrySource.of(randomBytes(random)));
+            writer.commit();
+        } finally {
+            archive.close();
+        }
+    }
+
+    /**
+     * Writes an index where every mod has three versions and depends on up to three mods with a lower number,
+     * so resolving the last mods pulls in long dependency chains.
+     */
+    private static void writeIndex(Path path, Random random) throws IOException {
+        List<IndexedMod> mods = new ArrayList<>(MODS);
+        for (int i = 0; i < MODS; i++) {
+            IndexedMod.Version[] versions = new IndexedMod.Version[3];
+            for (int v = 0; v < versions.length; v++) {
+                int dependencyCount = i == 0 ? 0 : random.nextInt(4);
+                String[] dependencies = new String[dependencyCount];
+                for (int d = 0; d < dependencyCount; d++) {
+                    dependencies[d] = modId(random.nextInt(i)) + ">=1." + random.nextInt(2);
+                }
+                versions[v] = new IndexedMod.Version(
+                        "1." + v + ".0",
+                        new IndexedMod.Version.FileInfo("https://example.invalid/" + modId(i) + "-1." + v + ".zip", "0".repeat(128), 1024L * (1 + random.nextInt(4096))),
+                        "2025-01-01",
+                        dependencies,
+                        new IndexedMod.Version.Compatibility(new String[]{"1.0.7.0", "1.0.8.0", "1.2.0.59"}, new String[0]),
+                        null
+                );
+            }
+            mods.add(new IndexedMod(
+                    modId(i),
+                    "Mod " + i,
+                    new String[]{"author" + random.nextInt(200)},
+                    "Synthetic mod number " + i + " for benchmarks",
+                    new IndexedMod.Links("https://example.invalid/" + modId(i), null),
+                    versions,
+                    new String[]{"tag" + random.nextInt(50), "tag" + random.nextInt(50)}
+            ));
+        }
+
+        ModCatalog catalog = ModCatalog.load(new StringReader("{\"mods\":[]}"));
+        catalog.apply(mods, List.of(), "2025-01-01T00:00:00Z");
+        catalog.write(path);
+    }
+
+    private static void writeRandom(Path path, long size, Random random) throws IOException {
+        byte[] block = new byte[1 << 20];
+        try (OutputStream out = Files.newOutputStream(path)) {
+            for (long written = 0; written < size; written += block.length) {
+                random.nextBytes(block);
+                out.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+    }
+
+    private static ByteBuffer randomBytes(Random random) {
+        byte[] data = new byte[1024 + random.nextInt(31 * 1024)];
+        random.nextBytes(data);
+        return ByteBuffer.wrap(data);
+    }
+
+    private static void write(Path path, ByteBuffer data) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) channel.write(data);
+        }
+    }
+}
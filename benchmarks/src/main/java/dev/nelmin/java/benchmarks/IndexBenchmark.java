@@ -0,0 +1,61 @@
+package dev.nelmin.java.benchmarks;
+
+import dev.nelmin.java.exceptions.ResolutionException;
+import dev.nelmin.java.mods.DependencyResolver;
+import dev.nelmin.java.mods.ModCatalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a {@code MOD_INDEX.json} of {@value Fixtures#MODS} mods into a {@link ModCatalog} and resolving
+ * install plans against it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexBenchmark {
+    private Path index;
+    private ModCatalog catalog;
+    private DependencyResolver.Request request;
+
+    @Setup
+    public void setup() throws IOException {
+        index = Fixtures.index(Fixtures.ensure());
+        catalog = ModCatalog.load(index);
+        // The newest mods have the longest dependency chains
+        request = new DependencyResolver.Request(List.of(
+                Fixtures.modId(Fixtures.MODS - 1),
+                Fixtures.modId(Fixtures.MODS - 2),
+                Fixtures.modId(Fixtures.MODS - 3)
+        ), "1.0.8.0");
+    }
+
+    @Benchmark
+    public ModCatalog parse() throws IOException {
+        return ModCatalog.load(index);
+    }
+
+    /**
+     * A new resolver every time, so neither candidates nor plans are cached.
+     */
+    @Benchmark
+    public DependencyResolver.Plan resolve() throws ResolutionException {
+        return new DependencyResolver(catalog).resolve(request);
+    }
+}
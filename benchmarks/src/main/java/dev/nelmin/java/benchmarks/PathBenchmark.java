@@ -0,0 +1,43 @@
+package dev.nelmin.java.benchmarks;
+
+import dev.nelmin.java.MTIV;
+import dev.nelmin.java.fs.files.NDFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NDFile#pathOf(String)}, which resolves against the game directory of {@code config.json} on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathBenchmark {
+    private static final String PATH = "pc/models/cdimages/vehicles.img";
+
+    @Setup
+    public void setup() {
+        // The application reads config.json from the working directory
+        System.setProperty("user.dir", Fixtures.ensure().toString());
+        new MTIV().bootstrapConfig();
+        if (NDFile.pathOf(PATH) == null) throw new IllegalStateException("No game directory configured");
+    }
+
+    @Benchmark
+    public Path pathOf() {
+        return NDFile.pathOf(PATH);
+    }
+}
@@ -1,15 +1,34 @@
 package dev.nelmin.java;
 
 import dev.nelmin.java.application.NDApp;
+import dev.nelmin.java.configuration.Binding;
+import dev.nelmin.java.configuration.ConfigPath;
 import dev.nelmin.java.configuration.NDString;
+import dev.nelmin.java.fs.files.PEFile;
+import dev.nelmin.java.fs.search.InstallCache;
+import dev.nelmin.java.mods.IndexSync;
+import dev.nelmin.java.mods.ModCatalog;
+import dev.nelmin.java.mods.ModInstaller;
+import dev.nelmin.java.objects.GameConfig;
+import dev.nelmin.java.objects.GameInstall;
+import dev.nelmin.java.objects.GameVersion;
 import dev.nelmin.java.scene.FilePickerScene;
 import dev.nelmin.java.scene.UnsupportedOSScene;
 import dev.nelmin.java.scene.mods.Dashboard;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class MTIV extends NDApp {
+    private static Binding<GameConfig> game;
+    private static InstallCache installs;
+    private static final Object CATALOG_LOCK = new Object();
+    private static ModCatalog catalog;
+    private static IndexSync indexSync;
 
     @Override
     public void start() {
@@ -22,11 +41,11 @@ public class MTIV extends NDApp {
             return;
         }
 
-        NDString defaultGameVersion = config().getNDString("default");
-        NDString gameVersion = config().getNDString("game." + defaultGameVersion.value());
-        if (defaultGameVersion.isBlankOrNull() || isGameVersionInvalid(defaultGameVersion.value()) || gameVersion.isBlankOrNull())
+        GameConfig gameConfig = game();
+        if (isGameVersionInvalid(gameConfig.defaultVersion()) || !isInstallValid(gameConfig))
             openFilePicker();
         else {
+            recoverInterruptedInstall();
             stage(
                     new Dashboard().scene(),
                     "Dashboard"
@@ -34,6 +53,66 @@ public class MTIV extends NDApp {
         }
     }
 
+    /**
+     * @return The {@code game} section of the configuration, rebuilt only when it changed
+     */
+    public static GameConfig game() {
+        Binding<GameConfig> binding = game;
+        if (binding == null || binding.config() != config()) {
+            binding = config().bind("game", GameConfig.class);
+            game = binding;
+        }
+        return binding.get();
+    }
+
+    /**
+     * @return The cache of discovered game installations, loaded on first use
+     */
+    public static synchronized InstallCache installs() {
+        if (installs == null) installs = InstallCache.load();
+        return installs;
+    }
+
+    /**
+     * Loads the catalog of {@code MOD_INDEX.json} in the working directory on first use. Every scene shares it,
+     * so an index update shows up everywhere. Blocks while loading, call it from a task.
+     *
+     * @return The catalog
+     * @throws IOException If the index cannot be read
+     */
+    public static ModCatalog catalog() throws IOException {
+        synchronized (CATALOG_LOCK) {
+            if (catalog == null) catalog = IndexSync.open(indexPath());
+            return catalog;
+        }
+    }
+
+    /**
+     * @return The index source configured in {@code index.url}, or null if none is configured; rebuilt only
+     * when the setting changed
+     */
+    public static IndexSync indexSync() {
+        NDString url = config().getNDString("index.url");
+        if (url.isBlankOrNull()) return null;
+
+        URI endpoint = URI.create(url.value());
+        synchronized (CATALOG_LOCK) {
+            if (indexSync == null || !indexSync.endpoint().equals(endpoint)) indexSync = new IndexSync(endpoint, indexPath());
+            return indexSync;
+        }
+    }
+
+    private static Path indexPath() {
+        return Path.of(System.getProperty("user.dir"), "MOD_INDEX.json");
+    }
+
+    @Override
+    public void stop() throws IOException {
+        super.stop();
+        InstallCache cache = installs;
+        if (cache != null) cache.close();
+    }
+
     public static void main(String[] args) {
         launch();
     }
@@ -45,23 +124,86 @@ public class MTIV extends NDApp {
     }
 
     private boolean isGameVersionInvalid(String gameVersion) {
-        return switch (gameVersion) {
-            case "1040", "1070", "1080", "12059" -> false;
-            default -> true;
-        };
+        return GameVersion.byId(gameVersion) == null;
+    }
+
+    /**
+     * Checks the configured installation against the install cache, which only reads the attributes of the
+     * executable. An executable that is not cached yet, or changed since, has its version read again and is
+     * fingerprinted once it matches the configured version. Afterwards the game directory is watched for changes
+     * to the executable.
+     */
+    private boolean isInstallValid(GameConfig gameConfig) {
+        Path directory = gameConfig.defaultDirectory();
+        if (directory == null) return false;
+
+        Path executable = directory.resolve(FilePickerScene.TARGET_FILE);
+        InstallCache cache = installs();
+        GameInstall install = cache.get(executable);
+        if (install == null || !gameConfig.defaultVersion().equals(install.version())) {
+            if (!Files.isRegularFile(executable)) return false;
+            GameVersion version;
+            try {
+                version = GameVersion.of(PEFile.fileVersion(executable));
+            } catch (IOException e) {
+                System.err.println("Failed to read the version of " + executable + ": " + e.getMessage());
+                return false;
+            }
+            // Replaced by another version of the game
+            if (version == null || !version.id().equals(gameConfig.defaultVersion())) return false;
+
+            try {
+                cache.put(executable, version.id());
+                cache.save();
+            } catch (IOException e) {
+                System.err.println("Failed to update install cache: " + e.getMessage());
+            }
+        }
+
+        try {
+            cache.watch(this::installChanged);
+        } catch (IOException e) {
+            System.err.println("Failed to watch the game directory: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Called on the watching thread once the cache dropped an installation. If it is the selected one, it is
+     * checked again and the file picker opens if it is no longer the configured version.
+     */
+    private void installChanged(GameInstall removed) {
+        Platform.runLater(() -> {
+            GameConfig gameConfig = game();
+            Path directory = gameConfig.defaultDirectory();
+            if (directory == null || !removed.path().equals(directory.resolve(FilePickerScene.TARGET_FILE).toAbsolutePath().normalize())) return;
+            if (isGameVersionInvalid(gameConfig.defaultVersion()) || !isInstallValid(gameConfig)) openFilePicker();
+        });
+    }
+
+    private void recoverInterruptedInstall() {
+        try {
+            ModInstaller installer = ModInstaller.ofGameDirectory();
+            if (installer != null && installer.recover()) {
+                System.err.println("Recovered from an interrupted mod installation");
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to recover interrupted mod installation: " + e.getMessage());
+        }
     }
 
     private void openFilePicker() {
         stage(
                 new FilePickerScene(
                         (path, version) -> {
-                            config().set("game.default", version);
-                            config().set(String.format("game.%s.directory", version.replace(".", "\\.")), path.toString());
                             try {
-                                config().save();
+                                installs().put(path, version);
+                                installs().save();
                             } catch (IOException e) {
-                                System.err.println("Failed to save configuration: " + e.getMessage());
+                                System.err.println("Failed to update install cache: " + e.getMessage());
                             }
+                            config().set("game.default", version);
+                            config().set(String.format("game.%s.directory", ConfigPath.escape(version)), path.getParent().toString());
                         }
                 ).scene(),
                 "Select your GTAIV.exe"
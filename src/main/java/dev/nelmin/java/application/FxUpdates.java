@@ -0,0 +1,88 @@
+package dev.nelmin.java.application;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces UI updates from background threads into at most one batch per FX pulse.
+ * <p>
+ * Keyed updates replace a pending update with the same key, so a task reporting progress thousands of times
+ * a second still costs one label update per frame. Updates without a key, like completion callbacks, all run,
+ * in the order they were posted. While updates are pending an {@link AnimationTimer} drains them once per
+ * frame; it stops as soon as nothing is left, so an idle application does not wake up.
+ */
+public final class FxUpdates {
+    private static final Map<Object, Runnable> KEYED = new ConcurrentHashMap<>();
+    private static final Queue<Runnable> ORDERED = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean SCHEDULED = new AtomicBoolean();
+    private static final AnimationTimer TIMER = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+            SCHEDULED.set(false);
+            // Posted while draining: keep the timer for the next frame
+            if (!isEmpty() && SCHEDULED.compareAndSet(false, true)) return;
+            stop();
+        }
+    };
+
+    private FxUpdates() {
+    }
+
+    /**
+     * Runs an update on the FX thread with the next pulse, replacing a pending update with the same key.
+     *
+     * @param key    Identifies what is updated, e.g. the label or the task
+     * @param update Update to run
+     */
+    public static void post(@NotNull Object key, @NotNull Runnable update) {
+        KEYED.put(key, update);
+        schedule();
+    }
+
+    /**
+     * Runs an update on the FX thread with the next pulse. Unlike keyed updates, every posted update runs.
+     *
+     * @param update Update to run
+     */
+    public static void post(@NotNull Runnable update) {
+        ORDERED.add(update);
+        schedule();
+    }
+
+    private static void schedule() {
+        if (SCHEDULED.compareAndSet(false, true)) Platform.runLater(TIMER::start);
+    }
+
+    private static boolean isEmpty() {
+        return KEYED.isEmpty() && ORDERED.isEmpty();
+    }
+
+    private static void drain() {
+        for (Object key : KEYED.keySet()) {
+            Runnable update = KEYED.remove(key);
+            if (update != null) run(update);
+        }
+        // Updates posted by these updates wait for the next frame
+        for (int remaining = ORDERED.size(); remaining > 0; remaining--) {
+            Runnable update = ORDERED.poll();
+            if (update == null) break;
+            run(update);
+        }
+    }
+
+    private static void run(Runnable update) {
+        try {
+            update.run();
+        } catch (RuntimeException e) {
+            System.err.println("UI update failed: " + e);
+        }
+    }
+}
@@ -9,6 +9,15 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 
 @Accessors(fluent = true)
 public abstract class NDApp extends Application {
@@ -17,12 +26,20 @@ public abstract class NDApp extends Application {
     @Override
     public void start(Stage stage) throws IOException {
         this.stage = stage;
-        saveAndLoadConfig();
+        bootstrapConfig();
         start();
     }
 
     public abstract void start() throws IOException;
 
+    /**
+     * Writes configuration changes that are still waiting for their background save.
+     */
+    @Override
+    public void stop() throws IOException {
+        if (config != null) config.flush();
+    }
+
     public void setTitle(@Nullable String title) {
         if (title == null || title.isBlank())
             stage.setTitle(String.format("ND Modding Tool IV - %s", title));
@@ -30,56 +47,174 @@ public abstract class NDApp extends Application {
     }
 
     // RESOURCE MANAGEMENT (src/main/resources) - INSPIRED BY THE BUKKIT API
-    @Getter
-    private static JSONConfiguration config;
+    private static final String CONFIG_RESOURCE = "config.json";
+    private static final Duration CONFIG_SAVE_DELAY = Duration.ofMillis(250);
+    private static final Object CONFIG_LOCK = new Object();
+
+    private static volatile JSONConfiguration config;
+    private static volatile File configFile;
+    private static volatile ClassLoader resources;
+
+    /**
+     * Returns the application configuration, loading it on first use.
+     * <p>
+     * Keys that were added to the bundled {@code config.json} since the user's file was created are merged into
+     * it; values the user has set are never replaced.
+     *
+     * @return The application configuration
+     * @throws IllegalStateException if {@link #bootstrapConfig()} has not been called yet
+     * @throws UncheckedIOException  if the configuration file cannot be read
+     */
+    public static JSONConfiguration config() {
+        JSONConfiguration loaded = config;
+        if (loaded != null) return loaded;
+
+        synchronized (CONFIG_LOCK) {
+            if (config == null) {
+                if (configFile == null) throw new IllegalStateException("Configuration has not been bootstrapped");
+                try {
+                    config = loadConfig(configFile, resources);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to load configuration " + configFile, e);
+                }
+            }
+            return config;
+        }
+    }
+
+    private static JSONConfiguration loadConfig(File file, ClassLoader resources) throws IOException {
+        JSONConfiguration loaded = JSONConfiguration.loadConfiguration(file);
+        loaded.writeBehind(CONFIG_SAVE_DELAY);
+
+        try (InputStream defaults = resources.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (defaults != null) {
+                // Saved in the background when a key was missing
+                loaded.addDefaults(JSONConfiguration.loadFromString(new String(defaults.readAllBytes(), StandardCharsets.UTF_8)));
+            }
+        }
+        return loaded;
+    }
 
     /**
-     * Saves a specific configuration resource file to the current working directory
-     * and subsequently loads it into the application configuration.
+     * Prepares the application configuration without reading it.
      * <p>
-     * The method first saves the resource file named "config.json" from the classpath
-     * to the current working directory. Then, it uses the path of the saved file to
-     * load the configuration into the application's {@code config} field.
+     * The bundled "config.json" is only copied to the current working directory if the user has none yet, so
+     * saved settings survive a restart. The file is parsed on the first call to {@link #config()}.
+     */
+    public void bootstrapConfig() {
+        bootstrapConfig(new File(System.getProperty("user.dir")));
+    }
+
+    /**
+     * Prepares the application configuration in a directory without reading it.
      *
-     * @throws IOException if an I/O error occurs while saving or loading the configuration
+     * @param directory Directory holding "config.json"
      */
-    public void saveAndLoadConfig() throws IOException {
-        saveResource("config.json");
-        config = JSONConfiguration.loadConfiguration(new File(System.getProperty("user.dir"), "config.json"));
+    void bootstrapConfig(File directory) {
+        File file = new File(directory, CONFIG_RESOURCE);
+        saveResource(CONFIG_RESOURCE, file.getPath(), false);
+        synchronized (CONFIG_LOCK) {
+            resources = this.getClass().getClassLoader();
+            configFile = file;
+            // Loaded from another directory before
+            config = null;
+        }
     }
 
     /**
      * Saves a resource file from the classpath to a specified destination on the file system.
+     * The resource is copied to a temporary file first, so an interrupted copy never leaves a partial file
+     * at the destination.
      *
      * @param resourceName the name of the resource file to be saved, located in the classpath
      * @param destination  the file path where the resource should be saved
+     * @param replace      whether an existing file at the destination should be replaced
      * @throws IllegalArgumentException if the resource cannot be found in the classpath
      * @throws RuntimeException         if an error occurs during the process of saving the resource
      */
-    public void saveResource(String resourceName, String destination) {
-        try (var inputStream = this.getClass().getClassLoader().getResourceAsStream(resourceName);
-             var outputStream = new java.io.FileOutputStream(destination)) {
+    public void saveResource(String resourceName, String destination, boolean replace) {
+        Path target = Path.of(destination).toAbsolutePath();
+        if (!replace && Files.exists(target)) return;
 
+        try (var inputStream = this.getClass().getClassLoader().getResourceAsStream(resourceName)) {
             if (inputStream == null) {
                 throw new IllegalArgumentException("Resource not found: " + resourceName);
             }
 
-            inputStream.transferTo(outputStream);
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+            if (replace) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            }
+            try {
+                createNew(temp, target);
+            } catch (FileAlreadyExistsException e) {
+                // Created in the meantime, keep it
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to save resource " + resourceName + " to " + destination, e);
         }
     }
 
+    /**
+     * Puts a complete copy of a file at a path that must not exist yet. A move without
+     * {@link StandardCopyOption#REPLACE_EXISTING} still replaces an existing file on Linux, a hard link never does.
+     *
+     * @throws FileAlreadyExistsException if the target exists
+     */
+    private static void createNew(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // No hard links on this file system; the copy also fails if the target exists
+            Files.copy(source, target);
+        }
+    }
+
+    /**
+     * Saves a resource file from the classpath to a specified destination on the file system,
+     * replacing an existing file.
+     *
+     * @param resourceName the name of the resource file to be saved, located in the classpath
+     * @param destination  the file path where the resource should be saved
+     * @throws IllegalArgumentException if the resource cannot be found in the classpath
+     * @throws RuntimeException         if an error occurs during the process of saving the resource
+     */
+    public void saveResource(String resourceName, String destination) {
+        saveResource(resourceName, destination, true);
+    }
+
     /**
      * Saves a resource file from the classpath to the current working directory.
      * The resource file is saved with the same name as provided in the classpath.
      *
      * @param resourceName the name of the resource file to be saved, located in the classpath
+     * @param replace      whether an existing file should be replaced
      * @throws IllegalArgumentException if the resource cannot be found in the classpath
      * @throws RuntimeException         if an error occurs during the process of saving the resource
      */
-    public void saveResource(String resourceName) {
+    public void saveResource(String resourceName, boolean replace) {
         String currentDir = System.getProperty("user.dir");
-        saveResource(resourceName, currentDir + File.separator + resourceName);
+        saveResource(resourceName, currentDir + File.separator + resourceName, replace);
+    }
+
+    /**
+     * Saves a resource file from the classpath to the current working directory, replacing an existing file.
+     * The resource file is saved with the same name as provided in the classpath.
+     *
+     * @param resourceName the name of the resource file to be saved, located in the classpath
+     * @throws IllegalArgumentException if the resource cannot be found in the classpath
+     * @throws RuntimeException         if an error occurs during the process of saving the resource
+     */
+    public void saveResource(String resourceName) {
+        saveResource(resourceName, true);
     }
 }
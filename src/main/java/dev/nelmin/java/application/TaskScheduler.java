@@ -0,0 +1,366 @@
+package dev.nelmin.java.application;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Runs long background work like installs, downloads, hashing and disk scans.
+ * <p>
+ * Every task gets its own virtual thread, so waiting for the disk or the network does not block a platform
+ * thread. How many tasks of a {@link Category} run at once is limited by a semaphore per category; queued tasks
+ * wait for a permit without holding any resources. Cancelling a task sets a flag the task checks and interrupts
+ * its thread, which also ends a task waiting for its permit or blocked in interruptible I/O.
+ * <p>
+ * Progress and completion are delivered on the FX thread through {@link FxUpdates}, so a task may report
+ * progress as often as it likes: listeners see at most one update per frame.
+ */
+@Accessors(fluent = true)
+public final class TaskScheduler {
+    private final Map<Category, Semaphore> permits = new EnumMap<>(Category.class);
+    private final Set<Task<?>> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a scheduler with the default limit of every category.
+     */
+    public TaskScheduler() {
+        this(Map.of());
+    }
+
+    /**
+     * @param limits Maximum number of running tasks per category; missing categories use their default limit
+     */
+    public TaskScheduler(@NotNull Map<Category, Integer> limits) {
+        for (Category category : Category.values()) {
+            permits.put(category, new Semaphore(Math.max(1, limits.getOrDefault(category, category.defaultLimit())), true));
+        }
+    }
+
+    /**
+     * @return The scheduler shared by the whole application
+     */
+    @NotNull
+    public static TaskScheduler shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Starts a task. It runs as soon as its category has a free permit.
+     *
+     * @param name     Name shown in progress and used for the thread
+     * @param category Kind of resource the task mostly waits for
+     * @param job      Work to do
+     * @return The task
+     */
+    @NotNull
+    public <T> Task<T> submit(@NotNull String name, @NotNull Category category, @NotNull Job<T> job) {
+        Task<T> task = new Task<>(name, category, job);
+        running.add(task);
+        task.completion.whenComplete((result, error) -> running.remove(task));
+        Thread.ofVirtual().name("task-" + name).start(task::run);
+        return task;
+    }
+
+    /**
+     * Runs jobs, up to {@code parallelism} of them at once, and waits until all of them are done.
+     * <p>
+     * The calling thread works through the jobs itself, helped by tasks of the given category. A task may
+     * therefore split its work this way even while all permits of its category are taken: it never waits for a
+     * permit to make progress, the helpers only speed it up. After the first failure no further job starts,
+     * jobs already running finish first.
+     *
+     * @param name        Name of the helper tasks
+     * @param category    Category of the helper tasks
+     * @param parallelism Maximum number of jobs running at once, the calling thread included
+     * @param jobs        Work to do
+     * @throws Exception            The first failure of a job
+     * @throws InterruptedException If the calling thread was interrupted. Helpers are cancelled and jobs that
+     *                              did not start yet never run.
+     */
+    public void runAll(@NotNull String name, @NotNull Category category, int parallelism,
+                       @NotNull List<? extends Callable<?>> jobs) throws Exception {
+        if (jobs.isEmpty()) return;
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        CountDownLatch finished = new CountDownLatch(jobs.size());
+        Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < jobs.size()) {
+                try {
+                    // Skipped jobs are still counted, so the caller does not wait for them
+                    if (failure.get() == null && !Thread.currentThread().isInterrupted()) jobs.get(index).call();
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    finished.countDown();
+                }
+            }
+        };
+
+        List<Task<Void>> helpers = new ArrayList<>();
+        try {
+            for (int i = 1; i < Math.min(parallelism, jobs.size()); i++) {
+                helpers.add(submit(name + "-" + i, category, context -> {
+                    worker.run();
+                    return null;
+                }));
+            }
+            worker.run();
+            if (Thread.interrupted()) throw new InterruptedException();
+            finished.await();
+        } finally {
+            // Helpers still queued for a permit have nothing left to do
+            for (Task<Void> helper : helpers) helper.cancel();
+        }
+
+        Exception error = failure.get();
+        if (error != null) throw error;
+    }
+
+    /**
+     * Cancels every task that has not finished yet.
+     */
+    public void cancelAll() {
+        for (Task<?> task : running) task.cancel();
+    }
+
+    /**
+     * @return Number of tasks that were submitted and have not finished yet, queued ones included
+     */
+    public int active() {
+        return running.size();
+    }
+
+    /**
+     * What a task mostly waits for. Tasks of different categories do not compete for permits, so a long scan
+     * does not hold up a download.
+     */
+    @Getter
+    public enum Category {
+        /**
+         * Reading and writing game files, backups and scans; few at once so they do not fight over the disk
+         */
+        DISK_IO(4),
+        /**
+         * Downloads and index updates
+         */
+        NETWORK(6),
+        /**
+         * CPU bound work like hashing, one per core
+         */
+        HASHING(Runtime.getRuntime().availableProcessors());
+
+        private final int defaultLimit;
+
+        Category(int defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+    }
+
+    /**
+     * @param <T> Result type
+     */
+    @FunctionalInterface
+    public interface Job<T> {
+        /**
+         * @param context Reports progress and tells whether the task was cancelled
+         * @return The result
+         * @throws Exception Fails the task
+         */
+        T run(@NotNull Context context) throws Exception;
+    }
+
+    /**
+     * Handed to a running job.
+     */
+    public interface Context {
+        /**
+         * @return Whether the task was cancelled; long loops should check this regularly
+         */
+        boolean isCancelled();
+
+        /**
+         * @throws CancellationException If the task was cancelled
+         */
+        default void checkCancelled() {
+            if (isCancelled()) throw new CancellationException();
+        }
+
+        /**
+         * Reports progress; cheap enough to call for every unit of work.
+         *
+         * @param done    Work done so far
+         * @param total   Total work, or a negative number if unknown
+         * @param message What the task is doing, may be null to keep the previous message
+         */
+        void progress(long done, long total, @Nullable String message);
+
+        /**
+         * Reports what the task is doing without changing the amount of work done.
+         */
+        default void message(@NotNull String message) {
+            progress(-1, -1, message);
+        }
+    }
+
+    /**
+     * State of a task as shown to the user.
+     *
+     * @param done    Work done, -1 if unknown
+     * @param total   Total work, -1 if unknown
+     * @param message What the task is doing, may be null
+     */
+    public record Progress(long done, long total, @Nullable String message) {
+        private static final Progress NONE = new Progress(-1, -1, null);
+
+        /**
+         * @return Fraction of the work done between 0 and 1, or -1 if unknown
+         */
+        public double fraction() {
+            return done < 0 || total <= 0 ? -1 : Math.min(1, (double) done / total);
+        }
+    }
+
+    /**
+     * A submitted task.
+     *
+     * @param <T> Result type
+     */
+    @Accessors(fluent = true)
+    public final class Task<T> implements Context {
+        @Getter
+        private final String name;
+        @Getter
+        private final Category category;
+        private final Job<T> job;
+        private final CompletableFuture<T> completion = new CompletableFuture<>();
+        private final AtomicReference<Progress> progress = new AtomicReference<>(Progress.NONE);
+        private volatile boolean cancelled;
+        private volatile Thread thread;
+        private volatile Consumer<Progress> progressListener;
+
+        private Task(String name, Category category, Job<T> job) {
+            this.name = name;
+            this.category = category;
+            this.job = job;
+        }
+
+        private void run() {
+            thread = Thread.currentThread();
+            Semaphore semaphore = permits.get(category);
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                // Cancelled while queued
+                finish(null, new CancellationException());
+                return;
+            }
+            try {
+                if (cancelled) throw new CancellationException();
+                finish(job.run(this), null);
+            } catch (InterruptedException e) {
+                finish(null, cancelled ? new CancellationException() : e);
+            } catch (Throwable e) {
+                finish(null, cancelled && !(e instanceof CancellationException) ? new CancellationException() : e);
+            } finally {
+                semaphore.release();
+                thread = null;
+                // Clear a cancellation interrupt that arrived after the job returned
+                Thread.interrupted();
+            }
+        }
+
+        private void finish(T result, Throwable error) {
+            if (error == null) completion.complete(result);
+            else completion.completeExceptionally(error);
+        }
+
+        /**
+         * Asks the task to stop. A task that has not started yet never runs.
+         */
+        public void cancel() {
+            cancelled = true;
+            Thread current = thread;
+            if (current != null) current.interrupt();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void progress(long done, long total, @Nullable String message) {
+            Progress next = progress.updateAndGet(previous -> new Progress(
+                    done < 0 ? previous.done() : done,
+                    total < 0 && done < 0 ? previous.total() : total,
+                    message == null ? previous.message() : message
+            ));
+            Consumer<Progress> listener = progressListener;
+            if (listener != null) FxUpdates.post(this, () -> listener.accept(next));
+        }
+
+        /**
+         * @return The latest reported progress
+         */
+        @NotNull
+        public Progress progress() {
+            return progress.get();
+        }
+
+        /**
+         * @param listener Called on the FX thread with the latest progress, at most once per frame
+         * @return This task
+         */
+        @NotNull
+        public Task<T> onProgress(@NotNull Consumer<Progress> listener) {
+            progressListener = listener;
+            return this;
+        }
+
+        /**
+         * @param callback Called once on the FX thread with the result, or with the error; cancelled tasks
+         *                 complete with a {@link CancellationException}
+         * @return This task
+         */
+        @NotNull
+        public Task<T> onDone(@NotNull BiConsumer<T, Throwable> callback) {
+            completion.whenComplete((result, error) -> FxUpdates.post(() -> callback.accept(result, error)));
+            return this;
+        }
+
+        /**
+         * @return Completes with the result of the task, on the task's thread
+         */
+        @NotNull
+        public CompletableFuture<T> completion() {
+            return completion;
+        }
+
+        public boolean isDone() {
+            return completion.isDone();
+        }
+    }
+
+    private static final class Shared {
+        private static final TaskScheduler INSTANCE = new TaskScheduler();
+    }
+}
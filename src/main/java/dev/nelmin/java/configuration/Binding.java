@@ -0,0 +1,59 @@
+package dev.nelmin.java.configuration;
+
+import com.google.gson.JsonElement;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A configuration section bound to a record.
+ * <p>
+ * {@link #get()} returns the same record instance for as long as the section is unchanged. Because
+ * {@link JSONConfiguration#set(String, Object)} only replaces the objects along the changed path, a change
+ * elsewhere in the configuration keeps the section's identity and costs a short tree walk and a reference
+ * comparison; the record is rebuilt only after the section itself changed.
+ *
+ * @param <T> Record type
+ */
+@Accessors(fluent = true)
+public final class Binding<T extends Record> {
+    @Getter
+    private final JSONConfiguration config;
+    @Getter
+    private final ConfigPath path;
+    private final ConfigBinder<T> binder;
+    private volatile State<T> state;
+
+    Binding(@NotNull JSONConfiguration config, @NotNull ConfigPath path, @NotNull Class<T> type) {
+        this.config = config;
+        this.path = path;
+        this.binder = ConfigBinder.of(type);
+    }
+
+    /**
+     * @return The section as a record. Missing keys are null, zero or false.
+     */
+    @NotNull
+    public T get() {
+        JsonElement source = config.element(path);
+        State<T> current = state;
+        if (current != null && current.source == source) return current.value;
+
+        T value = binder.bind(source);
+        state = new State<>(source, value);
+        return value;
+    }
+
+    /**
+     * Writes a record to the section, replacing it.
+     *
+     * @param value Record to write
+     */
+    public void set(@NotNull T value) {
+        config.set(path, binder.unbind(value));
+    }
+
+    private record State<T>(@Nullable JsonElement source, T value) {
+    }
+}
@@ -0,0 +1,281 @@
+package dev.nelmin.java.configuration;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converts configuration sections to records and back.
+ * <p>
+ * Reflection is only used once per record type, to resolve keys and converters and to look up
+ * {@link MethodHandle}s for the canonical constructor and the component accessors. Binding a section is then
+ * a walk over its keys and one constructor call.
+ * <p>
+ * Supported component types: {@link String}, {@link NDString}, primitives and their wrappers, enums (by
+ * name, case-insensitive), nested records, arrays and {@link List}s of these, and {@code Map<String, ?>}.
+ *
+ * @param <T> Record type
+ */
+final class ConfigBinder<T extends Record> {
+    private static final ClassValue<ConfigBinder<?>> BINDERS = new ClassValue<>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected ConfigBinder<?> computeValue(Class<?> type) {
+            return new ConfigBinder(type.asSubclass(Record.class));
+        }
+    };
+
+    private final Class<T> type;
+    private final Component[] components;
+    private final Set<String> claimed = new HashSet<>();
+    private final MethodHandle constructor;
+
+    private ConfigBinder(Class<T> type) {
+        this.type = type;
+        RecordComponent[] recordComponents = type.getRecordComponents();
+        this.components = new Component[recordComponents.length];
+        Class<?>[] parameters = new Class<?>[recordComponents.length];
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        try {
+            for (int i = 0; i < recordComponents.length; i++) {
+                RecordComponent component = recordComponents[i];
+                ConfigKey key = component.getAnnotation(ConfigKey.class);
+                String name = key == null ? component.getName() : key.value();
+                boolean remaining = ConfigKey.REMAINING.equals(name);
+                if (remaining && !Map.class.equals(component.getType())) {
+                    throw new IllegalArgumentException(type.getName() + "." + component.getName() + " must be a Map to bind remaining keys");
+                }
+                if (!remaining) claimed.add(name);
+
+                // Remaining keys are converted one by one, with the converter of the map values
+                Type converted = component.getGenericType();
+                if (remaining) {
+                    if (!(converted instanceof ParameterizedType map)) {
+                        throw new IllegalArgumentException(type.getName() + "." + component.getName() + " must declare its value type");
+                    }
+                    converted = map.getActualTypeArguments()[1];
+                }
+
+                parameters[i] = component.getType();
+                components[i] = new Component(
+                        name,
+                        remaining,
+                        component.getType(),
+                        converter(converted),
+                        lookup.unreflect(component.getAccessor())
+                );
+            }
+
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameters))
+                    .asSpreader(Object[].class, parameters.length);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Record> ConfigBinder<T> of(@NotNull Class<T> type) {
+        return (ConfigBinder<T>) BINDERS.get(type);
+    }
+
+    /**
+     * @param source Section to bind, may be missing
+     * @return The record
+     */
+    @NotNull
+    T bind(@Nullable JsonElement source) {
+        JsonObject object = source != null && source.isJsonObject() ? source.getAsJsonObject() : new JsonObject();
+        Object[] arguments = new Object[components.length];
+
+        for (int i = 0; i < components.length; i++) {
+            Component component = components[i];
+            Object value;
+            if (component.remaining) {
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                    if (claimed.contains(entry.getKey())) continue;
+                    Object converted = component.converter.convert(entry.getValue());
+                    if (converted != null) map.put(entry.getKey(), converted);
+                }
+                value = Collections.unmodifiableMap(map);
+            } else {
+                JsonElement element = object.get(component.key);
+                value = element == null || element.isJsonNull() ? null : component.converter.convert(element);
+            }
+            arguments[i] = value != null ? value : defaultValue(component.type);
+        }
+
+        try {
+            return type.cast(constructor.invoke(arguments));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create " + type.getName(), e);
+        }
+    }
+
+    /**
+     * @param value Record to convert
+     * @return Maps, lists and plain values that {@link JSONConfiguration#set(ConfigPath, Object)} accepts
+     */
+    @NotNull
+    Map<String, Object> unbind(@NotNull T value) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        try {
+            for (Component component : components) {
+                Object componentValue = component.accessor.invoke(value);
+                if (component.remaining) {
+                    if (componentValue != null) {
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) componentValue).entrySet()) {
+                            map.put(String.valueOf(entry.getKey()), plain(entry.getValue()));
+                        }
+                    }
+                } else if (componentValue != null) {
+                    map.put(component.key, plain(componentValue));
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot read " + type.getName(), e);
+        }
+        return map;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object plain(Object value) {
+        if (value instanceof Record record) return ConfigBinder.of((Class) record.getClass()).unbind(record);
+        if (value instanceof Enum<?> constant) return constant.name();
+        if (value instanceof List<?> list) return list.stream().map(ConfigBinder::plain).toList();
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> plain = new LinkedHashMap<>();
+            map.forEach((key, entry) -> plain.put(String.valueOf(key), plain(entry)));
+            return plain;
+        }
+        if (value != null && value.getClass().isArray()) {
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(value); i++) list.add(plain(Array.get(value, i)));
+            return list;
+        }
+        return value;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Converter converter(Type type) {
+        if (type instanceof ParameterizedType parameterized) {
+            Class<?> raw = (Class<?>) parameterized.getRawType();
+            Type[] arguments = parameterized.getActualTypeArguments();
+            if (List.class.equals(raw)) {
+                Converter element = converter(arguments[0]);
+                return json -> {
+                    if (!json.isJsonArray()) return null;
+                    List<Object> list = new ArrayList<>();
+                    for (JsonElement item : json.getAsJsonArray()) {
+                        Object converted = item.isJsonNull() ? null : element.convert(item);
+                        if (converted != null) list.add(converted);
+                    }
+                    return Collections.unmodifiableList(list);
+                };
+            }
+            if (Map.class.equals(raw)) {
+                if (!String.class.equals(arguments[0])) throw new IllegalArgumentException("Map keys must be strings: " + type);
+                Converter value = converter(arguments[1]);
+                return json -> {
+                    if (!json.isJsonObject()) return null;
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
+                        Object converted = entry.getValue().isJsonNull() ? null : value.convert(entry.getValue());
+                        if (converted != null) map.put(entry.getKey(), converted);
+                    }
+                    return Collections.unmodifiableMap(map);
+                };
+            }
+            throw new IllegalArgumentException("Unsupported configuration type: " + type);
+        }
+        if (type instanceof GenericArrayType) throw new IllegalArgumentException("Unsupported configuration type: " + type);
+
+        Class<?> raw = (Class<?>) type;
+        if (raw == String.class) return json -> json.isJsonPrimitive() ? json.getAsString() : null;
+        if (raw == NDString.class) return json -> json.isJsonPrimitive() ? NDString.of(json.getAsString()) : null;
+        if (raw == int.class || raw == Integer.class) return json -> number(json) ? json.getAsInt() : null;
+        if (raw == long.class || raw == Long.class) return json -> number(json) ? json.getAsLong() : null;
+        if (raw == double.class || raw == Double.class) return json -> number(json) ? json.getAsDouble() : null;
+        if (raw == float.class || raw == Float.class) return json -> number(json) ? json.getAsFloat() : null;
+        if (raw == boolean.class || raw == Boolean.class) {
+            return json -> json.isJsonPrimitive() && json.getAsJsonPrimitive().isBoolean() ? json.getAsBoolean() : null;
+        }
+        if (raw.isEnum()) {
+            Map<String, Object> constants = new LinkedHashMap<>();
+            for (Object constant : raw.getEnumConstants()) constants.put(((Enum<?>) constant).name().toLowerCase(Locale.ROOT), constant);
+            return json -> json.isJsonPrimitive() ? constants.get(json.getAsString().toLowerCase(Locale.ROOT)) : null;
+        }
+        if (raw.isRecord()) {
+            return json -> json.isJsonObject() ? ConfigBinder.of((Class) raw).bind(json) : null;
+        }
+        if (raw.isArray()) {
+            Class<?> componentType = raw.getComponentType();
+            Converter element = converter(componentType);
+            return json -> {
+                if (!json.isJsonArray()) return null;
+                JsonArray array = json.getAsJsonArray();
+                List<Object> values = new ArrayList<>(array.size());
+                for (JsonElement item : array) {
+                    Object converted = item.isJsonNull() ? null : element.convert(item);
+                    if (converted != null || !componentType.isPrimitive()) values.add(converted);
+                }
+                Object result = Array.newInstance(componentType, values.size());
+                for (int i = 0; i < values.size(); i++) Array.set(result, i, values.get(i));
+                return result;
+            };
+        }
+        throw new IllegalArgumentException("Unsupported configuration type: " + type);
+    }
+
+    private static boolean number(JsonElement json) {
+        if (!json.isJsonPrimitive()) return false;
+        JsonPrimitive primitive = json.getAsJsonPrimitive();
+        return primitive.isNumber();
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == NDString.class) return NDString.of(null);
+        if (Map.class.equals(type)) return Map.of();
+        if (List.class.equals(type)) return List.of();
+        if (!type.isPrimitive()) return null;
+        if (type == boolean.class) return false;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0.0f;
+        return 0;
+    }
+
+    @FunctionalInterface
+    private interface Converter {
+        @Nullable
+        Object convert(@NotNull JsonElement json);
+    }
+
+    private record Component(String key, boolean remaining, Class<?> type, Converter converter, MethodHandle accessor) {
+    }
+}
@@ -0,0 +1,20 @@
+package dev.nelmin.java.configuration;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the configuration key a record component is bound to. Without it, the component name is used.
+ * <p>
+ * The key {@value #REMAINING} binds a {@code Map<String, ?>} component to all keys of the section that no
+ * other component claims, e.g. the per-version entries next to {@code game.default}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.RECORD_COMPONENT)
+public @interface ConfigKey {
+    String REMAINING = "*";
+
+    String value();
+}
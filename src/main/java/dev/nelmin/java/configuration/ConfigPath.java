@@ -0,0 +1,133 @@
+package dev.nelmin.java.configuration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A configuration path that was parsed once and can be looked up any number of times.
+ * <p>
+ * Segments are separated by dots; {@code \.} is a literal dot inside a segment, e.g.
+ * {@code game.1\.0\.8\.0.directory}. Compiled paths are cached, so compiling the same string again is a
+ * single map lookup. Keep frequently used paths in constants to skip even that.
+ */
+public final class ConfigPath {
+    private static final int MAX_CACHED = 512;
+    private static final ConcurrentHashMap<String, ConfigPath> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * The configuration itself.
+     */
+    static final ConfigPath ROOT = new ConfigPath("", new String[0]);
+
+    private final String path;
+    final String[] segments;
+
+    private ConfigPath(String path, String[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * Parses a path string, respecting escaped dots.
+     *
+     * @param path The path string to parse
+     * @return The compiled path
+     */
+    @NotNull
+    public static ConfigPath compile(@NotNull String path) {
+        ConfigPath compiled = CACHE.get(path);
+        if (compiled != null) return compiled;
+
+        compiled = new ConfigPath(path, parse(path));
+        // Bounded: once full, paths built at runtime are compiled but no longer cached
+        if (CACHE.size() < MAX_CACHED) CACHE.putIfAbsent(path, compiled);
+        return compiled;
+    }
+
+    /**
+     * Escapes the dots of a key so it is used as a single segment, e.g. {@code 1.0.8.0} to {@code 1\.0\.8\.0}.
+     *
+     * @param key Key to escape
+     * @return Escaped key
+     */
+    @NotNull
+    public static String escape(@NotNull String key) {
+        return key.replace("\\", "\\\\").replace(".", "\\.");
+    }
+
+    /**
+     * @return Number of segments
+     */
+    public int length() {
+        return segments.length;
+    }
+
+    /**
+     * @param index Index of the segment
+     * @return The unescaped segment
+     */
+    @NotNull
+    public String segment(int index) {
+        return segments[index];
+    }
+
+    /**
+     * @return The path string this path was compiled from
+     */
+    @NotNull
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ConfigPath other && Arrays.equals(segments, other.segments);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(segments);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private static String[] parse(String path) {
+        List<String> parts = new ArrayList<>();
+        StringBuilder currentPart = new StringBuilder();
+        boolean escaped = false;
+
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+
+            if (escaped) {
+                // If the character was escaped, add it literally
+                currentPart.append(c);
+                escaped = false;
+            } else if (c == '\\') {
+                // Start of an escape sequence
+                escaped = true;
+            } else if (c == '.') {
+                // End of a path segment
+                parts.add(currentPart.toString());
+                currentPart.setLength(0);
+            } else {
+                // Regular character
+                currentPart.append(c);
+            }
+        }
+
+        // Add the last part
+        if (!currentPart.isEmpty() || parts.isEmpty()) {
+            parts.add(currentPart.toString());
+        }
+
+        return parts.toArray(new String[0]);
+    }
+}
@@ -14,30 +14,57 @@ import org.jetbrains.annotations.Nullable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
-import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * JSONConfiguration is a Configuration implementation using JSON.
  * This implementation is similar to Bukkit's YAMLConfiguration in terms of API and usage.
+ * <p>
+ * Reads never lock: they walk an immutable snapshot of the tree. {@link #set(String, Object)} copies the
+ * objects along the changed path and atomically publishes the new snapshot, so readers see either the old or
+ * the new value. Configuration sections are views into their parent and always see its latest snapshot.
+ * <p>
+ * With {@link #writeBehind(Duration)} enabled, changes are saved to the configuration file in the background,
+ * and a burst of changes is written once.
  */
 public class JSONConfiguration {
-    private final JsonObject root;
+    private static final String[] NO_PREFIX = new String[0];
+
     private final Gson gson;
-    private File configFile;
+    /**
+     * Configuration a section belongs to, null for the configuration itself.
+     */
+    private final JSONConfiguration parent;
+    private final String[] prefix;
+    private volatile JsonObject root;
+    private volatile File configFile;
+
+    private final Object saveLock = new Object();
+    private final AtomicBoolean savePending = new AtomicBoolean();
+    private volatile Duration writeBehind;
+    private volatile SaveStatistics saveStatistics = SaveStatistics.NONE;
+    private volatile IOException lastSaveError;
 
     /**
      * Default constructor for the JSONConfiguration class.
@@ -59,6 +86,7 @@ public class JSONConfiguration {
 
     /**
      * Constructs a new JSONConfiguration instance with the provided Gson instance and root JsonObject.
+     * The configuration takes ownership of the root; it must not be modified afterwards.
      *
      * @param gson The Gson instance to use for JSON manipulation and serialization.
      * @param root The root JsonObject representing the underlying configuration data.
@@ -66,6 +94,14 @@ public class JSONConfiguration {
     public JSONConfiguration(@NotNull Gson gson, @NotNull JsonObject root) {
         this.root = root;
         this.gson = gson;
+        this.parent = null;
+        this.prefix = NO_PREFIX;
+    }
+
+    private JSONConfiguration(@NotNull JSONConfiguration parent, @NotNull String[] prefix) {
+        this.gson = parent.gson;
+        this.parent = parent;
+        this.prefix = prefix;
     }
 
     /**
@@ -76,16 +112,16 @@ public class JSONConfiguration {
      * @throws IOException If the file cannot be read
      */
     public static JSONConfiguration loadConfiguration(@NotNull File file) throws IOException {
-        if (!file.exists()) {
+        JsonObject root;
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            root = JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (FileNotFoundException e) {
             throw new FileNotFoundException("Configuration file not found: " + file.getAbsolutePath());
         }
 
-        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
-            JsonObject root = JsonParser.parseReader(reader).getAsJsonObject();
-            JSONConfiguration config = new JSONConfiguration(root);
-            config.configFile = file;
-            return config;
-        }
+        JSONConfiguration config = new JSONConfiguration(root);
+        config.configFile = file;
+        return config;
     }
 
     /**
@@ -132,20 +168,41 @@ public class JSONConfiguration {
 
     /**
      * Saves this configuration to a file.
+     * <p>
+     * The current snapshot is serialized without blocking {@link #set(String, Object)}, written to a temporary
+     * file next to the target, forced to disk and moved over the target, so a crash leaves either the old or the
+     * new file, never a truncated one.
      *
      * @param file File to save to
      * @throws IOException If the file cannot be written
      */
-    public synchronized void save(@NotNull File file) throws IOException {
-        Files.createDirectories(file.getParentFile().toPath());
+    public void save(@NotNull File file) throws IOException {
+        if (parent != null) {
+            parent.save(file);
+            return;
+        }
 
-        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-            synchronized (root) {
-                writer.write(gson.toJson(root));
+        synchronized (saveLock) {
+            long start = System.nanoTime();
+            JsonObject snapshot = root;
+            String contents = gson.toJson(snapshot);
+            Path target = file.toPath().toAbsolutePath();
+            Files.createDirectories(target.getParent());
+
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
             }
-        }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 
-        this.configFile = file;
+            this.configFile = file;
+            lastSaveError = null;
+            long elapsed = System.nanoTime() - start;
+            saveStatistics = saveStatistics.record(elapsed);
+        }
     }
 
     /**
@@ -153,11 +210,180 @@ public class JSONConfiguration {
      *
      * @throws IOException If the file cannot be written
      */
-    public synchronized void save() throws IOException {
-        if (configFile == null) {
+    public void save() throws IOException {
+        if (parent != null) {
+            parent.save();
+            return;
+        }
+        File file = configFile;
+        if (file == null) {
             throw new IllegalStateException("No file specified for this configuration");
         }
-        save(configFile);
+        save(file);
+    }
+
+    /**
+     * Enables or disables write-behind saving. While enabled, every {@link #set(String, Object)} schedules a save
+     * of the configuration file on a background thread. The save runs after {@code delay}; all changes made
+     * until then are written together, so a burst of changes results in a single write.
+     * <p>
+     * Call {@link #flush()} before the application exits to write pending changes.
+     *
+     * @param delay How long to collect changes before writing, or null to disable write-behind saving
+     */
+    public void writeBehind(@Nullable Duration delay) {
+        if (parent != null) {
+            parent.writeBehind(delay);
+            return;
+        }
+        this.writeBehind = delay;
+    }
+
+    /**
+     * Schedules a background save of the configuration file. Does nothing if a save is already scheduled and
+     * has not started yet, as that save will include the current changes.
+     */
+    public void saveLater() {
+        if (parent != null) {
+            parent.saveLater();
+            return;
+        }
+        if (configFile == null || !savePending.compareAndSet(false, true)) return;
+
+        Duration delay = writeBehind;
+        SaveExecutor.INSTANCE.schedule(this::savePending, delay == null ? 0 : delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes pending changes now and waits for a background save that is already running. Changes a failed
+     * background save could not write are written again.
+     *
+     * @throws IOException If the file cannot be written
+     */
+    public void flush() throws IOException {
+        if (parent != null) {
+            parent.flush();
+            return;
+        }
+        // A background save clears the flag while holding the lock, so once it is clear here its save is complete
+        synchronized (saveLock) {
+            if (!savePending.getAndSet(false) && lastSaveError == null) return;
+            try {
+                save();
+            } catch (IOException e) {
+                // Still not written, the next flush tries again
+                lastSaveError = e;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return Latency of the saves of this configuration so far
+     */
+    @NotNull
+    public SaveStatistics saveStatistics() {
+        return parent != null ? parent.saveStatistics() : saveStatistics;
+    }
+
+    private void savePending() {
+        synchronized (saveLock) {
+            // Already written by flush()
+            if (!savePending.getAndSet(false)) return;
+            try {
+                save();
+            } catch (IOException e) {
+                lastSaveError = e;
+                System.err.println("Failed to save configuration " + configFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Count and latency of the saves of a configuration, from the start of serializing to the completed move.
+     *
+     * @param saves      Number of completed saves
+     * @param lastNanos  Latency of the last save
+     * @param maxNanos   Highest latency
+     * @param totalNanos Sum of all latencies
+     */
+    public record SaveStatistics(long saves, long lastNanos, long maxNanos, long totalNanos) {
+        private static final SaveStatistics NONE = new SaveStatistics(0, 0, 0, 0);
+
+        /**
+         * @return Average latency, 0 if nothing was saved yet
+         */
+        public long averageNanos() {
+            return saves == 0 ? 0 : totalNanos / saves;
+        }
+
+        private SaveStatistics record(long nanos) {
+            return new SaveStatistics(saves + 1, nanos, Math.max(maxNanos, nanos), totalNanos + nanos);
+        }
+    }
+
+    /**
+     * Daemon thread shared by all configurations for write-behind saves.
+     */
+    private static final class SaveExecutor {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "config-save");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds the keys of the defaults that are missing in this configuration. Existing values are kept, even if
+     * their type differs from the default; objects present on both sides are merged key by key.
+     *
+     * @param defaults Configuration with the default values
+     * @return Whether a key was added
+     */
+    public boolean addDefaults(@NotNull JSONConfiguration defaults) {
+        JsonElement element = defaults.getElement(ConfigPath.ROOT);
+        if (element == null || !element.isJsonObject()) return false;
+
+        // Nest the defaults under the prefix of this section and merge them into the whole configuration
+        JsonObject nested = element.getAsJsonObject();
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            JsonObject wrapper = new JsonObject();
+            wrapper.add(prefix[i], nested);
+            nested = wrapper;
+        }
+        return (parent != null ? parent : this).merge(nested);
+    }
+
+    private synchronized boolean merge(JsonObject defaults) {
+        JsonObject merged = withDefaults(root, defaults);
+        if (merged == root) return false;
+
+        root = merged;
+        if (writeBehind != null) saveLater();
+        return true;
+    }
+
+    /**
+     * @return The target itself if no key is missing, otherwise a copy with the missing keys
+     */
+    private static JsonObject withDefaults(JsonObject target, JsonObject defaults) {
+        JsonObject result = target;
+        for (Map.Entry<String, JsonElement> entry : defaults.entrySet()) {
+            JsonElement existing = target.get(entry.getKey());
+            JsonElement value;
+            if (existing == null) {
+                value = entry.getValue();
+            } else if (existing.isJsonObject() && entry.getValue().isJsonObject()) {
+                value = withDefaults(existing.getAsJsonObject(), entry.getValue().getAsJsonObject());
+                if (value == existing) continue;
+            } else {
+                continue;
+            }
+
+            if (result == target) result = shallowCopy(target);
+            result.add(entry.getKey(), value);
+        }
+        return result;
     }
 
     /**
@@ -165,10 +391,9 @@ public class JSONConfiguration {
      *
      * @return String representation of this configuration
      */
-    public synchronized String saveToString() {
-        synchronized (root) {
-            return gson.toJson(root);
-        }
+    public String saveToString() {
+        JsonElement element = getElement(ConfigPath.ROOT);
+        return gson.toJson(element == null ? new JsonObject() : element);
     }
 
     /**
@@ -191,6 +416,18 @@ public class JSONConfiguration {
      */
     @Nullable
     public Object get(@NotNull String path, @Nullable Object def) {
+        return get(ConfigPath.compile(path), def);
+    }
+
+    /**
+     * Gets the requested Object by compiled path, returning a default value if not found.
+     *
+     * @param path Path of the Object to get
+     * @param def  The default value to return if the path is not found
+     * @return Requested Object
+     */
+    @Nullable
+    public Object get(@NotNull ConfigPath path, @Nullable Object def) {
         JsonElement element = getElement(path);
         if (element == null || element.isJsonNull()) {
             return def;
@@ -255,86 +492,68 @@ public class JSONConfiguration {
     }
 
     /**
-     * Parses a path string, respecting escaped dots.
+     * Sets the specified path to the given value.
      *
-     * @param path The path string to parse
-     * @return Array of path segments
+     * @param path  Path of the object to set
+     * @param value New value to set the path to
      */
-    private String[] parsePath(@NotNull String path) {
-        List<String> parts = new ArrayList<>();
-        StringBuilder currentPart = new StringBuilder();
-        boolean escaped = false;
-
-        for (int i = 0; i < path.length(); i++) {
-            char c = path.charAt(i);
-
-            if (escaped) {
-                // If the character was escaped, add it literally
-                currentPart.append(c);
-                escaped = false;
-            } else if (c == '\\') {
-                // Start of an escape sequence
-                escaped = true;
-            } else if (c == '.') {
-                // End of a path segment
-                parts.add(currentPart.toString());
-                currentPart = new StringBuilder();
-            } else {
-                // Regular character
-                currentPart.append(c);
-            }
-        }
-
-        // Add the last part
-        if (currentPart.length() > 0 || parts.isEmpty()) {
-            parts.add(currentPart.toString());
-        }
-
-        return parts.toArray(new String[0]);
+    public void set(@NotNull String path, @Nullable Object value) {
+        set(ConfigPath.compile(path), value);
     }
 
     /**
-     * Sets the specified path to the given value.
+     * Sets the specified compiled path to the given value.
      *
      * @param path  Path of the object to set
      * @param value New value to set the path to
+     * @throws IllegalArgumentException If the path is {@link ConfigPath#ROOT}, the configuration itself
      */
-    public synchronized void set(@NotNull String path, @Nullable Object value) {
-        // Parse the path normally, handling escaped dots in the parsePath method
-        String[] parts = parsePath(path);
-
-        synchronized (root) {
-            JsonObject current = root;
-
-            // Navigate through the path, creating objects as needed
-            for (int i = 0; i < parts.length - 1; i++) {
-                String part = parts[i];
-                JsonElement element = current.get(part);
+    public void set(@NotNull ConfigPath path, @Nullable Object value) {
+        if (path.segments.length == 0) throw new IllegalArgumentException("Cannot set the configuration itself, use a path with at least one segment");
+        if (parent != null) parent.write(prefix, path.segments, value);
+        else write(NO_PREFIX, path.segments, value);
+    }
 
-                JsonObject nextObject;
-                if (element == null || !element.isJsonObject()) {
-                    nextObject = new JsonObject();
-                    current.add(part, nextObject);
-                } else {
-                    nextObject = element.getAsJsonObject();
-                }
-                current = nextObject;
-            }
+    /**
+     * Copies the objects along the path, applies the change to the copy and publishes it as the new snapshot.
+     */
+    private synchronized void write(String[] prefix, String[] parts, @Nullable Object value) {
+        JsonElement jsonElement = value == null ? null : objectToJsonElement(value);
+        JsonObject copy = shallowCopy(root);
+        JsonObject current = copy;
+        int depth = prefix.length + parts.length;
+
+        // Navigate through the path, copying or creating objects as needed
+        for (int i = 0; i < depth - 1; i++) {
+            String part = i < prefix.length ? prefix[i] : parts[i - prefix.length];
+            JsonElement element = current.get(part);
+
+            JsonObject nextObject = element == null || !element.isJsonObject()
+                    ? new JsonObject()
+                    : shallowCopy(element.getAsJsonObject());
+            current.add(part, nextObject);
+            current = nextObject;
+        }
 
-            // Handle the final element
-            String lastPart = parts[parts.length - 1];
-            if (value == null) {
-                current.remove(lastPart);
-            } else {
-                JsonElement jsonElement = objectToJsonElement(value);
+        // Handle the final element
+        String lastPart = parts[parts.length - 1];
+        // Remove the key if it exists to move it to the bottom
+        current.remove(lastPart);
+        if (jsonElement != null) {
+            // Add the key with the new value
+            current.add(lastPart, jsonElement);
+        }
 
-                // Remove the key if it exists to move it to the bottom
-                current.remove(lastPart);
+        root = copy;
+        if (writeBehind != null) saveLater();
+    }
 
-                // Add the key with the new value
-                current.add(lastPart, jsonElement);
-            }
+    private static JsonObject shallowCopy(JsonObject object) {
+        JsonObject copy = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+            copy.add(entry.getKey(), entry.getValue());
         }
+        return copy;
     }
 
     private JsonElement objectToJsonElement(Object value) {
@@ -387,6 +606,29 @@ public class JSONConfiguration {
      */
     @Nullable
     public String getString(@NotNull String path, @Nullable String def) {
+        return getString(ConfigPath.compile(path), def);
+    }
+
+    /**
+     * Gets the requested String by compiled path.
+     *
+     * @param path Path of the String to get
+     * @return Requested String
+     */
+    @Nullable
+    public String getString(@NotNull ConfigPath path) {
+        return getString(path, null);
+    }
+
+    /**
+     * Gets the requested String by compiled path, returning a default value if not found.
+     *
+     * @param path Path of the String to get
+     * @param def  The default value to return if the path is not found
+     * @return Requested String
+     */
+    @Nullable
+    public String getString(@NotNull ConfigPath path, @Nullable String def) {
         JsonElement element = getElement(path);
         if (element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isString()) {
             return element.getAsString();
@@ -412,6 +654,17 @@ public class JSONConfiguration {
      * @return Requested int
      */
     public int getInt(@NotNull String path, int def) {
+        return getInt(ConfigPath.compile(path), def);
+    }
+
+    /**
+     * Gets the requested int by compiled path, returning a default value if not found.
+     *
+     * @param path Path of the int to get
+     * @param def  The default value to return if the path is not found
+     * @return Requested int
+     */
+    public int getInt(@NotNull ConfigPath path, int def) {
         JsonElement element = getElement(path);
         if (element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()) {
             return element.getAsInt();
@@ -437,6 +690,17 @@ public class JSONConfiguration {
      * @return Requested boolean
      */
     public boolean getBoolean(@NotNull String path, boolean def) {
+        return getBoolean(ConfigPath.compile(path), def);
+    }
+
+    /**
+     * Gets the requested boolean by compiled path, returning a default value if not found.
+     *
+     * @param path Path of the boolean to get
+     * @param def  The default value to return if the path is not found
+     * @return Requested boolean
+     */
+    public boolean getBoolean(@NotNull ConfigPath path, boolean def) {
         JsonElement element = getElement(path);
         if (element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isBoolean()) {
             return element.getAsBoolean();
@@ -464,6 +728,29 @@ public class JSONConfiguration {
      */
     @NotNull
     public NDString getNDString(@NotNull String path, @Nullable NDString def) {
+        return getNDString(ConfigPath.compile(path), def);
+    }
+
+    /**
+     * Gets the requested NDString by compiled path.
+     *
+     * @param path Path of the NDString to get
+     * @return Requested NDString
+     */
+    @NotNull
+    public NDString getNDString(@NotNull ConfigPath path) {
+        return getNDString(path, null);
+    }
+
+    /**
+     * Gets the requested NDString by compiled path, returning a default value if not found.
+     *
+     * @param path Path of the NDString to get
+     * @param def  The default value to return if the path is not found
+     * @return Requested NDString
+     */
+    @NotNull
+    public NDString getNDString(@NotNull ConfigPath path, @Nullable NDString def) {
         String value = getString(path);
         if (value != null) {
             return NDString.of(value);
@@ -489,6 +776,17 @@ public class JSONConfiguration {
      * @return Requested double
      */
     public double getDouble(@NotNull String path, double def) {
+        return getDouble(ConfigPath.compile(path), def);
+    }
+
+    /**
+     * Gets the requested double by compiled path, returning a default value if not found.
+     *
+     * @param path Path of the double to get
+     * @param def  The default value to return if the path is not found
+     * @return Requested double
+     */
+    public double getDouble(@NotNull ConfigPath path, double def) {
         JsonElement element = getElement(path);
         if (element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()) {
             return element.getAsDouble();
@@ -514,6 +812,17 @@ public class JSONConfiguration {
      * @return Requested long
      */
     public long getLong(@NotNull String path, long def) {
+        return getLong(ConfigPath.compile(path), def);
+    }
+
+    /**
+     * Gets the requested long by compiled path, returning a default value if not found.
+     *
+     * @param path Path of the long to get
+     * @param def  The default value to return if the path is not found
+     * @return Requested long
+     */
+    public long getLong(@NotNull ConfigPath path, long def) {
         JsonElement element = getElement(path);
         if (element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()) {
             return element.getAsLong();
@@ -541,7 +850,7 @@ public class JSONConfiguration {
      */
     @Nullable
     public List<?> getList(@NotNull String path, @Nullable List<?> def) {
-        JsonElement element = getElement(path);
+        JsonElement element = getElement(ConfigPath.compile(path));
         if (element != null && element.isJsonArray()) {
             List<Object> list = new ArrayList<>();
             JsonArray array = element.getAsJsonArray();
@@ -611,51 +920,79 @@ public class JSONConfiguration {
      */
     @Nullable
     public JSONConfiguration getConfigurationSection(@NotNull String path) {
+        return getConfigurationSection(ConfigPath.compile(path));
+    }
+
+    /**
+     * Gets the requested ConfigurationSection by compiled path. The section is a view: it reads the latest
+     * state of this configuration and writes through to it.
+     *
+     * @param path Path of the ConfigurationSection to get
+     * @return Requested ConfigurationSection as a JSONConfiguration
+     */
+    @Nullable
+    public JSONConfiguration getConfigurationSection(@NotNull ConfigPath path) {
         JsonElement element = getElement(path);
         if (element != null && element.isJsonObject()) {
-            return new JSONConfiguration(element.getAsJsonObject());
+            String[] sectionPrefix = Arrays.copyOf(prefix, prefix.length + path.segments.length);
+            System.arraycopy(path.segments, 0, sectionPrefix, prefix.length, path.segments.length);
+            return new JSONConfiguration(parent != null ? parent : this, sectionPrefix);
         }
         return null;
     }
 
     /**
-     * Gets the JsonElement at the specified path.
+     * Binds a section to a record. See {@link Binding} for when the record is rebuilt.
      *
-     * @param path Path of the element to get
-     * @return The JsonElement at the path, or null if not found
+     * @param path Path of the section
+     * @param type Record type
+     * @param <T>  Record type
+     * @return The binding
+     * @throws IllegalArgumentException If the record has components of unsupported types
      */
-    @Nullable
-    private JsonElement getElement(@NotNull String path) {
-        // Check if the path contains escaped dots
-        if (path.contains("\\.")) {
-            // If it does, treat it as a single key
-            // Replace escaped dots with actual dots for retrieval
-            String unescapedPath = path.replace("\\.", ".");
-
-            synchronized (root) {
-                return root.get(unescapedPath);
-            }
-        }
-
-        // Otherwise, parse the path normally
-        String[] parts = parsePath(path);
+    @NotNull
+    public <T extends Record> Binding<T> bind(@NotNull String path, @NotNull Class<T> type) {
+        return bind(ConfigPath.compile(path), type);
+    }
 
-        synchronized (root) {
-            JsonElement current = root;
+    /**
+     * Binds a section to a record. See {@link Binding} for when the record is rebuilt.
+     *
+     * @param path Path of the section
+     * @param type Record type
+     * @param <T>  Record type
+     * @return The binding
+     * @throws IllegalArgumentException If the record has components of unsupported types
+     */
+    @NotNull
+    public <T extends Record> Binding<T> bind(@NotNull ConfigPath path, @NotNull Class<T> type) {
+        return new Binding<>(this, path, type);
+    }
 
-            for (String part : parts) {
-                if (current == null || !current.isJsonObject()) {
-                    return null;
-                }
+    @Nullable
+    JsonElement element(@NotNull ConfigPath path) {
+        return getElement(path);
+    }
 
-                current = current.getAsJsonObject().get(part);
-                if (current == null) {
-                    return null;
-                }
-            }
+    /**
+     * Gets the JsonElement at the specified path from the current snapshot, without locking or allocating.
+     *
+     * @param path Path of the element to get
+     * @return The JsonElement at the path, or null if not found
+     */
+    @Nullable
+    private JsonElement getElement(@NotNull ConfigPath path) {
+        JsonElement current = parent != null ? parent.root : root;
 
-            return current;
+        for (String part : prefix) {
+            if (current == null || !current.isJsonObject()) return null;
+            current = current.getAsJsonObject().get(part);
+        }
+        for (String part : path.segments) {
+            if (current == null || !current.isJsonObject()) return null;
+            current = current.getAsJsonObject().get(part);
         }
+        return current;
     }
 
     /**
@@ -665,6 +1002,16 @@ public class JSONConfiguration {
      * @return True if the path exists and contains data
      */
     public boolean contains(@NotNull String path) {
+        return contains(ConfigPath.compile(path));
+    }
+
+    /**
+     * Checks if the specified compiled path exists and contains data.
+     *
+     * @param path Path to check
+     * @return True if the path exists and contains data
+     */
+    public boolean contains(@NotNull ConfigPath path) {
         return getElement(path) != null;
     }
 
@@ -676,7 +1023,7 @@ public class JSONConfiguration {
      */
     @NotNull
     public Set<String> getKeys(@NotNull String path) {
-        JsonElement element = path.isEmpty() ? root : getElement(path);
+        JsonElement element = getElement(path.isEmpty() ? ConfigPath.ROOT : ConfigPath.compile(path));
         if (element != null && element.isJsonObject()) {
             Set<String> keys = new HashSet<>();
             for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
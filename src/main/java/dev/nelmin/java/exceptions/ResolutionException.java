@@ -0,0 +1,10 @@
+package dev.nelmin.java.exceptions;
+
+/**
+ * Thrown when no combination of mod versions satisfies the dependencies and incompatibilities of a request.
+ */
+public class ResolutionException extends Exception {
+    public ResolutionException(String message) {
+        super(message);
+    }
+}
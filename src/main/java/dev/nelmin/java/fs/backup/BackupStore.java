@@ -0,0 +1,321 @@
+package dev.nelmin.java.fs.backup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.nelmin.java.fs.files.NDFile;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed, deduplicated store for backups of game files.
+ * <p>
+ * Files are split into fixed-size chunks that are stored once under their SHA-256 digest. Every backup
+ * writes a manifest listing its chunks, so backing up an archive that only changed in a few places costs
+ * the changed chunks plus a small manifest. Manifest ids are what {@code InstalledMod.ChangedPath.backup_ver}
+ * refers to.
+ * <pre>
+ * MTIV-Backups/
+ *     chunks/ab/ab12...   chunk contents, named by SHA-256
+ *     manifests/&lt;id&gt;.json
+ * </pre>
+ * Chunks and manifests are forced to disk before they are moved into place, so a manifest that exists after a
+ * crash is complete and all its chunks are present. Backups and restores of a store may run at the same time;
+ * {@link #prune()} waits for them, so it never deletes the chunks of a manifest that is still being written.
+ */
+@Accessors(fluent = true)
+public class BackupStore {
+    public static final int CHUNK_SIZE = 1 << 20;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    /**
+     * By normalized store root, shared by all instances of a store
+     */
+    private static final Map<Path, ReadWriteLock> LOCKS = new ConcurrentHashMap<>();
+
+    @Getter
+    private final Path root;
+    private final Path chunks;
+    private final Path manifests;
+    private final ReadWriteLock lock;
+
+    public BackupStore(@NotNull Path root) {
+        this.root = root;
+        this.chunks = root.resolve("chunks");
+        this.manifests = root.resolve("manifests");
+        this.lock = LOCKS.computeIfAbsent(root.toAbsolutePath().normalize(), key -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * @return The store in the {@code MTIV-Backups} folder of the configured game directory, or null if no
+     * game directory is configured
+     */
+    @Nullable
+    public static BackupStore ofGameDirectory() {
+        Path path = NDFile.pathOf("MTIV-Backups");
+        return path == null ? null : new BackupStore(path);
+    }
+
+    /**
+     * Backs up a file. Chunks already in the store are not written again.
+     *
+     * @param file    File to back up
+     * @param version Manifest id, e.g. {@code vehicles-before-mod.img}. An existing manifest with this id is replaced.
+     * @return The manifest that was written
+     * @throws IOException If the file cannot be read or the store cannot be written
+     */
+    @NotNull
+    public Manifest backup(@NotNull Path file, @NotNull String version) throws IOException {
+        checkVersion(version);
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            return writeBackup(file, version);
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    private Manifest writeBackup(Path file, String version) throws IOException {
+        MessageDigest whole = sha256();
+        MessageDigest chunk = sha256();
+        List<String> keys = new ArrayList<>();
+        long size;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            for (long position = 0; position < size; position += CHUNK_SIZE) {
+                int length = (int) Math.min(CHUNK_SIZE, size - position);
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                whole.update(data.duplicate());
+                chunk.update(data.duplicate());
+                String key = HEX.formatHex(chunk.digest());
+                keys.add(key);
+                storeChunk(key, data);
+            }
+        }
+
+        Manifest manifest = new Manifest(
+                version,
+                file.toAbsolutePath().toString(),
+                size,
+                CHUNK_SIZE,
+                HEX.formatHex(whole.digest()),
+                keys.toArray(new String[0]),
+                Instant.now().toString()
+        );
+
+        Files.createDirectories(manifests);
+        Path target = manifests.resolve(version + ".json");
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(GSON.toJson(manifest));
+            while (bytes.hasRemaining()) out.write(bytes);
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return manifest;
+    }
+
+    /**
+     * Reads a manifest.
+     *
+     * @param version Manifest id
+     * @return The manifest, or null if the store does not contain it
+     * @throws IOException If the manifest cannot be read
+     */
+    @Nullable
+    public Manifest manifest(@NotNull String version) throws IOException {
+        checkVersion(version);
+        try (Reader reader = Files.newBufferedReader(manifests.resolve(version + ".json"), StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, Manifest.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Restores a backup by streaming its chunks into a temporary file next to the target, verifying the
+     * file digest and atomically replacing the target.
+     *
+     * @param version Manifest id
+     * @param target  File to restore to, usually {@link Manifest#source()}
+     * @throws IOException If the backup does not exist, is damaged, or the target cannot be written
+     */
+    public void restore(@NotNull String version, @NotNull Path target) throws IOException {
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            restoreBackup(version, target);
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    private void restoreBackup(String version, Path target) throws IOException {
+        Manifest manifest = manifest(version);
+        if (manifest == null) {
+            throw new NoSuchFileException(manifests.resolve(version + ".json").toString(), null, "Backup not found");
+        }
+
+        MessageDigest whole = sha256();
+        Path temp = target.resolveSibling(target.getFileName() + ".mtiv-restore");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (String key : manifest.chunks()) {
+                try (FileChannel in = FileChannel.open(chunkPath(key), StandardOpenOption.READ)) {
+                    MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                    whole.update(data.duplicate());
+                    while (data.hasRemaining()) out.write(data);
+                }
+            }
+            out.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        if (!HEX.formatHex(whole.digest()).equals(manifest.sha256())) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Backup " + version + " is damaged (digest mismatch)");
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes a manifest. Its chunks stay until {@link #prune()} is called.
+     *
+     * @param version Manifest id
+     * @return True if the manifest existed
+     */
+    public boolean delete(@NotNull String version) throws IOException {
+        checkVersion(version);
+        return Files.deleteIfExists(manifests.resolve(version + ".json"));
+    }
+
+    /**
+     * Deletes all chunks that are not referenced by any manifest. Waits for running backups and restores.
+     *
+     * @return Number of deleted chunks
+     * @throws IOException If the store cannot be read or written
+     */
+    public int prune() throws IOException {
+        Lock exclusive = lock.writeLock();
+        exclusive.lock();
+        try {
+            return pruneChunks();
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    private int pruneChunks() throws IOException {
+        Set<String> referenced = new HashSet<>();
+        if (Files.isDirectory(manifests)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(manifests, "*.json")) {
+                for (Path path : stream) {
+                    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                        referenced.addAll(List.of(GSON.fromJson(reader, Manifest.class).chunks()));
+                    }
+                }
+            }
+        }
+
+        if (!Files.isDirectory(chunks)) return 0;
+        int deleted = 0;
+        try (Stream<Path> stream = Files.walk(chunks, 2)) {
+            for (Path path : stream.filter(Files::isRegularFile).toList()) {
+                String name = path.getFileName().toString();
+                // Left behind by a crash or another process; never referenced by name
+                if (name.endsWith(".tmp")) continue;
+                if (!referenced.contains(name)) {
+                    Files.delete(path);
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private void storeChunk(String key, ByteBuffer data) throws IOException {
+        Path target = chunkPath(key);
+        if (Files.exists(target)) return;
+
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(key + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer view = data.duplicate();
+            while (view.hasRemaining()) out.write(view);
+            out.force(false);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path chunkPath(String key) {
+        return chunks.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static void checkVersion(String version) {
+        if (version.isBlank() || version.contains("/") || version.contains("\\") || version.contains("..")) {
+            throw new IllegalArgumentException("Invalid backup version: " + version);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * A single backup version.
+     *
+     * @param version    Manifest id
+     * @param source     Absolute path of the file that was backed up
+     * @param size       File size in bytes
+     * @param chunk_size Chunk size the file was split with
+     * @param sha256     Digest of the whole file
+     * @param chunks     Chunk digests in file order
+     * @param created    ISO-8601 creation time
+     */
+    public record Manifest(
+            String version,
+            String source,
+            long size,
+            int chunk_size,
+            String sha256,
+            String[] chunks,
+            String created
+    ) {
+    }
+}
@@ -0,0 +1,234 @@
+package dev.nelmin.java.fs.backup;
+
+import dev.nelmin.java.fs.files.EntrySource;
+import dev.nelmin.java.fs.files.IMGFile;
+import dev.nelmin.java.fs.files.IMGWriter;
+import dev.nelmin.java.fs.files.NDFile;
+import dev.nelmin.java.fs.files.RPFFile;
+import dev.nelmin.java.fs.files.RPFWriter;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+/**
+ * Entry-level backups of IMG and RPF2 archives.
+ * <p>
+ * Instead of the whole archive, only the entries a mod is about to replace are saved, together with their
+ * original table of contents records, into a small sidecar file. Entries that did not exist before are
+ * recorded as absent so restoring removes them again. Restoring goes through {@link IMGWriter} or
+ * {@link RPFWriter} and therefore only touches the saved entries.
+ * <p>
+ * Sidecar layout (big-endian): magic, format version, archive kind, entry count, then per entry its name,
+ * a presence flag and, for present entries, the raw record fields and the stored data.
+ */
+@Accessors(fluent = true)
+public class EntryBackup {
+    public static final String EXTENSION = ".mtive";
+    private static final int MAGIC = 0x4D545645;
+    private static final int FORMAT = 1;
+    private static final byte KIND_IMG = 0;
+    private static final byte KIND_RPF = 1;
+
+    @Getter
+    private final Path root;
+
+    public EntryBackup(@NotNull Path root) {
+        this.root = root;
+    }
+
+    /**
+     * @return Entry backups in {@code MTIV-Backups/entries} of the configured game directory, or null if no
+     * game directory is configured
+     */
+    @Nullable
+    public static EntryBackup ofGameDirectory() {
+        Path path = NDFile.pathOf("MTIV-Backups");
+        return path == null ? null : new EntryBackup(path.resolve("entries"));
+    }
+
+    /**
+     * Saves the given entries of an IMG archive.
+     *
+     * @param archive Archive to back up
+     * @param version Backup id
+     * @param names   Entry names the mod is about to replace or add
+     * @return The backup id
+     * @throws IOException If the archive cannot be read or the sidecar cannot be written
+     */
+    @NotNull
+    public String backup(@NotNull IMGFile archive, @NotNull String version, @NotNull Collection<String> names) throws IOException {
+        return write(version, KIND_IMG, names, name -> {
+            IMGFile.Entry entry = archive.entry(name);
+            if (entry == null) return null;
+            return new Record(
+                    new int[]{entry.itemSize(), entry.resourceType(), entry.offsetBlocks(), entry.usedBlocks(), entry.padding()},
+                    archive.read(entry)
+            );
+        });
+    }
+
+    /**
+     * Saves the given files of an RPF2 archive.
+     *
+     * @param archive Archive to back up
+     * @param version Backup id
+     * @param paths   Entry paths the mod is about to replace or add
+     * @return The backup id
+     * @throws IOException If the archive cannot be read or the sidecar cannot be written
+     */
+    @NotNull
+    public String backup(@NotNull RPFFile archive, @NotNull String version, @NotNull Collection<String> paths) throws IOException {
+        return write(version, KIND_RPF, paths, name -> {
+            if (!(archive.entry(name) instanceof RPFFile.FileEntry entry)) return null;
+            return new Record(new int[]{entry.size(), entry.rawOffset(), entry.rawFlags()}, archive.read(entry));
+        });
+    }
+
+    /**
+     * Puts the saved entries back into an IMG archive and removes entries that did not exist before.
+     *
+     * @param version Backup id
+     * @param archive Archive the backup was taken from
+     * @throws IOException If the sidecar is missing or damaged or the archive cannot be written
+     */
+    public void restore(@NotNull String version, @NotNull IMGFile archive) throws IOException {
+        IMGWriter writer = new IMGWriter(archive);
+        read(version, KIND_IMG, (name, fields, source) -> {
+            if (source == null) writer.remove(name);
+            else writer.put(name, source, new IMGFile.Entry(name, fields[0], fields[1], fields[2], fields[3], fields[4]));
+        }, writer::commit);
+    }
+
+    /**
+     * Puts the saved files back into an RPF2 archive and removes files that did not exist before.
+     *
+     * @param version Backup id
+     * @param archive Archive the backup was taken from, opened with its key if the archive is encrypted
+     * @throws IOException If the sidecar is missing or damaged or the archive cannot be written
+     */
+    public void restore(@NotNull String version, @NotNull RPFFile archive) throws IOException {
+        RPFWriter writer = new RPFWriter(archive);
+        read(version, KIND_RPF, (name, fields, source) -> {
+            if (source == null) writer.remove(name);
+            else writer.put(name, source, new RPFFile.FileEntry(name.substring(name.lastIndexOf('/') + 1), fields[0], fields[1], fields[2]));
+        }, writer::commit);
+    }
+
+    /**
+     * @param version Backup id
+     * @return True if the sidecar existed
+     */
+    public boolean delete(@NotNull String version) throws IOException {
+        return Files.deleteIfExists(sidecar(version));
+    }
+
+    private String write(String version, byte kind, Collection<String> names, RecordReader reader) throws IOException {
+        Path target = sidecar(version);
+        Files.createDirectories(root);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            LinkedHashSet<String> unique = new LinkedHashSet<>(names);
+            ByteBuffer header = ByteBuffer.allocate(13);
+            header.putInt(MAGIC).putInt(FORMAT).put(kind).putInt(unique.size()).flip();
+            writeFully(out, header);
+
+            for (String name : unique) {
+                Record record = reader.read(name);
+                byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+                int fields = record == null ? 0 : record.fields.length;
+
+                ByteBuffer meta = ByteBuffer.allocate(4 + encoded.length + 1 + 4 * fields + 8);
+                meta.putInt(encoded.length).put(encoded).put((byte) (record == null ? 0 : 1));
+                if (record != null) {
+                    for (int field : record.fields) meta.putInt(field);
+                    meta.putLong(record.data.remaining());
+                }
+                writeFully(out, meta.flip());
+                if (record != null) writeFully(out, record.data);
+            }
+            out.force(true);
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return version;
+    }
+
+    private void read(String version, byte kind, RecordConsumer consumer, Commit commit) throws IOException {
+        Path path = sidecar(version);
+        if (!Files.exists(path)) {
+            throw new NoSuchFileException(path.toString(), null, "Entry backup not found");
+        }
+
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (data.getInt() != MAGIC || data.getInt() != FORMAT || data.get() != kind) {
+                throw new IOException("Not an entry backup of the expected kind: " + path);
+            }
+
+            int fields = kind == KIND_IMG ? 5 : 3;
+            int count = data.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[data.getInt()];
+                data.get(name);
+                boolean present = data.get() != 0;
+                if (!present) {
+                    consumer.accept(new String(name, StandardCharsets.UTF_8), null, null);
+                    continue;
+                }
+
+                int[] values = new int[fields];
+                for (int f = 0; f < fields; f++) values[f] = data.getInt();
+                long length = data.getLong();
+                consumer.accept(new String(name, StandardCharsets.UTF_8), values, EntrySource.of(in, data.position(), length));
+                data.position((int) (data.position() + length));
+            }
+
+            // The sidecar channel backs the sources, so commit while it is still open
+            commit.run();
+        }
+    }
+
+    private Path sidecar(String version) {
+        if (version.isBlank() || version.contains("/") || version.contains("\\") || version.contains("..")) {
+            throw new IllegalArgumentException("Invalid backup version: " + version);
+        }
+        return root.resolve(version + EXTENSION);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private record Record(int[] fields, ByteBuffer data) {
+    }
+
+    @FunctionalInterface
+    private interface RecordReader {
+        @Nullable
+        Record read(String name) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+        void accept(String name, int[] fields, EntrySource source) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Commit {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,83 @@
+package dev.nelmin.java.fs.files;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * First-fit allocator over the blocks of an archive file.
+ * <p>
+ * Gaps between the blocks that are in use are handed out first; requests that fit nowhere are appended
+ * at the end of the file.
+ */
+final class BlockAllocator {
+    private final TreeMap<Long, Long> free = new TreeMap<>();
+    private long end;
+
+    private BlockAllocator(long end) {
+        this.end = end;
+    }
+
+    /**
+     * Creates an allocator for a file of {@code end} blocks where only the given ranges are in use.
+     *
+     * @param end  Number of blocks in the file
+     * @param used Ranges in use as {start, length} pairs, may overlap
+     */
+    static BlockAllocator of(long end, List<long[]> used) {
+        List<long[]> sorted = new ArrayList<>(used);
+        sorted.sort(Comparator.comparingLong(range -> range[0]));
+
+        long maxEnd = end;
+        for (long[] range : sorted) maxEnd = Math.max(maxEnd, range[0] + range[1]);
+
+        BlockAllocator allocator = new BlockAllocator(maxEnd);
+        long cursor = 0;
+        for (long[] range : sorted) {
+            if (range[0] > cursor) allocator.free.put(cursor, range[0] - cursor);
+            cursor = Math.max(cursor, range[0] + range[1]);
+        }
+        if (cursor < maxEnd) allocator.free.put(cursor, maxEnd - cursor);
+        return allocator;
+    }
+
+    /**
+     * @param length Number of blocks
+     * @return First block of the allocated range
+     */
+    long allocate(long length) {
+        if (length == 0) return end;
+
+        Iterator<Map.Entry<Long, Long>> iterator = free.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Long> range = iterator.next();
+            if (range.getValue() < length) continue;
+
+            long start = range.getKey();
+            long remaining = range.getValue() - length;
+            iterator.remove();
+            if (remaining > 0) free.put(start + length, remaining);
+            return start;
+        }
+
+        // Merge with a free tail so appends don't leave a hole before them
+        Map.Entry<Long, Long> last = free.lastEntry();
+        long start = end;
+        if (last != null && last.getKey() + last.getValue() == end) {
+            start = last.getKey();
+            free.remove(start);
+        }
+        end = start + length;
+        return start;
+    }
+
+    /**
+     * @return Number of blocks the file spans after all allocations
+     */
+    long end() {
+        return end;
+    }
+}
@@ -0,0 +1,152 @@
+package dev.nelmin.java.fs.files;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Contents of an archive entry that is about to be written by {@link IMGWriter} or {@link RPFWriter}.
+ * The size must be known up front so space can be allocated before any data is written.
+ */
+public interface EntrySource {
+    /**
+     * @return Number of bytes {@link #writeTo(FileChannel, long)} writes
+     */
+    long size();
+
+    /**
+     * Writes exactly {@link #size()} bytes into the channel, starting at the given position.
+     *
+     * @param channel  Channel of the archive being written
+     * @param position Absolute position of the first byte
+     * @throws IOException If the data cannot be read or written
+     */
+    void writeTo(@NotNull FileChannel channel, long position) throws IOException;
+
+    /**
+     * Creates a source backed by a file. The file is transferred channel to channel, without heap copies.
+     *
+     * @param file File to copy
+     * @return The source
+     * @throws IOException If the size of the file cannot be determined
+     */
+    @NotNull
+    static EntrySource of(@NotNull Path file) throws IOException {
+        long size = Files.size(file);
+        return new EntrySource() {
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            public void writeTo(@NotNull FileChannel channel, long position) throws IOException {
+                try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long written = 0;
+                    while (written < size) {
+                        long transferred = in.transferTo(written, size - written, channel.position(position + written));
+                        if (transferred <= 0) throw new EOFException("File shrank while copying: " + file);
+                        written += transferred;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a source backed by the remaining bytes of a buffer. The buffer itself is not modified.
+     *
+     * @param data Data to write
+     * @return The source
+     */
+    @NotNull
+    static EntrySource of(@NotNull ByteBuffer data) {
+        ByteBuffer view = data.duplicate();
+        return new EntrySource() {
+            @Override
+            public long size() {
+                return view.remaining();
+            }
+
+            @Override
+            public void writeTo(@NotNull FileChannel channel, long position) throws IOException {
+                ByteBuffer buffer = view.duplicate();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a source that streams {@code size} bytes from an input stream. The stream can only be
+     * consumed once and is not closed.
+     *
+     * @param in   Stream to read from
+     * @param size Number of bytes to read
+     * @return The source
+     */
+    @NotNull
+    static EntrySource of(@NotNull InputStream in, long size) {
+        return new EntrySource() {
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            public void writeTo(@NotNull FileChannel channel, long position) throws IOException {
+                ReadableByteChannel source = Channels.newChannel(in);
+                long written = 0;
+                while (written < size) {
+                    long transferred = channel.transferFrom(source, position + written, size - written);
+                    if (transferred <= 0) throw new EOFException("Stream ended after " + written + " of " + size + " bytes");
+                    written += transferred;
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a source that copies a region of another channel.
+     *
+     * @param from   Channel to copy from
+     * @param offset Position of the first byte to copy
+     * @param size   Number of bytes to copy
+     * @return The source
+     */
+    @NotNull
+    static EntrySource of(@NotNull FileChannel from, long offset, long size) {
+        return new EntrySource() {
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            public void writeTo(@NotNull FileChannel channel, long position) throws IOException {
+                ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(size, 1 << 20));
+                long copied = 0;
+                while (copied < size) {
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), size - copied));
+                    int read = from.read(buffer, offset + copied);
+                    if (read < 0) throw new EOFException("Region ends after " + copied + " of " + size + " bytes");
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, position + copied + buffer.position());
+                    }
+                    copied += read;
+                }
+            }
+        };
+    }
+}
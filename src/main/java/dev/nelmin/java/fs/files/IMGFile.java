@@ -1,16 +1,44 @@
 package dev.nelmin.java.fs.files;
 
+import dev.nelmin.java.fs.backup.BackupStore;
+import dev.nelmin.java.fs.backup.EntryBackup;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.FileOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A GTA IV IMG (version 3) archive.
+ * <p>
+ * The archive is memory-mapped on first access and its table of contents is parsed exactly once into a
+ * sorted index, so listing entries and looking them up by name never touches the data blocks.
+ * Entry contents are served as read-only slices of the mapping.
+ */
+public class IMGFile extends NDFile implements Closeable {
+    public static final int MAGIC = 0xA94E2A52;
+    public static final int VERSION = 3;
+    public static final int BLOCK_SIZE = 2048;
+    public static final int HEADER_SIZE = 20;
+    public static final int TOC_ITEM_SIZE = 16;
+    static final int PADDING_MASK = 0x7FF;
 
-public class IMGFile extends NDFile {
     @Getter
     private final Path path;
+    /**
+     * Index and mapping, published together so a reader never sees one without the other
+     */
+    private volatile Index index;
 
     public IMGFile(@NotNull Path path) {
         this.path = path;
@@ -20,20 +48,252 @@ public class IMGFile extends NDFile {
         this.path = Path.of(path);
     }
 
-    public boolean backup(String newlyInstalledModID) throws IOException {
-        Path backupPath = pathOf("MTIV-Backups");
-        if (!path.toFile().exists() || backupPath == null) return false;
+    /**
+     * Backs up this archive into the deduplicating {@link BackupStore} of the game directory.
+     * Only chunks that changed since an earlier backup of the same archive are stored again.
+     *
+     * @param newlyInstalledModID Id of the mod about to modify this archive
+     * @return The backup version (manifest id), or null if the archive or the game directory does not exist
+     * @throws IOException If the archive cannot be read or the store cannot be written
+     */
+    @Nullable
+    public String backup(String newlyInstalledModID) throws IOException {
+        BackupStore store = BackupStore.ofGameDirectory();
+        if (!Files.exists(path) || store == null) return null;
+
+        String version = path.getFileName().toString().replaceFirst("(?i)\\.img$", "") + "-before-" + newlyInstalledModID + ".img";
+        return store.backup(path, version).version();
+    }
+
+    /**
+     * Backs up only the entries a mod is about to replace or add, instead of the whole archive.
+     *
+     * @param newlyInstalledModID Id of the mod about to modify this archive
+     * @param names               Entry names the mod touches
+     * @return The entry backup id, or null if the archive or the game directory does not exist
+     * @throws IOException If the archive cannot be read or the backup cannot be written
+     */
+    @Nullable
+    public String backupEntries(String newlyInstalledModID, @NotNull Collection<String> names) throws IOException {
+        EntryBackup backups = EntryBackup.ofGameDirectory();
+        if (!Files.exists(path) || backups == null) return null;
+
+        String version = path.getFileName().toString().replaceFirst("(?i)\\.img$", "") + "-before-" + newlyInstalledModID + ".img";
+        return backups.backup(this, version, names);
+    }
+
+    /**
+     * Restores entries saved by {@link #backupEntries(String, Collection)}.
+     *
+     * @param version Entry backup id
+     * @throws IOException If the backup is missing or the archive cannot be written
+     */
+    public void restoreEntries(@NotNull String version) throws IOException {
+        EntryBackup backups = EntryBackup.ofGameDirectory();
+        if (backups == null) throw new IOException("No game directory configured");
+        backups.restore(version, this);
+    }
+
+    /**
+     * Returns all entries in table of contents order.
+     *
+     * @return Unmodifiable list of entries
+     * @throws IOException If the archive cannot be mapped or is not a valid IMG v3 archive
+     */
+    @NotNull
+    public List<Entry> entries() throws IOException {
+        return index().entries;
+    }
+
+    /**
+     * Looks up an entry by name. Names are matched case-insensitively, like the game does.
+     *
+     * @param name Entry name, e.g. {@code infernus.wft}
+     * @return The entry, or null if the archive does not contain it
+     * @throws IOException If the archive cannot be mapped or is not a valid IMG v3 archive
+     */
+    @Nullable
+    public Entry entry(@NotNull String name) throws IOException {
+        Index index = index();
+        int position = Arrays.binarySearch(index.sortedKeys, name.toLowerCase(Locale.ROOT));
+        return position < 0 ? null : index.entries.get(index.sortedOrder[position]);
+    }
+
+    /**
+     * Returns the contents of an entry as a read-only view of the mapped archive.
+     *
+     * @param entry Entry of this archive
+     * @return Little-endian buffer positioned at the first byte of the entry
+     * @throws IOException If the entry lies outside of the archive
+     */
+    @NotNull
+    public ByteBuffer read(@NotNull Entry entry) throws IOException {
+        return index().archive.slice(entry.offset(), entry.size());
+    }
+
+    /**
+     * Returns the contents of the named entry as a read-only view of the mapped archive.
+     *
+     * @param name Entry name
+     * @return The entry contents, or null if the archive does not contain the entry
+     * @throws IOException If the archive cannot be mapped or is not a valid IMG v3 archive
+     */
+    @Nullable
+    public ByteBuffer read(@NotNull String name) throws IOException {
+        Entry entry = entry(name);
+        return entry == null ? null : read(entry);
+    }
+
+    /**
+     * Returns the header field following the table item size. It has no known meaning but is preserved
+     * when the archive is rewritten.
+     */
+    public int headerUnknown() throws IOException {
+        return index().unknown;
+    }
+
+    /**
+     * @return Size of the table of contents in bytes, without the header
+     */
+    int tableSize() throws IOException {
+        return index().tableSize;
+    }
+
+    /**
+     * Releases the mapping. The archive is mapped and indexed again on next access.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        Index current = index;
+        index = null;
+        if (current != null) current.archive.close();
+    }
+
+    @NotNull
+    private Index index() throws IOException {
+        Index current = index;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (index == null) {
+                MappedArchive mapped = new MappedArchive(path);
+                try {
+                    index = parse(mapped);
+                } catch (IOException | RuntimeException e) {
+                    mapped.close();
+                    throw e;
+                }
+            }
+            return index;
+        }
+    }
+
+    private Index parse(MappedArchive mapped) throws IOException {
+        if (mapped.size() < HEADER_SIZE) {
+            throw new IOException("Not an IMG archive (file too small): " + path);
+        }
+
+        ByteBuffer header = mapped.slice(0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not an IMG archive (bad identifier or encrypted header): " + path);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported IMG version " + header.getInt(4) + ": " + path);
+        }
+
+        int count = header.getInt(8);
+        int tableSize = header.getInt(12);
+        int itemSize = Short.toUnsignedInt(header.getShort(16));
+        int unknown = Short.toUnsignedInt(header.getShort(18));
+        if (count < 0 || itemSize != TOC_ITEM_SIZE || tableSize < (long) count * TOC_ITEM_SIZE) {
+            throw new IOException("Corrupt IMG table of contents: " + path);
+        }
+
+        ByteBuffer table = mapped.slice(HEADER_SIZE, tableSize);
+        int namePosition = count * TOC_ITEM_SIZE;
+
+        Entry[] entries = new Entry[count];
+        for (int i = 0; i < count; i++) {
+            int record = i * TOC_ITEM_SIZE;
+            int nameEnd = namePosition;
+            while (nameEnd < tableSize && table.get(nameEnd) != 0) nameEnd++;
+
+            byte[] name = new byte[nameEnd - namePosition];
+            table.get(namePosition, name);
+            namePosition = nameEnd + 1;
 
-        try (FileOutputStream outputStream = new FileOutputStream(
-                backupPath.resolve(
-                        path.getFileName().toString().replaceFirst("\\.img$", "-before-" + newlyInstalledModID + ".img")
-                ).toFile()
-        )) {
-            Files.copy(
-                    path,
-                    outputStream
+            entries[i] = new Entry(
+                    new String(name, StandardCharsets.US_ASCII),
+                    table.getInt(record),
+                    table.getInt(record + 4),
+                    table.getInt(record + 8),
+                    Short.toUnsignedInt(table.getShort(record + 12)),
+                    Short.toUnsignedInt(table.getShort(record + 14))
             );
-            return true;
+        }
+
+        return new Index(entries, unknown, tableSize, mapped);
+    }
+
+    /**
+     * A table of contents record.
+     *
+     * @param name         Entry name
+     * @param itemSize     Size in bytes for raw files, resource flags for resources
+     * @param resourceType Resource type, 0 for raw files
+     * @param offsetBlocks Offset of the entry in {@link #BLOCK_SIZE} blocks
+     * @param usedBlocks   Number of blocks occupied by the entry
+     * @param padding      Unused bytes in the last block (lower 11 bits) and flags
+     */
+    public record Entry(
+            String name,
+            int itemSize,
+            int resourceType,
+            int offsetBlocks,
+            int usedBlocks,
+            int padding
+    ) {
+        public long offset() {
+            return Integer.toUnsignedLong(offsetBlocks) * BLOCK_SIZE;
+        }
+
+        public int size() {
+            return usedBlocks * BLOCK_SIZE - (padding & PADDING_MASK);
+        }
+    }
+
+    /**
+     * Entries in table of contents order plus a name index sorted by lower-cased name, and the mapping they
+     * were read from.
+     */
+    private static final class Index {
+        private final MappedArchive archive;
+        private final List<Entry> entries;
+        private final String[] sortedKeys;
+        private final int[] sortedOrder;
+        private final int unknown;
+        private final int tableSize;
+
+        private Index(Entry[] entries, int unknown, int tableSize, MappedArchive archive) {
+            this.archive = archive;
+            this.tableSize = tableSize;
+            this.entries = Collections.unmodifiableList(Arrays.asList(entries));
+            this.unknown = unknown;
+
+            Integer[] order = new Integer[entries.length];
+            String[] keys = new String[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                order[i] = i;
+                keys[i] = entries[i].name().toLowerCase(Locale.ROOT);
+            }
+            Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+
+            this.sortedKeys = new String[entries.length];
+            this.sortedOrder = new int[entries.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedOrder[i] = order[i];
+                sortedKeys[i] = keys[order[i]];
+            }
         }
     }
 }
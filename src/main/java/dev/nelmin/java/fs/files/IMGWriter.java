@@ -0,0 +1,217 @@
+package dev.nelmin.java.fs.files;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Applies entry replacements, additions and removals to an IMG archive in place.
+ * <p>
+ * Unchanged entries keep their blocks. New data goes into gaps no entry of the previous table of contents
+ * uses, or is appended; blocks of replaced and removed entries only become free for the next commit. Only the
+ * table of contents is rewritten; entries in its way are moved when it grows. The cost of a commit therefore
+ * scales with the size of the change, not the size of the archive.
+ * <p>
+ * All data is written and forced to disk before the table of contents, and none of it overwrites blocks the
+ * previous table of contents references, so a commit interrupted before the table of contents is written leaves
+ * the archive as it was. The table of contents itself is rewritten in place; an interruption during that last
+ * write is covered by the installer's journal.
+ */
+public class IMGWriter {
+    private static final int MAX_USED_BLOCKS = 0xFFFF;
+
+    private final IMGFile archive;
+    private final Map<String, Change> changes = new LinkedHashMap<>();
+
+    public IMGWriter(@NotNull IMGFile archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Replaces or adds an entry.
+     *
+     * @param name   Entry name
+     * @param source New contents
+     * @return This writer
+     */
+    @NotNull
+    public IMGWriter put(@NotNull String name, @NotNull EntrySource source) {
+        return put(name, source, null);
+    }
+
+    /**
+     * Replaces or adds an entry, copying the item size, resource type and padding flags of a template
+     * record. Used to restore entries exactly as they were.
+     *
+     * @param name     Entry name
+     * @param source   New contents
+     * @param template Record to copy the metadata from, or null for a raw file
+     * @return This writer
+     */
+    @NotNull
+    public IMGWriter put(@NotNull String name, @NotNull EntrySource source, @Nullable IMGFile.Entry template) {
+        changes.put(name.toLowerCase(Locale.ROOT), new Change(name, source, template));
+        return this;
+    }
+
+    /**
+     * Removes an entry. Removing an entry that does not exist is a no-op.
+     *
+     * @param name Entry name
+     * @return This writer
+     */
+    @NotNull
+    public IMGWriter remove(@NotNull String name) {
+        changes.put(name.toLowerCase(Locale.ROOT), new Change(name, null, null));
+        return this;
+    }
+
+    /**
+     * Writes all pending changes to the archive and releases the archive's mapping.
+     *
+     * @throws IOException If the archive cannot be read or written
+     */
+    public void commit() throws IOException {
+        List<IMGFile.Entry> current = archive.entries();
+        int unknown = archive.headerUnknown();
+        long oldTocBlocks = blocks(IMGFile.HEADER_SIZE + (long) archive.tableSize());
+        archive.close();
+
+        Map<String, Change> pending = new LinkedHashMap<>(changes);
+        List<Slot> slots = new ArrayList<>();
+        for (IMGFile.Entry entry : current) {
+            Change change = pending.remove(entry.name().toLowerCase(Locale.ROOT));
+            if (change == null) slots.add(new Slot(entry.name(), entry, null, null));
+            else if (change.source != null) slots.add(new Slot(entry.name(), entry, change.source, change.template));
+        }
+        for (Change change : pending.values()) {
+            if (change.source != null) slots.add(new Slot(change.name, null, change.source, change.template));
+        }
+
+        byte[][] names = new byte[slots.size()][];
+        int tableSize = slots.size() * IMGFile.TOC_ITEM_SIZE;
+        for (int i = 0; i < slots.size(); i++) {
+            names[i] = slots.get(i).name.getBytes(StandardCharsets.US_ASCII);
+            tableSize += names[i].length + 1;
+        }
+        long tocBlocks = blocks(IMGFile.HEADER_SIZE + (long) tableSize);
+
+        try (FileChannel channel = FileChannel.open(archive.getPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Everything the previous table of contents references stays untouched until the new one is written
+            List<long[]> used = new ArrayList<>();
+            used.add(new long[]{0, Math.max(tocBlocks, oldTocBlocks)});
+            for (IMGFile.Entry entry : current) used.add(new long[]{entry.offsetBlocks(), entry.usedBlocks()});
+
+            for (Slot slot : slots) {
+                IMGFile.Entry original = slot.original;
+                if (original == null || slot.source != null) continue;
+                if (original.offsetBlocks() < tocBlocks) {
+                    // Unchanged entry in the way of the grown table of contents
+                    slot.source = EntrySource.of(channel, original.offset(), original.size());
+                    slot.template = original;
+                }
+            }
+
+            BlockAllocator allocator = BlockAllocator.of(blocks(channel.size()), used);
+            for (Slot slot : slots) {
+                if (slot.source == null) continue;
+                if (slot.offsetBlocks < 0) {
+                    slot.usedBlocks = blocks(slot.source.size());
+                    slot.offsetBlocks = allocator.allocate(slot.usedBlocks);
+                }
+                if (slot.usedBlocks > MAX_USED_BLOCKS) {
+                    throw new IOException("Entry " + slot.name + " is too large for an IMG archive");
+                }
+            }
+
+            for (Slot slot : slots) {
+                if (slot.source != null) slot.source.writeTo(channel, slot.offsetBlocks * IMGFile.BLOCK_SIZE);
+            }
+
+            long length = allocator.end() * IMGFile.BLOCK_SIZE;
+            if (channel.size() < length) {
+                channel.write(ByteBuffer.allocate(1), length - 1);
+            }
+            channel.force(false);
+
+            ByteBuffer toc = ByteBuffer.allocate(IMGFile.HEADER_SIZE + tableSize).order(ByteOrder.LITTLE_ENDIAN);
+            toc.putInt(IMGFile.MAGIC)
+                    .putInt(IMGFile.VERSION)
+                    .putInt(slots.size())
+                    .putInt(tableSize)
+                    .putShort((short) IMGFile.TOC_ITEM_SIZE)
+                    .putShort((short) unknown);
+            for (Slot slot : slots) {
+                IMGFile.Entry record = slot.record();
+                toc.putInt(record.itemSize())
+                        .putInt(record.resourceType())
+                        .putInt(record.offsetBlocks())
+                        .putShort((short) record.usedBlocks())
+                        .putShort((short) record.padding());
+            }
+            for (byte[] name : names) {
+                toc.put(name).put((byte) 0);
+            }
+
+            toc.flip();
+            while (toc.hasRemaining()) {
+                channel.write(toc, toc.position());
+            }
+            channel.force(true);
+        }
+
+        changes.clear();
+    }
+
+    private static long blocks(long bytes) {
+        return (bytes + IMGFile.BLOCK_SIZE - 1) / IMGFile.BLOCK_SIZE;
+    }
+
+    private record Change(String name, @Nullable EntrySource source, @Nullable IMGFile.Entry template) {
+    }
+
+    private static final class Slot {
+        private final String name;
+        private final IMGFile.Entry original;
+        private EntrySource source;
+        private IMGFile.Entry template;
+        private long offsetBlocks = -1;
+        private long usedBlocks;
+
+        private Slot(String name, IMGFile.Entry original, EntrySource source, IMGFile.Entry template) {
+            this.name = name;
+            this.original = original;
+            this.source = source;
+            this.template = template;
+        }
+
+        private IMGFile.Entry record() {
+            if (source == null) return original;
+
+            int size = (int) source.size();
+            int padding = (int) (usedBlocks * IMGFile.BLOCK_SIZE - size);
+            if (template == null) {
+                return new IMGFile.Entry(name, size, 0, (int) offsetBlocks, (int) usedBlocks, padding);
+            }
+            return new IMGFile.Entry(
+                    name,
+                    template.resourceType() == 0 ? size : template.itemSize(),
+                    template.resourceType(),
+                    (int) offsetBlocks,
+                    (int) usedBlocks,
+                    (template.padding() & ~IMGFile.PADDING_MASK) | padding
+            );
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dev.nelmin.java.fs.files;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only memory mapping of an archive file.
+ * <p>
+ * Archives up to 2 GiB are mapped once as a whole, larger ones are mapped per requested region.
+ * All buffers handed out are little-endian, read-only views and never copy file contents to the heap.
+ */
+final class MappedArchive implements Closeable {
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer whole;
+
+    MappedArchive(@NotNull Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            this.whole = size <= Integer.MAX_VALUE
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                    : null;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Returns a view of {@code length} bytes starting at {@code offset}.
+     *
+     * @throws EOFException if the region lies outside of the file
+     */
+    @NotNull
+    ByteBuffer slice(long offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new EOFException("Region " + offset + "+" + length + " exceeds archive size " + size);
+        }
+
+        ByteBuffer buffer = whole != null
+                ? whole.slice((int) offset, length)
+                : channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        return buffer.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,7 +1,6 @@
 package dev.nelmin.java.fs.files;
 
 import dev.nelmin.java.MTIV;
-import dev.nelmin.java.configuration.NDString;
 import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
@@ -12,11 +11,9 @@ public class NDFile {
     }
 
     public static @Nullable Path pathOf(Path path) {
-        NDString defaultVersion = MTIV.config().getNDString("game.default");
-        NDString gameDirectory = MTIV.config().getNDString("game." + defaultVersion.value() + ".directory");
+        Path gameDirectory = MTIV.game().defaultDirectory();
+        if (gameDirectory == null) return null;
 
-        if (defaultVersion.isBlankOrNull() || gameDirectory.isBlankOrNull()) return null;
-
-        return Path.of(gameDirectory.value()).resolve(path);
+        return gameDirectory.resolve(path);
     }
 }
@@ -0,0 +1,194 @@
+package dev.nelmin.java.fs.files;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the version resource of a Windows executable (PE/COFF image) without native code.
+ * <p>
+ * The file is memory-mapped and only the headers, the section table and the resource tree down to the
+ * {@code RT_VERSION} resource are touched; the version itself is the {@code VS_FIXEDFILEINFO} structure at the
+ * start of {@code VS_VERSIONINFO}. Works on any operating system.
+ */
+public final class PEFile {
+    private static final int DOS_MAGIC = 0x5A4D;
+    private static final int PE_SIGNATURE = 0x00004550;
+    private static final int PE32 = 0x10B;
+    private static final int PE32_PLUS = 0x20B;
+    private static final int RESOURCE_DIRECTORY = 2;
+    private static final int SECTION_HEADER_SIZE = 40;
+    private static final int RT_VERSION = 16;
+    private static final int FIXED_FILE_INFO_SIGNATURE = 0xFEEF04BD;
+    private static final int FIXED_FILE_INFO_SIZE = 52;
+    /**
+     * Nesting of the resource tree: type, name, language
+     */
+    private static final int RESOURCE_LEVELS = 3;
+
+    private PEFile() {
+    }
+
+    /**
+     * Reads the file version, e.g. {@code 1.2.0.59} for {@code GTAIV.exe} of the Complete Edition.
+     *
+     * @param path Executable to read
+     * @return The file version from {@code VS_FIXEDFILEINFO}
+     * @throws IOException If the file cannot be read, is not a PE image or has no version resource
+     */
+    @NotNull
+    public static FileVersion fileVersion(@NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return fileVersion(mapped.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    /**
+     * @param image Complete image, little-endian
+     * @return The file version from {@code VS_FIXEDFILEINFO}
+     * @throws IOException If the image is not a PE image or has no version resource
+     */
+    @NotNull
+    static FileVersion fileVersion(@NotNull ByteBuffer image) throws IOException {
+        try {
+            if (image.limit() < 0x40 || Short.toUnsignedInt(image.getShort(0)) != DOS_MAGIC) {
+                throw new IOException("Not an executable");
+            }
+            int header = image.getInt(0x3C);
+            if (header < 0 || image.getInt(header) != PE_SIGNATURE) throw new IOException("Not a PE image");
+
+            int sections = Short.toUnsignedInt(image.getShort(header + 6));
+            int optionalSize = Short.toUnsignedInt(image.getShort(header + 20));
+            int optional = header + 24;
+            int directories = switch (Short.toUnsignedInt(image.getShort(optional))) {
+                case PE32 -> optional + 96;
+                case PE32_PLUS -> optional + 112;
+                default -> throw new IOException("Unknown PE optional header");
+            };
+            int directoryCount = image.getInt(directories - 4);
+            if (directoryCount <= RESOURCE_DIRECTORY) throw new IOException("No resource directory");
+            int resourceRva = image.getInt(directories + RESOURCE_DIRECTORY * 8);
+            if (resourceRva == 0) throw new IOException("No resources");
+
+            Sections table = new Sections(image, optional + optionalSize, sections);
+            int resources = table.offset(resourceRva);
+
+            // Type RT_VERSION, then the first name and the first language below it
+            int directory = resources;
+            int entry = 0;
+            for (int level = 0; level < RESOURCE_LEVELS; level++) {
+                entry = level == 0 ? findId(image, directory, RT_VERSION) : first(image, directory);
+                if (entry < 0) throw new IOException("No version resource");
+                int target = image.getInt(entry + 4);
+                boolean subdirectory = target < 0;
+                if (level < RESOURCE_LEVELS - 1) {
+                    if (!subdirectory) throw new IOException("Malformed resource directory");
+                    directory = resources + (target & 0x7FFFFFFF);
+                } else {
+                    if (subdirectory) throw new IOException("Malformed resource directory");
+                    entry = resources + target;
+                }
+            }
+
+            int data = table.offset(image.getInt(entry));
+            int size = image.getInt(entry + 4);
+            return fixedFileInfo(image, data, size);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated PE image", e);
+        }
+    }
+
+    /**
+     * Reads {@code VS_FIXEDFILEINFO}, which follows the header and the {@code VS_VERSION_INFO} key of
+     * {@code VS_VERSIONINFO}, aligned to 32 bits.
+     */
+    private static FileVersion fixedFileInfo(ByteBuffer image, int data, int size) throws IOException {
+        int key = data + 6;
+        int end = key;
+        while (end < data + size && image.getShort(end) != 0) end += 2;
+        int value = align(end + 2 - data) + data;
+
+        if (value + FIXED_FILE_INFO_SIZE > data + size || image.getInt(value) != FIXED_FILE_INFO_SIGNATURE) {
+            throw new IOException("Malformed version resource");
+        }
+        int mostSignificant = image.getInt(value + 8);
+        int leastSignificant = image.getInt(value + 12);
+        return new FileVersion(
+                mostSignificant >>> 16,
+                mostSignificant & 0xFFFF,
+                leastSignificant >>> 16,
+                leastSignificant & 0xFFFF
+        );
+    }
+
+    private static int findId(ByteBuffer image, int directory, int id) {
+        int named = Short.toUnsignedInt(image.getShort(directory + 12));
+        int ids = Short.toUnsignedInt(image.getShort(directory + 14));
+        // Named entries come first, then entries sorted by id
+        for (int i = named; i < named + ids; i++) {
+            int entry = directory + 16 + i * 8;
+            if (image.getInt(entry) == id) return entry;
+        }
+        return -1;
+    }
+
+    private static int first(ByteBuffer image, int directory) {
+        int count = Short.toUnsignedInt(image.getShort(directory + 12)) + Short.toUnsignedInt(image.getShort(directory + 14));
+        return count == 0 ? -1 : directory + 16;
+    }
+
+    private static int align(int offset) {
+        return (offset + 3) & ~3;
+    }
+
+    /**
+     * Maps relative virtual addresses to file offsets.
+     */
+    private static final class Sections {
+        private final int[] virtualAddresses;
+        private final int[] virtualSizes;
+        private final int[] rawOffsets;
+        private final int[] rawSizes;
+
+        Sections(ByteBuffer image, int table, int count) {
+            virtualAddresses = new int[count];
+            virtualSizes = new int[count];
+            rawOffsets = new int[count];
+            rawSizes = new int[count];
+            for (int i = 0; i < count; i++) {
+                int section = table + i * SECTION_HEADER_SIZE;
+                virtualSizes[i] = image.getInt(section + 8);
+                virtualAddresses[i] = image.getInt(section + 12);
+                rawSizes[i] = image.getInt(section + 16);
+                rawOffsets[i] = image.getInt(section + 20);
+            }
+        }
+
+        int offset(int rva) throws IOException {
+            for (int i = 0; i < virtualAddresses.length; i++) {
+                int size = Math.max(virtualSizes[i], rawSizes[i]);
+                if (Integer.compareUnsigned(rva - virtualAddresses[i], size) < 0) {
+                    return rawOffsets[i] + (rva - virtualAddresses[i]);
+                }
+            }
+            throw new IOException("Address outside of all sections: 0x" + Integer.toHexString(rva));
+        }
+    }
+
+    /**
+     * A four-part file version, {@code major.minor.build.revision}.
+     */
+    public record FileVersion(int major, int minor, int build, int revision) {
+        @Override
+        public String toString() {
+            return major + "." + minor + "." + build + "." + revision;
+        }
+    }
+}
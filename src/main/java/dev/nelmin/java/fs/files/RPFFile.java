@@ -1,39 +1,440 @@
 package dev.nelmin.java.fs.files;
 
+import dev.nelmin.java.fs.backup.BackupStore;
+import dev.nelmin.java.fs.backup.EntryBackup;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.FileOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A GTA IV RPF2 archive.
+ * <p>
+ * The header and table of contents are decoded on first access. Encrypted tables of contents are
+ * decrypted with the key passed to the constructor. Directories are only materialized when they are
+ * descended into, and file contents are served as read-only slices of the memory-mapped archive.
+ */
+public class RPFFile extends NDFile implements Closeable {
+    public static final int HEADER_SIZE = 20;
+    public static final int TOC_OFFSET = 0x800;
+    public static final int TOC_ITEM_SIZE = 16;
+    static final byte[] MAGIC = {'R', 'P', 'F', '2'};
+    static final int DIRECTORY_FLAG = 0x80000000;
+    static final int COMPRESSED_FLAG = 0x40000000;
+    static final int RESOURCE_FLAGS = 0xC0000000;
 
-public class RPFFile extends NDFile {
     @Getter
     private final Path path;
+    private final byte[] tocKey;
+    /**
+     * Table of contents and mapping, published together so a reader never sees one without the other
+     */
+    private volatile TOC toc;
 
     public RPFFile(@NotNull Path path) {
-        this.path = path;
+        this(path, null);
     }
 
     public RPFFile(@NotNull String path) {
-        this.path = Path.of(path);
-    }
-
-    public boolean backup(String newlyInstalledModID) throws IOException {
-        Path backupPath = pathOf("MTIV-Backups");
-        if (!path.toFile().exists() || backupPath == null) return false;
-
-        try (FileOutputStream outputStream = new FileOutputStream(
-                backupPath.resolve(
-                        path.getFileName().toString().replaceFirst("\\.img$", "-before-" + newlyInstalledModID + ".rpf")
-                ).toFile()
-        )) {
-            Files.copy(
-                    path,
-                    outputStream
-            );
-            return true;
+        this(Path.of(path), null);
+    }
+
+    /**
+     * @param path   Path of the archive
+     * @param tocKey 32 byte AES key for encrypted tables of contents, may be null for plain archives
+     */
+    public RPFFile(@NotNull Path path, byte @Nullable [] tocKey) {
+        this.path = path;
+        this.tocKey = tocKey == null ? null : tocKey.clone();
+    }
+
+    /**
+     * Backs up this archive into the deduplicating {@link BackupStore} of the game directory.
+     * Only chunks that changed since an earlier backup of the same archive are stored again.
+     *
+     * @param newlyInstalledModID Id of the mod about to modify this archive
+     * @return The backup version (manifest id), or null if the archive or the game directory does not exist
+     * @throws IOException If the archive cannot be read or the store cannot be written
+     */
+    @Nullable
+    public String backup(String newlyInstalledModID) throws IOException {
+        BackupStore store = BackupStore.ofGameDirectory();
+        if (!Files.exists(path) || store == null) return null;
+
+        String version = path.getFileName().toString().replaceFirst("(?i)\\.rpf$", "") + "-before-" + newlyInstalledModID + ".rpf";
+        return store.backup(path, version).version();
+    }
+
+    /**
+     * Backs up only the entries a mod is about to replace or add, instead of the whole archive.
+     *
+     * @param newlyInstalledModID Id of the mod about to modify this archive
+     * @param paths               Entry paths the mod touches
+     * @return The entry backup id, or null if the archive or the game directory does not exist
+     * @throws IOException If the archive cannot be read or the backup cannot be written
+     */
+    @Nullable
+    public String backupEntries(String newlyInstalledModID, @NotNull Collection<String> paths) throws IOException {
+        EntryBackup backups = EntryBackup.ofGameDirectory();
+        if (!Files.exists(path) || backups == null) return null;
+
+        String version = path.getFileName().toString().replaceFirst("(?i)\\.rpf$", "") + "-before-" + newlyInstalledModID + ".rpf";
+        return backups.backup(this, version, paths);
+    }
+
+    /**
+     * Restores entries saved by {@link #backupEntries(String, Collection)}.
+     *
+     * @param version Entry backup id
+     * @throws IOException If the backup is missing or the archive cannot be written
+     */
+    public void restoreEntries(@NotNull String version) throws IOException {
+        EntryBackup backups = EntryBackup.ofGameDirectory();
+        if (backups == null) throw new IOException("No game directory configured");
+        backups.restore(version, this);
+    }
+
+    /**
+     * Returns the root directory of the archive.
+     *
+     * @throws IOException If the archive cannot be mapped or its table of contents cannot be decoded
+     */
+    @NotNull
+    public Directory root() throws IOException {
+        return toc().root;
+    }
+
+    /**
+     * Resolves a slash or backslash separated path, e.g. {@code common/data/handling.dat}.
+     * Only the directories along the path are materialized.
+     *
+     * @param entryPath Path relative to the archive root
+     * @return The entry, or null if it does not exist
+     * @throws IOException If the archive cannot be mapped or its table of contents cannot be decoded
+     */
+    @Nullable
+    public Entry entry(@NotNull String entryPath) throws IOException {
+        Entry current = root();
+        for (String part : entryPath.split("[/\\\\]")) {
+            if (part.isEmpty()) continue;
+            if (!(current instanceof Directory directory)) return null;
+            current = directory.entry(part);
+            if (current == null) return null;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the stored bytes of a file entry as a read-only view of the mapped archive.
+     * Compressed entries are returned as stored, see {@link FileEntry#compressed()}.
+     *
+     * @param entry File entry of this archive
+     * @return Little-endian buffer positioned at the first byte of the entry
+     * @throws IOException If the entry lies outside of the archive
+     */
+    @NotNull
+    public ByteBuffer read(@NotNull FileEntry entry) throws IOException {
+        return toc().archive.slice(entry.offset(), entry.storedSize());
+    }
+
+    /**
+     * Returns the stored bytes of the file at the given path.
+     *
+     * @param entryPath Path relative to the archive root
+     * @return The stored bytes, or null if the path does not name a file
+     * @throws IOException If the archive cannot be mapped or its table of contents cannot be decoded
+     */
+    @Nullable
+    public ByteBuffer read(@NotNull String entryPath) throws IOException {
+        return entry(entryPath) instanceof FileEntry file ? read(file) : null;
+    }
+
+    /**
+     * @return True if the table of contents is stored encrypted
+     */
+    public boolean encrypted() throws IOException {
+        return toc().encrypted;
+    }
+
+    /**
+     * Returns the header field following the entry count. It has no known meaning but is preserved
+     * when the archive is rewritten.
+     */
+    public int headerUnknown() throws IOException {
+        return toc().unknown;
+    }
+
+    /**
+     * @return Size of the table of contents in bytes
+     */
+    int tocSize() throws IOException {
+        return toc().table.limit();
+    }
+
+    byte @Nullable [] tocKey() {
+        return tocKey;
+    }
+
+    /**
+     * Releases the mapping. The archive is mapped and decoded again on next access.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        TOC current = toc;
+        toc = null;
+        if (current != null) current.archive.close();
+    }
+
+    @NotNull
+    private TOC toc() throws IOException {
+        TOC current = toc;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (toc == null) {
+                MappedArchive mapped = new MappedArchive(path);
+                try {
+                    toc = parse(mapped);
+                } catch (IOException | RuntimeException e) {
+                    mapped.close();
+                    throw e;
+                }
+            }
+            return toc;
+        }
+    }
+
+    private TOC parse(MappedArchive mapped) throws IOException {
+        if (mapped.size() < TOC_OFFSET) {
+            throw new IOException("Not an RPF2 archive (file too small): " + path);
+        }
+
+        ByteBuffer header = mapped.slice(0, HEADER_SIZE);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                throw new IOException("Not an RPF2 archive (bad identifier): " + path);
+            }
+        }
+
+        int tocSize = header.getInt(4);
+        int count = header.getInt(8);
+        int unknown = header.getInt(12);
+        boolean encrypted = header.getInt(16) != 0;
+        if (count <= 0 || tocSize < (long) count * TOC_ITEM_SIZE) {
+            throw new IOException("Corrupt RPF2 table of contents: " + path);
+        }
+
+        ByteBuffer table = mapped.slice(TOC_OFFSET, tocSize);
+        if (encrypted) {
+            if (tocKey == null) {
+                throw new IOException("RPF2 table of contents is encrypted but no key was supplied: " + path);
+            }
+            byte[] data = new byte[tocSize];
+            table.get(0, data);
+            TOCCipher.decrypt(tocKey, data);
+            table = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if ((table.getInt(8) & DIRECTORY_FLAG) == 0) {
+            throw new IOException("RPF2 root entry is not a directory (wrong key?): " + path);
+        }
+
+        TOC decoded = new TOC(mapped, table, count, encrypted, unknown);
+        decoded.root = (Directory) decoded.decode(0);
+        return decoded;
+    }
+
+    /**
+     * A file or directory of the archive.
+     */
+    public sealed interface Entry permits Directory, FileEntry {
+        String name();
+    }
+
+    /**
+     * A file table of contents record.
+     *
+     * @param name      Entry name
+     * @param size      Uncompressed size, resource flags for resources
+     * @param rawOffset Offset field as stored, including the resource type in the low byte for resources
+     * @param rawFlags  Stored size combined with the compression and resource bits
+     */
+    public record FileEntry(
+            String name,
+            int size,
+            int rawOffset,
+            int rawFlags
+    ) implements Entry {
+        public boolean resource() {
+            return (rawFlags & RESOURCE_FLAGS) == RESOURCE_FLAGS;
+        }
+
+        public boolean compressed() {
+            return !resource() && (rawFlags & COMPRESSED_FLAG) != 0;
+        }
+
+        public int resourceType() {
+            return resource() ? rawOffset & 0xFF : 0;
+        }
+
+        public long offset() {
+            return Integer.toUnsignedLong(resource() ? rawOffset & 0x7FFFFF00 : rawOffset);
+        }
+
+        public int storedSize() {
+            return rawFlags & ~RESOURCE_FLAGS;
+        }
+    }
+
+    /**
+     * A directory table of contents record. Children are decoded on the first call to {@link #children()}.
+     */
+    public static final class Directory implements Entry {
+        private final TOC toc;
+        private final String name;
+        private final int flags;
+        private final int firstChild;
+        private final int childCount;
+        private volatile Entry[] children;
+        private String[] sortedKeys;
+        private int[] sortedOrder;
+
+        private Directory(TOC toc, String name, int flags, int firstChild, int childCount) {
+            this.toc = toc;
+            this.name = name;
+            this.flags = flags;
+            this.firstChild = firstChild;
+            this.childCount = childCount;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        public int flags() {
+            return flags;
+        }
+
+        @Override
+        public String toString() {
+            return "Directory[name=" + name + ", children=" + childCount + "]";
+        }
+
+        /**
+         * @return Unmodifiable list of the direct children in table of contents order
+         */
+        @NotNull
+        public List<Entry> children() throws IOException {
+            return Collections.unmodifiableList(Arrays.asList(load()));
+        }
+
+        /**
+         * Looks up a direct child by name, case-insensitively.
+         *
+         * @param childName Name of the child
+         * @return The child, or null if this directory does not contain it
+         */
+        @Nullable
+        public Entry entry(@NotNull String childName) throws IOException {
+            Entry[] loaded = load();
+            int position = Arrays.binarySearch(sortedKeys, childName.toLowerCase(Locale.ROOT));
+            return position < 0 ? null : loaded[sortedOrder[position]];
+        }
+
+        private Entry[] load() throws IOException {
+            Entry[] current = children;
+            if (current != null) return current;
+
+            synchronized (this) {
+                if (children == null) {
+                    if (firstChild < 0 || childCount < 0 || firstChild + childCount > toc.count) {
+                        throw new IOException("Corrupt RPF2 directory " + name);
+                    }
+
+                    Entry[] loaded = new Entry[childCount];
+                    Integer[] order = new Integer[childCount];
+                    String[] keys = new String[childCount];
+                    for (int i = 0; i < childCount; i++) {
+                        loaded[i] = toc.decode(firstChild + i);
+                        order[i] = i;
+                        keys[i] = loaded[i].name().toLowerCase(Locale.ROOT);
+                    }
+                    Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+
+                    sortedKeys = new String[childCount];
+                    sortedOrder = new int[childCount];
+                    for (int i = 0; i < childCount; i++) {
+                        sortedOrder[i] = order[i];
+                        sortedKeys[i] = keys[order[i]];
+                    }
+                    children = loaded;
+                }
+                return children;
+            }
+        }
+    }
+
+    /**
+     * The decoded (plain text) table of contents and the mapping it was read from. Records are decoded on demand.
+     */
+    private static final class TOC {
+        private final MappedArchive archive;
+        private final ByteBuffer table;
+        private final int count;
+        private final boolean encrypted;
+        private final int unknown;
+        private Directory root;
+
+        private TOC(MappedArchive archive, ByteBuffer table, int count, boolean encrypted, int unknown) {
+            this.archive = archive;
+            this.table = table;
+            this.count = count;
+            this.encrypted = encrypted;
+            this.unknown = unknown;
+        }
+
+        private Entry decode(int index) throws IOException {
+            int record = index * TOC_ITEM_SIZE;
+            String name = name(table.getInt(record));
+            int third = table.getInt(record + 8);
+
+            if ((third & DIRECTORY_FLAG) != 0) {
+                return new Directory(
+                        this,
+                        name,
+                        table.getInt(record + 4),
+                        third & ~DIRECTORY_FLAG,
+                        table.getInt(record + 12) & 0x0FFFFFFF
+                );
+            }
+            return new FileEntry(name, table.getInt(record + 4), third, table.getInt(record + 12));
+        }
+
+        private String name(int offset) throws IOException {
+            int start = count * TOC_ITEM_SIZE + offset;
+            if (offset < 0 || start >= table.capacity()) {
+                throw new IOException("RPF2 name offset out of range: " + offset);
+            }
+
+            int end = start;
+            while (end < table.capacity() && table.get(end) != 0) end++;
+
+            byte[] name = new byte[end - start];
+            table.get(start, name);
+            return new String(name, StandardCharsets.US_ASCII);
         }
     }
 }
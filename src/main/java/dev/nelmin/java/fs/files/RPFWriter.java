@@ -0,0 +1,307 @@
+package dev.nelmin.java.fs.files;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Applies file replacements, additions and removals to an RPF2 archive in place.
+ * <p>
+ * Works like {@link IMGWriter}: unchanged files keep their blocks, and new data goes into gaps no file of the
+ * previous table of contents uses, or is appended. The table of contents is re-serialized (and re-encrypted for
+ * encrypted archives) after all data has been forced to disk, so a commit interrupted before that leaves the
+ * archive as it was.
+ */
+public class RPFWriter {
+    private static final int BLOCK_SIZE = 2048;
+    private static final Comparator<Node> BY_NAME = Comparator.comparing(node -> node.name.toLowerCase(Locale.ROOT));
+
+    private final RPFFile archive;
+    private final Map<String, Change> changes = new LinkedHashMap<>();
+
+    public RPFWriter(@NotNull RPFFile archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Replaces or adds a file. Missing parent directories are created.
+     *
+     * @param entryPath Path relative to the archive root, e.g. {@code common/data/handling.dat}
+     * @param source    New contents, stored uncompressed
+     * @return This writer
+     */
+    @NotNull
+    public RPFWriter put(@NotNull String entryPath, @NotNull EntrySource source) {
+        return put(entryPath, source, null);
+    }
+
+    /**
+     * Replaces or adds a file, copying the size, resource and compression fields of a template record.
+     * The source must then contain the data exactly as stored. Used to restore files as they were.
+     *
+     * @param entryPath Path relative to the archive root
+     * @param source    New contents
+     * @param template  Record to copy the metadata from, or null for an uncompressed raw file
+     * @return This writer
+     */
+    @NotNull
+    public RPFWriter put(@NotNull String entryPath, @NotNull EntrySource source, @Nullable RPFFile.FileEntry template) {
+        changes.put(key(entryPath), new Change(split(entryPath), source, template));
+        return this;
+    }
+
+    /**
+     * Removes a file or a directory including its contents. Removing a missing path is a no-op.
+     *
+     * @param entryPath Path relative to the archive root
+     * @return This writer
+     */
+    @NotNull
+    public RPFWriter remove(@NotNull String entryPath) {
+        changes.put(key(entryPath), new Change(split(entryPath), null, null));
+        return this;
+    }
+
+    /**
+     * Writes all pending changes to the archive and releases the archive's mapping.
+     *
+     * @throws IOException If the archive cannot be read or written
+     */
+    public void commit() throws IOException {
+        List<RPFFile.FileEntry> referenced = new ArrayList<>();
+        Node root = load(archive.root(), referenced);
+        boolean encrypted = archive.encrypted();
+        int unknown = archive.headerUnknown();
+        byte[] key = archive.tocKey();
+        long oldTocBlocks = blocks(RPFFile.TOC_OFFSET + (long) archive.tocSize());
+        archive.close();
+
+        for (Change change : changes.values()) {
+            apply(root, change);
+        }
+
+        List<Node> order = new ArrayList<>();
+        order.add(root);
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        for (int i = 0; i < order.size(); i++) {
+            Node node = order.get(i);
+            node.nameOffset = names.size();
+            names.writeBytes(node.name.getBytes(StandardCharsets.US_ASCII));
+            names.write(0);
+            if (node.children != null) {
+                node.children.sort(BY_NAME);
+                node.firstChild = order.size();
+                order.addAll(node.children);
+            }
+        }
+
+        int tocSize = order.size() * RPFFile.TOC_ITEM_SIZE + names.size();
+        tocSize = (tocSize + 15) & ~15;
+        long tocBlocks = blocks(RPFFile.TOC_OFFSET + (long) tocSize);
+
+        try (FileChannel channel = FileChannel.open(archive.getPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Everything the previous table of contents references stays untouched until the new one is written
+            List<long[]> used = new ArrayList<>();
+            used.add(new long[]{0, Math.max(tocBlocks, oldTocBlocks)});
+            for (RPFFile.FileEntry entry : referenced) {
+                long start = entry.offset() / BLOCK_SIZE;
+                used.add(new long[]{start, blocks(entry.offset() + entry.storedSize()) - start});
+            }
+
+            for (Node node : order) {
+                RPFFile.FileEntry original = node.original;
+                if (original == null || node.source != null) continue;
+                if (original.offset() < tocBlocks * BLOCK_SIZE) {
+                    // Unchanged file in the way of the grown table of contents
+                    node.source = EntrySource.of(channel, original.offset(), original.storedSize());
+                    node.template = original;
+                }
+            }
+
+            BlockAllocator allocator = BlockAllocator.of(blocks(channel.size()), used);
+            for (Node node : order) {
+                if (node.source == null) continue;
+                if (node.offset < 0) node.offset = allocator.allocate(blocks(node.source.size())) * BLOCK_SIZE;
+                if (node.offset + node.source.size() > Integer.MAX_VALUE) {
+                    throw new IOException("RPF2 archive would exceed 2 GiB when writing " + node.name);
+                }
+            }
+
+            for (Node node : order) {
+                if (node.source != null) node.source.writeTo(channel, node.offset);
+            }
+
+            long length = allocator.end() * BLOCK_SIZE;
+            if (channel.size() < length) {
+                channel.write(ByteBuffer.allocate(1), length - 1);
+            }
+            channel.force(false);
+
+            ByteBuffer toc = ByteBuffer.allocate(tocSize).order(ByteOrder.LITTLE_ENDIAN);
+            for (Node node : order) {
+                if (node.children != null) {
+                    toc.putInt(node.nameOffset)
+                            .putInt(node.flags)
+                            .putInt(RPFFile.DIRECTORY_FLAG | node.firstChild)
+                            .putInt(node.children.size());
+                } else {
+                    RPFFile.FileEntry record = node.record();
+                    toc.putInt(node.nameOffset)
+                            .putInt(record.size())
+                            .putInt(record.rawOffset())
+                            .putInt(record.rawFlags());
+                }
+            }
+            toc.put(names.toByteArray());
+
+            byte[] table = toc.array();
+            if (encrypted) {
+                if (key == null) throw new IOException("Cannot re-encrypt RPF2 table of contents without a key");
+                TOCCipher.encrypt(key, table);
+            }
+            ByteBuffer tableBuffer = ByteBuffer.wrap(table);
+            while (tableBuffer.hasRemaining()) {
+                channel.write(tableBuffer, RPFFile.TOC_OFFSET + tableBuffer.position());
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(RPFFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(RPFFile.MAGIC).putInt(tocSize).putInt(order.size()).putInt(unknown).putInt(encrypted ? 1 : 0);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+
+        changes.clear();
+    }
+
+    private static void apply(Node root, Change change) {
+        Node parent = root;
+        String[] parts = change.parts;
+        for (int i = 0; i < parts.length - 1; i++) {
+            Node next = parent.child(parts[i]);
+            if (next == null || next.children == null) {
+                if (change.source == null) return;
+                if (next != null) parent.children.remove(next);
+                next = Node.directory(parts[i], 0);
+                parent.children.add(next);
+            }
+            parent = next;
+        }
+
+        Node existing = parent.child(parts[parts.length - 1]);
+        if (existing != null) parent.children.remove(existing);
+        if (change.source == null) return;
+
+        Node file = new Node(existing != null && existing.children == null ? existing.name : parts[parts.length - 1]);
+        file.original = existing != null ? existing.original : null;
+        file.source = change.source;
+        file.template = change.template;
+        parent.children.add(file);
+    }
+
+    /**
+     * @param referenced Receives every file record of the current table of contents
+     */
+    private static Node load(RPFFile.Entry entry, List<RPFFile.FileEntry> referenced) throws IOException {
+        if (entry instanceof RPFFile.FileEntry fileEntry) {
+            Node node = new Node(fileEntry.name());
+            node.original = fileEntry;
+            referenced.add(fileEntry);
+            return node;
+        }
+
+        RPFFile.Directory directory = (RPFFile.Directory) entry;
+        Node node = Node.directory(directory.name(), directory.flags());
+        for (RPFFile.Entry child : directory.children()) {
+            node.children.add(load(child, referenced));
+        }
+        return node;
+    }
+
+    private static String[] split(String entryPath) {
+        String[] parts = entryPath.replace('\\', '/').replaceAll("^/+|/+$", "").split("/+");
+        if (parts.length == 0 || parts[0].isEmpty()) {
+            throw new IllegalArgumentException("Empty RPF entry path");
+        }
+        return parts;
+    }
+
+    private static String key(String entryPath) {
+        return String.join("/", split(entryPath)).toLowerCase(Locale.ROOT);
+    }
+
+    private static long blocks(long bytes) {
+        return (bytes + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    private record Change(String[] parts, @Nullable EntrySource source, @Nullable RPFFile.FileEntry template) {
+    }
+
+    private static final class Node {
+        private final String name;
+        private int flags;
+        private List<Node> children;
+        private RPFFile.FileEntry original;
+        private EntrySource source;
+        private RPFFile.FileEntry template;
+        private int nameOffset;
+        private int firstChild;
+        private long offset = -1;
+
+        private Node(String name) {
+            this.name = name;
+        }
+
+        private static Node directory(String name, int flags) {
+            Node node = new Node(name);
+            node.flags = flags;
+            node.children = new ArrayList<>();
+            return node;
+        }
+
+        private Node child(String childName) {
+            for (Node child : children) {
+                if (child.name.equalsIgnoreCase(childName)) return child;
+            }
+            return null;
+        }
+
+        private RPFFile.FileEntry record() {
+            if (source == null) return original;
+
+            int stored = (int) source.size();
+            if (template == null) {
+                return new RPFFile.FileEntry(name, stored, (int) offset, stored);
+            }
+            if (template.resource()) {
+                return new RPFFile.FileEntry(
+                        name,
+                        template.size(),
+                        (int) offset | template.resourceType(),
+                        RPFFile.RESOURCE_FLAGS | stored
+                );
+            }
+            return new RPFFile.FileEntry(
+                    name,
+                    template.compressed() ? template.size() : stored,
+                    (int) offset,
+                    (template.rawFlags() & RPFFile.COMPRESSED_FLAG) | stored
+            );
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package dev.nelmin.java.fs.files;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+/**
+ * AES-256 (ECB) cipher used for encrypted RPF2 tables of contents.
+ * <p>
+ * GTA IV runs the block cipher 16 times over the data. Trailing bytes that do not fill a whole
+ * 16-byte block are stored in plain text.
+ */
+final class TOCCipher {
+    static final int KEY_LENGTH = 32;
+    private static final int ROUNDS = 16;
+    private static final int BLOCK = 16;
+
+    private TOCCipher() {
+    }
+
+    static void decrypt(byte @NotNull [] key, byte @NotNull [] data) throws IOException {
+        apply(Cipher.DECRYPT_MODE, key, data);
+    }
+
+    static void encrypt(byte @NotNull [] key, byte @NotNull [] data) throws IOException {
+        apply(Cipher.ENCRYPT_MODE, key, data);
+    }
+
+    private static void apply(int mode, byte[] key, byte[] data) throws IOException {
+        if (key.length != KEY_LENGTH) {
+            throw new IllegalArgumentException("TOC key must be " + KEY_LENGTH + " bytes, got " + key.length);
+        }
+
+        int length = data.length - data.length % BLOCK;
+        try {
+            Cipher cipher = Cipher.getInstance("AES/ECB/NoPadding");
+            cipher.init(mode, new SecretKeySpec(key, "AES"));
+            for (int i = 0; i < ROUNDS; i++) {
+                cipher.doFinal(data, 0, length, data, 0);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to process RPF table of contents", e);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package dev.nelmin.java.fs.search;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Searches directory trees for files with a given name.
+ * <p>
+ * Every directory is read by its own virtual thread; a semaphore limits how many directories are open at
+ * once. Directories whose name contains one of the excluded patterns (case-insensitive) are pruned before
+ * they are opened, as are directories below the depth limit. A directory that cannot be read is skipped
+ * together with its subtree, the rest of the search goes on. Symbolic links are not followed.
+ * <p>
+ * Matches are passed to the listener as soon as they are found, on the thread that found them. The search
+ * ends when every directory was visited, when the time budget is used up or when it is cancelled.
+ */
+@Accessors(fluent = true)
+public class FileSearch {
+    public static final int DEFAULT_PARALLELISM = 16;
+
+    @Getter
+    private final String fileName;
+    @Getter
+    private final List<String> excludedPatterns;
+    @Getter
+    private final int maxDepth;
+    @Getter
+    private final Duration timeout;
+    private final int parallelism;
+
+    /**
+     * @param fileName         Name of the files to find, compared case-insensitively
+     * @param excludedPatterns Directories whose name contains one of these are not searched
+     * @param maxDepth         Deepest directory level below a root to search, the root itself being 0
+     * @param timeout          Time budget of a search
+     */
+    public FileSearch(@NotNull String fileName, @NotNull Collection<String> excludedPatterns, int maxDepth, @NotNull Duration timeout) {
+        this(fileName, excludedPatterns, maxDepth, timeout, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param fileName         Name of the files to find, compared case-insensitively
+     * @param excludedPatterns Directories whose name contains one of these are not searched
+     * @param maxDepth         Deepest directory level below a root to search, the root itself being 0
+     * @param timeout          Time budget of a search
+     * @param parallelism      Maximum number of directories read at once
+     */
+    public FileSearch(@NotNull String fileName, @NotNull Collection<String> excludedPatterns, int maxDepth, @NotNull Duration timeout, int parallelism) {
+        this.fileName = fileName;
+        this.excludedPatterns = List.copyOf(excludedPatterns);
+        this.maxDepth = maxDepth;
+        this.timeout = timeout;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Starts searching the roots in the background.
+     *
+     * @param roots    Directories to search
+     * @param listener Receives every match as soon as it is found
+     * @return The running search
+     */
+    @NotNull
+    public Search start(@NotNull Collection<Path> roots, @NotNull Consumer<Path> listener) {
+        Search search = new Search(listener);
+        search.begin(roots);
+        return search;
+    }
+
+    /**
+     * Searches the roots until the first match is found.
+     *
+     * @param roots Directories to search
+     * @return The first match, empty if there is none within the budget
+     * @throws InterruptedException If the thread is interrupted while waiting; the search is cancelled
+     */
+    @NotNull
+    public Optional<Path> findFirst(@NotNull Collection<Path> roots) throws InterruptedException {
+        AtomicReference<Path> first = new AtomicReference<>();
+        AtomicReference<Search> running = new AtomicReference<>();
+        Search search = start(roots, path -> {
+            if (first.compareAndSet(null, path)) {
+                Search self = running.get();
+                if (self != null) self.cancel();
+            }
+        });
+        running.set(search);
+        if (first.get() != null) search.cancel();
+
+        try {
+            search.await();
+        } catch (InterruptedException e) {
+            search.cancel();
+            throw e;
+        }
+        return Optional.ofNullable(first.get());
+    }
+
+    /**
+     * @param path Path to check
+     * @return Whether one of the names of the path contains an excluded pattern
+     */
+    public boolean isExcluded(@NotNull Path path) {
+        for (Path name : path) {
+            if (isExcluded(name.toString())) return true;
+        }
+        return false;
+    }
+
+    private boolean isExcluded(String name) {
+        for (String pattern : excludedPatterns) {
+            if (containsIgnoreCase(name, pattern)) return true;
+        }
+        return false;
+    }
+
+    private static boolean containsIgnoreCase(String value, String part) {
+        int last = value.length() - part.length();
+        for (int i = 0; i <= last; i++) {
+            if (value.regionMatches(true, i, part, 0, part.length())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * How a search ended.
+     */
+    public enum Outcome {
+        /**
+         * Every directory within the depth limit was visited
+         */
+        COMPLETED,
+        /**
+         * The time budget was used up
+         */
+        TIMED_OUT,
+        /**
+         * {@link Search#cancel()} was called
+         */
+        CANCELLED
+    }
+
+    /**
+     * @param directories Number of directories read
+     * @param skipped     Number of directories that could not be read
+     * @param found       Number of matches
+     * @param outcome     How the search ended
+     */
+    public record Result(int directories, int skipped, int found, @NotNull Outcome outcome) {
+    }
+
+    /**
+     * A running search.
+     */
+    public final class Search {
+        private final Consumer<Path> listener;
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final Semaphore open = new Semaphore(parallelism);
+        private final CompletableFuture<Result> completion = new CompletableFuture<>();
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicInteger directories = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger found = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicBoolean timedOut = new AtomicBoolean();
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private final long deadline;
+
+        private Search(Consumer<Path> listener) {
+            this.listener = listener;
+            this.deadline = System.nanoTime() + timeout.toNanos();
+        }
+
+        private void begin(Collection<Path> roots) {
+            for (Path root : roots) submit(root, 0);
+            // Held by begin() so the search cannot complete while roots are still being submitted
+            done();
+        }
+
+        /**
+         * Stops the search. Directories being read are finished, no new ones are opened.
+         */
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        /**
+         * @return Completes with the result when the search has ended, exceptionally if the listener threw
+         */
+        @NotNull
+        public CompletableFuture<Result> completion() {
+            return completion;
+        }
+
+        /**
+         * Waits for the search to end.
+         *
+         * @return The result
+         * @throws InterruptedException If the thread is interrupted while waiting
+         */
+        @NotNull
+        public Result await() throws InterruptedException {
+            try {
+                return completion.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        private void submit(Path directory, int depth) {
+            pending.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        scan(directory, depth);
+                    } finally {
+                        done();
+                    }
+                });
+            } catch (RuntimeException e) {
+                done();
+                throw e;
+            }
+        }
+
+        private void done() {
+            if (pending.decrementAndGet() != 0) return;
+            executor.shutdown();
+
+            RuntimeException error = failure.get();
+            if (error != null) {
+                completion.completeExceptionally(error);
+                return;
+            }
+            Outcome outcome = timedOut.get() ? Outcome.TIMED_OUT : cancelled.get() ? Outcome.CANCELLED : Outcome.COMPLETED;
+            completion.complete(new Result(directories.get(), skipped.get(), found.get(), outcome));
+        }
+
+        private boolean stopped() {
+            if (cancelled.get()) return true;
+            if (System.nanoTime() - deadline >= 0) {
+                timedOut.set(true);
+                return true;
+            }
+            return false;
+        }
+
+        private void scan(Path directory, int depth) {
+            if (stopped()) return;
+
+            List<Path> children = new ArrayList<>();
+            open.acquireUninterruptibly();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                directories.incrementAndGet();
+                for (Path entry : entries) {
+                    // A single directory can hold enough entries to outlast the budget
+                    if (stopped()) break;
+
+                    BasicFileAttributes attributes;
+                    try {
+                        // Served from the directory listing on Windows, no extra file system call
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        continue;
+                    }
+
+                    String name = entry.getFileName().toString();
+                    if (attributes.isRegularFile()) {
+                        if (name.equalsIgnoreCase(fileName)) match(entry);
+                    } else if (attributes.isDirectory() && depth < maxDepth && !isExcluded(name)) {
+                        children.add(entry);
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                // Unreadable, keep what was listed before the error and move on
+                skipped.incrementAndGet();
+            } finally {
+                open.release();
+            }
+
+            for (Path child : children) {
+                if (stopped()) return;
+                submit(child, depth + 1);
+            }
+        }
+
+        private void match(Path path) {
+            found.incrementAndGet();
+            try {
+                listener.accept(path);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+                cancel();
+            }
+        }
+    }
+}
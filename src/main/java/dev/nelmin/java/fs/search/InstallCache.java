@@ -0,0 +1,300 @@
+package dev.nelmin.java.fs.search;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.nelmin.java.objects.GameInstall;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The {@code installs.json} cache of discovered game installations.
+ * <p>
+ * Every installation is stored with the size and modification time of its executable. Checking an entry
+ * only reads the attributes of the executable, so a start with a still valid installation needs neither a
+ * disk scan nor reading the executable's version again. While the application runs, a {@link WatchService}
+ * watches the directories of the cached installations and drops an entry as soon as its executable is
+ * replaced or removed, or its directory disappears.
+ */
+@Accessors(fluent = true)
+public class InstallCache implements AutoCloseable {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    @Getter
+    private final Path path;
+    private final Map<String, GameInstall> installs = new LinkedHashMap<>();
+    private final Map<WatchKey, Path> watched = new HashMap<>();
+    private WatchService watcher;
+    private Consumer<GameInstall> listener;
+
+    private InstallCache(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Loads the cache. A missing, unreadable or damaged file is treated as an empty cache.
+     *
+     * @param path Path of {@code installs.json}
+     * @return The cache
+     */
+    @NotNull
+    public static InstallCache load(@NotNull Path path) {
+        InstallCache cache = new InstallCache(path);
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Document document = GSON.fromJson(reader, Document.class);
+            if (document != null && document.installs != null) {
+                for (GameInstall install : document.installs) {
+                    if (install != null && install.executable() != null) cache.installs.put(install.executable(), install);
+                }
+            }
+        } catch (NoSuchFileException ignored) {
+            // Nothing discovered yet
+        } catch (IOException | RuntimeException e) {
+            // Only a cache, discover again
+            System.err.println("Ignoring damaged install cache " + path + ": " + e.getMessage());
+        }
+        return cache;
+    }
+
+    /**
+     * @return The cache in {@code installs.json} of the working directory
+     */
+    @NotNull
+    public static InstallCache load() {
+        return load(Path.of(System.getProperty("user.dir"), "installs.json"));
+    }
+
+    /**
+     * @return Cached installations, valid or not, in discovery order
+     */
+    @NotNull
+    public synchronized List<GameInstall> installs() {
+        return Collections.unmodifiableList(new ArrayList<>(installs.values()));
+    }
+
+    /**
+     * @param executable Path of the executable
+     * @return The cached installation if its executable is unchanged, otherwise null
+     */
+    @Nullable
+    public GameInstall get(@NotNull Path executable) {
+        GameInstall install;
+        synchronized (this) {
+            install = installs.get(key(executable));
+        }
+        return install != null && isValid(install) ? install : null;
+    }
+
+    /**
+     * @return The first cached installation whose executable is unchanged, or null if there is none
+     */
+    @Nullable
+    public GameInstall firstValid() {
+        for (GameInstall install : installs()) {
+            if (isValid(install)) return install;
+        }
+        return null;
+    }
+
+    /**
+     * Fingerprints an executable and adds or replaces its installation.
+     *
+     * @param executable Path of the executable
+     * @param version    Version read from the executable
+     * @return The cached installation
+     * @throws IOException If the attributes of the executable cannot be read
+     */
+    @NotNull
+    public GameInstall put(@NotNull Path executable, @NotNull String version) throws IOException {
+        Path absolute = executable.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+        GameInstall install = new GameInstall(absolute.toString(), attributes.size(), attributes.lastModifiedTime().toMillis(), version);
+        synchronized (this) {
+            installs.put(install.executable(), install);
+            if (watcher != null) register(install);
+        }
+        return install;
+    }
+
+    public synchronized boolean remove(@NotNull Path executable) {
+        return installs.remove(key(executable)) != null;
+    }
+
+    /**
+     * @param install Cached installation
+     * @return Whether the executable still has the size and modification time it was cached with
+     */
+    public static boolean isValid(@NotNull GameInstall install) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(install.path(), BasicFileAttributes.class);
+            return attributes.isRegularFile()
+                    && attributes.size() == install.size()
+                    && attributes.lastModifiedTime().toMillis() == install.modified();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts watching the directories of the cached installations, including those added later. Installations
+     * whose executable changes are removed from the cache and the cache is saved.
+     *
+     * @param listener Called with every removed installation, on the watching thread; may be null
+     * @throws IOException If the watch service cannot be created
+     */
+    public synchronized void watch(@Nullable Consumer<GameInstall> listener) throws IOException {
+        this.listener = listener;
+        if (watcher != null) return;
+
+        WatchService service = path.getFileSystem().newWatchService();
+        watcher = service;
+        for (GameInstall install : installs.values()) register(install);
+
+        Thread thread = new Thread(() -> poll(service), "install-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Atomically replaces the cache file with the current state.
+     *
+     * @throws IOException If the cache cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            GSON.toJson(new Document(installs.values().toArray(new GameInstall[0])), writer);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stops watching.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher == null) return;
+        watcher.close();
+        watcher = null;
+        watched.clear();
+    }
+
+    private void register(GameInstall install) {
+        Path directory = install.directory();
+        if (directory == null || watched.containsValue(directory)) return;
+        try {
+            WatchKey key = directory.register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            watched.put(key, directory);
+        } catch (IOException e) {
+            // The directory is gone, the entry will fail validation anyway
+        }
+    }
+
+    private void poll(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory;
+            synchronized (this) {
+                directory = watched.get(key);
+            }
+            if (directory == null) {
+                key.cancel();
+                continue;
+            }
+
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost, check every installation in the directory
+                    changed = true;
+                } else if (event.context() instanceof Path name && isExecutable(directory, name)) {
+                    changed = true;
+                }
+            }
+            // Not valid anymore means the directory itself was removed or renamed
+            boolean gone = !key.reset();
+            if (gone) {
+                synchronized (this) {
+                    watched.remove(key);
+                }
+            }
+            if (changed || gone) invalidate(directory);
+        }
+    }
+
+    private synchronized boolean isExecutable(Path directory, Path name) {
+        for (GameInstall install : installs.values()) {
+            if (directory.equals(install.directory()) && install.path().getFileName().toString().equalsIgnoreCase(name.toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void invalidate(Path directory) {
+        List<GameInstall> removed = new ArrayList<>();
+        Consumer<GameInstall> callback;
+        synchronized (this) {
+            installs.values().removeIf(install -> {
+                if (!directory.equals(install.directory()) || isValid(install)) return false;
+                removed.add(install);
+                return true;
+            });
+            callback = listener;
+        }
+        if (removed.isEmpty()) return;
+
+        try {
+            save();
+        } catch (IOException e) {
+            System.err.println("Failed to save install cache: " + e.getMessage());
+        }
+        if (callback != null) removed.forEach(callback);
+    }
+
+    private static String key(Path executable) {
+        return executable.toAbsolutePath().normalize().toString();
+    }
+
+    private record Document(GameInstall[] installs) {
+    }
+}
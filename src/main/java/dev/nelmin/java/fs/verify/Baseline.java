@@ -0,0 +1,524 @@
+package dev.nelmin.java.fs.verify;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.nelmin.java.application.TaskScheduler;
+import dev.nelmin.java.fs.files.IMGFile;
+import dev.nelmin.java.fs.files.RPFFile;
+import dev.nelmin.java.mods.ModInstaller;
+import dev.nelmin.java.objects.BaselineManifest;
+import dev.nelmin.java.objects.Drift;
+import dev.nelmin.java.objects.GameVersion;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Size, modification time and SHA-512 of every original file of a game version, and of every entry of its
+ * IMG/RPF archives, stored in {@code baselines/<version>.json}.
+ * <p>
+ * {@link #scan} compares a game directory against the baseline, many files at once. A file that still has its
+ * original size and modification time is taken as original without reading it. Other files are hashed through a
+ * {@link FileVerifier}, whose cache keeps a file that was hashed once from being hashed again until it changes.
+ * For a changed archive the differing entries are determined too; the result is remembered together with the
+ * archive digest, so an archive that did not change since the last scan is not read again.
+ * <p>
+ * The tool's own files in the game directory ({@code MTIV-*} and staged files) are not part of the baseline.
+ */
+@Accessors(fluent = true)
+public class Baseline {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    private static final HexFormat HEX = HexFormat.of();
+    private static final String OWN_FILES = "MTIV-";
+
+    @Getter
+    private final Path path;
+    @Getter
+    private final GameVersion version;
+    /**
+     * Creation time in milliseconds since the epoch
+     */
+    @Getter
+    private final long created;
+    /**
+     * By lower-cased path
+     */
+    private final Map<String, BaselineManifest.GameFile> files = new ConcurrentHashMap<>();
+    /**
+     * By lower-cased path
+     */
+    private final Map<String, BaselineManifest.ArchiveState> archiveStates = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    private Baseline(Path path, GameVersion version, long created) {
+        this.path = path;
+        this.version = version;
+        this.created = created;
+    }
+
+    /**
+     * @return Path of the baseline of a game version in the working directory
+     */
+    @NotNull
+    public static Path pathOf(@NotNull GameVersion version) {
+        return Path.of(System.getProperty("user.dir"), "baselines", version.id() + ".json");
+    }
+
+    /**
+     * Loads a baseline.
+     *
+     * @param path Path of the manifest
+     * @return The baseline, or null if none was created yet
+     * @throws IOException If the manifest exists but cannot be read or names an unknown game version
+     */
+    @Nullable
+    public static Baseline load(@NotNull Path path) throws IOException {
+        BaselineManifest manifest;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            manifest = GSON.fromJson(reader, BaselineManifest.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged baseline " + path, e);
+        }
+
+        GameVersion version = manifest == null ? null : GameVersion.byId(manifest.game_version());
+        if (version == null || manifest.files() == null) throw new IOException("Damaged baseline " + path);
+
+        Baseline baseline = new Baseline(path, version, manifest.created());
+        for (BaselineManifest.GameFile file : manifest.files()) baseline.files.put(key(file.path()), file);
+        if (manifest.archive_states() != null) {
+            for (BaselineManifest.ArchiveState state : manifest.archive_states()) {
+                baseline.archiveStates.put(key(state.path()), state);
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * @return The baseline of a game version in the working directory, or null if none was created yet
+     * @throws IOException If the manifest exists but cannot be read
+     */
+    @Nullable
+    public static Baseline load(@NotNull GameVersion version) throws IOException {
+        return load(pathOf(version));
+    }
+
+    /**
+     * Records the current state of a game directory as its baseline and saves it. The directory must hold the
+     * original game files, i.e. no mods may be installed.
+     *
+     * @param path          Where to store the manifest
+     * @param version       Game version of the directory
+     * @param gameDirectory Game directory
+     * @param rpfKey        Key for encrypted RPF tables of contents, may be null; without it the entries of
+     *                      encrypted archives are not recorded
+     * @param progress      Receives the number of files hashed so far, may be null
+     * @return The baseline
+     * @throws IOException If the directory cannot be read or the manifest cannot be written
+     */
+    @NotNull
+    public static Baseline create(@NotNull Path path, @NotNull GameVersion version, @NotNull Path gameDirectory,
+                                  byte @Nullable [] rpfKey, @Nullable LongConsumer progress) throws IOException {
+        List<Callable<BaselineManifest.GameFile>> tasks = new ArrayList<>();
+        for (String relative : list(gameDirectory).values()) {
+            tasks.add(() -> record(gameDirectory, relative, rpfKey));
+        }
+
+        Baseline baseline = new Baseline(path, version, System.currentTimeMillis());
+        for (BaselineManifest.GameFile file : runAll("record-baseline", TaskScheduler.Category.HASHING, tasks, progress)) baseline.files.put(key(file.path()), file);
+        baseline.dirty = true;
+        baseline.save();
+        return baseline;
+    }
+
+    /**
+     * Compares a game directory against the baseline. Files found unchanged despite a new modification time and
+     * the entries of changed archives are remembered; the baseline and the cache of the verifier are saved if
+     * anything was learned.
+     *
+     * @param gameDirectory Game directory
+     * @param verifier      Hashes files whose size or modification time differ
+     * @param rpfKey        Key for encrypted RPF tables of contents, may be null
+     * @param progress      Receives the number of baseline files compared so far, may be null
+     * @return The differences
+     * @throws IOException If the directory cannot be read
+     */
+    @NotNull
+    public DriftReport scan(@NotNull Path gameDirectory, @NotNull FileVerifier verifier, byte @Nullable [] rpfKey,
+                            @Nullable LongConsumer progress) throws IOException {
+        Map<String, String> live = list(gameDirectory);
+        Set<String> opaque = ConcurrentHashMap.newKeySet();
+
+        List<Callable<List<Drift>>> tasks = new ArrayList<>();
+        for (BaselineManifest.GameFile file : files.values()) {
+            tasks.add(() -> compare(gameDirectory, file, verifier, rpfKey, opaque));
+        }
+
+        List<Drift> drifts = new ArrayList<>();
+        for (List<Drift> compared : runAll("scan-baseline", TaskScheduler.Category.DISK_IO, tasks, progress)) drifts.addAll(compared);
+        for (Map.Entry<String, String> file : live.entrySet()) {
+            if (!files.containsKey(file.getKey())) drifts.add(new Drift(file.getValue(), Drift.Kind.ADDED));
+        }
+        drifts.sort(Comparator.comparing(drift -> key(drift.path())));
+
+        verifier.cache().save();
+        save();
+        return new DriftReport(version, drifts, opaque);
+    }
+
+    /**
+     * @return Number of files in the baseline
+     */
+    public int size() {
+        return files.size();
+    }
+
+    /**
+     * @param relative Path relative to the game directory
+     * @return Whether the baseline contains the file
+     */
+    public boolean contains(@NotNull String relative) {
+        return files.containsKey(key(relative));
+    }
+
+    /**
+     * Atomically replaces the manifest with the current state, if anything changed since it was loaded or last
+     * saved.
+     *
+     * @throws IOException If the manifest cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        dirty = false;
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        BaselineManifest.GameFile[] sorted = files.values().toArray(new BaselineManifest.GameFile[0]);
+        Arrays.sort(sorted, Comparator.comparing(file -> key(file.path())));
+        BaselineManifest manifest = new BaselineManifest(version.id(), created, sorted,
+                archiveStates.values().toArray(new BaselineManifest.ArchiveState[0]));
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                GSON.toJson(manifest, writer);
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            throw e;
+        }
+    }
+
+    private List<Drift> compare(Path gameDirectory, BaselineManifest.GameFile file, FileVerifier verifier,
+                                byte[] rpfKey, Set<String> opaque) throws IOException {
+        Path live = gameDirectory.resolve(file.path());
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(live, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return List.of(new Drift(file.path(), Drift.Kind.MISSING));
+        }
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (attributes.size() == file.size() && modified == file.modified()) return List.of();
+
+        String key = key(file.path());
+        List<Drift> drifts = new ArrayList<>();
+        drifts.add(new Drift(file.path(), Drift.Kind.MODIFIED));
+        // A file of another size differs, only archives need the digest to look up their last comparison
+        if (attributes.size() != file.size() && file.entries() == null) return drifts;
+
+        String sha512 = verifier.digest(live, false).sha512();
+        if (sha512.equalsIgnoreCase(file.sha512())) {
+            // Touched but unchanged, e.g. restored from a backup: next time the attributes suffice
+            files.put(key, new BaselineManifest.GameFile(file.path(), file.size(), modified, file.sha512(), file.entries()));
+            archiveStates.remove(key);
+            dirty = true;
+            return List.of();
+        }
+
+        if (file.entries() == null) {
+            if (isArchive(file.path())) opaque.add(key);
+            return drifts;
+        }
+
+        BaselineManifest.ArchiveState state = archiveStates.get(key);
+        if (state == null || !state.sha512().equalsIgnoreCase(sha512)) {
+            Drift[] entries = compareEntries(live, file, rpfKey);
+            if (entries == null) {
+                opaque.add(key);
+                return drifts;
+            }
+            state = new BaselineManifest.ArchiveState(file.path(), sha512, entries);
+            archiveStates.put(key, state);
+            dirty = true;
+        }
+        drifts.addAll(Arrays.asList(state.drift()));
+        return drifts;
+    }
+
+    /**
+     * Compares the entries of a changed archive. Only entries with their original size are hashed.
+     *
+     * @return The differing entries, or null if the archive cannot be read
+     */
+    @Nullable
+    private static Drift[] compareEntries(Path live, BaselineManifest.GameFile file, byte[] rpfKey) throws IOException {
+        Map<String, BaselineManifest.EntryDigest> original = new HashMap<>();
+        for (BaselineManifest.EntryDigest entry : file.entries()) original.put(key(entry.path()), entry);
+
+        List<Drift> drifts = new ArrayList<>();
+        boolean readable = forEachEntry(live, rpfKey, (entryPath, offset, data) -> {
+            BaselineManifest.EntryDigest entry = original.remove(key(entryPath));
+            String path = file.path() + "/" + entryPath;
+            if (entry == null) {
+                drifts.add(new Drift(path, Drift.Kind.ADDED));
+            } else if (entry.size() != data.remaining() || !hash(data).equalsIgnoreCase(entry.sha512())) {
+                drifts.add(new Drift(path, Drift.Kind.MODIFIED));
+            }
+        });
+        if (!readable) return null;
+
+        for (BaselineManifest.EntryDigest entry : original.values()) {
+            drifts.add(new Drift(file.path() + "/" + entry.path(), Drift.Kind.MISSING));
+        }
+        drifts.sort(Comparator.comparing(drift -> key(drift.path())));
+        return drifts.toArray(new Drift[0]);
+    }
+
+    /**
+     * Hashes a file, and the entries of an archive in the same pass: the archive is walked in storage order and
+     * every entry's bytes go into both its own digest and the file digest, so each byte is read once.
+     */
+    private static BaselineManifest.GameFile record(Path gameDirectory, String relative, byte[] rpfKey) throws IOException {
+        Path file = gameDirectory.resolve(relative);
+        BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+
+        String sha512 = null;
+        BaselineManifest.EntryDigest[] entries = null;
+        if (isArchive(relative)) {
+            MessageDigest whole = sha512();
+            List<BaselineManifest.EntryDigest> recorded = new ArrayList<>();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long[] hashed = {0};
+                boolean readable = forEachEntry(file, rpfKey, (entryPath, offset, data) -> {
+                    recorded.add(new BaselineManifest.EntryDigest(entryPath, data.remaining(), hash(data)));
+                    // Overlaps an earlier entry, bytes past that one are added with the next gap
+                    if (offset < hashed[0]) return;
+                    update(whole, channel, hashed[0], offset);
+                    whole.update(data.duplicate());
+                    hashed[0] = offset + data.remaining();
+                });
+                if (readable) {
+                    update(whole, channel, hashed[0], channel.size());
+                    sha512 = HEX.formatHex(whole.digest());
+                    entries = recorded.toArray(new BaselineManifest.EntryDigest[0]);
+                }
+            }
+        }
+        // Plain files, and archives whose entries cannot be read
+        if (sha512 == null) sha512 = FileVerifier.hash(file, false).sha512();
+
+        BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+        if (after.size() != before.size() || !after.lastModifiedTime().equals(before.lastModifiedTime())) {
+            throw new IOException("File changed while the baseline was created: " + file);
+        }
+        return new BaselineManifest.GameFile(relative, after.size(), after.lastModifiedTime().toMillis(), sha512, entries);
+    }
+
+    /**
+     * Adds the bytes from {@code from} to {@code to} of a file to a digest.
+     */
+    private static void update(MessageDigest digest, FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(1 << 16, Math.max(0, to - from)));
+        for (long position = from; position < to; ) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), to - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Archive is shorter than its entries");
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+    }
+
+    /**
+     * Hands the stored bytes of every entry of an IMG or RPF archive to the visitor in storage order, RPF entries
+     * with their path from the archive root.
+     *
+     * @return False if the archive cannot be read, e.g. because its table of contents is encrypted
+     */
+    private static boolean forEachEntry(Path archive, byte[] rpfKey, EntryVisitor visitor) throws IOException {
+        try {
+            List<StoredEntry> entries = new ArrayList<>();
+            if (archive.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".img")) {
+                try (IMGFile img = new IMGFile(archive)) {
+                    for (IMGFile.Entry entry : img.entries()) entries.add(new StoredEntry(entry.name(), entry.offset(), img.read(entry)));
+                    visitInOrder(entries, visitor);
+                }
+            } else {
+                try (RPFFile rpf = new RPFFile(archive, rpfKey)) {
+                    collect(rpf, rpf.root(), "", entries);
+                    visitInOrder(entries, visitor);
+                }
+            }
+            return true;
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Comparing " + archive + " as a whole, its entries cannot be read: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void collect(RPFFile rpf, RPFFile.Directory directory, String prefix, List<StoredEntry> entries) throws IOException {
+        for (RPFFile.Entry child : directory.children()) {
+            String childPath = prefix + child.name();
+            if (child instanceof RPFFile.Directory subdirectory) collect(rpf, subdirectory, childPath + "/", entries);
+            else if (child instanceof RPFFile.FileEntry file) entries.add(new StoredEntry(childPath, file.offset(), rpf.read(file)));
+        }
+    }
+
+    /**
+     * Visits entries by offset, so the archive is read front to back.
+     */
+    private static void visitInOrder(List<StoredEntry> entries, EntryVisitor visitor) throws IOException {
+        entries.sort(Comparator.comparingLong(StoredEntry::offset));
+        for (StoredEntry entry : entries) {
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Scan interrupted");
+            visitor.visit(entry.path(), entry.offset(), entry.data());
+        }
+    }
+
+    /**
+     * Lists the files of a game directory, skipping the tool's own files.
+     *
+     * @return Lower-cased path to path relative to the game directory, separated by {@code /}
+     */
+    private static Map<String, String> list(Path gameDirectory) throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        Files.walkFileTree(gameDirectory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(gameDirectory) && ownFile(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !ownFile(file)) {
+                    String relative = gameDirectory.relativize(file).toString().replace('\\', '/');
+                    files.put(key(relative), relative);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private static boolean ownFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(OWN_FILES) || name.endsWith(ModInstaller.STAGED_SUFFIX);
+    }
+
+    /**
+     * Runs the tasks on the shared {@link TaskScheduler}, one per core at most, and returns their results in order.
+     */
+    private static <T> List<T> runAll(String name, TaskScheduler.Category category, List<Callable<T>> tasks,
+                                      LongConsumer progress) throws IOException {
+        AtomicLong done = new AtomicLong();
+        AtomicReferenceArray<T> results = new AtomicReferenceArray<>(tasks.size());
+        List<Callable<Void>> jobs = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            int index = i;
+            jobs.add(() -> {
+                results.set(index, tasks.get(index).call());
+                if (progress != null) progress.accept(done.incrementAndGet());
+                return null;
+            });
+        }
+
+        try {
+            TaskScheduler.shared().runAll(name, category, Runtime.getRuntime().availableProcessors(), jobs);
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Scan interrupted");
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+
+        List<T> list = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) list.add(results.get(i));
+        return list;
+    }
+
+    private static boolean isArchive(String path) {
+        String lower = path.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".img") || lower.endsWith(".rpf");
+    }
+
+    private static String hash(ByteBuffer data) {
+        MessageDigest digest = sha512();
+        digest.update(data.duplicate());
+        return HEX.formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha512() {
+        try {
+            return MessageDigest.getInstance("SHA-512");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-512 is not available", e);
+        }
+    }
+
+    static String key(String path) {
+        return path.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param offset Offset of the stored bytes in the archive
+     */
+    private record StoredEntry(String path, long offset, ByteBuffer data) {
+    }
+
+    @FunctionalInterface
+    private interface EntryVisitor {
+        void visit(String path, long offset, ByteBuffer data) throws IOException;
+    }
+}
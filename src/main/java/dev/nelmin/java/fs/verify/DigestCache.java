@@ -0,0 +1,151 @@
+package dev.nelmin.java.fs.verify;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.nelmin.java.objects.FileDigest;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@code digests.json} cache of file digests.
+ * <p>
+ * Every entry is stored with the size and modification time of its file. An entry is only returned while the
+ * file still has both, so checking an unchanged file costs one attribute read instead of hashing it again.
+ * The cache keeps the {@value #MAX_ENTRIES} most recently used entries.
+ */
+@Accessors(fluent = true)
+public class DigestCache {
+    public static final int MAX_ENTRIES = 4096;
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    @Getter
+    private final Path path;
+    /**
+     * Access ordered, the eldest entry is the least recently used
+     */
+    private final Map<String, FileDigest> digests = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FileDigest> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private boolean dirty;
+
+    private DigestCache(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Loads the cache. A missing, unreadable or damaged file is treated as an empty cache.
+     *
+     * @param path Path of {@code digests.json}
+     * @return The cache
+     */
+    @NotNull
+    public static DigestCache load(@NotNull Path path) {
+        DigestCache cache = new DigestCache(path);
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Document document = GSON.fromJson(reader, Document.class);
+            if (document != null && document.digests != null) {
+                for (FileDigest digest : document.digests) {
+                    if (digest != null && digest.path() != null && digest.sha512() != null) cache.digests.put(digest.path(), digest);
+                }
+            }
+        } catch (NoSuchFileException ignored) {
+            // Nothing hashed yet
+        } catch (IOException | RuntimeException e) {
+            // Only a cache, hash again
+            System.err.println("Ignoring damaged digest cache " + path + ": " + e.getMessage());
+        }
+        return cache;
+    }
+
+    /**
+     * @return The cache in {@code digests.json} of the working directory
+     */
+    @NotNull
+    public static DigestCache load() {
+        return load(Path.of(System.getProperty("user.dir"), "digests.json"));
+    }
+
+    /**
+     * @param file       File to look up
+     * @param attributes Current attributes of the file
+     * @return The cached digests if the file still has the size and modification time they were computed for,
+     * otherwise null
+     */
+    @Nullable
+    public synchronized FileDigest get(@NotNull Path file, @NotNull BasicFileAttributes attributes) {
+        String key = key(file);
+        FileDigest digest = digests.get(key);
+        if (digest == null) return null;
+        if (digest.size() != attributes.size() || digest.modified() != attributes.lastModifiedTime().toMillis()) {
+            digests.remove(key);
+            dirty = true;
+            return null;
+        }
+        return digest;
+    }
+
+    /**
+     * Adds or replaces the digests of a file.
+     */
+    public synchronized void put(@NotNull FileDigest digest) {
+        digests.put(digest.path(), digest);
+        dirty = true;
+    }
+
+    public synchronized boolean remove(@NotNull Path file) {
+        boolean removed = digests.remove(key(file)) != null;
+        if (removed) dirty = true;
+        return removed;
+    }
+
+    public synchronized int size() {
+        return digests.size();
+    }
+
+    /**
+     * Atomically replaces the cache file with the current state, if anything changed since it was loaded or
+     * last saved.
+     *
+     * @throws IOException If the cache cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            GSON.toJson(new Document(digests.values().toArray(new FileDigest[0])), writer);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private record Document(FileDigest[] digests) {
+    }
+}
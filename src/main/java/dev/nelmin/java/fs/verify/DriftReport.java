@@ -0,0 +1,130 @@
+package dev.nelmin.java.fs.verify;
+
+import dev.nelmin.java.mods.ConflictIndex;
+import dev.nelmin.java.objects.Drift;
+import dev.nelmin.java.objects.GameVersion;
+import dev.nelmin.java.objects.InstalledMod;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of {@link Baseline#scan}: every file and archive entry of a game directory that differs from the
+ * baseline.
+ * <p>
+ * Installed mods are expected to cause drift. {@link #unexplained} leaves out what a mod changed, and
+ * {@link #undone} finds the changes of a mod that are gone, e.g. because the game files were repaired by the
+ * launcher.
+ */
+@Accessors(fluent = true)
+public class DriftReport {
+    @Getter
+    private final GameVersion version;
+    /**
+     * Sorted by path
+     */
+    @Getter
+    private final List<Drift> drifts;
+    /**
+     * By lower-cased path
+     */
+    private final Map<String, Drift.Kind> kinds = new HashMap<>();
+    /**
+     * Lower-cased paths of changed archives whose entries could not be compared
+     */
+    private final Set<String> opaque;
+    /**
+     * Lower-cased paths of archives with differing entries
+     */
+    private final Set<String> detailed = new HashSet<>();
+
+    DriftReport(GameVersion version, List<Drift> drifts, Set<String> opaque) {
+        this.version = version;
+        this.drifts = Collections.unmodifiableList(drifts);
+        this.opaque = Set.copyOf(opaque);
+        for (Drift drift : drifts) {
+            String key = Baseline.key(drift.path());
+            kinds.put(key, drift.kind());
+            // Entries follow their archive
+            int slash = key.lastIndexOf('/');
+            while (slash > 0) {
+                String parent = key.substring(0, slash);
+                if (kinds.get(parent) == Drift.Kind.MODIFIED) {
+                    detailed.add(parent);
+                    break;
+                }
+                slash = key.lastIndexOf('/', slash - 1);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return drifts.isEmpty();
+    }
+
+    /**
+     * @param path Game path or archive entry
+     * @return How the path differs from the baseline, or null if it does not
+     */
+    @Nullable
+    public Drift.Kind kindAt(@NotNull String path) {
+        return kinds.get(Baseline.key(path));
+    }
+
+    /**
+     * Finds drift no installed mod accounts for: base files changed, removed or added by something else. A
+     * changed archive is left out if its differing entries are listed.
+     *
+     * @param conflicts Paths changed by the installed mods
+     * @return The unexplained drift, sorted by path
+     */
+    @NotNull
+    public List<Drift> unexplained(@NotNull ConflictIndex conflicts) {
+        List<Drift> unexplained = new ArrayList<>();
+        for (Drift drift : drifts) {
+            if (detailed.contains(Baseline.key(drift.path()))) continue;
+            if (conflicts.conflicts(List.of(drift.path())).isEmpty()) unexplained.add(drift);
+        }
+        return unexplained;
+    }
+
+    /**
+     * Finds the changes of a mod that are no longer in the game directory: files and entries that are original
+     * again or missing. A change overwritten by something else cannot be told apart from the mod's own.
+     *
+     * @param mod Installed mod
+     * @return Changed paths and archive entries of the mod that are gone
+     */
+    @NotNull
+    public List<String> undone(@NotNull InstalledMod mod) {
+        List<String> undone = new ArrayList<>();
+        if (mod.changed_paths() == null) return undone;
+
+        for (InstalledMod.ChangedPath changed : mod.changed_paths()) {
+            String key = Baseline.key(changed.path());
+            if (changed.entries() == null || kinds.get(key) == Drift.Kind.MISSING || opaque.contains(key)) {
+                if (!present(key)) undone.add(changed.path());
+                continue;
+            }
+            for (String entry : changed.entries()) {
+                String entryPath = changed.path() + "/" + entry;
+                if (!present(Baseline.key(entryPath))) undone.add(entryPath);
+            }
+        }
+        return undone;
+    }
+
+    private boolean present(String key) {
+        Drift.Kind kind = kinds.get(key);
+        return kind == Drift.Kind.MODIFIED || kind == Drift.Kind.ADDED;
+    }
+}
@@ -0,0 +1,232 @@
+package dev.nelmin.java.fs.verify;
+
+import dev.nelmin.java.application.TaskScheduler;
+import dev.nelmin.java.objects.FileDigest;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Verifies files against the SHA-512 digests of the mod index.
+ * <p>
+ * A file is hashed through memory-mapped windows of a {@link FileChannel}, each window mapped and read once.
+ * The flat SHA-512 the index uses is one sequential pass. When a Merkle root is requested, the
+ * {@value #CHUNK_SIZE}-byte chunks of a window are hashed by {@link TaskScheduler.Category#HASHING hashing}
+ * tasks while the flat digest runs over the same window, and combined into the SHA-512 over the concatenated
+ * chunk digests. The root lets the chunks be checked independently but costs CPU time on other cores, so
+ * {@link #verify} skips it.
+ * <p>
+ * Digests are kept in a {@link DigestCache} keyed by path, size and modification time, so verifying an
+ * unchanged file again only reads its attributes.
+ */
+@Accessors(fluent = true)
+public class FileVerifier {
+    public static final int CHUNK_SIZE = 8 << 20;
+    /**
+     * Size of the windows mapped by the sequential pass, a multiple of {@link #CHUNK_SIZE}
+     */
+    private static final long WINDOW_SIZE = 64L << 20;
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Getter
+    private final DigestCache cache;
+
+    public FileVerifier(@NotNull DigestCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Checks a file against an expected digest. A newly computed digest is saved to the cache right away.
+     *
+     * @param file   File to check
+     * @param sha512 Expected hex SHA-512, case-insensitive
+     * @return Whether the file has the digest
+     * @throws IOException If the file cannot be read
+     */
+    public boolean verify(@NotNull Path file, @NotNull String sha512) throws IOException {
+        boolean matches = digest(file, false).sha512().equalsIgnoreCase(sha512.strip());
+        try {
+            cache.save();
+        } catch (IOException e) {
+            // Only costs hashing the file again next time
+            System.err.println("Failed to save digest cache " + cache.path() + ": " + e.getMessage());
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the digests of a file, from the cache if the file is unchanged. Newly computed digests are added to
+     * the cache but not saved.
+     *
+     * @param file File to hash
+     * @return The digests
+     * @throws IOException If the file cannot be read
+     */
+    @NotNull
+    public FileDigest digest(@NotNull Path file) throws IOException {
+        return digest(file, true);
+    }
+
+    /**
+     * Returns the digests of a file, from the cache if the file is unchanged. Newly computed digests are added to
+     * the cache but not saved.
+     *
+     * @param file   File to hash
+     * @param merkle Whether the Merkle root is needed; without it, any cached digest will do, also one recorded
+     *               by a download
+     * @return The digests
+     * @throws IOException If the file cannot be read
+     */
+    @NotNull
+    public FileDigest digest(@NotNull Path file, boolean merkle) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        FileDigest cached = cache.get(file, attributes);
+        if (cached != null && (!merkle || cached.merkle_root() != null && cached.chunk_size() == CHUNK_SIZE)) return cached;
+
+        FileDigest digest = hash(file, merkle);
+        // Changed while it was hashed: the digest may mix both versions
+        if (digest.size() != attributes.size() || digest.modified() != attributes.lastModifiedTime().toMillis()) {
+            throw new IOException("File changed while it was verified: " + file);
+        }
+        cache.put(digest);
+        return digest;
+    }
+
+    /**
+     * Records a digest computed elsewhere, e.g. while the file was downloaded. The file must not have changed
+     * since.
+     *
+     * @param file   File the digest belongs to
+     * @param sha512 Hex SHA-512 of the whole file
+     * @throws IOException If the attributes of the file cannot be read
+     */
+    public void record(@NotNull Path file, @NotNull String sha512) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        cache.put(new FileDigest(DigestCache.key(file), attributes.size(), attributes.lastModifiedTime().toMillis(),
+                sha512.toLowerCase(), null, 0));
+    }
+
+    /**
+     * Hashes a file without using the cache.
+     *
+     * @param file File to hash
+     * @return The digests and the fingerprint the file had before hashing
+     * @throws IOException If the file cannot be read
+     */
+    @NotNull
+    public static FileDigest hash(@NotNull Path file) throws IOException {
+        return hash(file, true);
+    }
+
+    /**
+     * Hashes a file without using the cache.
+     *
+     * @param file   File to hash
+     * @param merkle Whether to compute the Merkle root too
+     * @return The digests and the fingerprint the file had before hashing; without the Merkle root, its chunk
+     * size is 0
+     * @throws IOException If the file cannot be read
+     */
+    @NotNull
+    public static FileDigest hash(@NotNull Path file, boolean merkle) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MessageDigest flat = sha512();
+            MessageDigest root = merkle ? sha512() : null;
+
+            for (long position = 0; position < size; position += WINDOW_SIZE) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Hashing interrupted");
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+                if (root == null) flat.update(window);
+                else for (byte[] chunk : hashWindow(file, window, flat)) root.update(chunk);
+            }
+            // An empty file has one empty chunk
+            if (root != null && size == 0) root.update(sha512().digest());
+
+            return new FileDigest(DigestCache.key(file), size, attributes.lastModifiedTime().toMillis(),
+                    HEX.formatHex(flat.digest()), root == null ? null : HEX.formatHex(root.digest()), root == null ? 0 : CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * Adds a window to the flat digest while its chunks are hashed alongside.
+     *
+     * @return The digests of the window's chunks, in order
+     */
+    private static byte[][] hashWindow(Path file, MappedByteBuffer window, MessageDigest flat) throws IOException {
+        int length = window.remaining();
+        byte[][] chunks = new byte[(length + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+
+        List<Callable<Void>> jobs = new ArrayList<>(chunks.length + 1);
+        jobs.add(() -> {
+            flat.update(window.duplicate());
+            return null;
+        });
+        for (int i = 0; i < chunks.length; i++) {
+            int index = i;
+            int offset = i * CHUNK_SIZE;
+            jobs.add(() -> {
+                MessageDigest digest = sha512();
+                digest.update(window.slice(offset, Math.min(CHUNK_SIZE, length - offset)));
+                chunks[index] = digest.digest();
+                return null;
+            });
+        }
+
+        try {
+            TaskScheduler.shared().runAll("hash-chunks", TaskScheduler.Category.HASHING, jobs.size(), jobs);
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Hashing interrupted");
+        } catch (Exception e) {
+            throw new IOException("Failed to hash " + file, e);
+        }
+        return chunks;
+    }
+
+    /**
+     * Checks a single chunk against the chunk digests a Merkle root was computed from.
+     *
+     * @param file   File to check
+     * @param index  Chunk number
+     * @param sha512 Expected hex SHA-512 of the chunk
+     * @return Whether the chunk has the digest; false if the file has no such chunk
+     * @throws IOException If the file cannot be read
+     */
+    public static boolean verifyChunk(@NotNull Path file, int index, @NotNull String sha512) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = (long) index * CHUNK_SIZE;
+            if (index < 0 || position > channel.size() || position == channel.size() && position > 0) return false;
+            MessageDigest digest = sha512();
+            int length = (int) Math.min(CHUNK_SIZE, channel.size() - position);
+            if (length > 0) digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            return HEX.formatHex(digest.digest()).equalsIgnoreCase(sha512);
+        }
+    }
+
+    private static MessageDigest sha512() {
+        try {
+            return MessageDigest.getInstance("SHA-512");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-512 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package dev.nelmin.java.mods;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import dev.nelmin.java.objects.IndexedMod;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only log of the change sets applied since {@code MOD_INDEX.json} was last written, so a sync only
+ * writes what changed instead of the whole index and snapshot.
+ * <p>
+ * The first line records size and modification time of the index file the changes apply to; every further
+ * line is one change set. Like {@link CatalogSnapshot}, the log is ignored once the index file changes. A line
+ * cut short by a crash is skipped; its change set was never reported as saved, so the next sync fetches it
+ * again.
+ */
+final class CatalogChanges {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    private CatalogChanges() {
+    }
+
+    /**
+     * Applies the logged change sets to a catalog loaded from the index file.
+     *
+     * @param log     Log file
+     * @param index   Index file the log must belong to
+     * @param catalog Catalog loaded from the index file
+     * @return Number of change sets applied
+     * @throws IOException If the log exists but cannot be read
+     */
+    static int replay(@NotNull Path log, @NotNull Path index, @NotNull ModCatalog catalog) throws IOException {
+        if (!current(log, index)) return 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            Gson gson = ModCatalog.interningGson();
+            reader.readLine();
+
+            int applied = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Change change;
+                try {
+                    change = gson.fromJson(line, Change.class);
+                } catch (JsonParseException e) {
+                    // Torn by a crash while it was appended
+                    continue;
+                }
+                if (change == null) continue;
+                catalog.apply(
+                        change.upserts == null ? List.of() : Arrays.asList(change.upserts),
+                        change.removed == null ? List.of() : Arrays.asList(change.removed),
+                        change.last_update
+                );
+                applied++;
+            }
+            return applied;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Appends a change set and forces it to disk. Starts a new log if the existing one belongs to another
+     * state of the index file.
+     *
+     * @param log        Log file
+     * @param index      Index file the change set applies to
+     * @param upserts    Added or modified mods
+     * @param removed    Ids of removed mods
+     * @param lastUpdate {@code meta.last_update} after the change set
+     * @return Size of the log afterwards
+     * @throws IOException If the log cannot be written
+     */
+    static long append(@NotNull Path log, @NotNull Path index, @NotNull Collection<IndexedMod> upserts,
+                       @NotNull Collection<String> removed, String lastUpdate) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        if (!current(log, index)) {
+            Files.deleteIfExists(log);
+            BasicFileAttributes attributes = Files.readAttributes(index, BasicFileAttributes.class);
+            lines.append(GSON.toJson(new Base(attributes.size(), attributes.lastModifiedTime().toMillis()))).append('\n');
+        }
+        lines.append(GSON.toJson(new Change(lastUpdate, upserts.toArray(new IndexedMod[0]), removed.toArray(new String[0])))).append('\n');
+
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = channel.size();
+            if (end > 0) {
+                // Terminate a line torn by a crash, so it does not swallow this one
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.read(last, end - 1);
+                if (last.get(0) != '\n') lines.insert(0, '\n');
+            }
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(lines.toString());
+            while (bytes.hasRemaining()) end += channel.write(bytes, end);
+            channel.force(true);
+            return end;
+        }
+    }
+
+    private static boolean current(Path log, Path index) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            Base base = GSON.fromJson(reader.readLine(), Base.class);
+            return base != null && base.matches(index);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (JsonParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param index_size     Size of the index file
+     * @param index_modified Modification time of the index file in milliseconds
+     */
+    private record Base(long index_size, long index_modified) {
+        boolean matches(Path index) throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(index, BasicFileAttributes.class);
+                return attributes.size() == index_size && attributes.lastModifiedTime().toMillis() == index_modified;
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @param last_update {@code meta.last_update} after the change set
+     * @param upserts     Added or modified mods
+     * @param removed     Ids of removed mods
+     */
+    private record Change(String last_update, IndexedMod[] upserts, String[] removed) {
+    }
+}
@@ -0,0 +1,270 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.objects.IndexedMod;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary copy of a {@link ModCatalog}, so a restart does not have to parse {@code MOD_INDEX.json}.
+ * <p>
+ * Every distinct string is stored once in a string table and referenced by its index, which also gives the
+ * loaded catalog deduplicated strings for free. The snapshot records size and modification time of the
+ * index file it was taken from and is ignored once the index file changes.
+ * <p>
+ * Layout (big-endian): magic, format version, index size, index modification time, string table, schema,
+ * last update, mod count, mods.
+ */
+final class CatalogSnapshot {
+    private static final int MAGIC = 0x4D54_4943;
+    private static final int FORMAT = 1;
+    private static final int NULL = -1;
+
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * @param snapshot Snapshot file
+     * @param index    Index file the snapshot must match
+     * @return The catalog, or null if there is no snapshot or it does not match the index file
+     * @throws IOException If the snapshot exists but cannot be read
+     */
+    @Nullable
+    static ModCatalog read(@NotNull Path snapshot, @NotNull Path index) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(index, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) return null;
+            if (in.readLong() != attributes.size() || in.readLong() != attributes.lastModifiedTime().toMillis()) return null;
+
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            Reader reader = new Reader(in, strings);
+
+            String schema = reader.string();
+            String lastUpdate = reader.string();
+            int count = in.readInt();
+            List<IndexedMod> mods = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) mods.add(reader.mod());
+
+            ModCatalog catalog = new ModCatalog();
+            catalog.schema(schema);
+            catalog.apply(mods, List.of(), lastUpdate);
+            return catalog;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (EOFException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            // Truncated or damaged, fall back to the index file
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the catalog for the current state of the index file.
+     *
+     * @param catalog  Catalog to save
+     * @param snapshot Snapshot file
+     * @param index    Index file the catalog was loaded from or written to
+     * @throws IOException If the snapshot cannot be written
+     */
+    static void write(@NotNull ModCatalog catalog, @NotNull Path snapshot, @NotNull Path index) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(index, BasicFileAttributes.class);
+        List<IndexedMod> mods = catalog.mods();
+
+        Writer strings = new Writer();
+        strings.string(catalog.schema());
+        strings.string(catalog.lastUpdate());
+        for (IndexedMod mod : mods) strings.mod(mod, null);
+
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(attributes.size());
+            out.writeLong(attributes.lastModifiedTime().toMillis());
+
+            out.writeInt(strings.table.size());
+            for (String string : strings.table) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            strings.out = out;
+            strings.string(catalog.schema());
+            strings.string(catalog.lastUpdate());
+            out.writeInt(mods.size());
+            for (IndexedMod mod : mods) strings.mod(mod, out);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Encodes mods against the string table. The first pass, without an output, only fills the table.
+     */
+    private static final class Writer {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> table = new ArrayList<>();
+        private DataOutputStream out;
+
+        void mod(IndexedMod mod, @Nullable DataOutputStream out) throws IOException {
+            this.out = out;
+            string(mod.id());
+            string(mod.name());
+            strings(mod.authors());
+            string(mod.description());
+            if (present(mod.links())) {
+                string(mod.links().website());
+                string(mod.links().source_code());
+            }
+            if (length(mod.versions() == null ? -1 : mod.versions().length)) {
+                for (IndexedMod.Version version : mod.versions()) version(version);
+            }
+            strings(mod.tags());
+        }
+
+        private void version(IndexedMod.Version version) throws IOException {
+            if (!present(version)) return;
+            string(version.version());
+            if (present(version.file())) {
+                string(version.file().download());
+                string(version.file().sha512());
+                if (out != null) out.writeLong(version.file().file_size());
+            }
+            string(version.release_date());
+            strings(version.dependencies());
+            if (present(version.compatibility())) {
+                strings(version.compatibility().game_versions());
+                strings(version.compatibility().incompatible_mods());
+            }
+            if (present(version.requirements())) {
+                hardware(version.requirements().cpu());
+                hardware(version.requirements().gpu());
+                hardware(version.requirements().ram_gb());
+                string(version.requirements().storage_gb());
+            }
+        }
+
+        private void hardware(IndexedMod.Version.Requirements.Hardware hardware) throws IOException {
+            if (!present(hardware)) return;
+            string(hardware.min());
+            string(hardware.suggested());
+        }
+
+        private void strings(String[] values) throws IOException {
+            if (!length(values == null ? -1 : values.length)) return;
+            for (String value : values) string(value);
+        }
+
+        private void string(String value) throws IOException {
+            int index = NULL;
+            if (value != null) {
+                index = indexes.computeIfAbsent(value, key -> {
+                    table.add(key);
+                    return table.size() - 1;
+                });
+            }
+            if (out != null) out.writeInt(index);
+        }
+
+        private boolean present(Object value) throws IOException {
+            if (out != null) out.writeBoolean(value != null);
+            return value != null;
+        }
+
+        private boolean length(int length) throws IOException {
+            if (out != null) out.writeInt(length);
+            return length >= 0;
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private final String[] strings;
+
+        Reader(DataInputStream in, String[] strings) {
+            this.in = in;
+            this.strings = strings;
+        }
+
+        IndexedMod mod() throws IOException {
+            String id = string();
+            String name = string();
+            String[] authors = strings();
+            String description = string();
+            IndexedMod.Links links = in.readBoolean() ? new IndexedMod.Links(string(), string()) : null;
+
+            IndexedMod.Version[] versions = null;
+            int count = in.readInt();
+            if (count >= 0) {
+                versions = new IndexedMod.Version[count];
+                for (int i = 0; i < count; i++) versions[i] = version();
+            }
+            return new IndexedMod(id, name, authors, description, links, versions, strings());
+        }
+
+        private IndexedMod.Version version() throws IOException {
+            if (!in.readBoolean()) return null;
+            String version = string();
+            IndexedMod.Version.FileInfo file = in.readBoolean()
+                    ? new IndexedMod.Version.FileInfo(string(), string(), in.readLong())
+                    : null;
+            String releaseDate = string();
+            String[] dependencies = strings();
+            IndexedMod.Version.Compatibility compatibility = in.readBoolean()
+                    ? new IndexedMod.Version.Compatibility(strings(), strings())
+                    : null;
+            IndexedMod.Version.Requirements requirements = in.readBoolean()
+                    ? new IndexedMod.Version.Requirements(hardware(), hardware(), hardware(), string())
+                    : null;
+            return new IndexedMod.Version(version, file, releaseDate, dependencies, compatibility, requirements);
+        }
+
+        private IndexedMod.Version.Requirements.Hardware hardware() throws IOException {
+            return in.readBoolean() ? new IndexedMod.Version.Requirements.Hardware(string(), string()) : null;
+        }
+
+        private String[] strings() throws IOException {
+            int length = in.readInt();
+            if (length < 0) return null;
+            String[] values = new String[length];
+            for (int i = 0; i < length; i++) values[i] = string();
+            return values;
+        }
+
+        private String string() throws IOException {
+            int index = in.readInt();
+            return index == NULL ? null : strings[index];
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.objects.InstalledMod;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Path trie from game paths, down to archive entries, to the mods that changed them.
+ * <p>
+ * Paths are split at {@code /} and matched case-insensitively, like the game does. An archive entry is a child
+ * of its archive, e.g. {@code pc/models/cdimages/vehicles.img/infernus.wft}. Every node keeps the mods that
+ * changed it in installation order, so the last one is the mod whose version the game sees. A mod that
+ * replaced a whole archive also overrides all entries in it, so lookups collect the mods along the path.
+ * <p>
+ * Lookups cost one map access per path segment, independent of the number of installed mods.
+ */
+public class ConflictIndex {
+    private final Node root = new Node();
+    private final Map<String, List<String>> paths = new HashMap<>();
+    /**
+     * Installation order of the indexed mods
+     */
+    private final Map<String, Long> sequence = new HashMap<>();
+    private long nextSequence;
+    private int conflicted;
+
+    /**
+     * Adds the paths a mod changed, as the most recently installed mod.
+     */
+    public synchronized void add(@NotNull InstalledMod mod) {
+        remove(mod.id());
+        List<String> added = new ArrayList<>();
+        for (String path : pathsOf(mod)) {
+            Node node = root;
+            for (String segment : split(path)) {
+                node = node.children.computeIfAbsent(segment, key -> new Node());
+            }
+            if (!node.mods.contains(mod.id())) {
+                node.mods.add(mod.id());
+                if (node.mods.size() == 2) conflicted++;
+                added.add(path);
+            }
+        }
+        paths.put(mod.id(), added);
+        sequence.put(mod.id(), nextSequence++);
+    }
+
+    /**
+     * Removes a mod from all paths it changed.
+     *
+     * @return True if the mod was indexed
+     */
+    public synchronized boolean remove(@NotNull String modId) {
+        List<String> changed = paths.remove(modId);
+        if (changed == null) return false;
+        sequence.remove(modId);
+
+        for (String path : changed) {
+            String[] segments = split(path);
+            Node[] trail = new Node[segments.length + 1];
+            trail[0] = root;
+            for (int i = 0; i < segments.length; i++) trail[i + 1] = trail[i].children.get(segments[i]);
+
+            Node node = trail[segments.length];
+            if (node.mods.size() == 2) conflicted--;
+            node.mods.remove(modId);
+            // Drop nodes that no mod uses anymore
+            for (int i = segments.length; i > 0 && trail[i].isEmpty(); i--) trail[i - 1].children.remove(segments[i - 1]);
+        }
+        return true;
+    }
+
+    /**
+     * @param path Game path or archive entry, e.g. {@code pc/models/cdimages/vehicles.img/infernus.wft}
+     * @return Mods that changed the path or a file containing it, in installation order
+     */
+    @NotNull
+    public synchronized List<String> modsAt(@NotNull String path) {
+        List<String> mods = new ArrayList<>();
+        Node node = root;
+        for (String segment : split(path)) {
+            node = node.children.get(segment);
+            if (node == null) break;
+            mods.addAll(node.mods);
+        }
+        return mods;
+    }
+
+    /**
+     * @param path Game path or archive entry
+     * @return The mod whose version of the path is in the game directory, or null if no mod changed it
+     */
+    @Nullable
+    public synchronized String owner(@NotNull String path) {
+        String owner = null;
+        Node node = root;
+        for (String segment : split(path)) {
+            node = node.children.get(segment);
+            if (node == null) break;
+            if (!node.mods.isEmpty()) owner = node.mods.get(node.mods.size() - 1);
+        }
+        return owner;
+    }
+
+    /**
+     * Finds the installed mods a mod would override.
+     *
+     * @param paths Paths and archive entries the mod changes
+     * @return Path to the installed mods that already changed it, only for paths with at least one such mod
+     */
+    @NotNull
+    public synchronized Map<String, List<String>> conflicts(@NotNull Iterable<String> paths) {
+        Map<String, List<String>> conflicts = new LinkedHashMap<>();
+        for (String path : paths) {
+            Set<String> mods = new LinkedHashSet<>(modsAt(path));
+            // Entries of an archive the mod replaces as a whole
+            Node node = find(path);
+            if (node != null) collect(node, mods, true);
+            if (!mods.isEmpty()) conflicts.put(path, new ArrayList<>(mods));
+        }
+        return conflicts;
+    }
+
+    /**
+     * Finds the mods installed after a mod that changed the same paths, an archive containing them or entries
+     * within them. Uninstalling the mod restores its backups, which would undo their changes.
+     *
+     * @param modId Mod id
+     * @return Mods that must be uninstalled first, in installation order
+     */
+    @NotNull
+    public synchronized List<String> overriding(@NotNull String modId) {
+        List<String> changed = paths.get(modId);
+        if (changed == null) return List.of();
+
+        Set<String> related = new LinkedHashSet<>();
+        for (String path : changed) {
+            Node node = root;
+            for (String segment : split(path)) {
+                node = node.children.get(segment);
+                related.addAll(node.mods);
+            }
+            collect(node, related, false);
+        }
+
+        long installed = sequence.get(modId);
+        List<String> later = new ArrayList<>();
+        for (String other : related) {
+            if (sequence.get(other) > installed) later.add(other);
+        }
+        later.sort(Comparator.comparingLong(sequence::get));
+        return later;
+    }
+
+    /**
+     * @return Number of paths or archive entries that more than one mod changed directly
+     */
+    public synchronized int conflictedPaths() {
+        return conflicted;
+    }
+
+    /**
+     * @return Ids of the indexed mods
+     */
+    @NotNull
+    public synchronized Set<String> mods() {
+        return Set.copyOf(paths.keySet());
+    }
+
+    /**
+     * @return Number of nodes in the trie, the root excluded
+     */
+    synchronized int nodes() {
+        int count = 0;
+        Deque<Node> stack = new ArrayDeque<>(root.children.values());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            count++;
+            stack.addAll(node.children.values());
+        }
+        return count;
+    }
+
+    /**
+     * @return Paths and archive entries the mod changed, as stored in the registry
+     */
+    @NotNull
+    static List<String> pathsOf(@NotNull InstalledMod mod) {
+        List<String> result = new ArrayList<>();
+        if (mod.changed_paths() == null) return result;
+        for (InstalledMod.ChangedPath changed : mod.changed_paths()) {
+            if (changed.entries() == null) {
+                result.add(changed.path());
+            } else {
+                for (String entry : changed.entries()) result.add(changed.path() + "/" + entry);
+            }
+        }
+        return result;
+    }
+
+    private Node find(String path) {
+        Node node = root;
+        for (String segment : split(path)) {
+            node = node.children.get(segment);
+            if (node == null) return null;
+        }
+        return node;
+    }
+
+    /**
+     * Adds the mods of all nodes below the node, and of the node itself if requested.
+     */
+    private static void collect(Node start, Set<String> mods, boolean self) {
+        Deque<Node> stack = new ArrayDeque<>();
+        if (self) mods.addAll(start.mods);
+        stack.addAll(start.children.values());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            mods.addAll(node.mods);
+            stack.addAll(node.children.values());
+        }
+    }
+
+    private static String[] split(String path) {
+        return path.replace('\\', '/').toLowerCase(Locale.ROOT).split("/+");
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<String> mods = new ArrayList<>(1);
+
+        boolean isEmpty() {
+            return children.isEmpty() && mods.isEmpty();
+        }
+    }
+}
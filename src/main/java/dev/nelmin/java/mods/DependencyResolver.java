@@ -0,0 +1,728 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.exceptions.ResolutionException;
+import dev.nelmin.java.objects.IndexedMod;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Computes install plans from the {@code dependencies}, {@code compatibility.incompatible_mods} and
+ * {@code compatibility.game_versions} of the versions in a {@link ModCatalog}.
+ * <p>
+ * Requirements and incompatibilities are written as a mod id, optionally followed by version constraints:
+ * {@code mod-id}, {@code mod-id@1.2.0} (exactly that version), {@code mod-id>=1.0} or
+ * {@code mod-id>=1.0,<2.0}. Supported operators are {@code = == != > >= < <=}. Versions are compared segment by
+ * segment, numerically where both segments are numbers.
+ * <p>
+ * The solver is a backtracking search that always continues with the mod that has the fewest viable
+ * versions left and tries newer versions first. Every assignment that led to a dead end is remembered by a
+ * 128-bit Zobrist hash of the chosen versions, so no part of the search space is explored twice. Installed mods
+ * are kept at their installed version; a plan that would need another version of an installed mod fails.
+ * Versions with malformed requirements in the index are never selected; if no other version fits, the
+ * resolution error names the malformed requirement.
+ * <p>
+ * Parsed versions and plans are cached until {@link ModCatalog#revision()} changes.
+ */
+@Accessors(fluent = true)
+public class DependencyResolver {
+    private static final int CACHED_PLANS = 256;
+    private static final int DEFAULT_STEP_LIMIT = 1_000_000;
+    private static final Pattern REQUIREMENT = Pattern.compile("^([^<>=!@,\\s]+)\\s*(.*)$");
+    private static final Pattern CONSTRAINT = Pattern.compile("^(@|==|=|!=|>=|<=|>|<)\\s*(\\S+)$");
+
+    @Getter
+    private final ModCatalog catalog;
+    private final int stepLimit;
+    private final Map<String, Candidate[]> candidates = new HashMap<>();
+    private final Map<Request, Plan> plans = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Request, Plan> eldest) {
+            return size() > CACHED_PLANS;
+        }
+    };
+    private long revision = -1;
+    private long nextCandidate;
+
+    public DependencyResolver(@NotNull ModCatalog catalog) {
+        this(catalog, DEFAULT_STEP_LIMIT);
+    }
+
+    /**
+     * @param catalog   Catalog to resolve against
+     * @param stepLimit Maximum number of versions tried per resolution before giving up
+     */
+    public DependencyResolver(@NotNull ModCatalog catalog, int stepLimit) {
+        this.catalog = catalog;
+        this.stepLimit = stepLimit;
+    }
+
+    /**
+     * Computes which versions to install, and in which order, to satisfy the request.
+     *
+     * @param request Requested mods, installed mods and game version
+     * @return The plan, served from the cache if the same request was resolved for the current catalog revision
+     * @throws ResolutionException If the request cannot be satisfied
+     */
+    @NotNull
+    public synchronized Plan resolve(@NotNull Request request) throws ResolutionException {
+        long current = catalog.revision();
+        if (current != revision) {
+            candidates.clear();
+            plans.clear();
+            revision = current;
+        }
+
+        Plan plan = plans.get(request);
+        if (plan == null) {
+            plan = new Search(request).solve();
+            plans.put(request, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Parses a requirement such as {@code mod-id>=1.0,<2.0}.
+     *
+     * @param requirement Requirement string
+     * @return The parsed requirement
+     * @throws IllegalArgumentException If the requirement is malformed
+     */
+    @NotNull
+    public static Requirement parseRequirement(@NotNull String requirement) {
+        Matcher matcher = REQUIREMENT.matcher(requirement.trim());
+        if (!matcher.matches()) throw new IllegalArgumentException("Invalid requirement: " + requirement);
+
+        List<Constraint> constraints = new ArrayList<>();
+        String rest = matcher.group(2).trim();
+        if (!rest.isEmpty()) {
+            for (String part : rest.split(",")) {
+                Matcher constraint = CONSTRAINT.matcher(part.trim());
+                if (!constraint.matches()) throw new IllegalArgumentException("Invalid version constraint in " + requirement);
+                constraints.add(new Constraint(Operator.of(constraint.group(1)), constraint.group(2)));
+            }
+        }
+        return new Requirement(matcher.group(1), constraints.toArray(new Constraint[0]));
+    }
+
+    /**
+     * Compares versions segment by segment, e.g. {@code 1.10 > 1.9} and {@code 1.0 == 1.0.0}. Segments are
+     * separated by {@code . - + _}; missing segments count as {@code 0}.
+     */
+    public static int compareVersions(@NotNull String a, @NotNull String b) {
+        a = a.trim();
+        b = b.trim();
+        int left = 0;
+        int right = 0;
+        // Runs for every constraint check during a search, so it walks the strings instead of splitting them
+        while (left < a.length() || right < b.length()) {
+            int leftEnd = segmentEnd(a, left);
+            int rightEnd = segmentEnd(b, right);
+            int result = compareSegments(a, left, leftEnd, b, right, rightEnd);
+            if (result != 0) return result;
+            left = leftEnd + 1;
+            right = rightEnd + 1;
+        }
+        return 0;
+    }
+
+    private static int segmentEnd(String version, int start) {
+        int end = start;
+        while (end < version.length() && !isSeparator(version.charAt(end))) end++;
+        return end;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '.' || c == '-' || c == '+' || c == '_';
+    }
+
+    private static int compareSegments(String a, int aStart, int aEnd, String b, int bStart, int bEnd) {
+        // A missing segment is 0
+        if (aStart >= a.length()) return compareSegments("0", 0, 1, b, bStart, bEnd);
+        if (bStart >= b.length()) return compareSegments(a, aStart, aEnd, "0", 0, 1);
+
+        boolean leftNumber = isNumber(a, aStart, aEnd);
+        boolean rightNumber = isNumber(b, bStart, bEnd);
+        if (leftNumber && rightNumber) {
+            while (aStart < aEnd - 1 && a.charAt(aStart) == '0') aStart++;
+            while (bStart < bEnd - 1 && b.charAt(bStart) == '0') bStart++;
+            if (aEnd - aStart != bEnd - bStart) return Integer.compare(aEnd - aStart, bEnd - bStart);
+            for (int i = 0; i < aEnd - aStart; i++) {
+                int result = Character.compare(a.charAt(aStart + i), b.charAt(bStart + i));
+                if (result != 0) return result;
+            }
+            return 0;
+        }
+        // A release is newer than its pre-release: 1.0 > 1.0-beta
+        if (leftNumber) return 1;
+        if (rightNumber) return -1;
+        int length = Math.min(aEnd - aStart, bEnd - bStart);
+        for (int i = 0; i < length; i++) {
+            int result = Character.compare(Character.toLowerCase(a.charAt(aStart + i)), Character.toLowerCase(b.charAt(bStart + i)));
+            if (result != 0) return result;
+        }
+        return Integer.compare(aEnd - aStart, bEnd - bStart);
+    }
+
+    private static boolean isNumber(String version, int start, int end) {
+        if (start == end) return false;
+        for (int i = start; i < end; i++) {
+            if (!Character.isDigit(version.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Versions of the mod, newest first; empty if the catalog does not contain it
+     */
+    private Candidate[] candidates(String id) {
+        Candidate[] cached = candidates.get(id);
+        if (cached != null) return cached;
+
+        IndexedMod mod = catalog.get(id);
+        List<Candidate> list = new ArrayList<>();
+        if (mod != null && mod.versions() != null) {
+            for (IndexedMod.Version version : mod.versions()) {
+                if (version != null && version.version() != null) list.add(candidate(id, version));
+            }
+        }
+        list.sort((a, b) -> compareVersions(b.version.version(), a.version.version()));
+        Candidate[] result = list.toArray(new Candidate[0]);
+        candidates.put(id, result);
+        return result;
+    }
+
+    private Candidate candidate(String id, IndexedMod.Version version) {
+        List<String> errors = new ArrayList<>();
+        Requirement[] dependencies = parseAll(version.dependencies(), errors);
+        Requirement[] incompatibilities = version.compatibility() == null
+                ? new Requirement[0]
+                : parseAll(version.compatibility().incompatible_mods(), errors);
+
+        Set<String> gameVersions = null;
+        if (version.compatibility() != null && version.compatibility().game_versions() != null
+                && version.compatibility().game_versions().length > 0) {
+            gameVersions = new HashSet<>();
+            for (String gameVersion : version.compatibility().game_versions()) {
+                if (gameVersion != null) gameVersions.add(ModCatalog.normalizeVersion(gameVersion));
+            }
+        }
+
+        long sequence = nextCandidate++;
+        return new Candidate(id, version, dependencies, incompatibilities, gameVersions,
+                errors.isEmpty() ? null : String.join("; ", errors), mix(sequence * 2 + 1), mix(sequence * 2 + 2));
+    }
+
+    /**
+     * @param errors Receives the message of every malformed requirement
+     */
+    private static Requirement[] parseAll(String[] requirements, List<String> errors) {
+        if (requirements == null) return new Requirement[0];
+        List<Requirement> parsed = new ArrayList<>(requirements.length);
+        for (String requirement : requirements) {
+            if (requirement == null || requirement.isBlank()) continue;
+            try {
+                parsed.add(parseRequirement(requirement));
+            } catch (IllegalArgumentException e) {
+                errors.add(e.getMessage());
+            }
+        }
+        return parsed.toArray(new Requirement[0]);
+    }
+
+    /**
+     * SplitMix64 finalizer: distinct inputs give well distributed, distinct outputs.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * One resolution. Holds the current assignment and the constraints it implies, both undone on backtracking.
+     */
+    private final class Search {
+        private final Request request;
+        private final Map<String, Candidate> assigned = new LinkedHashMap<>();
+        private final Set<String> installed = new HashSet<>();
+        private final Map<String, List<Bound>> bounds = new LinkedHashMap<>();
+        /**
+         * Incompatibilities declared by the assigned versions, by the id they refer to
+         */
+        private final Map<String, List<Bound>> excluded = new HashMap<>();
+        /**
+         * Required mods without a selected version
+         */
+        private final Set<String> pending = new LinkedHashSet<>();
+        private final Map<String, List<Candidate>> domains = new HashMap<>();
+        private final Set<Key> failed = new HashSet<>();
+        private long hash1;
+        private long hash2;
+        private int steps;
+        private String conflict;
+        private int conflictDepth = -1;
+
+        private Search(Request request) {
+            this.request = request;
+        }
+
+        Plan solve() throws ResolutionException {
+            for (Map.Entry<String, String> entry : request.installed().entrySet()) {
+                Candidate candidate = installedCandidate(entry.getKey(), entry.getValue());
+                assigned.put(candidate.id, candidate);
+                installed.add(candidate.id);
+                toggle(candidate);
+                exclude(candidate);
+            }
+            for (String requested : request.mods()) {
+                Requirement requirement;
+                try {
+                    requirement = parseRequirement(requested);
+                } catch (IllegalArgumentException e) {
+                    throw new ResolutionException(e.getMessage());
+                }
+                Candidate present = assigned.get(requirement.id());
+                if (present != null && !requirement.isSatisfiedBy(present.version.version())) {
+                    throw new ResolutionException(requirement.id() + " " + present.version.version()
+                            + " is installed, but " + requested + " was requested");
+                }
+                bound(requirement, "request");
+            }
+
+            if (!search(0)) {
+                if (steps >= stepLimit) throw new ResolutionException("Dependencies are too complex to resolve");
+                throw new ResolutionException(conflict != null ? conflict : "Dependencies cannot be satisfied");
+            }
+            return new Plan(order());
+        }
+
+        private boolean search(int depth) {
+            if (++steps > stepLimit) return false;
+
+            // Fail first: continue with the mod that has the fewest viable versions
+            String next = null;
+            List<Candidate> best = null;
+            for (String id : pending) {
+                List<Candidate> domain = domain(id);
+                if (domain.isEmpty()) {
+                    conflict(depth, id);
+                    return false;
+                }
+                if (best == null || domain.size() < best.size()) {
+                    next = id;
+                    best = domain;
+                    if (domain.size() == 1) break;
+                }
+            }
+            if (next == null) return true;
+
+            Key key = new Key(hash1, hash2);
+            if (failed.contains(key)) return false;
+
+            boolean tried = false;
+            for (Candidate candidate : best) {
+                // The domain only reflects constraints on this mod, check the candidate against the selection
+                if (!fitsSelection(candidate)) continue;
+                tried = true;
+                assign(candidate);
+                if (search(depth + 1)) return true;
+                unassign(candidate);
+                if (steps > stepLimit) return false;
+            }
+            if (!tried) conflict(depth, next);
+            failed.add(key);
+            return false;
+        }
+
+        /**
+         * @return Versions of the mod that satisfy the game version, the requirements on it and the
+         * incompatibilities declared against it; cached until these change
+         */
+        private List<Candidate> domain(String id) {
+            List<Candidate> domain = domains.get(id);
+            if (domain != null) return domain;
+
+            List<Bound> constraints = bounds.get(id);
+            List<Bound> exclusions = excluded.getOrDefault(id, List.of());
+            domain = new ArrayList<>();
+            for (Candidate candidate : candidates(id)) {
+                if (allowed(candidate, constraints, exclusions)) domain.add(candidate);
+            }
+            domains.put(id, domain);
+            return domain;
+        }
+
+        private boolean allowed(Candidate candidate, List<Bound> constraints, List<Bound> exclusions) {
+            // Its requirements are unknown, but another version may still fit
+            if (candidate.invalid != null) return false;
+            String version = candidate.version.version();
+            if (request.gameVersion() != null && candidate.gameVersions != null
+                    && !candidate.gameVersions.contains(request.gameVersion())) {
+                return false;
+            }
+            for (Bound bound : constraints) {
+                if (!bound.requirement.isSatisfiedBy(version)) return false;
+            }
+            for (Bound bound : exclusions) {
+                if (bound.requirement.isSatisfiedBy(version)) return false;
+            }
+            return true;
+        }
+
+        private boolean fitsSelection(Candidate candidate) {
+            for (Requirement incompatible : candidate.incompatibilities) {
+                Candidate other = assigned.get(incompatible.id());
+                if (other != null && incompatible.matches(other.id, other.version.version())) return false;
+            }
+            for (Requirement dependency : candidate.dependencies) {
+                Candidate other = assigned.get(dependency.id());
+                if (other != null && !dependency.isSatisfiedBy(other.version.version())) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Records why no version of the mod fits. Only called on dead ends, so building the message is cheap
+         * compared to the search.
+         */
+        private void conflict(int depth, String id) {
+            // The deepest conflict is usually the one that explains the failure
+            if (depth <= conflictDepth) return;
+            conflictDepth = depth;
+
+            List<Bound> constraints = bounds.get(id);
+            Candidate[] all = candidates(id);
+            if (all.length == 0) {
+                conflict = id + " is not in the mod index (required by " + sources(constraints) + ")";
+                return;
+            }
+            String reason = null;
+            for (Candidate candidate : all) {
+                reason = reason(candidate, constraints);
+                if (reason != null) break;
+            }
+            conflict = "No version of " + id + " can be installed: " + reason;
+        }
+
+        private String reason(Candidate candidate, List<Bound> constraints) {
+            if (candidate.invalid != null) return candidate + " has malformed requirements in the mod index: " + candidate.invalid;
+            String version = candidate.version.version();
+            if (request.gameVersion() != null && candidate.gameVersions != null
+                    && !candidate.gameVersions.contains(request.gameVersion())) {
+                return candidate + " does not support game version " + request.gameVersion();
+            }
+            for (Bound bound : constraints) {
+                if (!bound.requirement.isSatisfiedBy(version)) return bound.source + " requires " + bound.requirement;
+            }
+            for (Bound bound : excluded.getOrDefault(candidate.id, List.of())) {
+                if (bound.requirement.isSatisfiedBy(version)) return bound.source + " is incompatible with " + candidate;
+            }
+            for (Requirement incompatible : candidate.incompatibilities) {
+                Candidate other = assigned.get(incompatible.id());
+                if (other != null && incompatible.matches(other.id, other.version.version())) {
+                    return candidate + " is incompatible with " + other;
+                }
+            }
+            for (Requirement dependency : candidate.dependencies) {
+                Candidate other = assigned.get(dependency.id());
+                if (other != null && !dependency.isSatisfiedBy(other.version.version())) {
+                    return candidate + " requires " + dependency + ", but " + other + " is selected";
+                }
+            }
+            return null;
+        }
+
+        private void assign(Candidate candidate) {
+            assigned.put(candidate.id, candidate);
+            pending.remove(candidate.id);
+            toggle(candidate);
+            String source = candidate.toString();
+            for (Requirement dependency : candidate.dependencies) {
+                bound(dependency, source);
+            }
+            exclude(candidate);
+        }
+
+        private void bound(Requirement requirement, String source) {
+            bounds.computeIfAbsent(requirement.id(), id -> new ArrayList<>()).add(new Bound(requirement, source));
+            domains.remove(requirement.id());
+            if (!assigned.containsKey(requirement.id())) pending.add(requirement.id());
+        }
+
+        private void exclude(Candidate candidate) {
+            String source = candidate.toString();
+            for (Requirement incompatible : candidate.incompatibilities) {
+                excluded.computeIfAbsent(incompatible.id(), id -> new ArrayList<>()).add(new Bound(incompatible, source));
+                domains.remove(incompatible.id());
+            }
+        }
+
+        private void unassign(Candidate candidate) {
+            for (int i = candidate.incompatibilities.length - 1; i >= 0; i--) {
+                String id = candidate.incompatibilities[i].id();
+                List<Bound> list = excluded.get(id);
+                list.remove(list.size() - 1);
+                domains.remove(id);
+            }
+            for (int i = candidate.dependencies.length - 1; i >= 0; i--) {
+                String id = candidate.dependencies[i].id();
+                List<Bound> list = bounds.get(id);
+                list.remove(list.size() - 1);
+                domains.remove(id);
+                if (list.isEmpty()) pending.remove(id);
+            }
+            assigned.remove(candidate.id);
+            pending.add(candidate.id);
+            toggle(candidate);
+        }
+
+        private void toggle(Candidate candidate) {
+            hash1 ^= candidate.hash1;
+            hash2 ^= candidate.hash2;
+        }
+
+        private Candidate installedCandidate(String id, String version) {
+            for (Candidate candidate : candidates(id)) {
+                if (compareVersions(candidate.version.version(), version) == 0) return candidate;
+            }
+            // Installed, but no longer (or never) listed in the index
+            long sequence = nextCandidate++;
+            IndexedMod.Version unknown = new IndexedMod.Version(version, null, null, null, null, null);
+            return new Candidate(id, unknown, new Requirement[0], new Requirement[0], null, null, mix(sequence * 2 + 1), mix(sequence * 2 + 2));
+        }
+
+        /**
+         * Orders the mods to install so that every mod comes after its dependencies. Mods that depend on each
+         * other in a cycle are installed together, in id order.
+         */
+        private List<Step> order() {
+            Map<String, Candidate> selected = new LinkedHashMap<>();
+            for (Candidate candidate : assigned.values()) {
+                if (!installed.contains(candidate.id)) selected.put(candidate.id, candidate);
+            }
+
+            Map<String, Integer> missing = new HashMap<>();
+            Map<String, List<String>> dependents = new HashMap<>();
+            for (Candidate candidate : selected.values()) {
+                Set<String> dependencies = new HashSet<>();
+                for (Requirement dependency : candidate.dependencies) {
+                    if (selected.containsKey(dependency.id()) && !dependency.id().equals(candidate.id)) {
+                        dependencies.add(dependency.id());
+                    }
+                }
+                missing.put(candidate.id, dependencies.size());
+                for (String dependency : dependencies) {
+                    dependents.computeIfAbsent(dependency, id -> new ArrayList<>()).add(candidate.id);
+                }
+            }
+
+            PriorityQueue<String> ready = new PriorityQueue<>(Comparator.naturalOrder());
+            missing.forEach((id, count) -> {
+                if (count == 0) ready.add(id);
+            });
+            List<Step> steps = new ArrayList<>(selected.size());
+            while (!ready.isEmpty()) {
+                String id = ready.poll();
+                steps.add(new Step(id, selected.get(id).version));
+                for (String dependent : dependents.getOrDefault(id, List.of())) {
+                    if (missing.merge(dependent, -1, Integer::sum) == 0) ready.add(dependent);
+                }
+            }
+            if (steps.size() < selected.size()) {
+                TreeSet<String> cycle = new TreeSet<>();
+                missing.forEach((id, count) -> {
+                    if (count > 0) cycle.add(id);
+                });
+                for (String id : cycle) steps.add(new Step(id, selected.get(id).version));
+            }
+            return List.copyOf(steps);
+        }
+
+        private static String sources(List<Bound> constraints) {
+            Set<String> sources = new TreeSet<>();
+            for (Bound bound : constraints) sources.add(bound.source);
+            return String.join(", ", sources);
+        }
+    }
+
+    private record Key(long hash1, long hash2) {
+    }
+
+    /**
+     * A requirement together with what imposed it, for error messages.
+     */
+    private record Bound(Requirement requirement, String source) {
+    }
+
+    private static final class Candidate {
+        private final String id;
+        private final IndexedMod.Version version;
+        private final Requirement[] dependencies;
+        private final Requirement[] incompatibilities;
+        @Nullable
+        private final Set<String> gameVersions;
+        /**
+         * Why some requirements of the version could not be parsed, null if all were valid
+         */
+        @Nullable
+        private final String invalid;
+        private final long hash1;
+        private final long hash2;
+
+        Candidate(String id, IndexedMod.Version version, Requirement[] dependencies, Requirement[] incompatibilities,
+                  @Nullable Set<String> gameVersions, @Nullable String invalid, long hash1, long hash2) {
+            this.id = id;
+            this.version = version;
+            this.dependencies = dependencies;
+            this.incompatibilities = incompatibilities;
+            this.gameVersions = gameVersions;
+            this.invalid = invalid;
+            this.hash1 = hash1;
+            this.hash2 = hash2;
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + version.version();
+        }
+    }
+
+    /**
+     * @param mods        Requirements of the mods to install, e.g. {@code mod-id} or {@code mod-id>=1.2}
+     * @param installed   Installed mods, id to version
+     * @param gameVersion Game version, with or without dots; null to ignore {@code game_versions}
+     */
+    public record Request(@NotNull List<String> mods, @NotNull Map<String, String> installed, @Nullable String gameVersion) {
+        public Request {
+            mods = List.copyOf(mods);
+            installed = Map.copyOf(installed);
+            gameVersion = gameVersion == null ? null : ModCatalog.normalizeVersion(gameVersion);
+        }
+
+        public Request(@NotNull Collection<String> mods, @Nullable String gameVersion) {
+            this(List.copyOf(mods), Map.of(), gameVersion);
+        }
+    }
+
+    /**
+     * @param installs Versions to install, every mod after its dependencies
+     */
+    public record Plan(@NotNull List<Step> installs) {
+        public boolean isEmpty() {
+            return installs.isEmpty();
+        }
+    }
+
+    /**
+     * @param id      Mod id
+     * @param version Selected version
+     */
+    public record Step(@NotNull String id, @NotNull IndexedMod.Version version) {
+    }
+
+    /**
+     * @param id          Mod id
+     * @param constraints Version constraints, all of which must hold; empty for any version
+     */
+    public record Requirement(@NotNull String id, @NotNull Constraint[] constraints) {
+        public boolean isSatisfiedBy(@NotNull String version) {
+            for (Constraint constraint : constraints) {
+                if (!constraint.isSatisfiedBy(version)) return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return Whether the requirement refers to this version of this mod
+         */
+        public boolean matches(@NotNull String id, @NotNull String version) {
+            return this.id.equals(id) && isSatisfiedBy(version);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Requirement other && id.equals(other.id) && Arrays.equals(constraints, other.constraints);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id.hashCode() + Arrays.hashCode(constraints);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(id);
+            for (int i = 0; i < constraints.length; i++) {
+                if (i > 0) builder.append(',');
+                builder.append(constraints[i]);
+            }
+            return builder.toString();
+        }
+    }
+
+    public record Constraint(@NotNull Operator operator, @NotNull String version) {
+        public boolean isSatisfiedBy(@NotNull String candidate) {
+            int comparison = compareVersions(candidate, version);
+            return switch (operator) {
+                case EQUAL -> comparison == 0;
+                case NOT_EQUAL -> comparison != 0;
+                case GREATER -> comparison > 0;
+                case GREATER_OR_EQUAL -> comparison >= 0;
+                case LESS -> comparison < 0;
+                case LESS_OR_EQUAL -> comparison <= 0;
+            };
+        }
+
+        @Override
+        public String toString() {
+            return operator.symbol() + version;
+        }
+    }
+
+    @Accessors(fluent = true)
+    public enum Operator {
+        EQUAL("="),
+        NOT_EQUAL("!="),
+        GREATER(">"),
+        GREATER_OR_EQUAL(">="),
+        LESS("<"),
+        LESS_OR_EQUAL("<=");
+
+        @Getter
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Operator of(String symbol) {
+            return switch (symbol) {
+                case "@", "=", "==" -> EQUAL;
+                case "!=" -> NOT_EQUAL;
+                case ">" -> GREATER;
+                case ">=" -> GREATER_OR_EQUAL;
+                case "<" -> LESS;
+                case "<=" -> LESS_OR_EQUAL;
+                default -> throw new IllegalArgumentException("Unknown operator " + symbol);
+            };
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.objects.ModManifest;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * An unpacked mod folder.
+ */
+final class DirectoryModSource implements ModSource {
+    private final Path files;
+    private final ModManifest manifest;
+    private final List<ModFile> listing;
+
+    DirectoryModSource(Path folder) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> top = Files.list(folder)) {
+            for (Path path : top.toList()) {
+                String name = path.getFileName().toString();
+                names.add(name);
+                if (Files.isRegularFile(path.resolve(ModLayout.MANIFEST))) names.add(name + "/" + ModLayout.MANIFEST);
+            }
+        }
+        Path root = folder.resolve(ModLayout.root(names));
+
+        try (InputStream in = Files.newInputStream(root.resolve(ModLayout.MANIFEST))) {
+            this.manifest = ModLayout.manifest(in);
+        }
+        this.files = root.resolve("files");
+
+        List<ModFile> listing = new ArrayList<>();
+        if (Files.isDirectory(files)) {
+            try (Stream<Path> stream = Files.walk(files)) {
+                for (Path file : stream.filter(Files::isRegularFile).toList()) {
+                    listing.add(new ModFile(files.relativize(file).toString().replace('\\', '/'), Files.size(file)));
+                }
+            }
+        }
+        this.listing = List.copyOf(listing);
+    }
+
+    @Override
+    public @NotNull ModManifest manifest() {
+        return manifest;
+    }
+
+    @Override
+    public @NotNull List<ModFile> files() {
+        return listing;
+    }
+
+    @Override
+    public @NotNull InputStream open(@NotNull ModFile file) throws IOException {
+        return Files.newInputStream(files.resolve(file.path()));
+    }
+
+    @Override
+    public @NotNull Path localPath(@NotNull ModFile file) {
+        return files.resolve(file.path());
+    }
+
+    @Override
+    public boolean randomAccess() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // Nothing is held open
+    }
+}
@@ -0,0 +1,89 @@
+package dev.nelmin.java.mods;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns a mod into a Fusion Overloader patch: an {@code update/} overlay tree the game loads instead of the
+ * original files.
+ * <p>
+ * Every file below {@code files/} is placed at the same path below {@code update/}, archive entries included:
+ * {@code files/pc/models/cdimages/vehicles.img/infernus.wft} becomes
+ * {@code update/pc/models/cdimages/vehicles.img/infernus.wft}, a folder the overloader reads like the archive.
+ * Mods that already ship an {@code update/} tree are taken as they are. Installing an overlay only adds files
+ * below {@code update/} and never writes into an archive, so no original game file is touched. Files already
+ * there, e.g. from the overlay of another mod, are backed up and replaced like with any installation, and
+ * restored on uninstall.
+ */
+public final class FusionOverlay {
+    public static final String UPDATE = "update/";
+    /**
+     * Plugin of FusionFix, which brings the overloader
+     */
+    private static final String PLUGIN = "plugins/GTAIV.EFLC.FusionFix.asi";
+
+    private FusionOverlay() {
+    }
+
+    /**
+     * @param gameDirectory Game directory
+     * @return Whether FusionFix, and with it the overloader, is installed
+     */
+    public static boolean supported(@NotNull Path gameDirectory) {
+        return Files.isRegularFile(gameDirectory.resolve(PLUGIN));
+    }
+
+    /**
+     * @param relative Path of a mod file relative to {@code files/}
+     * @return Path of the file in the overlay, relative to the game directory
+     */
+    @NotNull
+    public static String overlayPath(@NotNull String relative) {
+        return relative.toLowerCase(Locale.ROOT).startsWith(UPDATE) ? relative : UPDATE + relative;
+    }
+
+    /**
+     * Plans the overlay of a mod.
+     *
+     * @param source    Mod folder or archive
+     * @param conflicts Paths changed by the installed mods
+     * @return The plan
+     */
+    @NotNull
+    public static Plan plan(@NotNull ModSource source, @NotNull ConflictIndex conflicts) {
+        Map<String, ModSource.ModFile> files = new LinkedHashMap<>();
+        List<String> gamePaths = new ArrayList<>();
+        for (ModSource.ModFile file : source.files()) {
+            String overlayPath = overlayPath(file.path());
+            files.put(overlayPath, file);
+            gamePaths.add(overlayPath.substring(UPDATE.length()));
+        }
+
+        // Mods that changed the same files, in place or in their own overlay
+        Map<String, List<String>> shadowed = conflicts.conflicts(gamePaths);
+        Map<String, List<String>> replaced = conflicts.conflicts(files.keySet());
+        return new Plan(Collections.unmodifiableMap(files), shadowed, replaced);
+    }
+
+    /**
+     * @param files    Mod file by overlay path, in the order of the source
+     * @param shadowed Game path to the installed mods that changed it in place; the overlay hides their changes
+     *                 while it is installed
+     * @param replaced Overlay path to the installed mods whose overlay already provides it; their files are
+     *                 backed up and replaced, and restored when this mod is uninstalled
+     */
+    public record Plan(
+            @NotNull Map<String, ModSource.ModFile> files,
+            @NotNull Map<String, List<String>> shadowed,
+            @NotNull Map<String, List<String>> replaced
+    ) {
+    }
+}
@@ -0,0 +1,271 @@
+package dev.nelmin.java.mods;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import dev.nelmin.java.objects.IndexedMod;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps {@code MOD_INDEX.json} up to date by fetching only what changed since {@code meta.last_update}.
+ * <p>
+ * The index source is asked for {@code <endpoint>?since=<last_update>} and answers with a change set:
+ * <pre>
+ * {
+ *   "meta": { "last_update": "2025-06-01T12:00:00Z" },
+ *   "added": [ IndexedMod, ... ],
+ *   "modified": [ IndexedMod, ... ],
+ *   "removed": [ "mod-id", ... ]
+ * }
+ * </pre>
+ * {@code 304 Not Modified} means nothing changed. A source that cannot produce a change set may answer with a
+ * complete index document instead, which is diffed against the catalog. Change sets are applied to the catalog
+ * atomically and appended to a {@link CatalogChanges} log next to the index file. Only once the log outgrows a
+ * quarter of the index are the index file and its binary {@link CatalogSnapshot} rewritten, so the next start
+ * loads the snapshot and replays the few changes since instead of parsing JSON.
+ * <p>
+ * One instance and its catalog are shared by the whole application, see {@link dev.nelmin.java.MTIV#catalog()}.
+ */
+@Accessors(fluent = true)
+public class IndexSync {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * Change logs smaller than this are never compacted
+     */
+    private static final long MIN_COMPACT_SIZE = 256 << 10;
+    private static final Gson COMPARE = new Gson();
+
+    @Getter
+    private final URI endpoint;
+    @Getter
+    private final Path index;
+    private final HttpClient client;
+
+    /**
+     * @param endpoint Change set endpoint of the index source
+     * @param index    Path of {@code MOD_INDEX.json}
+     */
+    public IndexSync(@NotNull URI endpoint, @NotNull Path index) {
+        this(endpoint, index, HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(TIMEOUT)
+                .build());
+    }
+
+    public IndexSync(@NotNull URI endpoint, @NotNull Path index, @NotNull HttpClient client) {
+        this.endpoint = endpoint;
+        this.index = index;
+        this.client = client;
+    }
+
+    /**
+     * Loads the catalog from its snapshot if the snapshot matches the index file, otherwise parses the index
+     * file and writes a new snapshot. Change sets logged since the index file was written are applied on top.
+     *
+     * @param index Path of {@code MOD_INDEX.json}
+     * @return The catalog, empty if there is no index file yet
+     * @throws IOException If neither the snapshot nor the index file can be read
+     */
+    @NotNull
+    public static ModCatalog open(@NotNull Path index) throws IOException {
+        Path snapshot = snapshotOf(index);
+        ModCatalog catalog = CatalogSnapshot.read(snapshot, index);
+        if (catalog == null) {
+            if (!Files.exists(index)) return new ModCatalog();
+            catalog = ModCatalog.load(index);
+            try {
+                CatalogSnapshot.write(catalog, snapshot, index);
+            } catch (IOException e) {
+                System.err.println("Failed to write mod index snapshot: " + e.getMessage());
+            }
+        }
+        CatalogChanges.replay(changesOf(index), index, catalog);
+        return catalog;
+    }
+
+    /**
+     * Fetches the changes since the catalog's {@code last_update} and applies them to the catalog and the
+     * change log, compacting the log into the index file and the snapshot once it grew large.
+     *
+     * @param catalog Catalog loaded from {@link #index()}
+     * @return What changed
+     * @throws IOException If the source cannot be reached, answers with an error or sends an invalid change set
+     */
+    @NotNull
+    public Result sync(@NotNull ModCatalog catalog) throws IOException {
+        String since = catalog.lastUpdate();
+        URI uri = since == null ? endpoint : URI.create(endpoint + (endpoint.getRawQuery() == null ? "?" : "&")
+                + "since=" + URLEncoder.encode(since, StandardCharsets.UTF_8));
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(
+                    HttpRequest.newBuilder(uri).timeout(TIMEOUT).header("Accept", "application/json").GET().build(),
+                    HttpResponse.BodyHandlers.ofInputStream()
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Index update interrupted", e);
+        }
+
+        ChangeSet changes;
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 304) return new Result(0, 0, 0, since);
+            if (response.statusCode() != 200) {
+                throw new IOException("Index source answered with HTTP " + response.statusCode());
+            }
+            changes = read(body);
+        }
+
+        List<String> removed = changes.removed;
+        if (changes.full != null) {
+            // Complete index: everything not in it was removed, only mods that differ were modified
+            Set<String> ids = new HashSet<>();
+            for (IndexedMod mod : changes.full) ids.add(mod.id());
+            removed = catalog.ids().stream().filter(id -> !ids.contains(id)).toList();
+            for (IndexedMod mod : changes.full) {
+                IndexedMod current = catalog.get(mod.id());
+                if (current == null) changes.added.add(mod);
+                else if (!same(current, mod)) changes.modified.add(mod);
+            }
+        }
+
+        String lastUpdate = changes.lastUpdate != null ? changes.lastUpdate : since;
+        Result result = new Result(changes.added.size(), changes.modified.size(), removed.size(), lastUpdate);
+        if (!result.changed() && (lastUpdate == null || lastUpdate.equals(since))) return result;
+
+        List<IndexedMod> upserts = new ArrayList<>(changes.added);
+        upserts.addAll(changes.modified);
+        catalog.apply(upserts, removed, lastUpdate);
+
+        Path log = changesOf(index);
+        if (!Files.exists(index) || CatalogChanges.append(log, index, upserts, removed, lastUpdate) > compactSize()) {
+            compact(catalog);
+        }
+        return result;
+    }
+
+    /**
+     * Rewrites the index file and the snapshot from the catalog and drops the change log.
+     *
+     * @param catalog Catalog loaded from {@link #index()}
+     * @throws IOException If the files cannot be written
+     */
+    public void compact(@NotNull ModCatalog catalog) throws IOException {
+        catalog.write(index);
+        CatalogSnapshot.write(catalog, snapshotOf(index), index);
+        // The log no longer matches the index file, removing it only saves reading its first line
+        Files.deleteIfExists(changesOf(index));
+    }
+
+    private long compactSize() throws IOException {
+        return Math.max(MIN_COMPACT_SIZE, Files.size(index) / 4);
+    }
+
+    /**
+     * @return Whether two versions of a mod have the same contents
+     */
+    private static boolean same(IndexedMod a, IndexedMod b) {
+        return COMPARE.toJsonTree(a).equals(COMPARE.toJsonTree(b));
+    }
+
+    private static ChangeSet read(InputStream body) throws IOException {
+        Gson gson = ModCatalog.interningGson();
+        ChangeSet changes = new ChangeSet();
+
+        try {
+            JsonReader json = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "meta" -> {
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            if (json.nextName().equals("last_update")) changes.lastUpdate = json.nextString();
+                            else json.skipValue();
+                        }
+                        json.endObject();
+                    }
+                    case "added" -> readMods(json, gson, changes.added);
+                    case "modified" -> readMods(json, gson, changes.modified);
+                    case "mods" -> {
+                        changes.full = new ArrayList<>();
+                        readMods(json, gson, changes.full);
+                    }
+                    case "removed" -> {
+                        json.beginArray();
+                        while (json.hasNext()) changes.removed.add(json.nextString());
+                        json.endArray();
+                    }
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid index change set", e);
+        }
+        return changes;
+    }
+
+    private static void readMods(JsonReader json, Gson gson, List<IndexedMod> target) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            IndexedMod mod = gson.fromJson(json, IndexedMod.class);
+            if (mod != null && mod.id() != null) target.add(mod);
+        }
+        json.endArray();
+    }
+
+    private static Path snapshotOf(Path index) {
+        return sibling(index, ".snapshot");
+    }
+
+    private static Path changesOf(Path index) {
+        return sibling(index, ".changes");
+    }
+
+    private static Path sibling(Path index, String extension) {
+        String name = index.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return index.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + extension);
+    }
+
+    private static final class ChangeSet {
+        private final List<IndexedMod> added = new ArrayList<>();
+        private final List<IndexedMod> modified = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+        private List<IndexedMod> full;
+        private String lastUpdate;
+    }
+
+    /**
+     * @param added      Number of added mods
+     * @param modified   Number of modified mods
+     * @param removed    Number of removed mods
+     * @param lastUpdate {@code meta.last_update} after the update
+     */
+    public record Result(int added, int modified, int removed, @Nullable String lastUpdate) {
+        public boolean changed() {
+            return added + modified + removed > 0;
+        }
+    }
+}
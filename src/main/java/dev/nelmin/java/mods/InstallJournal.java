@@ -0,0 +1,128 @@
+package dev.nelmin.java.mods;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Write-ahead journal of a single mod installation.
+ * <p>
+ * The journal lists every change an installation is about to make and is written, forced to disk, before
+ * the game directory is touched. Its state is rewritten the same way at each phase change, so after a crash
+ * {@link ModInstaller#recover()} knows whether to discard staged files, roll the game directory back or
+ * just finish the cleanup. While applying, each operation is marked once it touched its target, so a rollback
+ * only restores what was actually changed.
+ *
+ * @param tx         Transaction id
+ * @param mod_id     Id of the mod being installed
+ * @param version    Version of the mod being installed
+ * @param state      Phase the installation reached
+ * @param operations Planned changes
+ */
+public record InstallJournal(
+        String tx,
+        String mod_id,
+        String version,
+        State state,
+        Operation[] operations
+) {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    public enum State {
+        /**
+         * Backups are taken and files are staged next to their targets. Nothing in the game directory changed yet.
+         */
+        PREPARING,
+        /**
+         * Staged files are being moved into place and archives are being written.
+         */
+        APPLYING,
+        /**
+         * The registry was updated. Only cleanup is left.
+         */
+        COMMITTED
+    }
+
+    /**
+     * @param path       Target path relative to the game directory
+     * @param archive    True if entries of an IMG/RPF archive are replaced instead of the whole file
+     * @param existed    True if the target existed before the installation
+     * @param backup_ver Backup of the original file or entries, null if the target did not exist
+     * @param entries    Archive entries that are replaced or added, null for whole files
+     * @param applied    True once the target may have been changed. Archives are marked before they are written,
+     *                   whole files after their staged file was moved into place; a whole file whose staged file
+     *                   is gone counts as applied as well.
+     */
+    public record Operation(
+            String path,
+            boolean archive,
+            boolean existed,
+            String backup_ver,
+            String[] entries,
+            boolean applied
+    ) {
+    }
+
+    @NotNull
+    public InstallJournal withState(@NotNull State state) {
+        return new InstallJournal(tx, mod_id, version, state, operations);
+    }
+
+    /**
+     * @param index Index of the operation
+     * @return A copy of this journal with the operation marked as applied
+     */
+    @NotNull
+    public InstallJournal withApplied(int index) {
+        Operation[] marked = operations.clone();
+        Operation operation = marked[index];
+        marked[index] = new Operation(operation.path, operation.archive, operation.existed, operation.backup_ver,
+                operation.entries, true);
+        return new InstallJournal(tx, mod_id, version, state, marked);
+    }
+
+    /**
+     * Writes the journal through a temporary file, forced to disk and atomically moved into place.
+     *
+     * @param path Journal file
+     * @throws IOException If the journal cannot be written
+     */
+    public void write(@NotNull Path path) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            GSON.toJson(this, writer);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param path Journal file
+     * @return The journal, or null if there is none
+     * @throws IOException If the journal exists but cannot be read
+     */
+    @Nullable
+    public static InstallJournal read(@NotNull Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, InstallJournal.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package dev.nelmin.java.mods;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.nelmin.java.fs.verify.DriftReport;
+import dev.nelmin.java.objects.InstalledMod;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code mods/installed.json} registry of installed mods.
+ * <p>
+ * Saving writes a temporary file, forces it to disk and atomically renames it over the registry, so a
+ * crash never leaves a truncated registry behind.
+ * <p>
+ * A {@link ConflictIndex} of the paths changed by the installed mods is built when the registry is loaded and
+ * kept up to date with it, so finding the mods behind a path does not scan the registry.
+ */
+@Accessors(fluent = true)
+public class InstalledMods {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    @Getter
+    private final Path path;
+    private final Map<String, InstalledMod> mods = new LinkedHashMap<>();
+    @Getter
+    private final ConflictIndex conflicts = new ConflictIndex();
+
+    private InstalledMods(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Loads the registry. A missing file is treated as an empty registry.
+     *
+     * @param path Path of {@code installed.json}
+     * @return The registry
+     * @throws IOException If the file exists but cannot be read
+     */
+    @NotNull
+    public static InstalledMods load(@NotNull Path path) throws IOException {
+        InstalledMods registry = new InstalledMods(path);
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Document document = GSON.fromJson(reader, Document.class);
+            if (document != null && document.mods != null) {
+                for (InstalledMod mod : document.mods) registry.put(mod);
+            }
+        } catch (NoSuchFileException ignored) {
+            // Nothing installed yet
+        }
+        return registry;
+    }
+
+    /**
+     * @return The registry in {@code mods/installed.json} of the working directory
+     * @throws IOException If the file exists but cannot be read
+     */
+    @NotNull
+    public static InstalledMods load() throws IOException {
+        return load(Path.of(System.getProperty("user.dir"), "mods", "installed.json"));
+    }
+
+    /**
+     * @return Installed mods in installation order
+     */
+    @NotNull
+    public synchronized List<InstalledMod> mods() {
+        return Collections.unmodifiableList(new ArrayList<>(mods.values()));
+    }
+
+    @Nullable
+    public synchronized InstalledMod get(@NotNull String id) {
+        return mods.get(id);
+    }
+
+    /**
+     * Adds or replaces a mod. Replaced mods move to the end of the installation order.
+     */
+    public synchronized void put(@NotNull InstalledMod mod) {
+        mods.remove(mod.id());
+        mods.put(mod.id(), mod);
+        conflicts.add(mod);
+    }
+
+    /**
+     * Records in every mod which of its changes a drift scan found gone, keeping the installation order.
+     *
+     * @param report Result of a scan of the game directory
+     * @return Ids of the mods with changes that are gone
+     */
+    @NotNull
+    public synchronized List<String> flagDrift(@NotNull DriftReport report) {
+        List<String> flagged = new ArrayList<>();
+        for (Map.Entry<String, InstalledMod> entry : mods.entrySet()) {
+            InstalledMod mod = entry.getValue();
+            List<String> undone = report.undone(mod);
+            if (!undone.isEmpty()) flagged.add(mod.id());
+            entry.setValue(new InstalledMod(mod.id(), mod.version(), mod.changed_paths(),
+                    undone.isEmpty() ? null : undone.toArray(new String[0])));
+        }
+        return flagged;
+    }
+
+    public synchronized boolean remove(@NotNull String id) {
+        conflicts.remove(id);
+        return mods.remove(id) != null;
+    }
+
+    /**
+     * Atomically replaces the registry file with the current state.
+     *
+     * @throws IOException If the registry cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            GSON.toJson(new Document(mods.values().toArray(new InstalledMod[0])), writer);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private record Document(InstalledMod[] mods) {
+    }
+}
@@ -0,0 +1,584 @@
+package dev.nelmin.java.mods;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import dev.nelmin.java.objects.IndexedMod;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory, indexed view of {@code MOD_INDEX.json}.
+ * <p>
+ * The index is streamed with a {@link JsonReader} one mod at a time, never as a whole document tree. Short
+ * strings that repeat across mods, such as tags, authors and game versions, are deduplicated while reading.
+ * Every mod gets an ordinal and inverted indexes map game versions, tags, authors and the words of names and
+ * descriptions to sorted ordinal lists. Filters are evaluated as {@link BitSet}s, so a search is a handful of
+ * bitwise ANDs; the bit sets of game versions, tags and authors are cached until they change. Words are kept
+ * sorted, so a prefix search is a range of the word index.
+ * <p>
+ * Game versions are normalized to the form used by the configuration, e.g. {@code 1.2.0.59} to {@code 12059}.
+ * All lookups are case-insensitive. {@link #revision()} increases on every change.
+ */
+public class ModCatalog {
+    private static final int MAX_INTERNED_LENGTH = 64;
+    private static final int CACHED_PREFIX_LENGTH = 2;
+    private static final int VERIFY_LIMIT = 4096;
+    private static final Gson WRITER = new GsonBuilder().disableHtmlEscaping().create();
+
+    private final List<IndexedMod> mods = new ArrayList<>();
+    private final List<String[]> words = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Map<String, Postings> byGameVersion = new HashMap<>();
+    private final Map<String, Postings> byTag = new HashMap<>();
+    private final Map<String, Postings> byAuthor = new HashMap<>();
+    private final TreeMap<String, Postings> byToken = new TreeMap<>();
+    private final Map<String, BitSet> shortPrefixes = new HashMap<>();
+    private String schema;
+    private String lastUpdate;
+    private long revision;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Loads a catalog from an index file.
+     *
+     * @param path Path of {@code MOD_INDEX.json}
+     * @return The catalog
+     * @throws IOException If the file cannot be read or is not a valid index
+     */
+    @NotNull
+    public static ModCatalog load(@NotNull Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * @return The catalog in {@code MOD_INDEX.json} of the working directory
+     * @throws IOException If the file cannot be read or is not a valid index
+     */
+    @NotNull
+    public static ModCatalog load() throws IOException {
+        return load(Path.of(System.getProperty("user.dir"), "MOD_INDEX.json"));
+    }
+
+    /**
+     * Streams a catalog from a reader. The reader is not closed.
+     *
+     * @param reader Reader positioned at the start of an index document
+     * @return The catalog
+     * @throws IOException If the document is not a valid index
+     */
+    @NotNull
+    public static ModCatalog load(@NotNull Reader reader) throws IOException {
+        ModCatalog catalog = new ModCatalog();
+        Gson gson = interningGson();
+
+        try {
+            JsonReader json = new JsonReader(reader);
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "$schema" -> catalog.schema = json.nextString();
+                    case "meta" -> {
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            if (json.nextName().equals("last_update") && json.peek() == JsonToken.STRING) {
+                                catalog.lastUpdate = json.nextString();
+                            } else {
+                                json.skipValue();
+                            }
+                        }
+                        json.endObject();
+                    }
+                    case "mods" -> {
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            IndexedMod mod = gson.fromJson(json, IndexedMod.class);
+                            if (mod != null && mod.id() != null) catalog.index(mod);
+                        }
+                        json.endArray();
+                    }
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid mod index", e);
+        }
+        return catalog;
+    }
+
+    /**
+     * Writes the catalog as an index document, through a temporary file that is forced to disk and atomically
+     * moved into place.
+     *
+     * @param path Path of {@code MOD_INDEX.json}
+     * @throws IOException If the file cannot be written
+     */
+    public void write(@NotNull Path path) throws IOException {
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Streams the catalog as an index document. The writer is not closed.
+     *
+     * @param writer Writer to write to
+     * @throws IOException If writing fails
+     */
+    public synchronized void write(@NotNull Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.setHtmlSafe(false);
+
+        json.beginObject();
+        if (schema != null) json.name("$schema").value(schema);
+        json.name("meta").beginObject().name("last_update").value(lastUpdate).endObject();
+        json.name("mods").beginArray();
+        for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) WRITER.toJson(mods.get(i), IndexedMod.class, json);
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Applies a change set atomically: readers see either none or all of it. Listeners are called afterwards.
+     *
+     * @param upserts    Added or modified mods
+     * @param removals   Ids of removed mods
+     * @param lastUpdate New {@code meta.last_update}
+     */
+    public void apply(@NotNull Collection<IndexedMod> upserts, @NotNull Collection<String> removals, @Nullable String lastUpdate) {
+        synchronized (this) {
+            for (String id : removals) remove(id);
+            for (IndexedMod mod : upserts) put(mod);
+            this.lastUpdate = lastUpdate;
+            revision++;
+        }
+        for (Runnable listener : listeners) listener.run();
+    }
+
+    /**
+     * @param listener Called on the applying thread after every {@link #apply}
+     */
+    public void addListener(@NotNull Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@NotNull Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return {@code $schema} of the index, may be null
+     */
+    @Nullable
+    public synchronized String schema() {
+        return schema;
+    }
+
+    public synchronized void schema(@Nullable String schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * @return {@code meta.last_update} of the index, may be null
+     */
+    @Nullable
+    public synchronized String lastUpdate() {
+        return lastUpdate;
+    }
+
+    public synchronized void lastUpdate(@Nullable String lastUpdate) {
+        this.lastUpdate = lastUpdate;
+        revision++;
+    }
+
+    /**
+     * @return Counter that increases whenever the catalog changes
+     */
+    public synchronized long revision() {
+        return revision;
+    }
+
+    public synchronized int size() {
+        return ordinals.size();
+    }
+
+    /**
+     * @return Ids of all mods
+     */
+    @NotNull
+    public synchronized Set<String> ids() {
+        return Set.copyOf(ordinals.keySet());
+    }
+
+    @Nullable
+    public synchronized IndexedMod get(@NotNull String id) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? null : mods.get(ordinal);
+    }
+
+    /**
+     * @return All mods in index order
+     */
+    @NotNull
+    public synchronized List<IndexedMod> mods() {
+        return collect(live);
+    }
+
+    /**
+     * Adds a mod or replaces the mod with the same id, keeping its position.
+     */
+    public synchronized void put(@NotNull IndexedMod mod) {
+        Integer ordinal = ordinals.get(mod.id());
+        if (ordinal != null) unindex(ordinal);
+        index(mod);
+    }
+
+    /**
+     * @return True if the mod was part of the catalog
+     */
+    public synchronized boolean remove(@NotNull String id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) return false;
+        unindex(ordinal);
+        mods.set(ordinal, null);
+        words.set(ordinal, null);
+        revision++;
+        return true;
+    }
+
+    /**
+     * @param gameVersion Game version, with or without dots
+     * @return Mods with at least one version compatible with the game version, in index order
+     */
+    @NotNull
+    public List<IndexedMod> compatibleWith(@NotNull String gameVersion) {
+        return search(new Query(null, gameVersion, null, null));
+    }
+
+    /**
+     * Finds all mods matching every non-null criterion of the query.
+     *
+     * @param query Criteria
+     * @return Matching mods in index order
+     */
+    @NotNull
+    public synchronized List<IndexedMod> search(@NotNull Query query) {
+        BitSet result = (BitSet) live.clone();
+        if (query.gameVersion() != null) and(result, byGameVersion.get(normalizeVersion(query.gameVersion())));
+        if (query.tag() != null) and(result, byTag.get(key(query.tag())));
+        if (query.author() != null) and(result, byAuthor.get(key(query.author())));
+
+        if (query.text() != null) {
+            for (String word : tokens(query.text())) {
+                if (result.isEmpty()) break;
+                // Checking a few candidates directly is cheaper than a union over a long range of words
+                if (result.cardinality() <= VERIFY_LIMIT) retainPrefix(result, word);
+                else result.and(prefix(word));
+            }
+        }
+        return collect(result);
+    }
+
+    /**
+     * @return All tags in the catalog, lowercase
+     */
+    @NotNull
+    public synchronized Set<String> tags() {
+        return Set.copyOf(byTag.keySet());
+    }
+
+    /**
+     * @return All authors in the catalog, lowercase
+     */
+    @NotNull
+    public synchronized Set<String> authors() {
+        return Set.copyOf(byAuthor.keySet());
+    }
+
+    /**
+     * @return All game versions mods in the catalog are compatible with, without dots
+     */
+    @NotNull
+    public synchronized Set<String> gameVersions() {
+        return Set.copyOf(byGameVersion.keySet());
+    }
+
+    /**
+     * Normalizes a game version to the form used by the configuration, e.g. {@code 1.0.8.0} to {@code 1080}.
+     */
+    @NotNull
+    public static String normalizeVersion(@NotNull String gameVersion) {
+        return gameVersion.replace(".", "").trim();
+    }
+
+    private void index(IndexedMod mod) {
+        Integer existing = ordinals.get(mod.id());
+        int ordinal;
+        Set<String> tokens = tokensOf(mod);
+        if (existing != null) {
+            ordinal = existing;
+            mods.set(ordinal, mod);
+            words.set(ordinal, tokens.toArray(new String[0]));
+        } else {
+            ordinal = mods.size();
+            mods.add(mod);
+            words.add(tokens.toArray(new String[0]));
+            ordinals.put(mod.id(), ordinal);
+        }
+        live.set(ordinal);
+
+        for (String version : gameVersionsOf(mod)) postings(byGameVersion, version).add(ordinal);
+        for (String tag : nonNull(mod.tags())) postings(byTag, key(tag)).add(ordinal);
+        for (String author : nonNull(mod.authors())) postings(byAuthor, key(author)).add(ordinal);
+        for (String token : tokens) {
+            postings(byToken, token).add(ordinal);
+            for (int length = 1; length <= Math.min(token.length(), CACHED_PREFIX_LENGTH); length++) {
+                BitSet cached = shortPrefixes.get(token.substring(0, length));
+                if (cached != null) cached.set(ordinal);
+            }
+        }
+        revision++;
+    }
+
+    private void unindex(int ordinal) {
+        IndexedMod mod = mods.get(ordinal);
+        live.clear(ordinal);
+        for (String version : gameVersionsOf(mod)) clear(byGameVersion, version, ordinal);
+        for (String tag : nonNull(mod.tags())) clear(byTag, key(tag), ordinal);
+        for (String author : nonNull(mod.authors())) clear(byAuthor, key(author), ordinal);
+        for (String token : words.get(ordinal)) clear(byToken, token, ordinal);
+        // Cached prefixes may contain this ordinal through other tokens, rebuild them on demand
+        shortPrefixes.clear();
+    }
+
+    /**
+     * Ordinals of all mods with a word starting with the prefix. Very short prefixes match large parts of the
+     * token index, so their unions are cached until the next removal.
+     */
+    private BitSet prefix(String prefix) {
+        if (prefix.length() <= CACHED_PREFIX_LENGTH) {
+            BitSet cached = shortPrefixes.get(prefix);
+            if (cached == null) {
+                cached = union(prefix);
+                shortPrefixes.put(prefix, cached);
+            }
+            return cached;
+        }
+        return union(prefix);
+    }
+
+    private void retainPrefix(BitSet result, String prefix) {
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            boolean match = false;
+            for (String word : words.get(i)) {
+                if (word.startsWith(prefix)) {
+                    match = true;
+                    break;
+                }
+            }
+            if (!match) result.clear(i);
+        }
+    }
+
+    private BitSet union(String prefix) {
+        BitSet union = new BitSet();
+        for (Postings postings : byToken.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            postings.addTo(union);
+        }
+        return union;
+    }
+
+    private List<IndexedMod> collect(BitSet ordinals) {
+        List<IndexedMod> result = new ArrayList<>(ordinals.cardinality());
+        for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) result.add(mods.get(i));
+        return Collections.unmodifiableList(result);
+    }
+
+    private static void and(BitSet result, @Nullable Postings filter) {
+        if (filter == null) result.clear();
+        else result.and(filter.bits());
+    }
+
+    private static Postings postings(Map<String, Postings> index, String key) {
+        return index.computeIfAbsent(key, ignored -> new Postings());
+    }
+
+    private static void clear(Map<String, Postings> index, String key, int ordinal) {
+        Postings postings = index.get(key);
+        if (postings == null) return;
+        postings.remove(ordinal);
+        if (postings.isEmpty()) index.remove(key);
+    }
+
+    private static Set<String> gameVersionsOf(IndexedMod mod) {
+        Set<String> versions = new LinkedHashSet<>();
+        for (IndexedMod.Version version : nonNull(mod.versions())) {
+            if (version == null || version.compatibility() == null) continue;
+            for (String gameVersion : nonNull(version.compatibility().game_versions())) {
+                versions.add(normalizeVersion(gameVersion));
+            }
+        }
+        return versions;
+    }
+
+    private static Set<String> tokensOf(IndexedMod mod) {
+        Set<String> tokens = new LinkedHashSet<>(tokens(mod.name()));
+        tokens.addAll(tokens(mod.description()));
+        return tokens;
+    }
+
+    private static List<String> tokens(@Nullable String text) {
+        if (text == null || text.isEmpty()) return List.of();
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) start = i;
+            if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static String key(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> nonNull(@Nullable String[] values) {
+        if (values == null) return List.of();
+        return Arrays.stream(values).filter(value -> value != null && !value.isBlank()).toList();
+    }
+
+    private static List<IndexedMod.Version> nonNull(@Nullable IndexedMod.Version[] values) {
+        return values == null ? List.of() : Arrays.asList(values);
+    }
+
+    /**
+     * Gson instance that deduplicates short strings of one load, so the many copies of the same tag, author
+     * or game version share one instance.
+     */
+    static Gson interningGson() {
+        Map<String, String> pool = new HashMap<>();
+        return new GsonBuilder().registerTypeAdapter(String.class, new TypeAdapter<String>() {
+            @Override
+            public void write(JsonWriter out, String value) throws IOException {
+                out.value(value);
+            }
+
+            @Override
+            public String read(JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                String value = in.nextString();
+                if (value.length() > MAX_INTERNED_LENGTH) return value;
+                String pooled = pool.putIfAbsent(value, value);
+                return pooled == null ? value : pooled;
+            }
+        }).create();
+    }
+
+    /**
+     * Sorted list of ordinals. Most words appear in only a few mods, so lists are far smaller than bit sets
+     * over the whole catalog; the bit set is built only when the list is used as a filter.
+     */
+    private static final class Postings {
+        private int[] ordinals = new int[2];
+        private int size;
+        private BitSet bits;
+
+        void add(int ordinal) {
+            int index = size > 0 && ordinals[size - 1] < ordinal ? size : Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index >= 0 && index < size) return;
+            int insert = index >= 0 ? index : -index - 1;
+
+            if (size == ordinals.length) ordinals = Arrays.copyOf(ordinals, size * 2);
+            System.arraycopy(ordinals, insert, ordinals, insert + 1, size - insert);
+            ordinals[insert] = ordinal;
+            size++;
+            if (bits != null) bits.set(ordinal);
+        }
+
+        void remove(int ordinal) {
+            int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index < 0) return;
+            System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+            size--;
+            if (bits != null) bits.clear(ordinal);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void addTo(BitSet target) {
+            for (int i = 0; i < size; i++) target.set(ordinals[i]);
+        }
+
+        BitSet bits() {
+            if (bits == null) {
+                bits = new BitSet();
+                addTo(bits);
+            }
+            return bits;
+        }
+    }
+
+    /**
+     * Search criteria. Null criteria are ignored.
+     *
+     * @param text        Words that must all appear in the name or description, each as a prefix of a word
+     * @param gameVersion Game version, with or without dots
+     * @param tag         Tag
+     * @param author      Author
+     */
+    public record Query(
+            @Nullable String text,
+            @Nullable String gameVersion,
+            @Nullable String tag,
+            @Nullable String author
+    ) {
+    }
+}
@@ -0,0 +1,557 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.MTIV;
+import dev.nelmin.java.application.TaskScheduler;
+import dev.nelmin.java.fs.backup.BackupStore;
+import dev.nelmin.java.fs.backup.EntryBackup;
+import dev.nelmin.java.fs.files.IMGFile;
+import dev.nelmin.java.fs.files.IMGWriter;
+import dev.nelmin.java.fs.files.NDFile;
+import dev.nelmin.java.fs.files.RPFFile;
+import dev.nelmin.java.fs.files.RPFWriter;
+import dev.nelmin.java.objects.InstalledMod;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Installs mods into the game directory as a transaction.
+ * <p>
+ * An installation runs in three phases, each recorded in an {@link InstallJournal} before it starts:
+ * <ol>
+ *     <li>{@code PREPARING}: originals are backed up ({@link BackupStore} for whole files, {@link EntryBackup}
+ *     for archive entries) and new files are copied next to their targets by a bounded worker pool.</li>
+ *     <li>{@code APPLYING}: staged files are renamed over their targets and archive entries are written. Each
+ *     operation is marked in the journal once it touched its target.</li>
+ *     <li>{@code COMMITTED}: {@code installed.json} was atomically replaced; the journal is deleted.</li>
+ * </ol>
+ * {@link #recover()} must run before the next installation. It discards staged files of an installation
+ * that was still preparing, rolls the applied operations of an interrupted apply back from the backups and
+ * finishes the cleanup of a committed one.
+ * <p>
+ * Folders named like an existing archive, e.g. {@code files/pc/models/cdimages/vehicles.img/}, are
+ * installed into that archive instead of being copied. Mods are read through a {@link ModSource}, so packed
+ * mods are streamed into the game directory without being unpacked first.
+ */
+@Accessors(fluent = true)
+public class ModInstaller {
+    public static final String STAGED_SUFFIX = ".mtiv-new";
+    private static final String FILES = "files";
+
+    @Getter
+    private final Path gameDirectory;
+    private final InstalledMods registry;
+    private final BackupStore backups;
+    private final EntryBackup entryBackups;
+    private final Path journalPath;
+    private final int workers;
+    private final byte[] rpfKey;
+
+    /**
+     * @param gameDirectory Game directory mods are installed into
+     * @param registry      Registry of installed mods
+     * @param workers       Maximum number of files copied or backed up at the same time
+     * @param rpfKey        Key for encrypted RPF tables of contents, may be null
+     */
+    public ModInstaller(@NotNull Path gameDirectory, @NotNull InstalledMods registry, int workers, byte @Nullable [] rpfKey) {
+        this.gameDirectory = gameDirectory;
+        this.registry = registry;
+        this.backups = new BackupStore(gameDirectory.resolve("MTIV-Backups"));
+        this.entryBackups = new EntryBackup(gameDirectory.resolve("MTIV-Backups").resolve("entries"));
+        this.journalPath = gameDirectory.resolve("MTIV-Journal.json");
+        this.workers = Math.max(1, workers);
+        this.rpfKey = rpfKey == null ? null : rpfKey.clone();
+    }
+
+    /**
+     * @return An installer for the configured game directory and RPF key, or null if no directory is configured
+     * @throws IOException If the registry cannot be read
+     */
+    @Nullable
+    public static ModInstaller ofGameDirectory() throws IOException {
+        Path gameDirectory = NDFile.pathOf("");
+        if (gameDirectory == null) return null;
+        return new ModInstaller(gameDirectory, InstalledMods.load(), Runtime.getRuntime().availableProcessors(),
+                MTIV.game().rpfKey());
+    }
+
+    /**
+     * Installs a mod using the version from its {@code nd-mt.iv.json}.
+     *
+     * @param modId  Mod id
+     * @param source Mod folder or archive
+     * @return The registry entry that was written
+     * @throws IOException           If the installation fails. The game directory is rolled back before this is thrown.
+     * @throws IllegalStateException If the mod is already installed
+     */
+    @NotNull
+    public InstalledMod install(@NotNull String modId, @NotNull ModSource source) throws IOException {
+        return install(modId, source.manifest().version(), source);
+    }
+
+    /**
+     * Installs a mod straight from its folder or archive. Files are streamed from the source into their staged
+     * targets and archive entries into the game archives, without unpacking the mod first.
+     *
+     * @param modId   Mod id
+     * @param version Mod version
+     * @param source  Mod folder or archive
+     * @return The registry entry that was written
+     * @throws IOException           If the installation fails. The game directory is rolled back before this is thrown.
+     * @throws IllegalStateException If the mod is already installed
+     */
+    @NotNull
+    public InstalledMod install(@NotNull String modId, @NotNull String version, @NotNull ModSource source) throws IOException {
+        Map<String, ModSource.ModFile> files = new LinkedHashMap<>();
+        for (ModSource.ModFile file : source.files()) files.put(file.path(), file);
+        return install(modId, version, source, files, false);
+    }
+
+    /**
+     * Installs a mod as a Fusion Overloader patch: its files, archive entries included, are added below
+     * {@code update/} instead of changing game files and archives, see {@link FusionOverlay}. Files of an
+     * unpacked mod are hard linked where the file system allows it and copied otherwise.
+     * <p>
+     * The overlay is registered like any other installation, so {@link #uninstall} removes it again.
+     *
+     * @param modId   Mod id
+     * @param version Mod version
+     * @param source  Mod folder or archive
+     * @return The registry entry that was written
+     * @throws IOException           If the installation fails. The game directory is rolled back before this is thrown.
+     * @throws IllegalStateException If the mod is already installed
+     */
+    @NotNull
+    public InstalledMod installOverlay(@NotNull String modId, @NotNull String version, @NotNull ModSource source) throws IOException {
+        return install(modId, version, source, planOverlay(source).files(), true);
+    }
+
+    /**
+     * @param source Mod folder or archive
+     * @return Where {@link #installOverlay} would put the files of the mod, and which installed mods it affects
+     */
+    @NotNull
+    public FusionOverlay.Plan planOverlay(@NotNull ModSource source) {
+        return FusionOverlay.plan(source, registry.conflicts());
+    }
+
+    /**
+     * @param files   Mod file by target path relative to the game directory
+     * @param overlay Whether the files form an overlay: they are added as files even below a folder named like
+     *                an archive, and files of an unpacked mod may be hard linked into place
+     */
+    private InstalledMod install(String modId, String version, ModSource source, Map<String, ModSource.ModFile> files,
+                                 boolean overlay) throws IOException {
+        recover();
+        if (registry.get(modId) != null) {
+            throw new IllegalStateException("Mod " + modId + " is already installed, uninstall it first");
+        }
+
+        InstallJournal journal = plan(modId, version, files, overlay);
+        journal.write(journalPath);
+        try {
+            prepare(journal, source, files, overlay);
+        } catch (IOException | RuntimeException e) {
+            discard(journal);
+            throw e;
+        }
+
+        journal = journal.withState(InstallJournal.State.APPLYING);
+        journal.write(journalPath);
+        for (int i = 0; i < journal.operations().length; i++) {
+            try {
+                journal = apply(journal, i, source, files);
+            } catch (IOException | RuntimeException e) {
+                undo(journal, e);
+                throw e;
+            }
+        }
+
+        InstalledMod installed = toInstalledMod(journal);
+        registry.put(installed);
+        try {
+            registry.save();
+        } catch (IOException | RuntimeException e) {
+            // Not on disk, so not installed; recover() would otherwise find it registered and keep the changes
+            registry.remove(modId);
+            undo(journal, e);
+            throw e;
+        }
+        journal.withState(InstallJournal.State.COMMITTED).write(journalPath);
+        Files.deleteIfExists(journalPath);
+        return installed;
+    }
+
+    /**
+     * Brings the game directory back into a consistent state after a crash during {@link #install}.
+     *
+     * @return True if an interrupted installation was found
+     * @throws IOException If the recovery fails; the journal is kept so it can be retried
+     */
+    public boolean recover() throws IOException {
+        InstallJournal journal = InstallJournal.read(journalPath);
+        if (journal == null) return false;
+
+        switch (journal.state()) {
+            case PREPARING -> discard(journal);
+            case APPLYING -> {
+                // The registry is saved before the journal is marked committed
+                if (!registered(journal)) rollback(journal);
+            }
+            case COMMITTED -> {
+                // Roll forward: make sure the registry reached the disk
+                if (!registered(journal)) {
+                    registry.put(toInstalledMod(journal));
+                    registry.save();
+                }
+            }
+        }
+        Files.deleteIfExists(journalPath);
+        return true;
+    }
+
+    /**
+     * Restores everything a mod changed from its backups and removes it from the registry.
+     *
+     * @param modId Mod id
+     * @return True if the mod was installed
+     * @throws IOException           If a backup cannot be restored
+     * @throws IllegalStateException If mods installed later changed the same files; restoring the backups would
+     *                               undo their changes
+     */
+    public boolean uninstall(@NotNull String modId) throws IOException {
+        recover();
+        InstalledMod installed = registry.get(modId);
+        if (installed == null) return false;
+
+        List<String> overriding = registry.conflicts().overriding(modId);
+        if (!overriding.isEmpty()) {
+            throw new IllegalStateException("Mod " + modId + " is overridden by " + String.join(", ", overriding) + ", uninstall them first");
+        }
+
+        InstallJournal.Operation[] operations = new InstallJournal.Operation[installed.changed_paths().length];
+        for (int i = 0; i < operations.length; i++) {
+            InstalledMod.ChangedPath changed = installed.changed_paths()[i];
+            operations[i] = new InstallJournal.Operation(
+                    changed.path(),
+                    changed.entries() != null,
+                    changed.backup_ver() != null,
+                    changed.backup_ver(),
+                    changed.entries(),
+                    true
+            );
+        }
+
+        rollback(new InstallJournal(UUID.randomUUID().toString(), modId, installed.version(), InstallJournal.State.APPLYING, operations));
+        registry.remove(modId);
+        registry.save();
+        return true;
+    }
+
+    /**
+     * @param overlay Whether to add every file as it is; otherwise files below a folder named like an archive
+     *                of the game become entries of that archive
+     */
+    private InstallJournal plan(String modId, String version, Map<String, ModSource.ModFile> files, boolean overlay) {
+        Map<String, List<String>> archives = new LinkedHashMap<>();
+        List<InstallJournal.Operation> operations = new ArrayList<>();
+
+        for (String relative : files.keySet()) {
+            // Overlay folders named like archives are read by the overloader, nothing is written into an archive
+            String archive = overlay ? null : archiveOf(relative);
+            if (archive != null) {
+                archives.computeIfAbsent(archive, key -> new ArrayList<>()).add(relative.substring(archive.length() + 1));
+                continue;
+            }
+
+            boolean existed = Files.exists(gameDirectory.resolve(relative));
+            operations.add(new InstallJournal.Operation(
+                    relative,
+                    false,
+                    existed,
+                    existed ? backupVersion(relative, modId) : null,
+                    null,
+                    false
+            ));
+        }
+
+        for (Map.Entry<String, List<String>> archive : archives.entrySet()) {
+            operations.add(new InstallJournal.Operation(
+                    archive.getKey(),
+                    true,
+                    true,
+                    backupVersion(archive.getKey(), modId),
+                    archive.getValue().toArray(new String[0]),
+                    false
+            ));
+        }
+
+        return new InstallJournal(UUID.randomUUID().toString(), modId, version, InstallJournal.State.PREPARING, operations.toArray(new InstallJournal.Operation[0]));
+    }
+
+    private void prepare(InstallJournal journal, ModSource source, Map<String, ModSource.ModFile> files, boolean link) throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        List<Callable<Void>> staging = new ArrayList<>();
+        for (InstallJournal.Operation operation : journal.operations()) {
+            Path target = gameDirectory.resolve(operation.path());
+            if (operation.archive()) {
+                tasks.add(() -> {
+                    if (isImg(operation.path())) {
+                        try (IMGFile archive = new IMGFile(target)) {
+                            entryBackups.backup(archive, operation.backup_ver(), List.of(operation.entries()));
+                        }
+                    } else {
+                        try (RPFFile archive = new RPFFile(target, rpfKey)) {
+                            entryBackups.backup(archive, operation.backup_ver(), List.of(operation.entries()));
+                        }
+                    }
+                    return null;
+                });
+                continue;
+            }
+
+            if (operation.existed()) {
+                tasks.add(() -> {
+                    backups.backup(target, operation.backup_ver());
+                    return null;
+                });
+            }
+            staging.add(() -> {
+                Path staged = staged(target);
+                Files.createDirectories(target.getParent());
+                ModSource.ModFile file = files.get(operation.path());
+                if (link && link(source.localPath(file), operation.path(), staged)) return null;
+                try (InputStream in = source.open(file)) {
+                    Files.copy(in, staged, StandardCopyOption.REPLACE_EXISTING);
+                }
+                try (FileChannel channel = FileChannel.open(staged, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                return null;
+            });
+        }
+
+        if (source.randomAccess()) {
+            tasks.addAll(staging);
+        } else {
+            // Streamed sources stage everything in one forward pass, in storage order. The archive writers read
+            // entries in table order, so these are spooled in a second pass instead of seeking back per entry.
+            List<ModSource.ModFile> entries = new ArrayList<>();
+            for (InstallJournal.Operation operation : journal.operations()) {
+                if (!operation.archive()) continue;
+                for (String entry : operation.entries()) entries.add(files.get(operation.path() + "/" + entry));
+            }
+            tasks.add(() -> {
+                for (Callable<Void> task : staging) task.call();
+                source.spool(entries);
+                return null;
+            });
+        }
+        runAll(tasks);
+    }
+
+    /**
+     * Applies one operation.
+     *
+     * @param index Index of the operation in the journal
+     * @return The journal with the operation marked as applied
+     */
+    private InstallJournal apply(InstallJournal journal, int index, ModSource source, Map<String, ModSource.ModFile> files) throws IOException {
+        InstallJournal.Operation operation = journal.operations()[index];
+        Path target = gameDirectory.resolve(operation.path());
+        if (!operation.archive()) {
+            // A crash before the journal is written again is detected by the missing staged file
+            Files.move(staged(target), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return journal.withApplied(index);
+        }
+
+        // A partially written archive has to be restored, so it is marked before it is touched
+        journal = journal.withApplied(index);
+        journal.write(journalPath);
+        if (isImg(operation.path())) {
+            try (IMGFile archive = new IMGFile(target)) {
+                IMGWriter writer = new IMGWriter(archive);
+                for (String entry : operation.entries()) {
+                    writer.put(entry, source.entrySource(files.get(operation.path() + "/" + entry)));
+                }
+                writer.commit();
+            }
+        } else {
+            try (RPFFile archive = new RPFFile(target, rpfKey)) {
+                RPFWriter writer = new RPFWriter(archive);
+                for (String entry : operation.entries()) {
+                    writer.put(entry, source.entrySource(files.get(operation.path() + "/" + entry)));
+                }
+                writer.commit();
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * Undoes a failed prepare phase. The game directory was not modified, only staged files and backups exist.
+     */
+    private void discard(InstallJournal journal) throws IOException {
+        for (InstallJournal.Operation operation : journal.operations()) {
+            if (operation.archive()) {
+                entryBackups.delete(operation.backup_ver());
+            } else {
+                Files.deleteIfExists(staged(gameDirectory.resolve(operation.path())));
+                if (operation.backup_ver() != null) backups.delete(operation.backup_ver());
+            }
+        }
+    }
+
+    /**
+     * Rolls back a failed apply phase and deletes the journal. Restoring deletes the backups, so a journal that
+     * was rolled back must not be rolled back again by {@link #recover}. If the rollback fails, the journal is
+     * kept for {@link #recover} to retry.
+     *
+     * @param cause Failure of the apply phase, receives a failure of the rollback as suppressed exception
+     */
+    private void undo(InstallJournal journal, Exception cause) {
+        try {
+            rollback(journal);
+            Files.deleteIfExists(journalPath);
+        } catch (IOException | RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Restores every applied target of an interrupted apply phase from its backup and removes added files.
+     * Backups and staged files of operations that were never applied are discarded.
+     */
+    private void rollback(InstallJournal journal) throws IOException {
+        for (InstallJournal.Operation operation : journal.operations()) {
+            Path target = gameDirectory.resolve(operation.path());
+            if (operation.archive()) {
+                if (operation.applied() && isImg(operation.path())) {
+                    try (IMGFile archive = new IMGFile(target)) {
+                        entryBackups.restore(operation.backup_ver(), archive);
+                    }
+                } else if (operation.applied()) {
+                    try (RPFFile archive = new RPFFile(target, rpfKey)) {
+                        entryBackups.restore(operation.backup_ver(), archive);
+                    }
+                }
+                entryBackups.delete(operation.backup_ver());
+                continue;
+            }
+
+            if (!operation.applied() && Files.deleteIfExists(staged(target))) {
+                if (operation.backup_ver() != null) backups.delete(operation.backup_ver());
+                continue;
+            }
+            if (operation.existed()) {
+                backups.restore(operation.backup_ver(), target);
+                backups.delete(operation.backup_ver());
+            } else {
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+
+    private void runAll(List<Callable<Void>> tasks) throws IOException {
+        try {
+            TaskScheduler.shared().runAll("install-files", TaskScheduler.Category.DISK_IO, workers, tasks);
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Installation interrupted", e);
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private boolean registered(InstallJournal journal) {
+        InstalledMod installed = registry.get(journal.mod_id());
+        if (installed == null || !journal.version().equals(installed.version())) return false;
+        if (installed.changed_paths().length != journal.operations().length) return false;
+
+        for (int i = 0; i < journal.operations().length; i++) {
+            if (!journal.operations()[i].path().equals(installed.changed_paths()[i].path())) return false;
+        }
+        return true;
+    }
+
+    private InstalledMod toInstalledMod(InstallJournal journal) {
+        InstalledMod.ChangedPath[] changed = new InstalledMod.ChangedPath[journal.operations().length];
+        for (int i = 0; i < changed.length; i++) {
+            InstallJournal.Operation operation = journal.operations()[i];
+            changed[i] = new InstalledMod.ChangedPath(operation.path(), operation.backup_ver(), operation.entries());
+        }
+        return new InstalledMod(journal.mod_id(), journal.version(), changed, null);
+    }
+
+    /**
+     * Returns the archive prefix of a mod path if one of its folders is named like an existing IMG/RPF file.
+     */
+    @Nullable
+    private String archiveOf(String relative) {
+        int start = 0;
+        int slash;
+        while ((slash = relative.indexOf('/', start)) >= 0) {
+            String prefix = relative.substring(0, slash);
+            String lower = prefix.toLowerCase(Locale.ROOT);
+            if ((lower.endsWith(".img") || lower.endsWith(".rpf")) && Files.isRegularFile(gameDirectory.resolve(prefix))) {
+                return prefix;
+            }
+            start = slash + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Hard links a mod file to its staged target. Archives are never linked: entries are later written into
+     * them in place, which would change the mod's file as well.
+     *
+     * @return False if the file has to be copied instead
+     */
+    private static boolean link(@Nullable Path file, String path, Path staged) throws IOException {
+        if (file == null || isArchive(path)) return false;
+        Files.deleteIfExists(staged);
+        try {
+            Files.createLink(staged, file);
+            return true;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // Other volume or no hard links on this file system
+            return false;
+        }
+    }
+
+    private static boolean isArchive(String path) {
+        String lower = path.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".img") || lower.endsWith(".rpf");
+    }
+
+    private static boolean isImg(String path) {
+        return path.toLowerCase(Locale.ROOT).endsWith(".img");
+    }
+
+    private static Path staged(Path target) {
+        return target.resolveSibling(target.getFileName() + STAGED_SUFFIX);
+    }
+
+    private static String backupVersion(String relative, String modId) {
+        return relative.replace('/', '~') + "-before-" + modId;
+    }
+}
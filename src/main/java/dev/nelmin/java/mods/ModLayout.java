@@ -0,0 +1,90 @@
+package dev.nelmin.java.mods;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import dev.nelmin.java.objects.ModManifest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Layout rules shared by the {@link ModSource} implementations.
+ */
+final class ModLayout {
+    static final String MANIFEST = "nd-mt.iv.json";
+    static final String FILES = "files/";
+    private static final Gson GSON = new Gson();
+
+    private ModLayout() {
+    }
+
+    /**
+     * Finds the folder the mod is packed in: the archive root, or a single top-level folder.
+     *
+     * @param names Entry names of the source, separated by {@code /}
+     * @return Prefix of the mod root, empty or ending with {@code /}
+     * @throws IOException If there is no {@code nd-mt.iv.json}
+     */
+    @NotNull
+    static String root(@NotNull Collection<String> names) throws IOException {
+        String nested = null;
+        for (String name : names) {
+            if (name.equals(MANIFEST)) return "";
+            int slash = name.indexOf('/');
+            if (nested == null && slash > 0 && name.endsWith("/" + MANIFEST) && slash == name.length() - MANIFEST.length() - 1) {
+                nested = name.substring(0, slash + 1);
+            }
+        }
+        if (nested == null) throw new IOException("Not a mod: " + MANIFEST + " is missing");
+        return nested;
+    }
+
+    /**
+     * @param root Mod root returned by {@link #root(Collection)}
+     * @param name Entry name of the source
+     * @return Path of the entry relative to {@code files/}, or null if the entry is not below {@code files/}
+     * @throws IOException If the path escapes the mod
+     */
+    @Nullable
+    static String relative(@NotNull String root, @NotNull String name) throws IOException {
+        if (!name.startsWith(root + FILES)) return null;
+        String relative = name.substring(root.length() + FILES.length());
+        if (relative.isEmpty() || relative.endsWith("/")) return null;
+
+        for (String part : relative.split("/", -1)) {
+            if (part.isEmpty() || part.equals(".") || part.equals("..") || part.contains(":")) {
+                throw new IOException("Illegal path in mod: " + name);
+            }
+        }
+        return relative;
+    }
+
+    /**
+     * Normalizes an entry name to {@code /} separators without a leading slash.
+     */
+    @NotNull
+    static String normalize(@NotNull String name) {
+        String normalized = name.replace('\\', '/');
+        while (normalized.startsWith("/") || normalized.startsWith("./")) {
+            normalized = normalized.substring(normalized.startsWith("/") ? 1 : 2);
+        }
+        return normalized;
+    }
+
+    @NotNull
+    static ModManifest manifest(@NotNull InputStream in) throws IOException {
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            ModManifest manifest = GSON.fromJson(reader, ModManifest.class);
+            if (manifest == null) throw new IOException(MANIFEST + " is empty");
+            return manifest;
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid " + MANIFEST, e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.fs.files.EntrySource;
+import dev.nelmin.java.objects.ModManifest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A mod as it is distributed: a folder, a zip or a tar.gz archive containing {@code nd-mt.iv.json},
+ * {@code infos/} and {@code files/}.
+ * <p>
+ * Sources are read in place. {@code nd-mt.iv.json} and the listing of {@code files/} are read when the source
+ * is opened, the contents of a file only when {@link #open(ModFile)} is called, so installing a packed mod
+ * never unpacks it to a temporary folder first. A mod may also be packed inside a single top-level folder.
+ */
+public sealed interface ModSource extends Closeable permits DirectoryModSource, ZipModSource, TarGzModSource {
+    /**
+     * Opens a mod folder, {@code .zip}, {@code .tar.gz} or {@code .tgz} file.
+     *
+     * @param path Mod folder or archive
+     * @return The source
+     * @throws IOException If the mod cannot be read, has no {@code nd-mt.iv.json} or is not a supported archive
+     */
+    @NotNull
+    static ModSource open(@NotNull Path path) throws IOException {
+        if (Files.isDirectory(path)) return new DirectoryModSource(path);
+
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".zip")) return new ZipModSource(path);
+        if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) return new TarGzModSource(path);
+        throw new IOException("Unsupported mod archive: " + path);
+    }
+
+    /**
+     * @return The parsed {@code nd-mt.iv.json}
+     */
+    @NotNull
+    ModManifest manifest();
+
+    /**
+     * @return Files below {@code files/}, in the order they are stored in the source
+     */
+    @NotNull
+    List<ModFile> files();
+
+    /**
+     * Opens a file for reading. The caller closes the stream.
+     * <p>
+     * Sources without {@link #randomAccess()} only support one open stream at a time; opening another file
+     * invalidates the previous stream, and opening files out of storage order rereads the archive.
+     *
+     * @param file One of {@link #files()}
+     * @return Stream over exactly {@link ModFile#size()} bytes
+     * @throws IOException If the file cannot be read
+     */
+    @NotNull
+    InputStream open(@NotNull ModFile file) throws IOException;
+
+    /**
+     * @return True if files can be opened in any order and from several threads at once
+     */
+    boolean randomAccess();
+
+    /**
+     * Prepares files that are about to be opened out of storage order. Sources without {@link #randomAccess()}
+     * copy them to temporary files in one forward pass, so opening them later does not reread the archive.
+     *
+     * @param files Files of this source, in any order
+     * @throws IOException If the files cannot be read or copied
+     */
+    default void spool(@NotNull Collection<ModFile> files) throws IOException {
+        // Random access sources open any file directly
+    }
+
+    /**
+     * @param file One of {@link #files()}
+     * @return The file on disk if the source is unpacked, so it can be linked instead of copied; otherwise null
+     */
+    @Nullable
+    default Path localPath(@NotNull ModFile file) {
+        return null;
+    }
+
+    /**
+     * Creates a source for {@link dev.nelmin.java.fs.files.IMGWriter} or
+     * {@link dev.nelmin.java.fs.files.RPFWriter} that opens the file only when the writer copies it, so the data
+     * goes straight from the mod into the game archive.
+     *
+     * @param file One of {@link #files()}
+     * @return The source
+     */
+    @NotNull
+    default EntrySource entrySource(@NotNull ModFile file) {
+        return new EntrySource() {
+            @Override
+            public long size() {
+                return file.size();
+            }
+
+            @Override
+            public void writeTo(@NotNull FileChannel channel, long position) throws IOException {
+                try (InputStream in = open(file)) {
+                    EntrySource.of(in, file.size()).writeTo(channel, position);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param path Path relative to {@code files/}, separated by {@code /}
+     * @param size Uncompressed size in bytes
+     */
+    record ModFile(String path, long size) {
+    }
+}
@@ -0,0 +1,323 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.objects.ModManifest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A tar.gz packed mod.
+ * <p>
+ * Gzip cannot seek, so opening the source makes one pass over the tar headers, skipping the data, to list
+ * the mod and pick up {@code nd-mt.iv.json}. Files are then streamed from a second pass that only moves
+ * forward: opening files in storage order decompresses the archive once, opening an earlier file starts over.
+ * Files needed in another order, like the entries archive writers copy, are {@linkplain #spool spooled} to
+ * temporary files in one pass first. Supports ustar, GNU long names and pax {@code path}/{@code size} records.
+ */
+final class TarGzModSource implements ModSource {
+    private static final int BLOCK = 512;
+    private static final int MAX_MANIFEST = 1 << 20;
+
+    private final Path path;
+    private final ModManifest manifest;
+    private final List<ModFile> listing;
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    /**
+     * Temporary copy by file path, see {@link #spool}
+     */
+    private final Map<String, Path> spooled = new HashMap<>();
+    private TarReader reader;
+    private Path spoolDirectory;
+
+    TarGzModSource(Path path) throws IOException {
+        this.path = path;
+
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        Map<String, Integer> positions = new HashMap<>();
+        Map<String, byte[]> manifests = new HashMap<>();
+        try (TarReader scan = new TarReader(path)) {
+            Header header;
+            while ((header = scan.next()) != null) {
+                String name = ModLayout.normalize(header.name);
+                if (sizes.putIfAbsent(name, header.size) != null) continue;
+                positions.put(name, scan.ordinal);
+                if (name.endsWith(ModLayout.MANIFEST) && header.size <= MAX_MANIFEST) {
+                    manifests.put(name, scan.data().readAllBytes());
+                }
+            }
+        }
+
+        String root = ModLayout.root(sizes.keySet());
+        byte[] manifest = manifests.get(root + ModLayout.MANIFEST);
+        if (manifest == null) throw new IOException(ModLayout.MANIFEST + " is too large");
+        this.manifest = ModLayout.manifest(new ByteArrayInputStream(manifest));
+
+        List<ModFile> listing = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : sizes.entrySet()) {
+            String relative = ModLayout.relative(root, entry.getKey());
+            if (relative == null) continue;
+            listing.add(new ModFile(relative, entry.getValue()));
+            ordinals.put(relative, positions.get(entry.getKey()));
+        }
+        this.listing = List.copyOf(listing);
+    }
+
+    @Override
+    public @NotNull ModManifest manifest() {
+        return manifest;
+    }
+
+    @Override
+    public @NotNull List<ModFile> files() {
+        return listing;
+    }
+
+    @Override
+    public synchronized @NotNull InputStream open(@NotNull ModFile file) throws IOException {
+        Path copy = spooled.get(file.path());
+        if (copy != null) return Files.newInputStream(copy);
+        return seek(ordinal(file));
+    }
+
+    @Override
+    public synchronized void spool(@NotNull Collection<ModFile> files) throws IOException {
+        List<ModFile> pending = new ArrayList<>();
+        for (ModFile file : files) {
+            ordinal(file);
+            if (!spooled.containsKey(file.path())) pending.add(file);
+        }
+        if (pending.isEmpty()) return;
+        pending.sort(Comparator.comparingInt(file -> ordinals.get(file.path())));
+
+        if (spoolDirectory == null) spoolDirectory = Files.createTempDirectory("mtiv-spool");
+        for (ModFile file : pending) {
+            Path copy = spoolDirectory.resolve(spooled.size() + ".tmp");
+            try (InputStream in = seek(ordinal(file))) {
+                Files.copy(in, copy);
+            }
+            spooled.put(file.path(), copy);
+        }
+    }
+
+    @Override
+    public boolean randomAccess() {
+        return false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (reader != null) reader.close();
+        reader = null;
+
+        if (spoolDirectory != null) {
+            try (Stream<Path> copies = Files.list(spoolDirectory)) {
+                for (Path copy : copies.toList()) Files.deleteIfExists(copy);
+            }
+            Files.deleteIfExists(spoolDirectory);
+            spoolDirectory = null;
+            spooled.clear();
+        }
+    }
+
+    private int ordinal(ModFile file) throws IOException {
+        Integer ordinal = ordinals.get(file.path());
+        if (ordinal == null) throw new IOException("Not part of the mod: " + file.path());
+        return ordinal;
+    }
+
+    /**
+     * Moves the reader to a file, starting over if it already passed it.
+     */
+    private InputStream seek(int ordinal) throws IOException {
+        if (reader == null || reader.ordinal >= ordinal) {
+            if (reader != null) reader.close();
+            reader = new TarReader(path);
+        }
+        while (reader.ordinal < ordinal) {
+            if (reader.next() == null) throw new EOFException("Archive changed while installing: " + path);
+        }
+        return reader.data();
+    }
+
+    private record Header(String name, long size) {
+    }
+
+    /**
+     * Forward-only reader over the regular files of a tar.gz archive.
+     */
+    private static final class TarReader implements AutoCloseable {
+        private final InputStream in;
+        private final byte[] block = new byte[BLOCK];
+        /**
+         * Index of the current regular file, -1 before the first one.
+         */
+        private int ordinal = -1;
+        private long remaining;
+        private long padding;
+
+        TarReader(Path path) throws IOException {
+            this.in = new GZIPInputStream(Files.newInputStream(path), 1 << 16);
+        }
+
+        /**
+         * Skips the rest of the current file and reads the header of the next regular file.
+         *
+         * @return The header, or null at the end of the archive
+         */
+        @Nullable
+        Header next() throws IOException {
+            String longName = null;
+            long paxSize = -1;
+
+            while (true) {
+                in.skipNBytes(remaining + padding);
+                remaining = padding = 0;
+
+                if (!readBlock()) return null;
+                if (isZero(block)) return null;
+
+                long size = size(block);
+                byte type = block[156];
+                remaining = size;
+                padding = (BLOCK - size % BLOCK) % BLOCK;
+
+                if (type == 'L') {
+                    longName = trim(readData(size));
+                    continue;
+                }
+                if (type == 'x') {
+                    for (String record : new String(readData(size), StandardCharsets.UTF_8).split("\n")) {
+                        int space = record.indexOf(' ');
+                        int equals = record.indexOf('=');
+                        if (space < 0 || equals < space) continue;
+                        String key = record.substring(space + 1, equals);
+                        String value = record.substring(equals + 1);
+                        if (key.equals("path")) longName = value;
+                        else if (key.equals("size")) paxSize = Long.parseLong(value);
+                    }
+                    continue;
+                }
+                if (type != '0' && type != 0 && type != '7') {
+                    longName = null;
+                    paxSize = -1;
+                    continue;
+                }
+
+                if (paxSize >= 0) {
+                    remaining = paxSize;
+                    padding = (BLOCK - paxSize % BLOCK) % BLOCK;
+                }
+                ordinal++;
+                return new Header(longName != null ? longName : name(block), remaining);
+            }
+        }
+
+        /**
+         * @return Stream over the rest of the current file. Closing it does not close the archive.
+         */
+        @NotNull
+        InputStream data() {
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    if (remaining <= 0) return -1;
+                    int value = in.read();
+                    if (value < 0) throw new EOFException("Truncated tar entry");
+                    remaining--;
+                    return value;
+                }
+
+                @Override
+                public int read(byte @NotNull [] buffer, int offset, int length) throws IOException {
+                    if (length == 0) return 0;
+                    if (remaining <= 0) return -1;
+                    int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+                    if (read < 0) throw new EOFException("Truncated tar entry");
+                    remaining -= read;
+                    return read;
+                }
+
+                @Override
+                public void close() {
+                    // The archive stays open for the next file
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private byte[] readData(long size) throws IOException {
+            if (size > MAX_MANIFEST) throw new IOException("Tar extension header too large");
+            byte[] data = in.readNBytes((int) size);
+            if (data.length != size) throw new EOFException("Truncated tar header");
+            remaining = 0;
+            return data;
+        }
+
+        private boolean readBlock() throws IOException {
+            int read = in.readNBytes(block, 0, BLOCK);
+            if (read == 0) return false;
+            if (read != BLOCK) throw new EOFException("Truncated tar header");
+            return true;
+        }
+
+        private static boolean isZero(byte[] block) {
+            for (byte b : block) if (b != 0) return false;
+            return true;
+        }
+
+        private static String name(byte[] block) {
+            String name = string(block, 0, 100);
+            // POSIX ustar only, the GNU format uses the prefix field for timestamps
+            boolean ustar = string(block, 257, 6).equals("ustar");
+            String prefix = ustar ? string(block, 345, 155) : "";
+            return prefix.isEmpty() ? name : prefix + "/" + name;
+        }
+
+        private static long size(byte[] block) throws IOException {
+            // GNU base-256 encoding for sizes of 8 GiB and more
+            if ((block[124] & 0x80) != 0) {
+                long size = block[124] & 0x7F;
+                for (int i = 125; i < 136; i++) size = (size << 8) | (block[i] & 0xFF);
+                return size;
+            }
+            String octal = string(block, 124, 12).trim();
+            try {
+                return octal.isEmpty() ? 0 : Long.parseLong(octal, 8);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid tar entry size: " + octal, e);
+            }
+        }
+
+        private static String string(byte[] block, int offset, int length) {
+            int end = offset;
+            while (end < offset + length && block[end] != 0) end++;
+            return new String(block, offset, end - offset, StandardCharsets.UTF_8);
+        }
+
+        private static String trim(byte[] data) {
+            int end = data.length;
+            while (end > 0 && data[end - 1] == 0) end--;
+            return new String(data, 0, end, StandardCharsets.UTF_8);
+        }
+    }
+}
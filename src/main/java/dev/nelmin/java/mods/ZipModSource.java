@@ -0,0 +1,82 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.objects.ModManifest;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A zip packed mod.
+ * <p>
+ * {@link ZipFile} locates the end record and reads only the central directory, so listing the mod does not
+ * scan the entries. Every file is then inflated straight from its local header on demand.
+ */
+final class ZipModSource implements ModSource {
+    private final ZipFile zip;
+    private final ModManifest manifest;
+    private final List<ModFile> listing;
+    private final Map<String, ZipEntry> entries = new HashMap<>();
+
+    ZipModSource(Path path) throws IOException {
+        this.zip = new ZipFile(path.toFile());
+        try {
+            Map<String, ZipEntry> byName = new HashMap<>();
+            for (ZipEntry entry : zip.stream().toList()) {
+                if (!entry.isDirectory()) byName.putIfAbsent(ModLayout.normalize(entry.getName()), entry);
+            }
+            String root = ModLayout.root(byName.keySet());
+
+            try (InputStream in = zip.getInputStream(byName.get(root + ModLayout.MANIFEST))) {
+                this.manifest = ModLayout.manifest(in);
+            }
+
+            // Central directory order, which is usually also the order of the data
+            List<ModFile> listing = new ArrayList<>();
+            for (ZipEntry entry : zip.stream().toList()) {
+                if (entry.isDirectory()) continue;
+                String relative = ModLayout.relative(root, ModLayout.normalize(entry.getName()));
+                if (relative == null || entries.putIfAbsent(relative, entry) != null) continue;
+                listing.add(new ModFile(relative, entry.getSize()));
+            }
+            this.listing = List.copyOf(listing);
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public @NotNull ModManifest manifest() {
+        return manifest;
+    }
+
+    @Override
+    public @NotNull List<ModFile> files() {
+        return listing;
+    }
+
+    @Override
+    public @NotNull InputStream open(@NotNull ModFile file) throws IOException {
+        ZipEntry entry = entries.get(file.path());
+        if (entry == null) throw new IOException("Not part of the mod: " + file.path());
+        return zip.getInputStream(entry);
+    }
+
+    @Override
+    public boolean randomAccess() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
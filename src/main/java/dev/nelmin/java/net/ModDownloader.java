@@ -0,0 +1,486 @@
+package dev.nelmin.java.net;
+
+import dev.nelmin.java.application.TaskScheduler;
+import dev.nelmin.java.fs.verify.FileVerifier;
+import dev.nelmin.java.objects.IndexedMod;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Downloads mod files described by {@link IndexedMod.Version.FileInfo}.
+ * <p>
+ * Large files on servers that accept byte ranges are fetched over several connections at once, the segments
+ * running as {@link TaskScheduler.Category#NETWORK network} tasks of the shared {@link TaskScheduler} and
+ * writing straight into their region of a {@code .part} file. Segment progress is persisted next to it, so an
+ * interrupted download resumes where it stopped. A {@link TaskScheduler.Category#HASHING hashing} task
+ * computes the SHA-512 digest while the download runs by following the contiguous downloaded prefix, so the
+ * digest is ready the moment the last byte arrives and no second pass over the file is needed.
+ * <p>
+ * With a {@link FileVerifier}, a target that already has the expected digest is not downloaded again, and the
+ * digest of every finished download is recorded in its cache.
+ */
+@Accessors(fluent = true)
+public class ModDownloader implements AutoCloseable {
+    public static final int DEFAULT_CONNECTIONS = 4;
+    public static final long DEFAULT_SEGMENT_THRESHOLD = 8L << 20;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long STATE_INTERVAL = 4L << 20;
+    private static final int ATTEMPTS = 3;
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Getter
+    private final HttpClient client;
+    private final int connections;
+    private final long segmentThreshold;
+    @Getter
+    @Nullable
+    private final FileVerifier verifier;
+
+    public ModDownloader() {
+        this(DEFAULT_CONNECTIONS, DEFAULT_SEGMENT_THRESHOLD);
+    }
+
+    /**
+     * @param connections      Maximum number of parallel connections per download
+     * @param segmentThreshold Minimum file size before a download is split into segments
+     */
+    public ModDownloader(int connections, long segmentThreshold) {
+        this(connections, segmentThreshold, null);
+    }
+
+    /**
+     * @param connections      Maximum number of parallel connections per download
+     * @param segmentThreshold Minimum file size before a download is split into segments
+     * @param verifier         Skips targets that are already present and records new digests, may be null
+     */
+    public ModDownloader(int connections, long segmentThreshold, @Nullable FileVerifier verifier) {
+        this.client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(15))
+                .build();
+        this.connections = Math.max(1, connections);
+        this.segmentThreshold = segmentThreshold;
+        this.verifier = verifier;
+    }
+
+    /**
+     * Downloads a mod file and verifies it against the index.
+     *
+     * @param file   File info of the mod version
+     * @param target Where to store the file
+     * @return The target path
+     * @throws IOException If the download fails or the digest does not match
+     */
+    @NotNull
+    public Path download(@NotNull IndexedMod.Version.FileInfo file, @NotNull Path target) throws IOException, InterruptedException {
+        return download(URI.create(file.download()), file.file_size(), file.sha512(), target, null);
+    }
+
+    /**
+     * Downloads a file, resuming a previous attempt if its {@code .part} file is still present.
+     *
+     * @param uri          Source
+     * @param expectedSize Size in bytes if known, 0 or less to ask the server
+     * @param sha512       Expected hex digest, or null to skip verification
+     * @param target       Where to store the file
+     * @param progress     Receives the number of bytes on disk, may be null
+     * @return The target path
+     * @throws IOException If the download fails or the digest does not match. The partial file is kept
+     *                     for resuming unless the digest did not match.
+     */
+    @NotNull
+    public Path download(@NotNull URI uri, long expectedSize, @Nullable String sha512, @NotNull Path target,
+                         @Nullable LongConsumer progress) throws IOException, InterruptedException {
+        boolean verify = sha512 != null && !sha512.isBlank();
+        if (verify && verifier != null && Files.isRegularFile(target)
+                && (expectedSize <= 0 || Files.size(target) == expectedSize) && verifier.verify(target, sha512)) {
+            if (progress != null) progress.accept(Files.size(target));
+            return target;
+        }
+
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        Path statePath = target.resolveSibling(target.getFileName() + ".part.state");
+        if (target.getParent() != null) Files.createDirectories(target.getParent());
+
+        Probe probe = probe(uri);
+        long size = probe.size > 0 ? probe.size : expectedSize;
+        if (expectedSize > 0 && probe.size > 0 && probe.size != expectedSize) {
+            throw new IOException("Server reports " + probe.size + " bytes for " + uri + ", index says " + expectedSize);
+        }
+
+        String digest;
+        if (size <= 0 || !probe.ranges) {
+            Files.deleteIfExists(statePath);
+            digest = single(uri, part, progress);
+        } else {
+            State state = State.load(statePath, uri, size);
+            if (state == null || !Files.exists(part)) {
+                state = State.create(uri, size, size < segmentThreshold ? 1 : connections);
+            }
+            digest = segmented(uri, part, statePath, state, progress);
+        }
+
+        if (verify && !sha512.equalsIgnoreCase(digest)) {
+            Files.deleteIfExists(part);
+            Files.deleteIfExists(statePath);
+            throw new IOException("SHA-512 mismatch for " + uri + ": expected " + sha512 + ", got " + digest);
+        }
+
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(statePath);
+        if (verifier != null) {
+            verifier.record(target, digest);
+            verifier.cache().save();
+        }
+        return target;
+    }
+
+    @Override
+    public void close() {
+        client.shutdownNow();
+    }
+
+    private Probe probe(URI uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) return new Probe(-1, false);
+
+        long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        boolean ranges = response.headers().firstValue("Accept-Ranges").map(v -> v.equalsIgnoreCase("bytes")).orElse(false);
+        return new Probe(length, ranges);
+    }
+
+    /**
+     * Plain streaming download without range support. Hashes the bytes as they pass by.
+     */
+    private String single(URI uri, Path part, LongConsumer progress) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("HTTP " + response.statusCode() + " for " + uri);
+        }
+
+        MessageDigest digest = sha512();
+        long written = 0;
+        try (InputStream in = response.body();
+             FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                while (data.hasRemaining()) out.write(data);
+                written += read;
+                if (progress != null) progress.accept(written);
+            }
+            out.force(false);
+        }
+        return HEX.formatHex(digest.digest());
+    }
+
+    private String segmented(URI uri, Path part, Path statePath, State state, LongConsumer progress) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Frontier frontier = new Frontier(state);
+            AtomicLong total = new AtomicLong(state.downloaded());
+
+            List<Callable<Void>> fetches = new ArrayList<>();
+            for (Segment segment : state.segments) {
+                if (segment.remaining() == 0) continue;
+                fetches.add(() -> {
+                    try {
+                        fetch(uri, channel, segment, state, statePath, frontier, total, progress);
+                    } catch (IOException e) {
+                        frontier.failed(e);
+                        throw e;
+                    } catch (Exception | Error e) {
+                        frontier.failed(new IOException("Segment download aborted for " + uri, e));
+                        throw e;
+                    }
+                    return null;
+                });
+            }
+
+            TaskScheduler scheduler = TaskScheduler.shared();
+            String name = part.getFileName().toString();
+            TaskScheduler.Task<String> hashing = scheduler.submit("hash-" + name, TaskScheduler.Category.HASHING,
+                    context -> frontier.hash(channel));
+            try {
+                // The calling thread fetches segments too, so it never waits for a network permit it may hold
+                scheduler.runAll("download-" + name, TaskScheduler.Category.NETWORK, connections, fetches);
+                String digest = hashing.completion().get();
+                channel.force(false);
+                return digest;
+            } catch (Exception e) {
+                IOException failure = switch (e) {
+                    case IOException io -> io;
+                    case ExecutionException execution when execution.getCause() instanceof IOException io -> io;
+                    case ExecutionException execution -> new IOException("Hashing failed for " + uri, execution.getCause());
+                    case InterruptedException interrupted -> new IOException("Download interrupted for " + uri, interrupted);
+                    default -> new IOException("Segment download failed for " + uri, e);
+                };
+                // Ends the hashing task without interrupting it, which would close the channel
+                frontier.failed(failure);
+                Exception thrown = e instanceof InterruptedException ? e : failure;
+                try {
+                    state.save(statePath, channel);
+                } catch (IOException saveFailure) {
+                    // Resumes from the last saved state instead
+                    thrown.addSuppressed(saveFailure);
+                }
+                if (thrown instanceof InterruptedException interrupted) throw interrupted;
+                throw failure;
+            }
+        }
+    }
+
+    private void fetch(URI uri, FileChannel channel, Segment segment, State state, Path statePath,
+                       Frontier frontier, AtomicLong total, LongConsumer progress) throws IOException, InterruptedException {
+        IOException failure = null;
+        for (int attempt = 0; attempt < ATTEMPTS && segment.remaining() > 0 && !frontier.aborted(); attempt++) {
+            try {
+                long from = segment.start + segment.done.get();
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .header("Range", "bytes=" + from + "-" + (segment.end - 1))
+                        .GET()
+                        .build();
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                if (response.statusCode() != 206 && !(response.statusCode() == 200 && from == 0)) {
+                    response.body().close();
+                    throw new IOException("HTTP " + response.statusCode() + " for range " + from + " of " + uri);
+                }
+
+                try (InputStream in = response.body()) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    long sinceSave = 0;
+                    while (segment.remaining() > 0) {
+                        // Another segment failed, the download is saved for resuming as it is
+                        if (frontier.aborted()) throw new IOException("Download aborted for " + uri);
+                        int read = in.read(buffer, 0, (int) Math.min(buffer.length, segment.remaining()));
+                        if (read < 0) throw new IOException("Connection closed early for " + uri);
+
+                        ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                        long position = segment.start + segment.done.get();
+                        while (data.hasRemaining()) position += channel.write(data, position);
+
+                        segment.done.addAndGet(read);
+                        frontier.advanced();
+                        long downloaded = total.addAndGet(read);
+                        if (progress != null) progress.accept(downloaded);
+
+                        sinceSave += read;
+                        if (sinceSave >= STATE_INTERVAL) {
+                            state.save(statePath, channel);
+                            sinceSave = 0;
+                        }
+                    }
+                }
+                failure = null;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        if (failure != null) throw failure;
+    }
+
+    private static MessageDigest sha512() {
+        try {
+            return MessageDigest.getInstance("SHA-512");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-512 is not available", e);
+        }
+    }
+
+    private record Probe(long size, boolean ranges) {
+    }
+
+    private static final class Segment {
+        private final long start;
+        private final long end;
+        private final AtomicLong done;
+
+        private Segment(long start, long end, long done) {
+            this.start = start;
+            this.end = end;
+            this.done = new AtomicLong(done);
+        }
+
+        private long remaining() {
+            return end - start - done.get();
+        }
+    }
+
+    /**
+     * Segment layout and progress, persisted as plain text: the URI, the size, then one line per segment.
+     */
+    private static final class State {
+        private final URI uri;
+        private final long size;
+        private final List<Segment> segments;
+
+        private State(URI uri, long size, List<Segment> segments) {
+            this.uri = uri;
+            this.size = size;
+            this.segments = segments;
+        }
+
+        private static State create(URI uri, long size, int count) {
+            List<Segment> segments = new ArrayList<>();
+            long length = (size + count - 1) / count;
+            for (long start = 0; start < size; start += length) {
+                segments.add(new Segment(start, Math.min(size, start + length), 0));
+            }
+            return new State(uri, size, segments);
+        }
+
+        @Nullable
+        private static State load(Path path, URI uri, long size) throws IOException {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+            if (lines.size() < 3 || !lines.get(0).equals(uri.toString()) || Long.parseLong(lines.get(1)) != size) {
+                return null;
+            }
+
+            List<Segment> segments = new ArrayList<>();
+            for (String line : lines.subList(2, lines.size())) {
+                String[] parts = line.split(" ");
+                segments.add(new Segment(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+            }
+            return new State(uri, size, segments);
+        }
+
+        private long downloaded() {
+            return segments.stream().mapToLong(segment -> segment.done.get()).sum();
+        }
+
+        /**
+         * Saves the progress. The counters are read before the data is forced to disk, so the state never claims
+         * bytes that could still be lost with the page cache.
+         *
+         * @param path Where to store the state
+         * @param data Channel of the partial file
+         */
+        private synchronized void save(Path path, FileChannel data) throws IOException {
+            StringBuilder builder = new StringBuilder().append(uri).append('\n').append(size).append('\n');
+            for (Segment segment : segments) {
+                builder.append(segment.start).append(' ').append(segment.end).append(' ').append(segment.done.get()).append('\n');
+            }
+            data.force(false);
+
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer bytes = StandardCharsets.UTF_8.encode(builder.toString());
+                while (bytes.hasRemaining()) out.write(bytes);
+                out.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Hashes the file in order while segments are still being written, reading each byte right after it
+     * landed (and while it is still in the page cache).
+     */
+    private static final class Frontier {
+        private final State state;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private volatile IOException failure;
+
+        private Frontier(State state) {
+            this.state = state;
+        }
+
+        private void advanced() {
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean aborted() {
+            return failure != null;
+        }
+
+        /**
+         * Ends hashing with the first failure reported.
+         */
+        private void failed(IOException e) {
+            lock.lock();
+            try {
+                if (failure == null) failure = e;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private String hash(FileChannel channel) throws IOException, InterruptedException {
+            MessageDigest digest = sha512();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long cursor = 0;
+
+            for (Segment segment : state.segments) {
+                while (cursor < segment.end) {
+                    if (failure != null) throw failure;
+                    long available = segment.start + segment.done.get() - cursor;
+                    if (available <= 0) {
+                        lock.lock();
+                        try {
+                            while (failure == null && segment.start + segment.done.get() <= cursor) {
+                                changed.await();
+                            }
+                            if (failure != null) throw failure;
+                        } finally {
+                            lock.unlock();
+                        }
+                        continue;
+                    }
+
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), available));
+                    int read = channel.read(buffer, cursor);
+                    if (read < 0) throw new IOException("Partial file is shorter than its recorded progress");
+                    buffer.flip();
+                    digest.update(buffer);
+                    cursor += read;
+                }
+            }
+            return HEX.formatHex(digest.digest());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package dev.nelmin.java.objects;
+
+/**
+ * A {@code baselines/<version>.json} manifest of the original files of a game version.
+ *
+ * @param game_version   Id of the game version, e.g. {@code 1080}
+ * @param created        Creation time in milliseconds since the epoch
+ * @param files          Original files of the game directory
+ * @param archive_states Last compared state of archives that differ from the baseline
+ */
+public record BaselineManifest(
+        String game_version,
+        long created,
+        GameFile[] files,
+        ArchiveState[] archive_states
+) {
+    /**
+     * @param path     Path relative to the game directory
+     * @param size     Size in bytes
+     * @param modified Modification time in milliseconds since the epoch
+     * @param sha512   Hex SHA-512 of the file
+     * @param entries  Entries of an IMG/RPF archive, null for other files or unreadable archives
+     */
+    public record GameFile(
+            String path,
+            long size,
+            long modified,
+            String sha512,
+            EntryDigest[] entries
+    ) {
+    }
+
+    /**
+     * @param path   Entry path relative to the archive root
+     * @param size   Stored size in bytes
+     * @param sha512 Hex SHA-512 of the stored bytes
+     */
+    public record EntryDigest(
+            String path,
+            long size,
+            String sha512
+    ) {
+    }
+
+    /**
+     * Entries found to differ the last time an archive was compared, so an archive that did not change since
+     * is not read again.
+     *
+     * @param path   Path relative to the game directory
+     * @param sha512 Hex SHA-512 of the archive when it was compared
+     * @param drift  Differing entries, with paths relative to the game directory
+     */
+    public record ArchiveState(
+            String path,
+            String sha512,
+            Drift[] drift
+    ) {
+    }
+}
@@ -0,0 +1,28 @@
+package dev.nelmin.java.objects;
+
+/**
+ * A game file or archive entry that differs from the baseline of its game version.
+ *
+ * @param path Path relative to the game directory, archive entries below their archive, e.g.
+ *             {@code pc/models/cdimages/vehicles.img/infernus.wft}
+ * @param kind How it differs
+ */
+public record Drift(
+        String path,
+        Kind kind
+) {
+    public enum Kind {
+        /**
+         * Present with different contents
+         */
+        MODIFIED,
+        /**
+         * Part of the baseline but gone
+         */
+        MISSING,
+        /**
+         * Not part of the baseline
+         */
+        ADDED
+    }
+}
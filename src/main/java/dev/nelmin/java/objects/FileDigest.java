@@ -0,0 +1,21 @@
+package dev.nelmin.java.objects;
+
+/**
+ * Digests of a file and the fingerprint they were computed for.
+ *
+ * @param path        Absolute path of the file
+ * @param size        Size in bytes when the digests were computed
+ * @param modified    Modification time in milliseconds since the epoch when the digests were computed
+ * @param sha512      Hex SHA-512 of the whole file, as in {@code IndexedMod.Version.FileInfo.sha512}
+ * @param merkle_root Hex SHA-512 over the SHA-512 digests of the file's chunks, null if not computed yet
+ * @param chunk_size  Chunk size the Merkle root was computed with
+ */
+public record FileDigest(
+        String path,
+        long size,
+        long modified,
+        String sha512,
+        String merkle_root,
+        int chunk_size
+) {
+}
@@ -0,0 +1,68 @@
+package dev.nelmin.java.objects;
+
+import dev.nelmin.java.configuration.ConfigKey;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * The {@code game} section of {@code config.json}.
+ *
+ * @param defaultVersion Selected game version, e.g. {@code 1080}
+ * @param rpfKeyHex      Hex AES key of encrypted RPF tables of contents, empty if not set
+ * @param installations  Game installations by version
+ */
+public record GameConfig(
+        @ConfigKey("default") String defaultVersion,
+        @ConfigKey("rpf_key") String rpfKeyHex,
+        @ConfigKey(ConfigKey.REMAINING) Map<String, Installation> installations
+) {
+    private static final int RPF_KEY_LENGTH = 32;
+
+    /**
+     * @param directory Game directory, empty if not set. Older versions stored the path of
+     *                  {@code GTAIV.exe}; such a path is replaced by its directory when loaded.
+     */
+    public record Installation(
+            String directory
+    ) {
+        public Installation {
+            if (directory != null && !directory.isBlank()) {
+                try {
+                    Path path = Path.of(directory);
+                    if (Files.isRegularFile(path) && path.getParent() != null) directory = path.getParent().toString();
+                } catch (InvalidPathException ignored) {
+                    // Left as stored, it fails the install check like any other missing directory
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Directory of the selected game version, or null if no version is selected or it has no directory
+     */
+    @Nullable
+    public Path defaultDirectory() {
+        if (defaultVersion == null || defaultVersion.isBlank()) return null;
+        Installation installation = installations.get(defaultVersion);
+        if (installation == null || installation.directory() == null || installation.directory().isBlank()) return null;
+        return Path.of(installation.directory());
+    }
+
+    /**
+     * @return Key for encrypted RPF tables of contents, or null if none is set or it is not 32 bytes of hex
+     */
+    public byte @Nullable [] rpfKey() {
+        if (rpfKeyHex == null || rpfKeyHex.isBlank()) return null;
+        try {
+            byte[] key = HexFormat.of().parseHex(rpfKeyHex.strip());
+            return key.length == RPF_KEY_LENGTH ? key : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package dev.nelmin.java.objects;
+
+import java.nio.file.Path;
+
+/**
+ * A discovered game installation and the fingerprint of its executable.
+ *
+ * @param executable Absolute path of {@code GTAIV.exe}
+ * @param size       Size of the executable in bytes
+ * @param modified   Modification time of the executable in milliseconds since the epoch
+ * @param version    Game version read from the executable, e.g. {@code 1080}
+ */
+public record GameInstall(
+        String executable,
+        long size,
+        long modified,
+        String version
+) {
+    public Path path() {
+        return Path.of(executable);
+    }
+
+    public Path directory() {
+        return path().getParent();
+    }
+}
@@ -0,0 +1,61 @@
+package dev.nelmin.java.objects;
+
+import dev.nelmin.java.fs.files.PEFile;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Supported versions of GTA IV, identified by the file version of {@code GTAIV.exe}.
+ */
+@Accessors(fluent = true)
+public enum GameVersion {
+    V1_0_4_0("1040", new PEFile.FileVersion(1, 0, 4, 0)),
+    V1_0_7_0("1070", new PEFile.FileVersion(1, 0, 7, 0)),
+    V1_0_8_0("1080", new PEFile.FileVersion(1, 0, 8, 0)),
+    V1_2_0_59("12059", new PEFile.FileVersion(1, 2, 0, 59));
+
+    /**
+     * Key of the version in the {@code game} section of {@code config.json}
+     */
+    @Getter
+    private final String id;
+    @Getter
+    private final PEFile.FileVersion fileVersion;
+
+    GameVersion(String id, PEFile.FileVersion fileVersion) {
+        this.id = id;
+        this.fileVersion = fileVersion;
+    }
+
+    /**
+     * @param fileVersion File version of {@code GTAIV.exe}
+     * @return The game version, or null if the version is not supported
+     */
+    @Nullable
+    public static GameVersion of(@NotNull PEFile.FileVersion fileVersion) {
+        for (GameVersion version : values()) {
+            if (version.fileVersion.equals(fileVersion)) return version;
+        }
+        return null;
+    }
+
+    /**
+     * @param id Key of the version in {@code config.json}, e.g. {@code 1080}
+     * @return The game version, or null if the id is unknown
+     */
+    @Nullable
+    public static GameVersion byId(@Nullable String id) {
+        if (id == null) return null;
+        for (GameVersion version : values()) {
+            if (version.id.equals(id)) return version;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return fileVersion.toString();
+    }
+}
@@ -1,12 +1,28 @@
 package dev.nelmin.java.objects;
 
+/**
+ * @param id            Mod id
+ * @param version       Installed version
+ * @param changed_paths Game paths the mod changed
+ * @param drifted       Changed paths and archive entries whose changes were gone in the last drift scan, null if
+ *                      none were
+ */
 public record InstalledMod(
         String id,
-        ChangedPath[] changed_paths
+        String version,
+        ChangedPath[] changed_paths,
+        String[] drifted
 ) {
+    /**
+     * @param path       Path relative to the game directory
+     * @param backup_ver Id of the {@code BackupStore} manifest holding the original file, or of the
+     *                   {@code EntryBackup} when only entries were changed; null if the file was added
+     * @param entries    Archive entries the mod replaced or added, null if the whole file was changed
+     */
     public record ChangedPath(
             String path,
-            String backup_ver
+            String backup_ver,
+            String[] entries
     ) {
     }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package dev.nelmin.java.objects;
+
+/**
+ * The {@code nd-mt.iv.json} file every mod archive ships next to {@code files/} and {@code infos/}.
+ *
+ * @param name          Display name
+ * @param version       Mod version
+ * @param author        Author
+ * @param description   Short description
+ * @param website       Website, may be null
+ * @param source_code   Source code link, may be null
+ * @param game_versions Supported game versions, e.g. {@code 1.0.7.0}
+ */
+public record ModManifest(
+        String name,
+        String version,
+        String author,
+        String description,
+        String website,
+        String source_code,
+        String[] game_versions
+) {
+}
@@ -1,9 +1,11 @@
 package dev.nelmin.java.scene;
 
-import com.sun.jna.LastErrorException;
-import com.sun.jna.platform.win32.VerRsrc;
-import com.sun.jna.platform.win32.VersionUtil;
-import javafx.application.Platform;
+import dev.nelmin.java.MTIV;
+import dev.nelmin.java.application.TaskScheduler;
+import dev.nelmin.java.fs.files.PEFile;
+import dev.nelmin.java.fs.search.FileSearch;
+import dev.nelmin.java.objects.GameInstall;
+import dev.nelmin.java.objects.GameVersion;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
@@ -16,14 +18,15 @@ import lombok.Getter;
 import lombok.experimental.Accessors;
 
 import java.io.File;
-import java.nio.file.AccessDeniedException;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.function.BiConsumer;
 
 @Accessors(fluent = true)
@@ -33,14 +36,15 @@ public class FilePickerScene {
     private final Label statusLabel;
     private final TextField pathField;
     private final Button continueButton;
-    private final String TARGET_FILE = "GTAIV.exe";
-    private final AtomicBoolean isSearching = new AtomicBoolean(false);
+    public static final String TARGET_FILE = "GTAIV.exe";
     private final List<String> EXCLUDE_FOLDER_PATTERNS = Arrays.asList(
             "backup", "old", "copy", "archive", "saved", "temp", "tmp", "-bak", ".bak", "_bak"
     );
+    private final FileSearch search = new FileSearch(TARGET_FILE, EXCLUDE_FOLDER_PATTERNS, 12, Duration.ofMinutes(2));
     @Getter
     private Path selectedPath;
     private String gameVersion = "Unknown";
+    private TaskScheduler.Task<Found> searchTask;
 
     public FilePickerScene(BiConsumer<Path, String> onContinue) {
         VBox vBox = new VBox(20);
@@ -104,6 +108,8 @@ public class FilePickerScene {
         File selectedFile = fileChooser.showOpenDialog(scene.getWindow());
         if (selectedFile != null && selectedFile.getName().equals(TARGET_FILE)) {
             if (isNoBackupLocation(selectedFile.toPath())) {
+                // Chosen by hand, the automatic search would only overwrite it
+                if (searchTask != null) searchTask.cancel();
                 selectedPath = selectedFile.toPath();
                 gameVersion = getGameVersion(selectedPath);
                 pathField.setText(selectedPath.toString());
@@ -117,106 +123,94 @@ public class FilePickerScene {
     }
 
     private void autoFindFile() {
-        if (isSearching.get()) {
+        if (searchTask != null && !searchTask.isDone()) {
             statusLabel.setText("Search already in progress...");
             return;
         }
-        isSearching.set(true);
         statusLabel.setText("Searching for GTAIV.exe...");
         continueButton.setVisible(false);
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                Path[] commonPaths = {
-                        Paths.get("C:\\Program Files (x86)\\Steam\\steamapps\\common\\Grand Theft Auto IV"),
-                        Paths.get("C:\\Program Files (x86)\\Rockstar Games\\Grand Theft Auto IV"),
-                        Paths.get("C:\\Program Files\\Steam\\steamapps\\common\\Grand Theft Auto IV"),
-                        Paths.get("C:\\Program Files\\Rockstar Games\\Grand Theft Auto IV")
-                };
-                for (Path path : commonPaths) {
-                    Path exePath = path.resolve(TARGET_FILE);
-                    if (Files.exists(exePath) && isNoBackupLocation(exePath)) {
-                        updateFoundPath(exePath);
-                        return;
+        searchTask = TaskScheduler.shared().submit("find-" + TARGET_FILE, TaskScheduler.Category.DISK_IO, this::findInstall)
+                .onProgress(progress -> {
+                    if (progress.message() != null) statusLabel.setText(progress.message());
+                })
+                .onDone((found, error) -> {
+                    // Cancelled because a file was selected by hand
+                    if (error instanceof CancellationException) return;
+                    if (error != null) {
+                        statusLabel.setText("Error during search: " + error.getMessage());
+                    } else if (found == null) {
+                        statusLabel.setText("Failed to find GTAIV.exe. Please select manually.");
+                    } else {
+                        updateFoundPath(found.path(), found.version());
                     }
-                }
-                if (!tryElevatedSearch()) {
-                    Platform.runLater(() -> statusLabel.setText("Failed to find GTAIV.exe. Please select manually."));
-                }
-            } catch (Exception e) {
-                Platform.runLater(() -> statusLabel.setText("Error during search: " + e.getMessage()));
-            } finally {
-                isSearching.set(false);
-            }
-        });
+                });
     }
 
-    private boolean tryElevatedSearch() {
-        try {
-            for (File root : File.listRoots()) {
-                try {
-                    Files.walk(root.toPath())
-                            .filter(p -> p.getFileName().toString().equals(TARGET_FILE))
-                            .filter(this::isNoBackupLocation)
-                            .findFirst()
-                            .ifPresent(p -> updateFoundPath(p));
-                } catch (AccessDeniedException e) {
-                    ProcessBuilder pb = new ProcessBuilder("cmd.exe", "/c",
-                            "powershell.exe", "-Command",
-                            "Start-Process -Verb RunAs -WindowStyle Hidden cmd.exe '/c dir /s /b \"" +
-                                    root.getPath() + TARGET_FILE + "\"'");
-                    Process process = pb.start();
-                    String result = new String(process.getInputStream().readAllBytes());
-                    if (result.contains(TARGET_FILE)) {
-                        Path foundPath = Paths.get(result.trim());
-                        if (isNoBackupLocation(foundPath)) {
-                            updateFoundPath(foundPath);
-                            return true;
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            Platform.runLater(() -> statusLabel.setText("Error during elevated search: " + e.getMessage()));
+    /**
+     * Runs on a scheduler thread.
+     *
+     * @return The executable found, or null if there is none
+     */
+    private Found findInstall(TaskScheduler.Context context) throws InterruptedException {
+        // Installations found before, as long as their executable is unchanged
+        GameInstall cached = MTIV.installs().firstValid();
+        if (cached != null && isNoBackupLocation(cached.path())) return new Found(cached.path(), cached.version());
+
+        Path[] commonPaths = {
+                Paths.get("C:\\Program Files (x86)\\Steam\\steamapps\\common\\Grand Theft Auto IV"),
+                Paths.get("C:\\Program Files (x86)\\Rockstar Games\\Grand Theft Auto IV"),
+                Paths.get("C:\\Program Files\\Steam\\steamapps\\common\\Grand Theft Auto IV"),
+                Paths.get("C:\\Program Files\\Rockstar Games\\Grand Theft Auto IV")
+        };
+        for (Path path : commonPaths) {
+            Path exePath = path.resolve(TARGET_FILE);
+            if (Files.exists(exePath) && isNoBackupLocation(exePath)) return found(exePath);
         }
-        return false;
+
+        context.checkCancelled();
+        context.message("Searching all drives for GTAIV.exe...");
+        List<Path> roots = Arrays.stream(File.listRoots()).map(File::toPath).toList();
+        // Cancelling interrupts the wait, which cancels the search
+        Optional<Path> found = search.findFirst(roots);
+        return found.map(this::found).orElse(null);
+    }
+
+    private Found found(Path executable) {
+        return new Found(executable, getGameVersion(executable));
     }
 
     private boolean isNoBackupLocation(Path path) {
-        String pathStr = path.toString().toLowerCase();
-        return EXCLUDE_FOLDER_PATTERNS.stream().noneMatch(pathStr::contains);
+        return !search.isExcluded(path);
     }
 
-    private void updateFoundPath(Path path) {
+    /**
+     * Runs on the FX thread.
+     */
+    private void updateFoundPath(Path path, String version) {
         selectedPath = path;
-        gameVersion = getGameVersion(path);
-        Platform.runLater(() -> {
-            pathField.setText(path.toString());
-            statusLabel.setText(String.format("""
-                    Found valid GTAIV.exe
-                    Game Version: %s
-                    """.trim(), gameVersion));
-            continueButton.setVisible(true);
-        });
+        gameVersion = version;
+        pathField.setText(path.toString());
+        statusLabel.setText(String.format("""
+                Found valid GTAIV.exe
+                Game Version: %s
+                """.trim(), gameVersion));
+        continueButton.setVisible(true);
     }
 
+    /**
+     * @return The config key of the game version, or the plain file version if the version is not supported
+     */
     private String getGameVersion(Path path) {
-        if (!System.getProperty("os.name").toLowerCase().contains("win")) {
-            return "N/A (Non-Windows OS)";
-        }
-
         try {
-            VerRsrc.VS_FIXEDFILEINFO versionInfo = VersionUtil.getFileVersionInfo(path.toAbsolutePath().toString());
-
-            // Extract all 4 version components
-            int major = versionInfo.getFileVersionMajor();
-            int minor = versionInfo.getFileVersionMinor();
-            int revision = versionInfo.getFileVersionRevision();
-            int build = versionInfo.getFileVersionBuild();
-
-            return String.format("%d%d%d%d", major, minor, revision, build);
-        } catch (LastErrorException e) {
+            PEFile.FileVersion fileVersion = PEFile.fileVersion(path);
+            GameVersion version = GameVersion.of(fileVersion);
+            return version != null ? version.id() : fileVersion.toString();
+        } catch (IOException e) {
             return "Unknown (Error: " + e.getMessage() + ")";
         }
     }
-}
\ No newline at end of file
+
+    private record Found(Path path, String version) {
+    }
+}
@@ -0,0 +1,219 @@
+package dev.nelmin.java.scene;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps an {@link ObservableList} shown by a virtualized control in sync with the result of a query, without
+ * running the query on the FX thread.
+ * <p>
+ * {@link #filter(String)} may be called on every keystroke. The query runs after the input has been stable for
+ * the debounce delay; a newer input cancels a query that has not started yet and discards the result of one
+ * that is running. Results are compared with what is shown and only the removed and inserted runs are applied,
+ * so narrowing a search of tens of thousands of items does not rebuild the list. When a result shares too
+ * little with what is shown, the list is replaced in a single change instead.
+ * <p>
+ * Queries and diffs of all filters run on one background thread. A {@link Query} is told when its input became
+ * stale, so a long query can stop early instead of holding up the next one. Items are compared by identity and
+ * must be in the same relative order in every result, like the mod catalog returns them.
+ *
+ * @param <T> Item type
+ */
+public class ListFilter<T> {
+    /**
+     * Results needing more edits than this replace the list in a single change
+     */
+    private static final int MAX_EDITS = 64;
+
+    private final ObservableList<T> target;
+    private final Query<T> query;
+    private final long debounceNanos;
+    private final AtomicLong generation = new AtomicLong();
+    /**
+     * What the target contains once all published edits are applied; only touched on the filter thread
+     */
+    private List<T> shown = List.of();
+    private Future<?> pending;
+    private volatile Consumer<List<T>> listener;
+
+    /**
+     * @param target   Empty list to update, usually the items of a {@code ListView}; only changed on the FX thread
+     * @param query    Computes the items for an input, called on the filter thread
+     * @param debounce Time the input must be stable before the query runs
+     */
+    public ListFilter(@NotNull ObservableList<T> target, @NotNull Function<String, List<T>> query, @NotNull Duration debounce) {
+        this(target, (input, stale) -> query.apply(input), debounce);
+    }
+
+    /**
+     * @param target   Empty list to update, usually the items of a {@code ListView}; only changed on the FX thread
+     * @param query    Computes the items for an input, called on the filter thread; may stop once its input is stale
+     * @param debounce Time the input must be stable before the query runs
+     */
+    public ListFilter(@NotNull ObservableList<T> target, @NotNull Query<T> query, @NotNull Duration debounce) {
+        this.target = target;
+        this.query = query;
+        this.debounceNanos = debounce.toNanos();
+    }
+
+    /**
+     * @param listener Called on the FX thread with every published result, after the target was updated; may be null
+     */
+    public void onResult(@Nullable Consumer<List<T>> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Schedules the query for an input, replacing a scheduled one.
+     *
+     * @param input Search input
+     */
+    public synchronized void filter(@NotNull String input) {
+        schedule(input, debounceNanos);
+    }
+
+    /**
+     * Runs the query for an input as soon as possible, e.g. after the underlying data changed.
+     *
+     * @param input Search input
+     */
+    public synchronized void refresh(@NotNull String input) {
+        schedule(input, 0);
+    }
+
+    private void schedule(String input, long delayNanos) {
+        long current = generation.incrementAndGet();
+        if (pending != null) pending.cancel(false);
+        pending = FilterExecutor.INSTANCE.schedule(() -> run(input, current), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void run(String input, long current) {
+        BooleanSupplier stale = () -> generation.get() != current;
+        if (stale.getAsBoolean()) return;
+        List<T> result;
+        try {
+            result = query.apply(input, stale);
+        } catch (RuntimeException e) {
+            System.err.println("List filter query failed: " + e.getMessage());
+            return;
+        }
+        // Typed on while the query ran; the newer query is already scheduled
+        if (stale.getAsBoolean()) return;
+
+        List<Edit<T>> edits = diff(shown, result, stale);
+        if (stale.getAsBoolean()) return;
+        shown = List.copyOf(result);
+        Consumer<List<T>> callback = listener;
+        if (edits != null && edits.isEmpty() && callback == null) return;
+
+        List<T> published = shown;
+        Platform.runLater(() -> {
+            if (edits == null) {
+                target.setAll(published);
+            } else {
+                for (Edit<T> edit : edits) apply(edit);
+            }
+            if (callback != null) callback.accept(published);
+        });
+    }
+
+    private void apply(Edit<T> edit) {
+        if (edit.removed() > 0) target.remove(edit.index(), edit.index() + edit.removed());
+        if (!edit.inserted().isEmpty()) target.addAll(edit.index(), edit.inserted());
+    }
+
+    /**
+     * Computes the edits that turn one list into another. Both must be subsequences of the same order, so
+     * removing what is gone leaves a subsequence of the new list and the rest are insertions.
+     *
+     * @param stale Checked between runs of edits; once true, the diff stops and returns null
+     * @return Edits to apply in order, each index referring to the list with all previous edits applied; null
+     * if replacing the whole list is cheaper
+     */
+    @Nullable
+    static <T> List<Edit<T>> diff(List<T> from, List<T> to, BooleanSupplier stale) {
+        Map<T, Boolean> kept = new IdentityHashMap<>(to.size() * 2);
+        for (T item : to) kept.put(item, Boolean.TRUE);
+
+        List<Edit<T>> edits = new ArrayList<>();
+        int survivors = 0;
+        for (int i = 0; i < from.size(); ) {
+            if (kept.containsKey(from.get(i))) {
+                survivors++;
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < from.size() && !kept.containsKey(from.get(end))) end++;
+            edits.add(new Edit<>(survivors, end - i, List.of()));
+            i = end;
+            if (edits.size() > MAX_EDITS || stale.getAsBoolean()) return null;
+        }
+
+        Map<T, Boolean> present = new IdentityHashMap<>(from.size() * 2);
+        for (T item : from) present.put(item, Boolean.TRUE);
+        for (int i = 0; i < to.size(); ) {
+            if (present.containsKey(to.get(i))) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < to.size() && !present.containsKey(to.get(end))) end++;
+            edits.add(new Edit<>(i, 0, Collections.unmodifiableList(new ArrayList<>(to.subList(i, end)))));
+            i = end;
+            if (edits.size() > MAX_EDITS || stale.getAsBoolean()) return null;
+        }
+        return edits;
+    }
+
+    /**
+     * Computes the items for an input.
+     *
+     * @param <T> Item type
+     */
+    @FunctionalInterface
+    public interface Query<T> {
+        /**
+         * @param input Search input
+         * @param stale Becomes true once a newer input was given; the result is discarded then, so a loop over
+         *              many items may check it and return early
+         * @return The items for the input
+         */
+        @NotNull
+        List<T> apply(@NotNull String input, @NotNull BooleanSupplier stale);
+    }
+
+    /**
+     * Removes {@code removed} items at {@code index}, then inserts {@code inserted} there.
+     */
+    record Edit<T>(int index, int removed, List<T> inserted) {
+    }
+
+    /**
+     * Runs the queries of all filters, one at a time.
+     */
+    private static final class FilterExecutor {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "list-filter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -1,10 +1,43 @@
 package dev.nelmin.java.scene.mods;
 
+import dev.nelmin.java.MTIV;
+import dev.nelmin.java.application.TaskScheduler;
+import dev.nelmin.java.fs.verify.Baseline;
+import dev.nelmin.java.fs.verify.DigestCache;
+import dev.nelmin.java.fs.verify.DriftReport;
+import dev.nelmin.java.fs.verify.FileVerifier;
+import dev.nelmin.java.mods.ConflictIndex;
+import dev.nelmin.java.mods.IndexSync;
+import dev.nelmin.java.mods.InstalledMods;
+import dev.nelmin.java.objects.GameConfig;
+import dev.nelmin.java.objects.GameVersion;
+import dev.nelmin.java.objects.InstalledMod;
+import dev.nelmin.java.scene.ListFilter;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+
 /*
  List all installed mods
  Give the option to update index
@@ -15,12 +48,179 @@ import lombok.experimental.Accessors;
 */
 @Accessors(fluent = true)
 public class Dashboard {
+    private static final Duration SEARCH_DELAY = Duration.ofMillis(150);
+    private static final double CELL_HEIGHT = 24;
+
     @Getter
     private final Scene scene;
+    private final Label installedLabel;
+    private final TextField searchField;
+    private final ListFilter<InstalledMod> filter;
+    private final Label indexLabel;
+    private final Button updateIndexButton;
+    private final Label gameLabel;
+    private final Button checkGameButton;
+    private volatile InstalledMods registry;
 
     public Dashboard() {
-        VBox vBox = new VBox(20);
+        VBox vBox = new VBox(10);
+        vBox.setPadding(new Insets(10));
+
+        installedLabel = new Label("Loading installed mods...");
+        searchField = new TextField();
+        searchField.setPromptText("Search installed mods");
+
+        ObservableList<InstalledMod> mods = FXCollections.observableArrayList();
+        ListView<InstalledMod> listView = new ListView<>(mods);
+        listView.setFixedCellSize(CELL_HEIGHT);
+        listView.setCellFactory(view -> new InstalledModCell());
+        VBox.setVgrow(listView, Priority.ALWAYS);
+        filter = new ListFilter<>(mods, this::search, SEARCH_DELAY);
+        searchField.textProperty().addListener((observable, oldText, newText) -> filter.filter(newText));
+
+        indexLabel = new Label("Mod index not updated yet");
+        updateIndexButton = new Button("Update mod index");
+        updateIndexButton.setOnAction(e -> updateIndex());
+        Button browseButton = new Button("Browse mods");
+        browseButton.setOnAction(e -> openBrowser());
+        gameLabel = new Label("Game files not checked yet");
+        checkGameButton = new Button("Check game files");
+        checkGameButton.setOnAction(e -> checkGame());
+        HBox buttons = new HBox(10, updateIndexButton, browseButton, checkGameButton);
+        buttons.setAlignment(Pos.CENTER_LEFT);
+
+        vBox.getChildren().addAll(installedLabel, searchField, listView, indexLabel, gameLabel, buttons);
+        this.scene = new Scene(vBox, 600, 450);
+        loadInstalled();
+    }
+
+    private void loadInstalled() {
+        TaskScheduler.shared().submit("load-installed", TaskScheduler.Category.DISK_IO, context -> InstalledMods.load())
+                .onDone((loaded, error) -> {
+                    if (error != null) {
+                        installedLabel.setText("Failed to load installed mods: " + error.getMessage());
+                        return;
+                    }
+                    registry = loaded;
+                    ConflictIndex conflicts = loaded.conflicts();
+                    int installed = conflicts.mods().size();
+                    int conflicted = conflicts.conflictedPaths();
+                    installedLabel.setText(conflicted == 0
+                            ? String.format("%d mods installed", installed)
+                            : String.format("%d mods installed, %d files changed by more than one mod", installed, conflicted));
+                    filter.refresh(searchField.getText());
+                });
+    }
+
+    /**
+     * Runs on the filter thread.
+     */
+    private List<InstalledMod> search(String text, BooleanSupplier stale) {
+        InstalledMods current = registry;
+        if (current == null) return List.of();
+        String needle = text.strip().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) return current.mods();
+
+        List<InstalledMod> matches = new ArrayList<>();
+        for (InstalledMod mod : current.mods()) {
+            // Discarded anyway, the next input is waiting
+            if (stale.getAsBoolean()) break;
+            if (mod.id().toLowerCase(Locale.ROOT).contains(needle)) matches.add(mod);
+        }
+        return matches;
+    }
+
+    private void openBrowser() {
+        ModBrowser browser = new ModBrowser();
+        Stage stage = new Stage();
+        stage.setTitle("Mod Browser");
+        stage.setScene(browser.scene());
+        stage.setOnHidden(e -> browser.close());
+        stage.show();
+    }
+
+    private void updateIndex() {
+        IndexSync sync = MTIV.indexSync();
+        if (sync == null) {
+            indexLabel.setText("No mod index source configured");
+            return;
+        }
+
+        updateIndexButton.setDisable(true);
+        indexLabel.setText("Updating mod index...");
+        TaskScheduler.shared().submit("update-index", TaskScheduler.Category.NETWORK, context -> sync.sync(MTIV.catalog()))
+                .onDone((result, error) -> {
+                    updateIndexButton.setDisable(false);
+                    if (error != null) indexLabel.setText("Failed to update mod index: " + error.getMessage());
+                    else indexLabel.setText(result.changed()
+                            ? String.format("%d added, %d updated, %d removed", result.added(), result.modified(), result.removed())
+                            : "Mod index is up to date");
+                });
+    }
+
+    private void checkGame() {
+        GameConfig game = MTIV.game();
+        GameVersion version = GameVersion.byId(game.defaultVersion());
+        Path gameDirectory = game.defaultDirectory();
+        byte[] rpfKey = game.rpfKey();
+        if (version == null || gameDirectory == null) {
+            gameLabel.setText("No game installation selected");
+            return;
+        }
+
+        checkGameButton.setDisable(true);
+        gameLabel.setText("Checking game files...");
+        TaskScheduler.shared().submit("check-game-" + version.id(), TaskScheduler.Category.DISK_IO,
+                        context -> checkGame(context, version, gameDirectory, rpfKey))
+                .onProgress(progress -> {
+                    if (progress.message() != null) gameLabel.setText(progress.message());
+                })
+                .onDone((message, error) -> {
+                    checkGameButton.setDisable(false);
+                    gameLabel.setText(error == null ? message : "Failed to check game files: " + error.getMessage());
+                    filter.refresh(searchField.getText());
+                });
+    }
+
+    /**
+     * Records the baseline of an unmodded game, or compares the game against it and flags the installed mods
+     * whose changes are gone. Runs on a task thread.
+     *
+     * @param rpfKey Key for encrypted RPF tables of contents, may be null
+     */
+    private String checkGame(TaskScheduler.Context context, GameVersion version, Path gameDirectory, byte[] rpfKey) throws IOException {
+        InstalledMods current = registry != null ? registry : InstalledMods.load();
+        Baseline baseline = Baseline.load(version);
+        if (baseline == null) {
+            if (!current.mods().isEmpty()) {
+                return "No record of the original " + version + " files, it can only be made before mods are installed";
+            }
+            baseline = Baseline.create(Baseline.pathOf(version), version, gameDirectory, rpfKey,
+                    done -> context.progress(done, -1, String.format("Recording original game files: %d", done)));
+            return String.format("Recorded %d original game files", baseline.size());
+        }
+
+        int total = baseline.size();
+        DriftReport report = baseline.scan(gameDirectory, new FileVerifier(DigestCache.load()), rpfKey,
+                done -> context.progress(done, total, String.format("Checking game files: %d/%d", done, total)));
+        List<String> flagged = current.flagDrift(report);
+        current.save();
+
+        int unexplained = report.unexplained(current.conflicts()).size();
+        if (unexplained == 0 && flagged.isEmpty()) return "Game files are as expected";
+        return String.format("%d files changed outside of the tool, %d mods with changes gone", unexplained, flagged.size());
+    }
 
-        this.scene = new Scene(vBox, 500, 200);
+    private static final class InstalledModCell extends ListCell<InstalledMod> {
+        @Override
+        protected void updateItem(InstalledMod mod, boolean empty) {
+            super.updateItem(mod, empty);
+            if (empty || mod == null) {
+                setText(null);
+                return;
+            }
+            String text = mod.id() + " " + mod.version();
+            setText(mod.drifted() == null ? text : text + " (changes gone from the game files)");
+        }
     }
 }
@@ -1,10 +1,28 @@
 package dev.nelmin.java.scene.mods;
 
+import dev.nelmin.java.MTIV;
+import dev.nelmin.java.application.TaskScheduler;
+import dev.nelmin.java.mods.DependencyResolver;
+import dev.nelmin.java.mods.ModCatalog;
+import dev.nelmin.java.objects.IndexedMod;
+import dev.nelmin.java.scene.ListFilter;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 
+import java.time.Duration;
+import java.util.List;
+
 /*
  List all mods compatible with current game version
  Add option to install
@@ -13,12 +31,118 @@ import lombok.experimental.Accessors;
  */
 @Accessors(fluent = true)
 public class ModBrowser {
+    private static final Duration SEARCH_DELAY = Duration.ofMillis(150);
+    private static final double CELL_HEIGHT = 24;
+
     @Getter
     private final Scene scene;
+    private final TextField searchField;
+    private final Label countLabel;
+    private final ListFilter<IndexedMod> filter;
+    private final String gameVersion;
+    /**
+     * Searches again when the shared catalog was updated
+     */
+    private final Runnable refresh;
+    private volatile ModCatalog catalog;
 
     public ModBrowser() {
-        VBox vBox = new VBox(20);
+        VBox vBox = new VBox(10);
+        vBox.setPadding(new Insets(10));
+
+        searchField = new TextField();
+        searchField.setPromptText("Search mods");
+        countLabel = new Label("Loading mod index...");
+
+        ObservableList<IndexedMod> mods = FXCollections.observableArrayList();
+        ListView<IndexedMod> listView = new ListView<>(mods);
+        // Cells are not measured one by one, scrolling through the whole index stays cheap
+        listView.setFixedCellSize(CELL_HEIGHT);
+        listView.setCellFactory(view -> new ModCell());
+        VBox.setVgrow(listView, Priority.ALWAYS);
+
+        gameVersion = MTIV.game().defaultVersion();
+        filter = new ListFilter<>(mods, this::search, SEARCH_DELAY);
+        searchField.textProperty().addListener((observable, oldText, newText) -> filter.filter(newText));
+        filter.onResult(result -> {
+            // Keeps the loading or empty index message
+            ModCatalog current = catalog;
+            if (current != null && current.size() > 0) countLabel.setText(result.size() + " mods");
+        });
+
+        refresh = () -> Platform.runLater(() -> {
+            ModCatalog current = catalog;
+            if (current == null) return;
+            countLabel.setText(current.size() == 0 ? "Mod index is empty, update it on the dashboard" : "Searching...");
+            filter.refresh(searchField.getText());
+        });
+
+        vBox.getChildren().addAll(searchField, countLabel, listView);
+        this.scene = new Scene(vBox, 600, 450);
+        loadCatalog();
+    }
+
+    /**
+     * Stops following updates of the shared catalog. Called when the window is closed.
+     */
+    public void close() {
+        ModCatalog current = catalog;
+        if (current != null) current.removeListener(refresh);
+    }
+
+    private void loadCatalog() {
+        TaskScheduler.shared().submit("load-index", TaskScheduler.Category.DISK_IO, context -> MTIV.catalog())
+                .onDone((loaded, error) -> {
+                    if (error != null) {
+                        countLabel.setText("Failed to load mod index: " + error.getMessage());
+                        return;
+                    }
+                    catalog = loaded;
+                    loaded.addListener(refresh);
+                    refresh.run();
+                });
+    }
+
+    /**
+     * Runs on the filter thread.
+     */
+    private List<IndexedMod> search(String text) {
+        ModCatalog current = catalog;
+        if (current == null) return List.of();
+        String version = gameVersion == null || gameVersion.isBlank() ? null : gameVersion;
+        return current.search(new ModCatalog.Query(text.isBlank() ? null : text, version, null, null));
+    }
+
+    /**
+     * Shows name, latest version and authors of a mod. Cells are reused while scrolling, so they only update
+     * their text.
+     */
+    private static final class ModCell extends ListCell<IndexedMod> {
+        @Override
+        protected void updateItem(IndexedMod mod, boolean empty) {
+            super.updateItem(mod, empty);
+            if (empty || mod == null) {
+                setText(null);
+                return;
+            }
+
+            StringBuilder text = new StringBuilder(mod.name() == null ? mod.id() : mod.name());
+            String latest = latestVersion(mod);
+            if (latest != null) text.append(' ').append(latest);
+            if (mod.authors() != null && mod.authors().length > 0) {
+                text.append(" by ").append(String.join(", ", mod.authors()));
+            }
+            setText(text.toString());
+        }
 
-        this.scene = new Scene(vBox, 500, 200);
+        private static String latestVersion(IndexedMod mod) {
+            if (mod.versions() == null) return null;
+            String latest = null;
+            for (IndexedMod.Version version : mod.versions()) {
+                if (version == null || version.version() == null) continue;
+                if (latest == null || DependencyResolver.compareVersions(version.version(), latest) > 0) latest = version.version();
+            }
+            return latest;
+        }
     }
 }
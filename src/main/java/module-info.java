@@ -7,11 +7,16 @@ module dev.nelmin.java {
     requires org.jetbrains.annotations;
     requires com.google.gson;
     requires java.logging;
+    requires java.net.http;
     requires static lombok;
-    requires com.sun.jna.platform;
-    requires com.sun.jna;
 
     exports dev.nelmin.java;
     exports dev.nelmin.java.configuration;
     exports dev.nelmin.java.application;
+
+    opens dev.nelmin.java.fs.backup to com.google.gson;
+    opens dev.nelmin.java.fs.search to com.google.gson;
+    opens dev.nelmin.java.fs.verify to com.google.gson;
+    opens dev.nelmin.java.mods to com.google.gson;
+    opens dev.nelmin.java.objects to com.google.gson;
 }
@@ -0,0 +1,65 @@
+package dev.nelmin.java.application;
+
+import dev.nelmin.java.configuration.JSONConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NDAppTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void bootstrapKeepsExistingConfigAndAddsNewDefaults() throws IOException {
+        Path file = directory.resolve("config.json");
+        String existing = """
+                {
+                  "game": {
+                    "default": "12059",
+                    "12059": {
+                      "directory": "C:/GTAIV"
+                    }
+                  }
+                }""";
+        Files.writeString(file, existing);
+        NDApp app = new App();
+
+        app.bootstrapConfig(directory.toFile());
+        assertEquals(existing, Files.readString(file));
+        assertFalse(Files.exists(directory.resolve("config.json.tmp")));
+
+        JSONConfiguration config = NDApp.config();
+        assertEquals("12059", config.getString("game.default"));
+        assertEquals("C:/GTAIV", config.getString("game.12059.directory"));
+        assertTrue(config.contains("index.url"));
+
+        app.stop();
+        JSONConfiguration saved = JSONConfiguration.loadConfiguration(file);
+        assertEquals("C:/GTAIV", saved.getString("game.12059.directory"));
+        assertTrue(saved.contains("game.rpf_key"));
+        assertTrue(saved.contains("index.url"));
+    }
+
+    @Test
+    void bootstrapCreatesMissingConfig() throws IOException {
+        NDApp app = new App();
+
+        app.bootstrapConfig(directory.toFile());
+
+        assertTrue(JSONConfiguration.loadConfiguration(directory.resolve("config.json")).contains("game.default"));
+        assertFalse(Files.exists(directory.resolve("config.json.tmp")));
+    }
+
+    private static final class App extends NDApp {
+        @Override
+        public void start() {
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package dev.nelmin.java.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TaskSchedulerTest {
+    @Test
+    void runAllFinishesWhileTheCallerHoldsTheOnlyPermit() throws Exception {
+        TaskScheduler scheduler = new TaskScheduler(Map.of(TaskScheduler.Category.DISK_IO, 1));
+        AtomicInteger ran = new AtomicInteger();
+        List<Callable<Void>> jobs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            jobs.add(() -> {
+                ran.incrementAndGet();
+                return null;
+            });
+        }
+
+        TaskScheduler.Task<Void> parent = scheduler.submit("parent", TaskScheduler.Category.DISK_IO, context -> {
+            scheduler.runAll("child", TaskScheduler.Category.DISK_IO, 4, jobs);
+            return null;
+        });
+
+        parent.completion().get(10, TimeUnit.SECONDS);
+        assertEquals(8, ran.get());
+    }
+
+    @Test
+    void runAllStopsAtTheFirstFailure() {
+        TaskScheduler scheduler = new TaskScheduler();
+        IOException failure = new IOException("broken");
+        AtomicInteger ran = new AtomicInteger();
+        List<Callable<Void>> jobs = new ArrayList<>();
+        jobs.add(() -> {
+            throw failure;
+        });
+        for (int i = 0; i < 8; i++) {
+            jobs.add(() -> {
+                ran.incrementAndGet();
+                return null;
+            });
+        }
+
+        IOException thrown = assertThrows(IOException.class,
+                () -> scheduler.runAll("jobs", TaskScheduler.Category.DISK_IO, 1, jobs));
+        assertSame(failure, thrown);
+        assertEquals(0, ran.get());
+    }
+}
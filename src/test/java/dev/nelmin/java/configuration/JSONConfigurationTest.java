@@ -0,0 +1,115 @@
+package dev.nelmin.java.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JSONConfigurationTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void setsEscapedPaths() {
+        JSONConfiguration config = JSONConfiguration.create();
+        config.set(ConfigPath.compile("game." + ConfigPath.escape("1.0.8.0") + ".directory"), "C:/GTAIV");
+
+        assertEquals("C:/GTAIV", config.getString("game.1\\.0\\.8\\.0.directory"));
+        assertEquals("C:/GTAIV", config.getConfigurationSection("game").getString("1\\.0\\.8\\.0.directory"));
+    }
+
+    @Test
+    void rejectsSettingTheConfigurationItself() {
+        JSONConfiguration config = JSONConfiguration.create();
+        config.set("game.version", "12059");
+        JSONConfiguration section = config.getConfigurationSection("game");
+
+        assertThrows(IllegalArgumentException.class, () -> config.set(ConfigPath.ROOT, "value"));
+        assertThrows(IllegalArgumentException.class, () -> section.set(ConfigPath.ROOT, null));
+        assertEquals("12059", config.getString("game.version"));
+    }
+
+    @Test
+    void flushWritesChangesOfWriteBehind() throws IOException {
+        Path file = directory.resolve("config.json");
+        JSONConfiguration config = JSONConfiguration.create();
+        config.save(file.toFile());
+        config.writeBehind(Duration.ofMillis(1));
+
+        for (int i = 0; i < 100; i++) {
+            config.set("count", i);
+            config.flush();
+            assertEquals(i, JSONConfiguration.loadFromString(Files.readString(file)).getInt("count"));
+        }
+    }
+
+    @Test
+    void writeBehindCoalescesChangesWithinTheDelay() throws IOException, InterruptedException {
+        Path file = directory.resolve("config.json");
+        JSONConfiguration config = JSONConfiguration.create();
+        config.save(file.toFile());
+        long saves = config.saveStatistics().saves();
+        config.writeBehind(Duration.ofMillis(200));
+
+        for (int i = 0; i < 10; i++) config.set("count", i);
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (config.saveStatistics().saves() == saves && System.nanoTime() < deadline) Thread.sleep(10);
+        // Give a second save the chance to show up
+        Thread.sleep(400);
+        assertEquals(saves + 1, config.saveStatistics().saves());
+        assertEquals(9, JSONConfiguration.loadConfiguration(file).getInt("count"));
+    }
+
+    @Test
+    void flushWritesPendingChangesBeforeTheDelay() throws IOException {
+        Path file = directory.resolve("config.json");
+        JSONConfiguration config = JSONConfiguration.create();
+        config.save(file.toFile());
+        long saves = config.saveStatistics().saves();
+        config.writeBehind(Duration.ofMinutes(1));
+
+        config.set("game.version", "12059");
+        config.set("game.directory", "C:/GTAIV");
+        assertFalse(JSONConfiguration.loadConfiguration(file).contains("game.version"));
+
+        // As on stop: the scheduled save would only run after the application exited
+        config.flush();
+        assertEquals(saves + 1, config.saveStatistics().saves());
+        JSONConfiguration saved = JSONConfiguration.loadConfiguration(file);
+        assertEquals("12059", saved.getString("game.version"));
+        assertEquals("C:/GTAIV", saved.getString("game.directory"));
+
+        // Nothing left for the scheduled save to write
+        config.flush();
+        assertEquals(saves + 1, config.saveStatistics().saves());
+    }
+
+    @Test
+    void flushRetriesFailedBackgroundSave() throws IOException {
+        Path file = directory.resolve("settings").resolve("config.json");
+        JSONConfiguration config = JSONConfiguration.create();
+        config.save(file.toFile());
+        Files.delete(file);
+        Files.delete(file.getParent());
+        // A file where the directory should be makes every save fail
+        Files.writeString(file.getParent(), "");
+
+        config.writeBehind(Duration.ZERO);
+        config.set("value", "changed");
+        assertThrows(IOException.class, config::flush);
+
+        Files.delete(file.getParent());
+        config.flush();
+        assertEquals("changed", JSONConfiguration.loadConfiguration(file).getString("value"));
+        // Nothing pending and no error left to report
+        config.flush();
+    }
+}
@@ -0,0 +1,102 @@
+package dev.nelmin.java.fs.backup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackupStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesIdenticalChunksOnce() throws IOException {
+        byte[] chunk = data(BackupStore.CHUNK_SIZE, 1);
+        byte[] data = new byte[BackupStore.CHUNK_SIZE * 2 + 10];
+        System.arraycopy(chunk, 0, data, 0, chunk.length);
+        System.arraycopy(chunk, 0, data, chunk.length, chunk.length);
+        Path file = Files.write(directory.resolve("vehicles.img"), data);
+        BackupStore store = new BackupStore(directory.resolve("MTIV-Backups"));
+
+        BackupStore.Manifest first = store.backup(file, "first");
+        BackupStore.Manifest second = store.backup(file, "second");
+
+        assertEquals(3, first.chunks().length);
+        assertEquals(first.chunks()[0], first.chunks()[1]);
+        assertArrayEquals(first.chunks(), second.chunks());
+        assertEquals(2, chunkFiles(store));
+    }
+
+    @Test
+    void restoresBackup() throws IOException {
+        byte[] data = data(BackupStore.CHUNK_SIZE + 500, 2);
+        Path file = Files.write(directory.resolve("handling.dat"), data);
+        BackupStore store = new BackupStore(directory.resolve("MTIV-Backups"));
+        store.backup(file, "handling");
+
+        Files.write(file, data(100, 3));
+        store.restore("handling", file);
+
+        assertArrayEquals(data, Files.readAllBytes(file));
+    }
+
+    @Test
+    void rejectsDamagedChunk() throws IOException {
+        Path file = Files.write(directory.resolve("handling.dat"), data(5000, 4));
+        BackupStore store = new BackupStore(directory.resolve("MTIV-Backups"));
+        String key = store.backup(file, "handling").chunks()[0];
+        Path chunk = store.root().resolve("chunks").resolve(key.substring(0, 2)).resolve(key);
+        byte[] damaged = Files.readAllBytes(chunk);
+        damaged[100] ^= 1;
+        Files.write(chunk, damaged);
+
+        byte[] current = data(200, 5);
+        Files.write(file, current);
+        assertThrows(IOException.class, () -> store.restore("handling", file));
+
+        assertArrayEquals(current, Files.readAllBytes(file));
+        assertFalse(Files.exists(directory.resolve("handling.dat.mtiv-restore")));
+    }
+
+    @Test
+    void prunesUnreferencedChunks() throws IOException {
+        Path kept = Files.write(directory.resolve("kept.dat"), data(3000, 6));
+        Path dropped = Files.write(directory.resolve("dropped.dat"), data(3000, 7));
+        BackupStore store = new BackupStore(directory.resolve("MTIV-Backups"));
+        store.backup(kept, "kept");
+        store.backup(dropped, "dropped");
+        // A chunk still being written
+        Path pending = store.root().resolve("chunks").resolve("00").resolve("00ab.tmp");
+        Files.createDirectories(pending.getParent());
+        Files.write(pending, new byte[10]);
+
+        assertTrue(store.delete("dropped"));
+        assertEquals(1, store.prune());
+
+        assertTrue(Files.exists(pending));
+        Files.write(kept, new byte[0]);
+        store.restore("kept", kept);
+        assertArrayEquals(data(3000, 6), Files.readAllBytes(kept));
+    }
+
+    private static long chunkFiles(BackupStore store) throws IOException {
+        try (Stream<Path> files = Files.walk(store.root().resolve("chunks"))) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static byte[] data(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) data[i] = (byte) (i * 31 + seed + (i >> 10));
+        return data;
+    }
+}
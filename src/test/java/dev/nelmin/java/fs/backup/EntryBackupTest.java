@@ -0,0 +1,112 @@
+package dev.nelmin.java.fs.backup;
+
+import dev.nelmin.java.fs.files.EntrySource;
+import dev.nelmin.java.fs.files.IMGFile;
+import dev.nelmin.java.fs.files.IMGWriter;
+import dev.nelmin.java.fs.files.RPFFile;
+import dev.nelmin.java.fs.files.RPFWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EntryBackupTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresImgEntries() throws IOException {
+        Path path = directory.resolve("vehicles.img");
+        ByteBuffer header = ByteBuffer.allocate(IMGFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(IMGFile.MAGIC).putInt(IMGFile.VERSION).putInt(0).putInt(0)
+                .putShort((short) IMGFile.TOC_ITEM_SIZE).putShort((short) 0);
+        Files.write(path, header.array());
+        EntryBackup backups = new EntryBackup(directory.resolve("entries"));
+
+        try (IMGFile archive = new IMGFile(path)) {
+            new IMGWriter(archive).put("infernus.wft", source(3000, 1)).put("banshee.wft", source(100, 2)).commit();
+            backups.backup(archive, "vehicles", List.of("infernus.wft", "turismo.wft"));
+            new IMGWriter(archive).put("infernus.wft", source(5000, 3)).put("turismo.wft", source(10, 4)).commit();
+
+            backups.restore("vehicles", archive);
+        }
+
+        try (IMGFile archive = new IMGFile(path)) {
+            assertArrayEquals(bytes(3000, 1), contents(archive.read("infernus.wft")));
+            assertArrayEquals(bytes(100, 2), contents(archive.read("banshee.wft")));
+            assertNull(archive.entry("turismo.wft"));
+        }
+    }
+
+    @Test
+    void restoresRpfFiles() throws IOException {
+        Path path = emptyRpf();
+        EntryBackup backups = new EntryBackup(directory.resolve("entries"));
+
+        try (RPFFile archive = new RPFFile(path)) {
+            new RPFWriter(archive).put("common/data/handling.dat", source(3000, 1)).put("common/data/carcols.dat", source(100, 2)).commit();
+            backups.backup(archive, "common", List.of("common/data/handling.dat", "common/data/new.dat"));
+            new RPFWriter(archive).put("common/data/handling.dat", source(200, 3)).put("common/data/new.dat", source(10, 4)).commit();
+
+            backups.restore("common", archive);
+        }
+
+        try (RPFFile archive = new RPFFile(path)) {
+            assertArrayEquals(bytes(3000, 1), contents(archive.read("common/data/handling.dat")));
+            assertArrayEquals(bytes(100, 2), contents(archive.read("common/data/carcols.dat")));
+            assertNull(archive.entry("common/data/new.dat"));
+        }
+    }
+
+    @Test
+    void failsWithoutSidecar() throws IOException {
+        Path path = emptyRpf();
+        EntryBackup backups = new EntryBackup(directory.resolve("entries"));
+
+        try (RPFFile archive = new RPFFile(path)) {
+            assertThrows(NoSuchFileException.class, () -> backups.restore("missing", archive));
+        }
+    }
+
+    /**
+     * Writes an unencrypted RPF2 archive holding only its root directory.
+     */
+    private Path emptyRpf() throws IOException {
+        int tocSize = RPFFile.TOC_ITEM_SIZE * 2;
+        ByteBuffer file = ByteBuffer.allocate(RPFFile.TOC_OFFSET + tocSize).order(ByteOrder.LITTLE_ENDIAN);
+        file.put(new byte[]{'R', 'P', 'F', '2'}).putInt(tocSize).putInt(1).putInt(0).putInt(0);
+        // Root directory: no name, first child 1, no children
+        file.position(RPFFile.TOC_OFFSET);
+        file.putInt(0).putInt(0).putInt(0x80000000 | 1).putInt(0);
+
+        Path path = directory.resolve("common.rpf");
+        Files.write(path, file.array());
+        return path;
+    }
+
+    private static EntrySource source(int size, int seed) {
+        return EntrySource.of(ByteBuffer.wrap(bytes(size, seed)));
+    }
+
+    private static byte[] bytes(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) data[i] = (byte) (i * 31 + seed);
+        return data;
+    }
+
+    private static byte[] contents(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+}
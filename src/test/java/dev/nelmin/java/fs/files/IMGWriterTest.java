@@ -0,0 +1,148 @@
+package dev.nelmin.java.fs.files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IMGWriterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesReplacesAndRemovesEntries() throws IOException {
+        Path path = emptyArchive();
+        IMGFile archive = new IMGFile(path);
+        new IMGWriter(archive)
+                .put("infernus.wft", source(3000, 1))
+                .put("banshee.wft", source(100, 2))
+                .commit();
+
+        new IMGWriter(archive)
+                .put("INFERNUS.wft", source(5000, 3))
+                .remove("banshee.wft")
+                .put("turismo.wft", source(10, 4))
+                .commit();
+
+        try (IMGFile reopened = new IMGFile(path)) {
+            List<String> names = reopened.entries().stream().map(IMGFile.Entry::name).toList();
+            assertEquals(List.of("infernus.wft", "turismo.wft"), names);
+            assertArrayEquals(bytes(5000, 3), contents(reopened.read("infernus.wft")));
+            assertArrayEquals(bytes(10, 4), contents(reopened.read("turismo.wft")));
+            assertNull(reopened.entry("banshee.wft"));
+        }
+    }
+
+    @Test
+    void keepsBlocksOfTheOldTableOfContentsUntilItIsReplaced() throws IOException {
+        Path path = emptyArchive();
+        IMGFile archive = new IMGFile(path);
+        new IMGWriter(archive)
+                .put("a.wft", source(4096, 1))
+                .put("b.wft", source(4096, 2))
+                .commit();
+        IMGFile.Entry oldA = archive.entry("a.wft");
+        IMGFile.Entry oldB = archive.entry("b.wft");
+        assertNotNull(oldA);
+        assertNotNull(oldB);
+
+        // The replacement fits into the old blocks and the removal frees some, yet neither may be reused
+        new IMGWriter(archive)
+                .put("a.wft", source(100, 3))
+                .remove("b.wft")
+                .put("c.wft", source(100, 4))
+                .commit();
+
+        IMGFile.Entry newA = archive.entry("a.wft");
+        IMGFile.Entry newC = archive.entry("c.wft");
+        assertNotNull(newA);
+        assertNotNull(newC);
+        for (IMGFile.Entry entry : List.of(newA, newC)) {
+            assertFalse(overlaps(entry, oldA), entry.name() + " overwrote a.wft");
+            assertFalse(overlaps(entry, oldB), entry.name() + " overwrote b.wft");
+        }
+        assertArrayEquals(bytes(4096, 1), raw(path, oldA.offset(), oldA.size()));
+        assertArrayEquals(bytes(4096, 2), raw(path, oldB.offset(), oldB.size()));
+        assertArrayEquals(bytes(100, 3), contents(archive.read(newA)));
+
+        // Freed in the previous commit, so the next one may use them
+        long length = Files.size(path);
+        new IMGWriter(archive).put("d.wft", source(100, 5)).commit();
+        assertEquals(length, Files.size(path));
+        archive.close();
+    }
+
+    @Test
+    void movesEntriesOutOfTheWayOfAGrowingTableOfContents() throws IOException {
+        Path path = emptyArchive();
+        IMGFile archive = new IMGFile(path);
+        new IMGWriter(archive).put("first.wft", source(700, 1)).commit();
+
+        IMGWriter writer = new IMGWriter(archive);
+        for (int i = 0; i < 200; i++) writer.put("entry" + i + ".wft", source(10, i));
+        writer.commit();
+
+        try (IMGFile reopened = new IMGFile(path)) {
+            assertEquals(201, reopened.entries().size());
+            assertArrayEquals(bytes(700, 1), contents(reopened.read("first.wft")));
+            for (int i = 0; i < 200; i++) {
+                assertArrayEquals(bytes(10, i), contents(reopened.read("entry" + i + ".wft")));
+            }
+            long tableEnd = IMGFile.HEADER_SIZE + reopened.tableSize();
+            assertTrue(reopened.entries().stream().allMatch(entry -> entry.offset() >= tableEnd));
+        }
+    }
+
+    private Path emptyArchive() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(IMGFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(IMGFile.MAGIC).putInt(IMGFile.VERSION).putInt(0).putInt(0)
+                .putShort((short) IMGFile.TOC_ITEM_SIZE).putShort((short) 0);
+        Path path = directory.resolve("test.img");
+        Files.write(path, header.array());
+        return path;
+    }
+
+    private static boolean overlaps(IMGFile.Entry a, IMGFile.Entry b) {
+        return a.offsetBlocks() < b.offsetBlocks() + b.usedBlocks() && b.offsetBlocks() < a.offsetBlocks() + a.usedBlocks();
+    }
+
+    static EntrySource source(int size, int seed) {
+        return EntrySource.of(ByteBuffer.wrap(bytes(size, seed)));
+    }
+
+    static byte[] bytes(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) data[i] = (byte) (i * 31 + seed);
+        return data;
+    }
+
+    static byte[] contents(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+
+    static byte[] raw(Path path, long offset, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) >= 0) {
+            }
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package dev.nelmin.java.fs.files;
+
+import dev.nelmin.java.objects.GameVersion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PEFileTest {
+    private static final int HEADER = 0x80;
+    private static final int SECTION_RVA = 0x3000;
+    private static final int SECTION_OFFSET = 0x400;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsVersionOfPE32() throws IOException {
+        Path executable = Files.write(directory.resolve("GTAIV.exe"), image(false, 1, 0, 8, 0));
+
+        PEFile.FileVersion version = PEFile.fileVersion(executable);
+
+        assertEquals(new PEFile.FileVersion(1, 0, 8, 0), version);
+        assertEquals("1.0.8.0", version.toString());
+        assertEquals(GameVersion.V1_0_8_0, GameVersion.of(version));
+    }
+
+    @Test
+    void readsVersionOfPE32Plus() throws IOException {
+        PEFile.FileVersion version = PEFile.fileVersion(buffer(image(true, 1, 2, 0, 59)));
+
+        assertEquals(new PEFile.FileVersion(1, 2, 0, 59), version);
+        assertEquals(GameVersion.V1_2_0_59, GameVersion.of(version));
+        assertEquals("12059", GameVersion.of(version).id());
+    }
+
+    @Test
+    void mapsUnknownVersionToNull() throws IOException {
+        PEFile.FileVersion version = PEFile.fileVersion(buffer(image(false, 1, 0, 6, 0)));
+
+        assertEquals(new PEFile.FileVersion(1, 0, 6, 0), version);
+        assertNull(GameVersion.of(version));
+        assertNull(GameVersion.byId("1060"));
+        assertEquals(GameVersion.V1_0_4_0, GameVersion.byId("1040"));
+    }
+
+    @Test
+    void rejectsImagesWithoutVersion() {
+        byte[] image = image(false, 1, 0, 8, 0);
+
+        byte[] noVersion = image.clone();
+        // Resource type id of the version, becomes RT_RCDATA
+        ByteBuffer.wrap(noVersion).order(ByteOrder.LITTLE_ENDIAN).putInt(SECTION_OFFSET + 16 + 8, 10);
+        assertThrows(IOException.class, () -> PEFile.fileVersion(buffer(noVersion)));
+
+        byte[] badSignature = image.clone();
+        ByteBuffer.wrap(badSignature).order(ByteOrder.LITTLE_ENDIAN).putInt(SECTION_OFFSET + 0x68 + 40, 0);
+        assertThrows(IOException.class, () -> PEFile.fileVersion(buffer(badSignature)));
+
+        assertThrows(IOException.class, () -> PEFile.fileVersion(buffer(Arrays.copyOf(image, SECTION_OFFSET + 0x40))));
+        assertThrows(IOException.class, () -> PEFile.fileVersion(buffer("not an executable".getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    private static ByteBuffer buffer(byte[] image) {
+        return ByteBuffer.wrap(image).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Builds a minimal image: DOS stub, PE headers, one {@code .rsrc} section with an icon and a version
+     * resource, and the {@code VS_VERSIONINFO} of the given version.
+     */
+    private static byte[] image(boolean plus, int major, int minor, int build, int revision) {
+        ByteBuffer image = ByteBuffer.allocate(SECTION_OFFSET + 0x200).order(ByteOrder.LITTLE_ENDIAN);
+        image.putShort(0, (short) 0x5A4D);
+        image.putInt(0x3C, HEADER);
+
+        image.putInt(HEADER, 0x00004550);
+        image.putShort(HEADER + 4, (short) (plus ? 0x8664 : 0x14C));
+        image.putShort(HEADER + 6, (short) 1);
+        int optional = HEADER + 24;
+        int directories = optional + (plus ? 112 : 96);
+        int optionalSize = directories + 16 * 8 - optional;
+        image.putShort(HEADER + 20, (short) optionalSize);
+        image.putShort(optional, (short) (plus ? 0x20B : 0x10B));
+        image.putInt(directories - 4, 16);
+        image.putInt(directories + 2 * 8, SECTION_RVA);
+        image.putInt(directories + 2 * 8 + 4, 0x200);
+
+        int section = optional + optionalSize;
+        image.put(section, ".rsrc".getBytes(StandardCharsets.US_ASCII));
+        image.putInt(section + 8, 0x200);
+        image.putInt(section + 12, SECTION_RVA);
+        image.putInt(section + 16, 0x200);
+        image.putInt(section + 20, SECTION_OFFSET);
+
+        // Type directory: RT_ICON (3), then RT_VERSION (16), both lead to the same name directory
+        int resources = SECTION_OFFSET;
+        directory(image, resources, 2);
+        image.putInt(resources + 16, 3).putInt(resources + 20, 0x80000000 | 0x28);
+        image.putInt(resources + 24, 16).putInt(resources + 28, 0x80000000 | 0x28);
+        // Name directory, then language directory pointing to the data entry
+        directory(image, resources + 0x28, 1);
+        image.putInt(resources + 0x38, 1).putInt(resources + 0x3C, 0x80000000 | 0x40);
+        directory(image, resources + 0x40, 1);
+        image.putInt(resources + 0x50, 0x409).putInt(resources + 0x54, 0x58);
+
+        int data = 0x68;
+        int size = 40 + 52;
+        image.putInt(resources + 0x58, SECTION_RVA + data).putInt(resources + 0x5C, size);
+
+        // VS_VERSIONINFO: length, value length, type, key, padding, VS_FIXEDFILEINFO
+        int info = resources + data;
+        image.putShort(info, (short) size).putShort(info + 2, (short) 52).putShort(info + 4, (short) 0);
+        image.put(info + 6, "VS_VERSION_INFO\0".getBytes(StandardCharsets.UTF_16LE));
+        int fixed = info + 40;
+        image.putInt(fixed, 0xFEEF04BD);
+        image.putInt(fixed + 4, 0x10000);
+        image.putInt(fixed + 8, major << 16 | minor);
+        image.putInt(fixed + 12, build << 16 | revision);
+        return image.array();
+    }
+
+    private static void directory(ByteBuffer image, int offset, int ids) {
+        image.putShort(offset + 12, (short) 0).putShort(offset + 14, (short) ids);
+    }
+}
@@ -0,0 +1,133 @@
+package dev.nelmin.java.fs.files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static dev.nelmin.java.fs.files.IMGWriterTest.bytes;
+import static dev.nelmin.java.fs.files.IMGWriterTest.contents;
+import static dev.nelmin.java.fs.files.IMGWriterTest.raw;
+import static dev.nelmin.java.fs.files.IMGWriterTest.source;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RPFWriterTest {
+    private static final byte[] KEY = bytes(TOCCipher.KEY_LENGTH, 7);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesReplacesAndRemovesFiles() throws IOException {
+        Path path = emptyArchive(null);
+        RPFFile archive = new RPFFile(path);
+        new RPFWriter(archive)
+                .put("common/data/handling.dat", source(3000, 1))
+                .put("common/data/carcols.dat", source(100, 2))
+                .put("readme.txt", source(10, 3))
+                .commit();
+
+        new RPFWriter(archive)
+                .put("COMMON/data/handling.dat", source(5000, 4))
+                .remove("common/data/carcols.dat")
+                .remove("readme.txt")
+                .put("common/shaders/new.fxc", source(20, 5))
+                .commit();
+
+        try (RPFFile reopened = new RPFFile(path)) {
+            assertArrayEquals(bytes(5000, 4), contents(reopened.read("common/data/handling.dat")));
+            assertArrayEquals(bytes(20, 5), contents(reopened.read("common/shaders/new.fxc")));
+            assertNull(reopened.entry("common/data/carcols.dat"));
+            assertNull(reopened.entry("readme.txt"));
+            assertInstanceOf(RPFFile.Directory.class, reopened.entry("common/shaders"));
+        }
+    }
+
+    @Test
+    void keepsBlocksOfTheOldTableOfContentsUntilItIsReplaced() throws IOException {
+        Path path = emptyArchive(null);
+        RPFFile archive = new RPFFile(path);
+        new RPFWriter(archive)
+                .put("a.dat", source(4096, 1))
+                .put("b.dat", source(4096, 2))
+                .commit();
+        RPFFile.FileEntry oldA = (RPFFile.FileEntry) archive.entry("a.dat");
+        RPFFile.FileEntry oldB = (RPFFile.FileEntry) archive.entry("b.dat");
+
+        new RPFWriter(archive)
+                .put("a.dat", source(100, 3))
+                .remove("b.dat")
+                .put("c.dat", source(100, 4))
+                .commit();
+
+        for (String name : List.of("a.dat", "c.dat")) {
+            RPFFile.FileEntry entry = (RPFFile.FileEntry) archive.entry(name);
+            assertTrue(entry.offset() >= oldB.offset() + oldB.storedSize()
+                    || entry.offset() + entry.storedSize() <= oldA.offset(), name + " overwrote an old file");
+        }
+        assertArrayEquals(bytes(4096, 1), raw(path, oldA.offset(), oldA.storedSize()));
+        assertArrayEquals(bytes(4096, 2), raw(path, oldB.offset(), oldB.storedSize()));
+        assertArrayEquals(bytes(100, 3), contents(archive.read("a.dat")));
+        archive.close();
+    }
+
+    @Test
+    void reEncryptsTheTableOfContents() throws IOException {
+        Path path = emptyArchive(KEY);
+        RPFFile archive = new RPFFile(path, KEY);
+        RPFWriter writer = new RPFWriter(archive);
+        for (int i = 0; i < 300; i++) writer.put("dir" + i % 5 + "/file" + i + ".dat", source(50, i));
+        writer.commit();
+
+        try (RPFFile reopened = new RPFFile(path, KEY)) {
+            assertTrue(reopened.encrypted());
+            for (int i = 0; i < 300; i++) {
+                assertArrayEquals(bytes(50, i), contents(reopened.read("dir" + i % 5 + "/file" + i + ".dat")));
+            }
+        }
+        try (RPFFile withoutKey = new RPFFile(path)) {
+            assertThrows(IOException.class, withoutKey::root);
+        }
+    }
+
+    @Test
+    void countsTheRootInTheHeader() throws IOException {
+        Path path = emptyArchive(null);
+        RPFFile archive = new RPFFile(path);
+        new RPFWriter(archive).put("one.dat", source(1, 1)).commit();
+
+        ByteBuffer header = ByteBuffer.wrap(raw(path, 0, RPFFile.HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(2, header.getInt(8));
+        assertEquals(archive.tocSize(), header.getInt(4));
+        archive.close();
+    }
+
+    /**
+     * Writes an archive holding only its root directory.
+     */
+    private Path emptyArchive(byte[] key) throws IOException {
+        int tocSize = RPFFile.TOC_ITEM_SIZE * 2;
+        ByteBuffer table = ByteBuffer.allocate(tocSize).order(ByteOrder.LITTLE_ENDIAN);
+        table.putInt(0).putInt(0).putInt(RPFFile.DIRECTORY_FLAG | 1).putInt(0);
+        if (key != null) TOCCipher.encrypt(key, table.array());
+
+        ByteBuffer file = ByteBuffer.allocate(RPFFile.TOC_OFFSET + tocSize).order(ByteOrder.LITTLE_ENDIAN);
+        file.put(RPFFile.MAGIC).putInt(tocSize).putInt(1).putInt(0).putInt(key != null ? 1 : 0);
+        file.position(RPFFile.TOC_OFFSET);
+        file.put(table.array());
+
+        Path path = directory.resolve("test.rpf");
+        Files.write(path, file.array());
+        return path;
+    }
+}
@@ -0,0 +1,36 @@
+package dev.nelmin.java.fs.files;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static dev.nelmin.java.fs.files.IMGWriterTest.bytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TOCCipherTest {
+    private static final byte[] KEY = bytes(TOCCipher.KEY_LENGTH, 11);
+
+    @Test
+    void roundTrips() throws IOException {
+        byte[] plain = bytes(16 * 40, 3);
+        byte[] data = plain.clone();
+
+        TOCCipher.encrypt(KEY, data);
+        assertFalse(Arrays.equals(plain, data));
+        TOCCipher.decrypt(KEY, data);
+        assertArrayEquals(plain, data);
+    }
+
+    @Test
+    void leavesTrailingPartialBlockInPlainText() throws IOException {
+        byte[] plain = bytes(16 * 2 + 5, 9);
+        byte[] data = plain.clone();
+
+        TOCCipher.encrypt(KEY, data);
+        assertArrayEquals(Arrays.copyOfRange(plain, 32, 37), Arrays.copyOfRange(data, 32, 37));
+        TOCCipher.decrypt(KEY, data);
+        assertArrayEquals(plain, data);
+    }
+}
@@ -0,0 +1,104 @@
+package dev.nelmin.java.fs.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileSearchTest {
+    private static final List<String> EXCLUDED = List.of("windows", "$recycle");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsMatchesInSyntheticTree() throws IOException, InterruptedException {
+        tree(directory, 3, 4);
+        Path shallow = file(directory.resolve("Games/Rockstar/GTA IV/GTAIV.exe"));
+        Path deep = file(directory.resolve("d0/d1/d2/Steam/steamapps/common/gtaiv.EXE"));
+        file(directory.resolve("Windows/System32/GTAIV.exe"));
+        file(directory.resolve("a/b/c/d/e/f/g/h/GTAIV.exe"));
+        Files.createSymbolicLink(directory.resolve("d0/loop"), directory);
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        FileSearch search = new FileSearch("GTAIV.exe", EXCLUDED, 6, Duration.ofMinutes(1), 4);
+        FileSearch.Result result = search.start(List.of(directory), found::add).await();
+
+        assertEquals(Set.of(shallow, deep), found);
+        assertEquals(2, result.found());
+        assertEquals(FileSearch.Outcome.COMPLETED, result.outcome());
+        // 4 + 16 + 64 generated directories and the ones along the match paths
+        assertTrue(result.directories() > 84, String.valueOf(result.directories()));
+    }
+
+    @Test
+    void findFirstStopsAtFirstMatch() throws IOException, InterruptedException {
+        Path match = file(directory.resolve("Games/GTAIV/GTAIV.exe"));
+        FileSearch search = new FileSearch("gtaiv.exe", EXCLUDED, 4, Duration.ofMinutes(1));
+
+        assertEquals(Optional.of(match), search.findFirst(List.of(directory)));
+        assertEquals(Optional.empty(), search.findFirst(List.of(directory.resolve("missing"))));
+    }
+
+    @Test
+    void stopsWhenBudgetIsUsedUp() throws IOException, InterruptedException {
+        for (int i = 0; i < 2000; i++) Files.createFile(directory.resolve("file" + i));
+        file(directory.resolve("sub/GTAIV.exe"));
+
+        FileSearch.Result result = new FileSearch("GTAIV.exe", EXCLUDED, 4, Duration.ZERO)
+                .start(List.of(directory), path -> {
+                })
+                .await();
+
+        assertEquals(FileSearch.Outcome.TIMED_OUT, result.outcome());
+        assertEquals(0, result.found());
+    }
+
+    @Test
+    void failsWithListenerError() throws IOException {
+        file(directory.resolve("GTAIV.exe"));
+        FileSearch.Search search = new FileSearch("GTAIV.exe", EXCLUDED, 4, Duration.ofMinutes(1))
+                .start(List.of(directory), path -> {
+                    throw new IllegalStateException("listener");
+                });
+
+        assertThrows(IllegalStateException.class, search::await);
+    }
+
+    @Test
+    void excludesPathsCaseInsensitively() {
+        FileSearch search = new FileSearch("GTAIV.exe", EXCLUDED, 4, Duration.ofMinutes(1));
+
+        assertTrue(search.isExcluded(Path.of("C:", "WINDOWS", "System32")));
+        assertFalse(search.isExcluded(directory.resolve("Games")));
+    }
+
+    /**
+     * Creates {@code width} directories on each of {@code depth} levels below the root.
+     */
+    private static void tree(Path root, int depth, int width) throws IOException {
+        if (depth == 0) return;
+        for (int i = 0; i < width; i++) {
+            Path child = Files.createDirectories(root.resolve("d" + i));
+            Files.createFile(child.resolve("readme.txt"));
+            tree(child, depth - 1, width);
+        }
+    }
+
+    private static Path file(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        return Files.writeString(path, "MZ");
+    }
+}
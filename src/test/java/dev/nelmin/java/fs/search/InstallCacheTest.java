@@ -0,0 +1,106 @@
+package dev.nelmin.java.fs.search;
+
+import dev.nelmin.java.objects.GameInstall;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstallCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void checksTheFingerprintOfTheExecutable() throws IOException {
+        Path executable = game("GTAIV");
+        InstallCache cache = InstallCache.load(directory.resolve("installs.json"));
+        GameInstall install = cache.put(executable, "1080");
+
+        assertEquals(install, cache.get(executable));
+        assertEquals(install, cache.firstValid());
+
+        // Same size, other modification time
+        Files.setLastModifiedTime(executable, FileTime.fromMillis(install.modified() - 60_000));
+        assertNull(cache.get(executable));
+        assertNull(cache.firstValid());
+        // Still cached, only no longer valid
+        assertEquals(List.of(install), cache.installs());
+
+        Files.setLastModifiedTime(executable, FileTime.fromMillis(install.modified()));
+        assertEquals(install, cache.get(executable));
+        Files.write(executable, new byte[200]);
+        Files.setLastModifiedTime(executable, FileTime.fromMillis(install.modified()));
+        assertNull(cache.get(executable));
+
+        Files.delete(executable);
+        assertNull(cache.get(executable));
+    }
+
+    @Test
+    void dropsInstallsWhoseExecutableChanges() throws IOException, InterruptedException {
+        Path changed = game("GTAIV");
+        Path kept = game("EFLC");
+        Path file = directory.resolve("installs.json");
+        BlockingQueue<GameInstall> removed = new LinkedBlockingQueue<>();
+
+        try (InstallCache cache = InstallCache.load(file)) {
+            GameInstall install = cache.put(changed, "1080");
+            GameInstall other = cache.put(kept, "1120");
+            cache.save();
+            cache.watch(removed::add);
+
+            // A patch replaces the executable
+            Files.write(changed, new byte[300]);
+
+            assertEquals(install, removed.poll(10, TimeUnit.SECONDS));
+            assertEquals(List.of(other), cache.installs());
+            assertEquals(List.of(other), InstallCache.load(file).installs());
+        }
+    }
+
+    @Test
+    void keepsInstallsAcrossReloads() throws IOException {
+        Path file = directory.resolve("cache").resolve("installs.json");
+        InstallCache cache = InstallCache.load(file);
+        GameInstall first = cache.put(game("GTAIV"), "1080");
+        GameInstall second = cache.put(game("EFLC"), "1120");
+        cache.save();
+
+        InstallCache reloaded = InstallCache.load(file);
+        assertEquals(List.of(first, second), reloaded.installs());
+        assertNotNull(reloaded.get(Path.of(second.executable())));
+
+        assertTrue(reloaded.remove(Path.of(first.executable())));
+        reloaded.save();
+        assertEquals(List.of(second), InstallCache.load(file).installs());
+    }
+
+    @Test
+    void treatsDamagedCacheAsEmpty() throws IOException {
+        Path file = Files.writeString(directory.resolve("installs.json"), "{\"installs\": [");
+
+        assertTrue(InstallCache.load(file).installs().isEmpty());
+        assertTrue(InstallCache.load(directory.resolve("missing.json")).installs().isEmpty());
+    }
+
+    /**
+     * Creates a game directory holding an executable.
+     */
+    private Path game(String name) throws IOException {
+        Path executable = directory.resolve(name).resolve("GTAIV.exe");
+        Files.createDirectories(executable.getParent());
+        return Files.write(executable, new byte[100]);
+    }
+}
@@ -0,0 +1,94 @@
+package dev.nelmin.java.fs.verify;
+
+import dev.nelmin.java.fs.files.EntrySource;
+import dev.nelmin.java.fs.files.IMGFile;
+import dev.nelmin.java.fs.files.IMGWriter;
+import dev.nelmin.java.objects.Drift;
+import dev.nelmin.java.objects.GameVersion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaselineTest {
+    private static final String ARCHIVE = "pc/models/cdimages/vehicles.img";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsArchivesSoTouchedFilesCompareEqual() throws IOException {
+        Path game = game();
+        Baseline baseline = Baseline.create(directory.resolve("baseline.json"), GameVersion.byId("1080"), game, null, null);
+        assertEquals(2, baseline.size());
+
+        // Same bytes, new modification time: the recorded digests have to match a full hash
+        for (String file : List.of("GTAIV.exe", ARCHIVE)) {
+            Files.setLastModifiedTime(game.resolve(file), FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        }
+        DriftReport report = baseline.scan(game, verifier(), null, null);
+
+        assertTrue(report.isEmpty(), report.drifts().toString());
+    }
+
+    @Test
+    void reportsChangedArchiveEntries() throws IOException {
+        Path game = game();
+        Baseline baseline = Baseline.create(directory.resolve("baseline.json"), GameVersion.byId("1080"), game, null, null);
+
+        try (IMGFile archive = new IMGFile(game.resolve(ARCHIVE))) {
+            new IMGWriter(archive).put("banshee.wft", source(200, 9)).remove("turismo.wft").commit();
+        }
+        Files.setLastModifiedTime(game.resolve(ARCHIVE), FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        DriftReport report = baseline.scan(game, verifier(), null, null);
+
+        assertEquals(Drift.Kind.MODIFIED, report.kindAt(ARCHIVE));
+        assertEquals(Drift.Kind.MODIFIED, report.kindAt(ARCHIVE + "/banshee.wft"));
+        assertEquals(Drift.Kind.MISSING, report.kindAt(ARCHIVE + "/turismo.wft"));
+        assertNull(report.kindAt(ARCHIVE + "/infernus.wft"));
+    }
+
+    private FileVerifier verifier() {
+        return new FileVerifier(DigestCache.load(directory.resolve("digests.json")));
+    }
+
+    private Path game() throws IOException {
+        Path game = Files.createDirectories(directory.resolve("game"));
+        Files.write(game.resolve("GTAIV.exe"), bytes(5000, 7));
+
+        Path archive = game.resolve(ARCHIVE);
+        Files.createDirectories(archive.getParent());
+        ByteBuffer header = ByteBuffer.allocate(IMGFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(IMGFile.MAGIC).putInt(IMGFile.VERSION).putInt(0).putInt(0)
+                .putShort((short) IMGFile.TOC_ITEM_SIZE).putShort((short) 0);
+        Files.write(archive, header.array());
+        try (IMGFile img = new IMGFile(archive)) {
+            new IMGWriter(img)
+                    .put("infernus.wft", source(3000, 1))
+                    .put("banshee.wft", source(100, 2))
+                    .put("turismo.wft", source(5000, 3))
+                    .commit();
+        }
+        return game;
+    }
+
+    private static EntrySource source(int size, int seed) {
+        return EntrySource.of(ByteBuffer.wrap(bytes(size, seed)));
+    }
+
+    private static byte[] bytes(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) data[i] = (byte) (i * 31 + seed);
+        return data;
+    }
+}
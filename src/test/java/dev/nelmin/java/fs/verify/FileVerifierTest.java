@@ -0,0 +1,81 @@
+package dev.nelmin.java.fs.verify;
+
+import dev.nelmin.java.objects.FileDigest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileVerifierTest {
+    private static final HexFormat HEX = HexFormat.of();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void hashesChunksIntoTheMerkleRoot() throws Exception {
+        byte[] data = data(FileVerifier.CHUNK_SIZE + 1000);
+        Path file = directory.resolve("vehicles.img");
+        Files.write(file, data);
+
+        FileDigest digest = FileVerifier.hash(file);
+
+        MessageDigest root = MessageDigest.getInstance("SHA-512");
+        root.update(sha512(Arrays.copyOfRange(data, 0, FileVerifier.CHUNK_SIZE)));
+        root.update(sha512(Arrays.copyOfRange(data, FileVerifier.CHUNK_SIZE, data.length)));
+        assertEquals(HEX.formatHex(sha512(data)), digest.sha512());
+        assertEquals(HEX.formatHex(root.digest()), digest.merkle_root());
+        assertEquals(FileVerifier.CHUNK_SIZE, digest.chunk_size());
+        assertTrue(FileVerifier.verifyChunk(file, 1, HEX.formatHex(sha512(Arrays.copyOfRange(data, FileVerifier.CHUNK_SIZE, data.length)))));
+    }
+
+    @Test
+    void hashesEmptyFileAsOneEmptyChunk() throws Exception {
+        Path file = Files.createFile(directory.resolve("empty.dat"));
+
+        FileDigest digest = FileVerifier.hash(file);
+
+        assertEquals(HEX.formatHex(sha512(new byte[0])), digest.sha512());
+        assertEquals(HEX.formatHex(sha512(sha512(new byte[0]))), digest.merkle_root());
+    }
+
+    @Test
+    void verifySkipsTheMerkleRoot() throws Exception {
+        byte[] data = data(100_000);
+        Path file = directory.resolve("handling.dat");
+        Files.write(file, data);
+        DigestCache cache = DigestCache.load(directory.resolve("digests.json"));
+        FileVerifier verifier = new FileVerifier(cache);
+
+        assertTrue(verifier.verify(file, HEX.formatHex(sha512(data)).toUpperCase()));
+        FileDigest cached = cache.get(file, Files.readAttributes(file, BasicFileAttributes.class));
+        assertNotNull(cached);
+        assertNull(cached.merkle_root());
+        assertFalse(verifier.verify(file, HEX.formatHex(sha512(new byte[0]))));
+
+        // Asking for the root hashes the file again
+        assertNotNull(verifier.digest(file).merkle_root());
+        assertTrue(Files.exists(directory.resolve("digests.json")));
+    }
+
+    private static byte[] sha512(byte[] data) throws Exception {
+        return MessageDigest.getInstance("SHA-512").digest(data);
+    }
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) data[i] = (byte) (i * 31 + (i >> 8));
+        return data;
+    }
+}
@@ -0,0 +1,90 @@
+package dev.nelmin.java.mods;
+
+import com.google.gson.Gson;
+import dev.nelmin.java.objects.IndexedMod;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CatalogSnapshotTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTrips() throws IOException {
+        Path index = directory.resolve("MOD_INDEX.json");
+        Path snapshot = directory.resolve("MOD_INDEX.snapshot");
+        ModCatalog catalog = new ModCatalog();
+        catalog.schema("https://example.com/schema.json");
+        catalog.apply(List.of(mod("trainer", "Simple Trainer", "1.2.0.59"), mod("icenhancer", "iCEnhancer", "1.0.8.0")),
+                List.of(), "2025-06-01T12:00:00Z");
+        catalog.write(index);
+
+        CatalogSnapshot.write(catalog, snapshot, index);
+        ModCatalog loaded = CatalogSnapshot.read(snapshot, index);
+
+        assertNotNull(loaded);
+        assertEquals(catalog.schema(), loaded.schema());
+        assertEquals(catalog.lastUpdate(), loaded.lastUpdate());
+        assertEquals(catalog.ids(), loaded.ids());
+        IndexedMod trainer = loaded.get("trainer");
+        assertNotNull(trainer);
+        assertEquals(new Gson().toJson(catalog.get("trainer")), new Gson().toJson(trainer));
+        assertArrayEquals(new String[]{"Alice", "Bob"}, trainer.authors());
+        assertEquals("sha", trainer.versions()[0].file().sha512());
+        assertEquals(1024, trainer.versions()[0].file().file_size());
+        assertEquals(List.of(loaded.get("icenhancer")), loaded.compatibleWith("1.0.8.0"));
+    }
+
+    @Test
+    void ignoresSnapshotOfAnotherIndex() throws IOException {
+        Path index = directory.resolve("MOD_INDEX.json");
+        Path snapshot = directory.resolve("MOD_INDEX.snapshot");
+        ModCatalog catalog = new ModCatalog();
+        catalog.apply(List.of(mod("trainer", "Simple Trainer", "1.2.0.59")), List.of(), "a");
+        catalog.write(index);
+        CatalogSnapshot.write(catalog, snapshot, index);
+
+        Files.setLastModifiedTime(index, FileTime.fromMillis(Files.getLastModifiedTime(index).toMillis() + 2000));
+        assertNull(CatalogSnapshot.read(snapshot, index));
+    }
+
+    @Test
+    void ignoresDamagedSnapshot() throws IOException {
+        Path index = directory.resolve("MOD_INDEX.json");
+        Path snapshot = directory.resolve("MOD_INDEX.snapshot");
+        ModCatalog catalog = new ModCatalog();
+        catalog.apply(List.of(mod("trainer", "Simple Trainer", "1.2.0.59")), List.of(), "a");
+        catalog.write(index);
+        CatalogSnapshot.write(catalog, snapshot, index);
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length / 2));
+        assertNull(CatalogSnapshot.read(snapshot, index));
+        assertNull(CatalogSnapshot.read(directory.resolve("missing.snapshot"), index));
+    }
+
+    static IndexedMod mod(String id, String name, String gameVersion) {
+        IndexedMod.Version version = new IndexedMod.Version(
+                "1.0",
+                new IndexedMod.Version.FileInfo("https://example.com/" + id + ".zip", "sha", 1024),
+                "2025-01-01",
+                new String[0],
+                new IndexedMod.Version.Compatibility(new String[]{gameVersion}, null),
+                null
+        );
+        return new IndexedMod(id, name, new String[]{"Alice", "Bob"}, name + " for GTA IV", null,
+                new IndexedMod.Version[]{version}, new String[]{"script"});
+    }
+}
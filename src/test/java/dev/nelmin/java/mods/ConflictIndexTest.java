@@ -0,0 +1,103 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.objects.InstalledMod;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConflictIndexTest {
+    private static final String VEHICLES = "pc/models/cdimages/vehicles.img";
+    private static final String INFERNUS = VEHICLES + "/infernus.wft";
+
+    /**
+     * Installed in this order: a whole archive and a file, a directory holding the archive, entries of the
+     * archive, and the same file again.
+     */
+    private static ConflictIndex index() {
+        ConflictIndex index = new ConflictIndex();
+        index.add(mod("base", path(VEHICLES), path("common/data/handling.dat")));
+        index.add(mod("models", path("pc/models")));
+        index.add(mod("cars", new InstalledMod.ChangedPath(VEHICLES, "entries", new String[]{"infernus.wft", "banshee.wft"})));
+        index.add(mod("handling", path("Common/Data/handling.dat"), path("common/data/carcols.dat")));
+        return index;
+    }
+
+    @Test
+    void findsModsOverridingAMod() {
+        ConflictIndex index = index();
+
+        assertEquals(List.of("models", "cars", "handling"), index.overriding("base"));
+        assertEquals(List.of("cars"), index.overriding("models"));
+        assertEquals(List.of(), index.overriding("cars"));
+        assertEquals(List.of(), index.overriding("handling"));
+        assertEquals(List.of(), index.overriding("unknown"));
+    }
+
+    @Test
+    void looksUpModsAlongThePath() {
+        ConflictIndex index = index();
+
+        assertEquals(List.of("models", "base", "cars"), index.modsAt(INFERNUS.toUpperCase()));
+        assertEquals("cars", index.owner(INFERNUS));
+        assertEquals("base", index.owner(VEHICLES + "/turismo.wft"));
+        assertEquals("handling", index.owner("common\\data\\handling.dat"));
+        assertNull(index.owner("common/data/default.dat"));
+        assertEquals(Map.of("pc/models/cdimages", List.of("models", "base", "cars")),
+                index.conflicts(List.of("pc/models/cdimages", "pc/audio")));
+    }
+
+    @Test
+    void countsPathsChangedByMoreThanOneMod() {
+        ConflictIndex index = index();
+        assertEquals(1, index.conflictedPaths());
+
+        index.add(mod("more-cars", new InstalledMod.ChangedPath(VEHICLES, "entries", new String[]{"INFERNUS.wft"})));
+        assertEquals(2, index.conflictedPaths());
+        // A third mod on the same entry does not add a conflicted path
+        index.add(mod("even-more-cars", new InstalledMod.ChangedPath(VEHICLES, "entries", new String[]{"infernus.wft"})));
+        assertEquals(2, index.conflictedPaths());
+
+        assertTrue(index.remove("more-cars"));
+        assertEquals(2, index.conflictedPaths());
+        assertTrue(index.remove("even-more-cars"));
+        assertEquals(1, index.conflictedPaths());
+    }
+
+    @Test
+    void removingTheOverridingModPrunesTheTrie() {
+        ConflictIndex index = index();
+        // pc, models, cdimages, vehicles.img, infernus.wft, banshee.wft, common, data, handling.dat, carcols.dat
+        assertEquals(10, index.nodes());
+
+        assertTrue(index.remove("handling"));
+        assertFalse(index.remove("handling"));
+        assertEquals(9, index.nodes());
+        assertEquals(0, index.conflictedPaths());
+        assertEquals("base", index.owner("common/data/handling.dat"));
+        assertEquals(List.of("models", "cars"), index.overriding("base"));
+
+        assertTrue(index.remove("cars"));
+        assertEquals(7, index.nodes());
+        assertEquals("base", index.owner(INFERNUS));
+        assertEquals(List.of("models"), index.overriding("base"));
+
+        index.remove("models");
+        index.remove("base");
+        assertEquals(0, index.nodes());
+        assertTrue(index.mods().isEmpty());
+    }
+
+    private static InstalledMod mod(String id, InstalledMod.ChangedPath... paths) {
+        return new InstalledMod(id, "1.0", paths, null);
+    }
+
+    private static InstalledMod.ChangedPath path(String path) {
+        return new InstalledMod.ChangedPath(path, "backup", null);
+    }
+}
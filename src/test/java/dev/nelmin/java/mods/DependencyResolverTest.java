@@ -0,0 +1,136 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.exceptions.ResolutionException;
+import dev.nelmin.java.objects.IndexedMod;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyResolverTest {
+    @Test
+    void installsDependenciesFirstAndPrefersNewVersions() throws ResolutionException {
+        ModCatalog catalog = catalog(
+                mod("trainer", version("2.0", new String[]{"hook>=1.1", "asi-loader"}), version("1.0", new String[]{"asi-loader"})),
+                mod("hook", version("1.2", new String[]{"asi-loader"}), version("1.1", null), version("1.0", null)),
+                mod("asi-loader", version("1.10", null), version("1.9", null))
+        );
+
+        DependencyResolver.Plan plan = new DependencyResolver(catalog).resolve(new DependencyResolver.Request(List.of("trainer"), null));
+
+        assertEquals(List.of("asi-loader 1.10", "hook 1.2", "trainer 2.0"), steps(plan));
+    }
+
+    @Test
+    void backtracksOverIncompatibleVersions() throws ResolutionException {
+        ModCatalog catalog = catalog(
+                mod("trainer", version("2.0", new String[]{"hook"})),
+                mod("hook", version("1.2", null, new String[]{"enb<3"}), version("1.1", null)),
+                mod("enb", version("2.0", null))
+        );
+
+        DependencyResolver.Plan plan = new DependencyResolver(catalog)
+                .resolve(new DependencyResolver.Request(List.of("trainer", "enb"), null));
+
+        assertEquals(List.of("enb 2.0", "hook 1.1", "trainer 2.0"), steps(plan));
+    }
+
+    @Test
+    void keepsInstalledVersions() {
+        ModCatalog catalog = catalog(
+                mod("trainer", version("2.0", new String[]{"hook>=1.2"})),
+                mod("hook", version("1.2", null), version("1.0", null))
+        );
+
+        ResolutionException error = assertThrows(ResolutionException.class, () -> new DependencyResolver(catalog)
+                .resolve(new DependencyResolver.Request(List.of("trainer"), Map.of("hook", "1.0"), null)));
+        assertTrue(error.getMessage().contains("hook"), error.getMessage());
+    }
+
+    @Test
+    void filtersByGameVersion() throws ResolutionException {
+        ModCatalog catalog = catalog(mod("trainer",
+                version("2.0", null, null, new String[]{"1.2.0.59"}),
+                version("1.0", null, null, new String[]{"1.0.8.0"})));
+
+        DependencyResolver resolver = new DependencyResolver(catalog);
+
+        assertEquals(List.of("trainer 1.0"), steps(resolver.resolve(new DependencyResolver.Request(List.of("trainer"), "1080"))));
+        assertEquals(List.of("trainer 2.0"), steps(resolver.resolve(new DependencyResolver.Request(List.of("trainer"), "1.2.0.59"))));
+        assertThrows(ResolutionException.class, () -> resolver.resolve(new DependencyResolver.Request(List.of("trainer"), "1040")));
+    }
+
+    @Test
+    void skipsVersionsWithMalformedRequirements() throws ResolutionException {
+        ModCatalog catalog = catalog(mod("trainer", version("2.0", new String[]{"hook 1.0"}), version("1.0", null)));
+
+        DependencyResolver.Plan plan = new DependencyResolver(catalog).resolve(new DependencyResolver.Request(List.of("trainer"), null));
+
+        assertEquals(List.of("trainer 1.0"), steps(plan));
+    }
+
+    @Test
+    void reportsMalformedRequirements() {
+        ModCatalog catalog = catalog(mod("trainer", version("2.0", new String[]{"hook 1.0"}, new String[]{"=1.0"})));
+
+        ResolutionException error = assertThrows(ResolutionException.class, () -> new DependencyResolver(catalog)
+                .resolve(new DependencyResolver.Request(List.of("trainer"), null)));
+        assertTrue(error.getMessage().contains("hook 1.0"), error.getMessage());
+        assertTrue(error.getMessage().contains("=1.0"), error.getMessage());
+        assertThrows(ResolutionException.class, () -> new DependencyResolver(catalog)
+                .resolve(new DependencyResolver.Request(List.of("trainer>=1,"), null)));
+    }
+
+    @Test
+    void cachesPlansUntilCatalogChanges() throws ResolutionException {
+        ModCatalog catalog = catalog(mod("trainer", version("1.0", null)));
+        DependencyResolver resolver = new DependencyResolver(catalog);
+        DependencyResolver.Request request = new DependencyResolver.Request(List.of("trainer"), null);
+
+        DependencyResolver.Plan plan = resolver.resolve(request);
+        assertSame(plan, resolver.resolve(request));
+
+        catalog.apply(List.of(mod("trainer", version("1.1", null))), List.of(), null);
+        assertEquals(List.of("trainer 1.1"), steps(resolver.resolve(request)));
+    }
+
+    @Test
+    void comparesVersionsBySegment() {
+        assertTrue(DependencyResolver.compareVersions("1.10", "1.9") > 0);
+        assertEquals(0, DependencyResolver.compareVersions("1.0", "1.0.0"));
+        assertTrue(DependencyResolver.compareVersions("1.0", "1.0-beta") > 0);
+        assertTrue(DependencyResolver.compareVersions("1.0-alpha", "1.0-BETA") < 0);
+    }
+
+    private static List<String> steps(DependencyResolver.Plan plan) {
+        return plan.installs().stream().map(step -> step.id() + " " + step.version().version()).toList();
+    }
+
+    private static ModCatalog catalog(IndexedMod... mods) {
+        ModCatalog catalog = new ModCatalog();
+        catalog.apply(List.of(mods), List.of(), null);
+        return catalog;
+    }
+
+    private static IndexedMod mod(String id, IndexedMod.Version... versions) {
+        return new IndexedMod(id, id, null, null, null, versions, null);
+    }
+
+    private static IndexedMod.Version version(String version, String[] dependencies) {
+        return version(version, dependencies, null, null);
+    }
+
+    private static IndexedMod.Version version(String version, String[] dependencies, String[] incompatible) {
+        return version(version, dependencies, incompatible, null);
+    }
+
+    private static IndexedMod.Version version(String version, String[] dependencies, String[] incompatible, String[] gameVersions) {
+        return new IndexedMod.Version(version, null, null, dependencies,
+                new IndexedMod.Version.Compatibility(gameVersions, incompatible), null);
+    }
+}
@@ -0,0 +1,74 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.objects.InstalledMod;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FusionOverlayTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void placesFilesBelowUpdate() {
+        assertEquals("update/common/data/handling.dat", FusionOverlay.overlayPath("common/data/handling.dat"));
+        assertEquals("update/pc/textures/loading.wtd", FusionOverlay.overlayPath("update/pc/textures/loading.wtd"));
+        assertEquals("Update/pc/textures/loading.wtd", FusionOverlay.overlayPath("Update/pc/textures/loading.wtd"));
+    }
+
+    @Test
+    void plansShadowedAndReplacedFiles() throws IOException {
+        ConflictIndex conflicts = new ConflictIndex();
+        conflicts.add(mod("handling", "common/data/handling.dat", null));
+        conflicts.add(mod("trees", "pc/models/cdimages/vehicles.img", null));
+        conflicts.add(mod("cars", "pc/models/cdimages/vehicles.img", new String[]{"infernus.wft"}));
+        conflicts.add(mod("loading", "update/pc/textures/loading.wtd", null));
+        conflicts.add(mod("colors", "update/common/data/carcols.dat", null));
+
+        Path mod = directory.resolve("mod");
+        write(mod.resolve(ModLayout.MANIFEST), "{\"name\":\"Test\",\"version\":\"1.0\"}");
+        write(mod.resolve("files/common/data/handling.dat"), "modded");
+        write(mod.resolve("files/common/data/carcols.dat"), "modded");
+        write(mod.resolve("files/pc/models/cdimages/vehicles.img/infernus.wft"), "modded");
+        write(mod.resolve("files/update/pc/textures/loading.wtd"), "modded");
+        write(mod.resolve("files/common/text/american.gxt"), "modded");
+
+        FusionOverlay.Plan plan;
+        try (ModSource source = ModSource.open(mod)) {
+            plan = FusionOverlay.plan(source, conflicts);
+        }
+
+        assertEquals(5, plan.files().size());
+        assertTrue(plan.files().keySet().stream().allMatch(path -> path.startsWith(FusionOverlay.UPDATE)));
+        assertEquals("update/pc/textures/loading.wtd", plan.files().get("update/pc/textures/loading.wtd").path());
+        // Changed in place, hidden by the overlay
+        assertEquals(Map.of(
+                "common/data/handling.dat", List.of("handling"),
+                "pc/models/cdimages/vehicles.img/infernus.wft", List.of("trees", "cars")
+        ), plan.shadowed());
+        // Provided by another overlay, backed up and replaced
+        assertEquals(Map.of(
+                "update/common/data/carcols.dat", List.of("colors"),
+                "update/pc/textures/loading.wtd", List.of("loading")
+        ), plan.replaced());
+        assertFalse(plan.shadowed().containsKey("common/text/american.gxt"));
+    }
+
+    private static InstalledMod mod(String id, String path, String[] entries) {
+        return new InstalledMod(id, "1.0", new InstalledMod.ChangedPath[]{new InstalledMod.ChangedPath(path, "backup", entries)}, null);
+    }
+
+    private static void write(Path path, String contents) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, contents);
+    }
+}
@@ -0,0 +1,156 @@
+package dev.nelmin.java.mods;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.nelmin.java.objects.IndexedMod;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static dev.nelmin.java.mods.CatalogSnapshotTest.mod;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexSyncTest {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+    private volatile String body;
+    private Path index;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/index", this::serve);
+        server.start();
+        index = directory.resolve("MOD_INDEX.json");
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void logsChangeSetsAndReplaysThemOnOpen() throws IOException {
+        ModCatalog initial = new ModCatalog();
+        initial.apply(List.of(mod("trainer", "Simple Trainer", "1.2.0.59"), mod("old", "Old Mod", "1.2.0.59")), List.of(), "1");
+        IndexSync sync = sync();
+        sync.compact(initial);
+        byte[] written = Files.readAllBytes(index);
+
+        ModCatalog catalog = IndexSync.open(index);
+        int[] notified = new int[1];
+        catalog.addListener(() -> notified[0]++);
+        body = changes("2", List.of(mod("new", "New Mod", "1.2.0.59")), List.of(mod("trainer", "Trainer 2", "1.2.0.59")), List.of("old"));
+        IndexSync.Result result = sync.sync(catalog);
+
+        assertEquals(new IndexSync.Result(1, 1, 1, "2"), result);
+        assertEquals(List.of("since=1"), queries);
+        assertEquals(1, notified[0]);
+        assertArrayEquals(written, Files.readAllBytes(index));
+        assertTrue(Files.exists(directory.resolve("MOD_INDEX.changes")));
+
+        ModCatalog reopened = IndexSync.open(index);
+        assertEquals(Set.of("trainer", "new"), reopened.ids());
+        assertEquals("Trainer 2", reopened.get("trainer").name());
+        assertEquals("2", reopened.lastUpdate());
+    }
+
+    @Test
+    void diffsCompleteIndexAgainstCatalog() throws IOException {
+        ModCatalog catalog = new ModCatalog();
+        catalog.apply(List.of(mod("a", "A", "1.2.0.59"), mod("b", "B", "1.2.0.59"), mod("c", "C", "1.2.0.59")), List.of(), "1");
+        IndexSync sync = sync();
+        sync.compact(catalog);
+
+        body = GSON.toJson(Map.of(
+                "meta", Map.of("last_update", "2"),
+                "mods", List.of(mod("a", "A", "1.2.0.59"), mod("b", "B changed", "1.2.0.59"), mod("d", "D", "1.2.0.59"))
+        ));
+        IndexSync.Result result = sync.sync(catalog);
+
+        assertEquals(new IndexSync.Result(1, 1, 1, "2"), result);
+        assertEquals(Set.of("a", "b", "d"), catalog.ids());
+        assertEquals("B changed", catalog.get("b").name());
+    }
+
+    @Test
+    void skipsChangeSetTornByCrash() throws IOException {
+        IndexSync sync = sync();
+        ModCatalog catalog = new ModCatalog();
+        catalog.apply(List.of(mod("a", "A", "1.2.0.59")), List.of(), "1");
+        sync.compact(catalog);
+
+        body = changes("2", List.of(mod("b", "B", "1.2.0.59")), List.of(), List.of());
+        sync.sync(catalog);
+        Path log = directory.resolve("MOD_INDEX.changes");
+        Files.writeString(log, "{\"last_update\":\"3\",\"upse", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        body = changes("4", List.of(mod("c", "C", "1.2.0.59")), List.of(), List.of());
+        sync.sync(catalog);
+
+        ModCatalog reopened = IndexSync.open(index);
+        assertEquals(Set.of("a", "b", "c"), reopened.ids());
+        assertEquals("4", reopened.lastUpdate());
+    }
+
+    @Test
+    void compactsIntoIndexFile() throws IOException {
+        IndexSync sync = sync();
+        ModCatalog catalog = IndexSync.open(index);
+        body = changes("1", List.of(mod("a", "A", "1.2.0.59")), List.of(), List.of());
+
+        // Without an index file, the first change set is written as the index
+        sync.sync(catalog);
+        assertEquals(Set.of("a"), ModCatalog.load(index).ids());
+        assertFalse(Files.exists(directory.resolve("MOD_INDEX.changes")));
+        assertTrue(Files.exists(directory.resolve("MOD_INDEX.snapshot")));
+        assertEquals(Set.of("a"), IndexSync.open(index).ids());
+    }
+
+    private IndexSync sync() {
+        return new IndexSync(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/index"), index);
+    }
+
+    private static String changes(String lastUpdate, List<IndexedMod> added, List<IndexedMod> modified, List<String> removed) {
+        return GSON.toJson(Map.of(
+                "meta", Map.of("last_update", lastUpdate),
+                "added", added,
+                "modified", modified,
+                "removed", removed
+        ));
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) queries.add(query);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
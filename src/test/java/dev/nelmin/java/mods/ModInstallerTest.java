@@ -0,0 +1,290 @@
+package dev.nelmin.java.mods;
+
+import dev.nelmin.java.fs.backup.BackupStore;
+import dev.nelmin.java.fs.backup.EntryBackup;
+import dev.nelmin.java.fs.files.EntrySource;
+import dev.nelmin.java.fs.files.IMGFile;
+import dev.nelmin.java.fs.files.IMGWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModInstallerTest {
+    @TempDir
+    Path directory;
+
+    private Path game;
+    private InstalledMods registry;
+    private ModInstaller installer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        game = Files.createDirectories(directory.resolve("game"));
+        registry = InstalledMods.load(directory.resolve("installed.json"));
+        installer = new ModInstaller(game, registry, 2, null);
+    }
+
+    @Test
+    void installsAndUninstalls() throws IOException {
+        write(game.resolve("common/data/handling.dat"), "original");
+        img(game.resolve("vehicles.img"), "infernus.wft", "original infernus");
+
+        Path mod = directory.resolve("mod");
+        write(mod.resolve(ModLayout.MANIFEST), "{\"name\":\"Test\",\"version\":\"1.0\"}");
+        write(mod.resolve("files/common/data/handling.dat"), "modded");
+        write(mod.resolve("files/common/data/new.dat"), "added");
+        write(mod.resolve("files/vehicles.img/infernus.wft"), "modded infernus");
+
+        try (ModSource source = ModSource.open(mod)) {
+            installer.install("test", source);
+        }
+        assertEquals("modded", read(game.resolve("common/data/handling.dat")));
+        assertEquals("added", read(game.resolve("common/data/new.dat")));
+        assertEquals("modded infernus", entry(game.resolve("vehicles.img"), "infernus.wft"));
+        assertNotNull(registry.get("test"));
+        assertFalse(Files.exists(game.resolve("MTIV-Journal.json")));
+
+        assertTrue(installer.uninstall("test"));
+        assertEquals("original", read(game.resolve("common/data/handling.dat")));
+        assertFalse(Files.exists(game.resolve("common/data/new.dat")));
+        assertEquals("original infernus", entry(game.resolve("vehicles.img"), "infernus.wft"));
+        assertNull(registry.get("test"));
+    }
+
+    @Test
+    void rollsBackWhenTheRegistryCannotBeSaved() throws IOException {
+        write(game.resolve("common/data/handling.dat"), "original");
+        img(game.resolve("vehicles.img"), "infernus.wft", "original infernus");
+        // Takes the place of the registry's temporary file
+        write(directory.resolve("installed.json.tmp/blocked"), "");
+
+        Path mod = directory.resolve("mod");
+        write(mod.resolve(ModLayout.MANIFEST), "{\"name\":\"Test\",\"version\":\"1.0\"}");
+        write(mod.resolve("files/common/data/handling.dat"), "modded");
+        write(mod.resolve("files/common/data/new.dat"), "added");
+        write(mod.resolve("files/vehicles.img/infernus.wft"), "modded infernus");
+
+        try (ModSource source = ModSource.open(mod)) {
+            assertThrows(IOException.class, () -> installer.install("test", source));
+        }
+        assertEquals("original", read(game.resolve("common/data/handling.dat")));
+        assertFalse(Files.exists(game.resolve("common/data/new.dat")));
+        assertEquals("original infernus", entry(game.resolve("vehicles.img"), "infernus.wft"));
+        assertNull(registry.get("test"));
+        assertFalse(Files.exists(game.resolve("MTIV-Journal.json")));
+        assertFalse(installer.recover());
+    }
+
+    @Test
+    void installsOverlayWithoutTouchingGameFiles() throws IOException {
+        write(game.resolve("common/data/handling.dat"), "original");
+        img(game.resolve("vehicles.img"), "infernus.wft", "original infernus");
+
+        Path mod = directory.resolve("mod");
+        write(mod.resolve(ModLayout.MANIFEST), "{\"name\":\"Test\",\"version\":\"1.0\"}");
+        write(mod.resolve("files/common/data/handling.dat"), "modded");
+        write(mod.resolve("files/vehicles.img/infernus.wft"), "modded infernus");
+
+        try (ModSource source = ModSource.open(mod)) {
+            installer.installOverlay("test", "1.0", source);
+        }
+        assertEquals("modded", read(game.resolve("update/common/data/handling.dat")));
+        assertEquals("modded infernus", read(game.resolve("update/vehicles.img/infernus.wft")));
+        assertEquals("original", read(game.resolve("common/data/handling.dat")));
+        assertEquals("original infernus", entry(game.resolve("vehicles.img"), "infernus.wft"));
+
+        assertTrue(installer.uninstall("test"));
+        assertFalse(Files.exists(game.resolve("update/common/data/handling.dat")));
+        assertFalse(Files.exists(game.resolve("update/vehicles.img/infernus.wft")));
+    }
+
+    @Test
+    void overlayNeverWritesIntoAnArchiveBelowUpdate() throws IOException {
+        // A whole archive placed in the overlay earlier; a folder of the same name cannot be added next to it
+        img(Files.createDirectories(game.resolve("update")).resolve("vehicles.img"), "infernus.wft", "overlay infernus");
+
+        Path mod = directory.resolve("mod");
+        write(mod.resolve(ModLayout.MANIFEST), "{\"name\":\"Test\",\"version\":\"1.0\"}");
+        write(mod.resolve("files/update/vehicles.img/infernus.wft"), "modded infernus");
+
+        try (ModSource source = ModSource.open(mod)) {
+            assertThrows(IOException.class, () -> installer.installOverlay("test", "1.0", source));
+        }
+        assertEquals("overlay infernus", entry(game.resolve("update/vehicles.img"), "infernus.wft"));
+        assertNull(registry.get("test"));
+    }
+
+    @Test
+    void overlayBacksUpFilesOfAnotherOverlay() throws IOException {
+        Path first = directory.resolve("first");
+        write(first.resolve(ModLayout.MANIFEST), "{\"name\":\"First\",\"version\":\"1.0\"}");
+        write(first.resolve("files/common/data/handling.dat"), "first");
+        Path second = directory.resolve("second");
+        write(second.resolve(ModLayout.MANIFEST), "{\"name\":\"Second\",\"version\":\"1.0\"}");
+        write(second.resolve("files/common/data/handling.dat"), "second");
+
+        try (ModSource source = ModSource.open(first)) {
+            installer.installOverlay("first", "1.0", source);
+        }
+        try (ModSource source = ModSource.open(second)) {
+            assertEquals(List.of("first"), installer.planOverlay(source).replaced().get("update/common/data/handling.dat"));
+            installer.installOverlay("second", "1.0", source);
+        }
+        assertEquals("second", read(game.resolve("update/common/data/handling.dat")));
+
+        assertTrue(installer.uninstall("second"));
+        assertEquals("first", read(game.resolve("update/common/data/handling.dat")));
+    }
+
+    @Test
+    void overlayLinksUnpackedFilesExceptArchives() throws IOException {
+        Path mod = directory.resolve("mod");
+        write(mod.resolve(ModLayout.MANIFEST), "{\"name\":\"Test\",\"version\":\"1.0\"}");
+        write(mod.resolve("files/common/data/handling.dat"), "modded");
+        img(Files.createDirectories(mod.resolve("files/pc/models/cdimages")).resolve("vehicles.img"), "infernus.wft", "modded infernus");
+
+        try (ModSource source = ModSource.open(mod)) {
+            installer.installOverlay("test", "1.0", source);
+        }
+        assertTrue(Files.isSameFile(mod.resolve("files/common/data/handling.dat"), game.resolve("update/common/data/handling.dat")));
+        // Copied, entries written into the installed archive must not reach the mod's file
+        Path archive = game.resolve("update/pc/models/cdimages/vehicles.img");
+        assertFalse(Files.isSameFile(mod.resolve("files/pc/models/cdimages/vehicles.img"), archive));
+        assertEquals("modded infernus", entry(archive, "infernus.wft"));
+
+        assertTrue(installer.uninstall("test"));
+        assertFalse(Files.exists(game.resolve("update/common/data/handling.dat")));
+        assertEquals("modded", read(mod.resolve("files/common/data/handling.dat")));
+    }
+
+    @Test
+    void overlayCopiesFilesOfPackedMods() throws IOException {
+        Path mod = directory.resolve("mod.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(mod))) {
+            zip.putNextEntry(new ZipEntry(ModLayout.MANIFEST));
+            zip.write("{\"name\":\"Test\",\"version\":\"1.0\"}".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("files/common/data/handling.dat"));
+            zip.write("modded".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (ModSource source = ModSource.open(mod)) {
+            installer.installOverlay("test", "1.0", source);
+        }
+        Path installed = game.resolve("update/common/data/handling.dat");
+        assertEquals("modded", read(installed));
+        assertFalse(Files.exists(game.resolve("update/common/data/handling.dat" + ModInstaller.STAGED_SUFFIX)));
+    }
+
+    @Test
+    void recoveryRollsBackOnlyAppliedOperations() throws IOException {
+        BackupStore backups = new BackupStore(game.resolve("MTIV-Backups"));
+        EntryBackup entryBackups = new EntryBackup(game.resolve("MTIV-Backups").resolve("entries"));
+
+        // Moved into place before the crash; the journal was not written again, but the staged file is gone
+        write(game.resolve("moved.dat"), "original");
+        backups.backup(game.resolve("moved.dat"), "moved");
+        write(game.resolve("moved.dat"), "modded");
+
+        // Marked applied and moved into place
+        write(game.resolve("added.dat"), "modded");
+
+        // Never applied: the staged file is still there and the target must keep what it has now
+        write(game.resolve("pending.dat"), "backup");
+        backups.backup(game.resolve("pending.dat"), "pending");
+        write(game.resolve("pending.dat"), "current");
+        write(game.resolve("pending.dat" + ModInstaller.STAGED_SUFFIX), "modded");
+
+        // Archive marked before its commit, and one that was never written
+        img(game.resolve("applied.img"), "a.wft", "original");
+        try (IMGFile archive = new IMGFile(game.resolve("applied.img"))) {
+            entryBackups.backup(archive, "applied", List.of("a.wft"));
+            new IMGWriter(archive).put("a.wft", EntrySource.of(utf8("modded"))).commit();
+        }
+        img(game.resolve("pending.img"), "p.wft", "backup");
+        try (IMGFile archive = new IMGFile(game.resolve("pending.img"))) {
+            entryBackups.backup(archive, "pending-img", List.of("p.wft"));
+            new IMGWriter(archive).put("p.wft", EntrySource.of(utf8("current"))).commit();
+        }
+
+        new InstallJournal("tx", "test", "1.0", InstallJournal.State.APPLYING, new InstallJournal.Operation[]{
+                new InstallJournal.Operation("moved.dat", false, true, "moved", null, false),
+                new InstallJournal.Operation("added.dat", false, false, null, null, true),
+                new InstallJournal.Operation("applied.img", true, true, "applied", new String[]{"a.wft"}, true),
+                new InstallJournal.Operation("pending.img", true, true, "pending-img", new String[]{"p.wft"}, false),
+                new InstallJournal.Operation("pending.dat", false, true, "pending", null, false),
+        }).write(game.resolve("MTIV-Journal.json"));
+
+        assertTrue(installer.recover());
+
+        assertEquals("original", read(game.resolve("moved.dat")));
+        assertFalse(Files.exists(game.resolve("added.dat")));
+        assertEquals("original", entry(game.resolve("applied.img"), "a.wft"));
+        assertEquals("current", entry(game.resolve("pending.img"), "p.wft"));
+        assertEquals("current", read(game.resolve("pending.dat")));
+        assertFalse(Files.exists(game.resolve("pending.dat" + ModInstaller.STAGED_SUFFIX)));
+        assertNull(backups.manifest("pending"));
+        assertFalse(Files.exists(game.resolve("MTIV-Journal.json")));
+    }
+
+    @Test
+    void journalRoundTripsTheAppliedFlags() throws IOException {
+        InstallJournal journal = new InstallJournal("tx", "test", "1.0", InstallJournal.State.APPLYING, new InstallJournal.Operation[]{
+                new InstallJournal.Operation("a.dat", false, true, "a", null, false),
+                new InstallJournal.Operation("b.img", true, true, "b", new String[]{"x.wft"}, false),
+        }).withApplied(1);
+        Path path = directory.resolve("journal.json");
+        journal.write(path);
+
+        InstallJournal read = InstallJournal.read(path);
+        assertNotNull(read);
+        assertFalse(read.operations()[0].applied());
+        assertTrue(read.operations()[1].applied());
+        assertFalse(journal.withState(InstallJournal.State.COMMITTED).operations()[0].applied());
+    }
+
+    private static void img(Path path, String name, String contents) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(IMGFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(IMGFile.MAGIC).putInt(IMGFile.VERSION).putInt(0).putInt(0)
+                .putShort((short) IMGFile.TOC_ITEM_SIZE).putShort((short) 0);
+        Files.write(path, header.array());
+        try (IMGFile archive = new IMGFile(path)) {
+            new IMGWriter(archive).put(name, EntrySource.of(utf8(contents))).commit();
+        }
+    }
+
+    private static String entry(Path path, String name) throws IOException {
+        try (IMGFile archive = new IMGFile(path)) {
+            return StandardCharsets.UTF_8.decode(archive.read(name)).toString();
+        }
+    }
+
+    private static ByteBuffer utf8(String contents) {
+        return ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void write(Path path, String contents) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, contents);
+    }
+
+    private static String read(Path path) throws IOException {
+        return Files.readString(path);
+    }
+}
@@ -0,0 +1,101 @@
+package dev.nelmin.java.mods;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TarGzModSourceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsFilesInAnyOrder() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put(ModLayout.MANIFEST, "{\"name\":\"Test\",\"version\":\"1.0\"}");
+        for (int i = 0; i < 5; i++) entries.put("files/vehicles.img/car" + i + ".wft", "car " + i);
+        Path archive = tarGz(entries);
+
+        try (ModSource source = ModSource.open(archive)) {
+            List<ModSource.ModFile> files = source.files();
+            assertEquals(5, files.size());
+
+            List<ModSource.ModFile> reversed = files.reversed();
+            for (ModSource.ModFile file : reversed) assertEquals(expected(file), read(source, file));
+
+            source.spool(reversed);
+            for (ModSource.ModFile file : reversed) assertEquals(expected(file), read(source, file));
+        }
+    }
+
+    @Test
+    void deletesSpooledCopiesOnClose() throws IOException {
+        Path archive = tarGz(Map.of(
+                ModLayout.MANIFEST, "{\"name\":\"Test\",\"version\":\"1.0\"}",
+                "files/a.dat", "a"
+        ));
+        Path temp = Path.of(System.getProperty("java.io.tmpdir"));
+        List<Path> before;
+        try (var listing = Files.list(temp)) {
+            before = listing.toList();
+        }
+
+        try (ModSource source = ModSource.open(archive)) {
+            source.spool(source.files());
+        }
+        try (var listing = Files.list(temp)) {
+            assertFalse(listing.anyMatch(path -> !before.contains(path) && path.getFileName().toString().startsWith("mtiv-spool")));
+        }
+    }
+
+    private static String expected(ModSource.ModFile file) {
+        String name = file.path().substring(file.path().lastIndexOf('/') + 1);
+        return "car " + name.charAt(3);
+    }
+
+    private static String read(ModSource source, ModSource.ModFile file) throws IOException {
+        try (InputStream in = source.open(file)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Writes a ustar archive of regular files.
+     */
+    private Path tarGz(Map<String, String> entries) throws IOException {
+        Path path = directory.resolve("mod.tar.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                byte[] data = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                byte[] header = new byte[512];
+                put(header, 0, entry.getKey());
+                put(header, 100, "0000644");
+                put(header, 124, String.format("%011o", data.length));
+                header[156] = '0';
+                put(header, 257, "ustar");
+                out.write(header);
+                out.write(data);
+                out.write(new byte[(512 - data.length % 512) % 512]);
+            }
+            out.write(new byte[1024]);
+        }
+        return path;
+    }
+
+    private static void put(byte[] block, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, block, offset, bytes.length);
+    }
+}
@@ -0,0 +1,168 @@
+package dev.nelmin.java.net;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModDownloaderTest {
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+    private static final byte[] DATA = data(300_000);
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private volatile boolean acceptRanges = true;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/mod.zip", this::serve);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void downloadsInSegments() throws Exception {
+        Path target = directory.resolve("mod.zip");
+        try (ModDownloader downloader = new ModDownloader(4, 1)) {
+            downloader.download(uri(), DATA.length, sha512(DATA), target, null);
+        }
+
+        assertArrayEquals(DATA, Files.readAllBytes(target));
+        assertEquals(4, ranges.size());
+        assertTrue(ranges.contains("bytes=0-74999"));
+        assertTrue(ranges.contains("bytes=225000-299999"));
+        assertFalse(Files.exists(directory.resolve("mod.zip.part")));
+        assertFalse(Files.exists(directory.resolve("mod.zip.part.state")));
+    }
+
+    @Test
+    void resumesFromTheSavedState() throws Exception {
+        Path target = directory.resolve("mod.zip");
+        Files.write(directory.resolve("mod.zip.part"), Arrays.copyOf(DATA, 100_000));
+        Files.writeString(directory.resolve("mod.zip.part.state"),
+                uri() + "\n" + DATA.length + "\n0 150000 100000\n150000 300000 0\n");
+
+        try (ModDownloader downloader = new ModDownloader(4, 1)) {
+            downloader.download(uri(), DATA.length, sha512(DATA), target, null);
+        }
+
+        assertArrayEquals(DATA, Files.readAllBytes(target));
+        assertEquals(List.of("bytes=100000-149999", "bytes=150000-299999"), ranges.stream().sorted().toList());
+    }
+
+    @Test
+    void ignoresStateOfAnotherFile() throws Exception {
+        Path target = directory.resolve("mod.zip");
+        Files.write(directory.resolve("mod.zip.part"), new byte[100_000]);
+        Files.writeString(directory.resolve("mod.zip.part.state"), uri() + "\n12345\n0 12345 100000\n");
+
+        try (ModDownloader downloader = new ModDownloader(1, 1)) {
+            downloader.download(uri(), DATA.length, sha512(DATA), target, null);
+        }
+
+        assertArrayEquals(DATA, Files.readAllBytes(target));
+        assertEquals(List.of("bytes=0-299999"), ranges);
+    }
+
+    @Test
+    void streamsWithoutRangeSupport() throws Exception {
+        acceptRanges = false;
+        Path target = directory.resolve("mod.zip");
+        try (ModDownloader downloader = new ModDownloader(4, 1)) {
+            downloader.download(uri(), DATA.length, sha512(DATA), target, null);
+        }
+
+        assertArrayEquals(DATA, Files.readAllBytes(target));
+        assertTrue(ranges.isEmpty());
+    }
+
+    @Test
+    void discardsADownloadWithTheWrongDigest() {
+        Path target = directory.resolve("mod.zip");
+        try (ModDownloader downloader = new ModDownloader(4, 1)) {
+            assertThrows(IOException.class, () -> downloader.download(uri(), DATA.length, sha512(new byte[1]), target, null));
+        }
+
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(directory.resolve("mod.zip.part")));
+        assertFalse(Files.exists(directory.resolve("mod.zip.part.state")));
+    }
+
+    private URI uri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/mod.zip");
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        if (acceptRanges) exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(DATA.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        int from = 0;
+        int to = DATA.length - 1;
+        int status = 200;
+        if (acceptRanges && range != null) {
+            ranges.add(range);
+            Matcher matcher = RANGE.matcher(range);
+            if (!matcher.matches()) {
+                exchange.sendResponseHeaders(416, -1);
+                exchange.close();
+                return;
+            }
+            from = Integer.parseInt(matcher.group(1));
+            if (!matcher.group(2).isEmpty()) to = Math.min(to, Integer.parseInt(matcher.group(2)));
+            status = 206;
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + to + "/" + DATA.length);
+        }
+
+        exchange.sendResponseHeaders(status, to - from + 1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(DATA, from, to - from + 1);
+        }
+    }
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) data[i] = (byte) (i * 131 + (i >> 8));
+        return data;
+    }
+
+    private static String sha512(byte[] data) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-512").digest(data));
+    }
+}
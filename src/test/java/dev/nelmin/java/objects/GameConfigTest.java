@@ -0,0 +1,55 @@
+package dev.nelmin.java.objects;
+
+import dev.nelmin.java.configuration.ConfigPath;
+import dev.nelmin.java.configuration.JSONConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GameConfigTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replacesStoredExecutableWithItsDirectory() throws IOException {
+        Path executable = Files.writeString(directory.resolve("GTAIV.exe"), "MZ");
+        JSONConfiguration config = JSONConfiguration.create();
+        config.set("game.default", "1080");
+        config.set("game." + ConfigPath.escape("1080") + ".directory", executable.toString());
+
+        GameConfig game = config.bind("game", GameConfig.class).get();
+
+        assertEquals(directory.toString(), game.installations().get("1080").directory());
+        assertEquals(directory, game.defaultDirectory());
+    }
+
+    @Test
+    void keepsStoredDirectory() {
+        JSONConfiguration config = JSONConfiguration.create();
+        config.set("game.default", "1080");
+        config.set("game.1080.directory", directory.toString());
+
+        assertEquals(directory, config.bind("game", GameConfig.class).get().defaultDirectory());
+    }
+
+    @Test
+    void decodesRpfKey() {
+        JSONConfiguration config = JSONConfiguration.create();
+        config.set("game.rpf_key", "00112233445566778899AABBCCDDEEFF00112233445566778899aabbccddeeff");
+        GameConfig game = config.bind("game", GameConfig.class).get();
+
+        assertEquals(32, game.rpfKey().length);
+        assertEquals(0x11, game.rpfKey()[1]);
+        assertFalse(game.installations().containsKey("rpf_key"));
+
+        config.set("game.rpf_key", "0011");
+        assertNull(config.bind("game", GameConfig.class).get().rpfKey());
+    }
+}
@@ -0,0 +1,61 @@
+package dev.nelmin.java.scene;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ListFilterTest {
+    private static final List<String> ITEMS = items(1000);
+
+    @Test
+    void diffTurnsShownListIntoResult() {
+        List<String> from = ITEMS.subList(0, 500);
+        List<String> to = new ArrayList<>(ITEMS.subList(10, 300));
+        to.addAll(ITEMS.subList(600, 620));
+
+        List<ListFilter.Edit<String>> edits = ListFilter.diff(from, to, () -> false);
+
+        assertNotNull(edits);
+        assertEquals(to, apply(from, edits));
+    }
+
+    @Test
+    void diffReplacesListWithTooManyChanges() {
+        List<String> from = ITEMS;
+        List<String> to = new ArrayList<>();
+        for (int i = 0; i < ITEMS.size(); i += 2) to.add(ITEMS.get(i));
+
+        assertNull(ListFilter.diff(from, to, () -> false));
+    }
+
+    @Test
+    void diffStopsOnceStale() {
+        int[] checks = new int[1];
+        List<String> to = new ArrayList<>(ITEMS.subList(0, 100));
+        to.addAll(ITEMS.subList(200, 300));
+
+        assertNull(ListFilter.diff(ITEMS.subList(0, 300), to, () -> ++checks[0] > 0));
+        assertEquals(1, checks[0]);
+    }
+
+    private static List<String> apply(List<String> from, List<ListFilter.Edit<String>> edits) {
+        List<String> list = new ArrayList<>(from);
+        for (ListFilter.Edit<String> edit : edits) {
+            list.subList(edit.index(), edit.index() + edit.removed()).clear();
+            list.addAll(edit.index(), edit.inserted());
+        }
+        return list;
+    }
+
+    private static List<String> items(int count) {
+        List<String> items = new ArrayList<>(count);
+        // Distinct instances, the diff compares by identity
+        for (int i = 0; i < count; i++) items.add(new String("item" + i));
+        return List.copyOf(items);
+    }
+}